@@ -0,0 +1,84 @@
+package eu.virtualparadox.springembedder.benchmark;
+
+import eu.virtualparadox.springembedder.layouter.BatchLayouter;
+import eu.virtualparadox.springembedder.layouter.FruchtermanReingoldLayouter;
+import eu.virtualparadox.springembedder.layouter.RepulsionMode;
+import eu.virtualparadox.springembedder.renderercallback.NoOpRendererCallback;
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultWeightedEdge;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Graphs per second for a batch of small graphs, laid out one after the other with a new
+ * {@link FruchtermanReingoldLayouter} each, and with the {@link BatchLayouter} on the common pool.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class BatchLayouterBenchmark {
+
+    private static final int WIDTH = 1920;
+    private static final int HEIGHT = 1080;
+    private static final int BATCH_SIZE = 256;
+
+    @Param({"SCALE_FREE", "GRID"})
+    private GraphShape shape;
+
+    @Param({"BARNES_HUT"})
+    private RepulsionMode repulsionMode;
+
+    @Param({"50"})
+    private int iterations;
+
+    private List<Graph<String, DefaultWeightedEdge>> graphs;
+    private BatchLayouter<String, DefaultWeightedEdge> batchLayouter;
+
+    @Setup(Level.Trial)
+    public void createGraphs() {
+        // 50 to 2000 vertices, skewed towards the small ones
+        final Random random = new Random(1);
+        graphs = new ArrayList<>();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            final double r = random.nextDouble();
+            graphs.add(shape.create(50 + (int) (1950 * r * r * r)));
+        }
+        batchLayouter = new BatchLayouter<>(WIDTH, HEIGHT, ForkJoinPool.commonPool(), repulsionMode, FruchtermanReingoldLayouter.DEFAULT_THETA);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void sequential(final Blackhole blackhole) {
+        for (final Graph<String, DefaultWeightedEdge> graph : graphs) {
+            blackhole.consume(new FruchtermanReingoldLayouter<String, DefaultWeightedEdge>(WIDTH, HEIGHT, new NoOpRendererCallback<>(), repulsionMode)
+                    .layout(graph, iterations));
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void batch(final Blackhole blackhole) {
+        batchLayouter.layoutAll(graphs, iterations, (graph, positions) -> blackhole.consume(positions));
+    }
+}
@@ -0,0 +1,48 @@
+package eu.virtualparadox.springembedder.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static org.jocl.CL.clGetPlatformIDs;
+
+/**
+ * Entry point of the benchmark jar. It accepts the usual JMH command line, always attaches the GC
+ * profiler so every result comes with its allocation rate, and leaves out the OpenCL benchmarks when
+ * no OpenCL platform is available.
+ */
+public class BenchmarkRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(BenchmarkRunner.class);
+
+    private BenchmarkRunner() {
+        throw new UnsupportedOperationException("This class cannot be instantiated");
+    }
+
+    public static void main(final String[] args) throws RunnerException, CommandLineOptionException {
+        final ChainedOptionsBuilder options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .addProfiler(GCProfiler.class);
+        if (!isOpenCLAvailable()) {
+            logger.warn("No OpenCL platform found, skipping the OpenCL benchmarks");
+            options.exclude(OpenCLLayouterBenchmark.class.getSimpleName());
+        }
+        new Runner(options.build()).run();
+    }
+
+    private static boolean isOpenCLAvailable() {
+        try {
+            final int[] numPlatforms = new int[1];
+            clGetPlatformIDs(0, null, numPlatforms);
+            return numPlatforms[0] > 0;
+        } catch (final Exception | LinkageError e) {
+            return false;
+        }
+    }
+}
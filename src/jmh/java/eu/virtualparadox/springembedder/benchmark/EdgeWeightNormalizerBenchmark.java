@@ -0,0 +1,71 @@
+package eu.virtualparadox.springembedder.benchmark;
+
+import eu.virtualparadox.springembedder.EdgeWeightNormalizer;
+import eu.virtualparadox.springembedder.EdgeWeightTable;
+import eu.virtualparadox.springembedder.WeightCurve;
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultWeightedEdge;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Normalization of the edge weights, which runs once at the start of every layout: the boxed map of the
+ * {@link EdgeWeightNormalizer} against the primitive {@link EdgeWeightTable} with every curve.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EdgeWeightNormalizerBenchmark {
+
+    @Param({"RANDOM", "SCALE_FREE"})
+    private GraphShape shape;
+
+    @Param({"1000", "100000"})
+    private int size;
+
+    @Param({"LINEAR", "LOG", "RANK"})
+    private String curve;
+
+    private Graph<String, DefaultWeightedEdge> graph;
+    private EdgeWeightNormalizer<String, DefaultWeightedEdge> normalizer;
+    private WeightCurve weightCurve;
+
+    @Setup(Level.Trial)
+    public void createGraph() {
+        graph = shape.create(size);
+        // generated graphs have unit weights, which would hit the degenerate case of the normalization
+        final Random random = new Random(1);
+        for (final DefaultWeightedEdge edge : graph.edgeSet()) {
+            graph.setEdgeWeight(edge, 1 + random.nextInt(100));
+        }
+        normalizer = new EdgeWeightNormalizer<>();
+        weightCurve = curve.equals("LOG") ? WeightCurve.LOG : curve.equals("RANK") ? WeightCurve.RANK : WeightCurve.LINEAR;
+    }
+
+    @Benchmark
+    public Map<DefaultWeightedEdge, Double> normalize() {
+        return normalizer.normalizeEdgeWeights(graph);
+    }
+
+    @Benchmark
+    public EdgeWeightTable table() {
+        return EdgeWeightTable.of(graph, weightCurve);
+    }
+}
@@ -0,0 +1,64 @@
+package eu.virtualparadox.springembedder.benchmark;
+
+import eu.virtualparadox.springembedder.DemoGraphInitializer;
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultWeightedEdge;
+
+/**
+ * Graph shapes the benchmarks are parameterized with. Every shape generates a graph of roughly the
+ * requested number of nodes, always with the same seed so runs are comparable.
+ */
+public enum GraphShape {
+
+    /**
+     * Ten stars around a common center, the graph of the demo.
+     */
+    STAR {
+        @Override
+        public Graph<String, DefaultWeightedEdge> create(final int size) {
+            return DemoGraphInitializer.initializeDemoGraph(STAR_COUNT, Math.max(1, size / STAR_COUNT));
+        }
+    },
+
+    /**
+     * Uniformly random graph with an average degree of four.
+     */
+    RANDOM {
+        @Override
+        public Graph<String, DefaultWeightedEdge> create(final int size) {
+            return DemoGraphInitializer.initializeRandomGraph(size, 2 * size, SEED);
+        }
+    },
+
+    /**
+     * Barabási-Albert graph, a few hubs and a long tail of low degree nodes.
+     */
+    SCALE_FREE {
+        @Override
+        public Graph<String, DefaultWeightedEdge> create(final int size) {
+            return DemoGraphInitializer.initializeScaleFreeGraph(size, 2, SEED);
+        }
+    },
+
+    /**
+     * Square grid, a regular structure with long paths.
+     */
+    GRID {
+        @Override
+        public Graph<String, DefaultWeightedEdge> create(final int size) {
+            final int side = Math.max(1, (int) Math.round(Math.sqrt(size)));
+            return DemoGraphInitializer.initializeGridGraph(side, side);
+        }
+    };
+
+    private static final int STAR_COUNT = 10;
+    private static final long SEED = 1;
+
+    /**
+     * Generates a graph of this shape.
+     *
+     * @param size Approximate number of nodes.
+     * @return The generated graph.
+     */
+    public abstract Graph<String, DefaultWeightedEdge> create(int size);
+}
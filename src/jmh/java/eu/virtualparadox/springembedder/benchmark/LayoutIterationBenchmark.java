@@ -0,0 +1,70 @@
+package eu.virtualparadox.springembedder.benchmark;
+
+import eu.virtualparadox.springembedder.EdgeWeightNormalizer;
+import eu.virtualparadox.springembedder.engine.FruchtermanReingoldEngine;
+import eu.virtualparadox.springembedder.engine.IndexedGraph;
+import eu.virtualparadox.springembedder.layouter.FruchtermanReingoldLayouter;
+import eu.virtualparadox.springembedder.layouter.RepulsionMode;
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultWeightedEdge;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of a single Fruchterman-Reingold iteration of the CPU engine. The layout is restarted from
+ * the same random positions before every measurement iteration, so the steps measured are the early,
+ * hot ones of a layout rather than those of an already converged state.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LayoutIterationBenchmark {
+
+    private static final int WIDTH = 1920;
+    private static final int HEIGHT = 1080;
+    private static final double TEMPERATURE = 50;
+
+    @Param({"STAR", "RANDOM", "SCALE_FREE", "GRID"})
+    private GraphShape shape;
+
+    @Param({"1000", "10000"})
+    private int size;
+
+    @Param({"EXACT", "BARNES_HUT", "GRID"})
+    private RepulsionMode repulsionMode;
+
+    private FruchtermanReingoldEngine<String> engine;
+
+    @Setup(Level.Trial)
+    public void createEngine() {
+        final Graph<String, DefaultWeightedEdge> graph = shape.create(size);
+        final IndexedGraph<String> indexed = IndexedGraph.of(graph, new EdgeWeightNormalizer<String, DefaultWeightedEdge>().normalizeEdgeWeights(graph));
+        engine = new FruchtermanReingoldEngine<>(indexed, WIDTH, HEIGHT, repulsionMode.createKernel(FruchtermanReingoldLayouter.DEFAULT_THETA));
+    }
+
+    @Setup(Level.Iteration)
+    public void resetPositions() {
+        engine.randomizePositions(new Random(1));
+    }
+
+    @Benchmark
+    public double step() {
+        return engine.step(TEMPERATURE);
+    }
+}
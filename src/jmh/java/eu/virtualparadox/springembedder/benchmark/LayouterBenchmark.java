@@ -0,0 +1,64 @@
+package eu.virtualparadox.springembedder.benchmark;
+
+import eu.virtualparadox.springembedder.Vector2D;
+import eu.virtualparadox.springembedder.layouter.FruchtermanReingoldLayouter;
+import eu.virtualparadox.springembedder.layouter.RepulsionMode;
+import eu.virtualparadox.springembedder.renderercallback.NoOpRendererCallback;
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultWeightedEdge;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end layout through the public {@link FruchtermanReingoldLayouter} API, including the edge
+ * weight normalization, the indexing of the graph and the conversion of the result into a map.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class LayouterBenchmark {
+
+    private static final int WIDTH = 1920;
+    private static final int HEIGHT = 1080;
+
+    @Param({"STAR", "RANDOM", "SCALE_FREE", "GRID"})
+    private GraphShape shape;
+
+    @Param({"1000"})
+    private int size;
+
+    @Param({"BARNES_HUT"})
+    private RepulsionMode repulsionMode;
+
+    @Param({"50"})
+    private int iterations;
+
+    private Graph<String, DefaultWeightedEdge> graph;
+
+    @Setup(Level.Trial)
+    public void createGraph() {
+        graph = shape.create(size);
+    }
+
+    @Benchmark
+    public Map<String, Vector2D> layout() {
+        return new FruchtermanReingoldLayouter<String, DefaultWeightedEdge>(WIDTH, HEIGHT, new NoOpRendererCallback<>(), repulsionMode, FruchtermanReingoldLayouter.DEFAULT_THETA)
+                .layout(graph, iterations);
+    }
+}
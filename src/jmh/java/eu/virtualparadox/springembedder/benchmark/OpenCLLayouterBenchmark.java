@@ -0,0 +1,70 @@
+package eu.virtualparadox.springembedder.benchmark;
+
+import eu.virtualparadox.springembedder.Vector2D;
+import eu.virtualparadox.springembedder.layouter.FruchtermanReingoldLayouterOpenCL;
+import eu.virtualparadox.springembedder.opencl.OpenCLSession;
+import eu.virtualparadox.springembedder.renderercallback.NoOpRendererCallback;
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultWeightedEdge;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end layout with the {@link FruchtermanReingoldLayouterOpenCL}. The layouters share one
+ * {@link OpenCLSession}, so the context creation and the kernel compilation are not measured, only the
+ * upload of the graph and the iterations. The {@link BenchmarkRunner} leaves this benchmark out when
+ * there is no OpenCL platform.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+public class OpenCLLayouterBenchmark {
+
+    private static final int WIDTH = 1920;
+    private static final int HEIGHT = 1080;
+
+    @Param({"STAR", "RANDOM", "SCALE_FREE", "GRID"})
+    private GraphShape shape;
+
+    @Param({"1000", "10000"})
+    private int size;
+
+    @Param({"50"})
+    private int iterations;
+
+    private Graph<String, DefaultWeightedEdge> graph;
+    private OpenCLSession session;
+
+    @Setup(Level.Trial)
+    public void createGraph() {
+        graph = shape.create(size);
+        session = new OpenCLSession();
+    }
+
+    @TearDown(Level.Trial)
+    public void closeSession() {
+        session.close();
+    }
+
+    @Benchmark
+    public Map<String, Vector2D> layout() {
+        return new FruchtermanReingoldLayouterOpenCL<String, DefaultWeightedEdge>(WIDTH, HEIGHT, new NoOpRendererCallback<>(), session).layout(graph, iterations);
+    }
+}
@@ -0,0 +1,150 @@
+package eu.virtualparadox.springembedder.benchmark;
+
+import eu.virtualparadox.springembedder.EdgeWeightTable;
+import eu.virtualparadox.springembedder.Vector2D;
+import eu.virtualparadox.springembedder.layouter.MultilevelLayouter;
+import eu.virtualparadox.springembedder.renderercallback.FramebufferRasterizer;
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultWeightedEdge;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One frame of the renderer: the original {@code Graphics2D} drawing with a stroke per edge against the
+ * {@link FramebufferRasterizer}, on one thread and split into a band per core.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RasterizerBenchmark {
+
+    @Param({"RANDOM", "SCALE_FREE"})
+    private GraphShape shape;
+
+    @Param({"10000", "50000"})
+    private int size;
+
+    @Param({"640x480", "3840x2160"})
+    private String resolution;
+
+    /**
+     * RANDOM places the vertices like the first frame of a layout, LAID_OUT like the last one.
+     */
+    @Param({"RANDOM", "LAID_OUT"})
+    private String positions;
+
+    private int width;
+    private int height;
+    private Graph<String, DefaultWeightedEdge> graph;
+    private Map<String, Double> x;
+    private Map<String, Double> y;
+    private Map<DefaultWeightedEdge, Double> weights;
+    private float[] xs;
+    private float[] ys;
+    private FramebufferRasterizer.EdgeBatches edges;
+    private FramebufferRasterizer rasterizer;
+    private BufferedImage image;
+
+    @Setup(Level.Trial)
+    public void createFrame() {
+        final String[] dimensions = resolution.split("x");
+        width = Integer.parseInt(dimensions[0]);
+        height = Integer.parseInt(dimensions[1]);
+        graph = shape.create(size);
+        final Random random = new Random(1);
+        for (final DefaultWeightedEdge edge : graph.edgeSet()) {
+            graph.setEdgeWeight(edge, 1 + random.nextInt(100));
+        }
+
+        final Map<String, Vector2D> laidOut = positions.equals("LAID_OUT")
+                ? new MultilevelLayouter<String, DefaultWeightedEdge>(width, height).layout(graph, 100)
+                : null;
+        final List<String> vertices = new ArrayList<>(graph.vertexSet());
+        final Map<String, Integer> ids = new HashMap<>();
+        x = new HashMap<>();
+        y = new HashMap<>();
+        xs = new float[vertices.size()];
+        ys = new float[vertices.size()];
+        for (int v = 0; v < vertices.size(); v++) {
+            ids.put(vertices.get(v), v);
+            xs[v] = laidOut != null ? (float) laidOut.get(vertices.get(v)).getX() : random.nextFloat() * width;
+            ys[v] = laidOut != null ? (float) laidOut.get(vertices.get(v)).getY() : random.nextFloat() * height;
+            x.put(vertices.get(v), (double) xs[v]);
+            y.put(vertices.get(v), (double) ys[v]);
+        }
+
+        final EdgeWeightTable table = EdgeWeightTable.of(graph);
+        final int[] sources = new int[table.size()];
+        final int[] targets = new int[table.size()];
+        weights = new HashMap<>();
+        int e = 0;
+        for (final DefaultWeightedEdge edge : graph.edgeSet()) {
+            sources[e] = ids.get(graph.getEdgeSource(edge));
+            targets[e] = ids.get(graph.getEdgeTarget(edge));
+            weights.put(edge, table.weight(e++));
+        }
+        edges = FramebufferRasterizer.EdgeBatches.of(sources, targets, table);
+        rasterizer = new FramebufferRasterizer(width, height, 5);
+        image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    }
+
+    @Benchmark
+    public BufferedImage graphics2D() {
+        final BufferedImage frame = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        final Graphics2D g = frame.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, width, height);
+        for (final String from : graph.vertexSet()) {
+            for (final DefaultWeightedEdge edge : graph.outgoingEdgesOf(from)) {
+                final String to = graph.getEdgeTarget(edge);
+                g.setStroke(new BasicStroke(weights.get(edge).floatValue()));
+                g.setColor(Color.BLACK);
+                g.drawLine(x.get(from).intValue(), y.get(from).intValue(), x.get(to).intValue(), y.get(to).intValue());
+            }
+        }
+        g.setColor(Color.RED);
+        for (final String v : graph.vertexSet()) {
+            g.fillOval(x.get(v).intValue() - 5, y.get(v).intValue() - 5, 10, 10);
+        }
+        g.dispose();
+        return frame;
+    }
+
+    @Benchmark
+    public BufferedImage rasterizer() {
+        rasterizer.render(((DataBufferInt) image.getRaster().getDataBuffer()).getData(), xs, ys, xs.length, edges, 1);
+        return image;
+    }
+
+    @Benchmark
+    public BufferedImage rasterizerBands() {
+        rasterizer.render(((DataBufferInt) image.getRaster().getDataBuffer()).getData(), xs, ys, xs.length, edges,
+                Runtime.getRuntime().availableProcessors());
+        return image;
+    }
+}
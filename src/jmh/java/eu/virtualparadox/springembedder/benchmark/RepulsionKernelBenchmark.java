@@ -0,0 +1,97 @@
+package eu.virtualparadox.springembedder.benchmark;
+
+import eu.virtualparadox.springembedder.Vector2D;
+import eu.virtualparadox.springembedder.engine.FruchtermanReingoldEngine;
+import eu.virtualparadox.springembedder.engine.LayoutState;
+import eu.virtualparadox.springembedder.engine.RepulsionKernel;
+import eu.virtualparadox.springembedder.layouter.FruchtermanReingoldLayouter;
+import eu.virtualparadox.springembedder.layouter.RepulsionMode;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One all-pairs repulsion pass. Compares the scalar exact kernel and the SIMD kernels of the Vector API
+ * in double and single precision, and, as the baseline, the original map-of-{@link Vector2D}
+ * computation the layouter used before the engine existed. The fork adds the incubator module, the
+ * vectorized modes silently fall back to the scalar kernel without it.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+public class RepulsionKernelBenchmark {
+
+    private static final double OPTIMAL_DISTANCE = 20;
+
+    @Param({"1000", "5000"})
+    private int size;
+
+    @Param({"EXACT", "VECTORIZED", "VECTORIZED_FLOAT"})
+    private RepulsionMode repulsionMode;
+
+    private LayoutState state;
+    private RepulsionKernel kernel;
+    private Map<Integer, Vector2D> positions;
+
+    @Setup(Level.Trial)
+    public void createState() {
+        final Random random = new Random(1);
+        state = new LayoutState(size);
+        positions = new HashMap<>();
+        for (int v = 0; v < size; v++) {
+            state.getX()[v] = random.nextDouble() * 1920;
+            state.getY()[v] = random.nextDouble() * 1080;
+            positions.put(v, new Vector2D(state.getX()[v], state.getY()[v]));
+        }
+        kernel = repulsionMode.createKernel(FruchtermanReingoldLayouter.DEFAULT_THETA);
+    }
+
+    @Benchmark
+    public double[] kernel() {
+        Arrays.fill(state.getDx(), 0);
+        Arrays.fill(state.getDy(), 0);
+        kernel.prepare(state, OPTIMAL_DISTANCE);
+        kernel.accumulate(state, OPTIMAL_DISTANCE, 0, size);
+        return state.getDx();
+    }
+
+    @Benchmark
+    public Map<Integer, Vector2D> vector2DBaseline() {
+        final Map<Integer, Vector2D> result = new HashMap<>();
+        for (final Integer v : positions.keySet()) {
+            result.put(v, new Vector2D(0, 0));
+        }
+        for (final Map.Entry<Integer, Vector2D> v : positions.entrySet()) {
+            final Vector2D posV = v.getValue();
+            for (final Map.Entry<Integer, Vector2D> u : positions.entrySet()) {
+                if (!v.getKey().equals(u.getKey())) {
+                    final Vector2D delta = posV.subtract(u.getValue());
+                    final double distance = delta.length();
+                    if (distance > 0) {
+                        final double repulsion = FruchtermanReingoldEngine.C * (OPTIMAL_DISTANCE * OPTIMAL_DISTANCE) / distance;
+                        result.put(v.getKey(), result.get(v.getKey()).add(delta.normalize().scale(repulsion)));
+                    }
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,80 @@
+package eu.virtualparadox.springembedder.benchmark;
+
+import eu.virtualparadox.springembedder.Vector2D;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@link Vector2D} operations. Every operation returns a new instance, so together with the
+ * allocation profiler this shows whether escape analysis removes the allocations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Vector2DBenchmark {
+
+    private Vector2D a;
+    private Vector2D b;
+
+    @Setup
+    public void createVectors() {
+        a = new Vector2D(3, 4);
+        b = new Vector2D(-1, 2);
+    }
+
+    @Benchmark
+    public Vector2D add() {
+        return a.add(b);
+    }
+
+    @Benchmark
+    public Vector2D subtract() {
+        return a.subtract(b);
+    }
+
+    @Benchmark
+    public Vector2D scale() {
+        return a.scale(1.5);
+    }
+
+    @Benchmark
+    public double dot() {
+        return a.dot(b);
+    }
+
+    @Benchmark
+    public double length() {
+        return a.length();
+    }
+
+    @Benchmark
+    public Vector2D normalize() {
+        return a.normalize();
+    }
+
+    @Benchmark
+    public Vector2D div() {
+        return a.div(2);
+    }
+
+    @Benchmark
+    public Vector2D repulsionStep() {
+        // the shape of the original per-pair force computation: difference, length, scaled direction
+        final Vector2D delta = a.subtract(b);
+        final double length = delta.length();
+        return delta.normalize().scale(1 / length);
+    }
+}
@@ -1,8 +1,13 @@
 package eu.virtualparadox.springembedder;
 
 import org.jgrapht.Graph;
+import org.jgrapht.generate.BarabasiAlbertGraphGenerator;
+import org.jgrapht.generate.GnmRandomGraphGenerator;
+import org.jgrapht.generate.GridGraphGenerator;
 import org.jgrapht.graph.DefaultWeightedEdge;
 import org.jgrapht.graph.DirectedWeightedPseudograph;
+import org.jgrapht.graph.SimpleWeightedGraph;
+import org.jgrapht.util.SupplierUtil;
 
 public class DemoGraphInitializer {
 
@@ -33,6 +38,51 @@ public class DemoGraphInitializer {
         return graph;
     }
 
+    /**
+     * Creates a uniformly random graph with the given number of nodes and edges.
+     *
+     * @param nodes Number of nodes.
+     * @param edges Number of edges.
+     * @param seed  Seed of the random generator.
+     * @return The generated graph.
+     */
+    public static Graph<String, DefaultWeightedEdge> initializeRandomGraph(final int nodes, final int edges, final long seed) {
+        final Graph<String, DefaultWeightedEdge> graph = createEmptyGraph();
+        new GnmRandomGraphGenerator<String, DefaultWeightedEdge>(nodes, edges, seed).generateGraph(graph);
+        return graph;
+    }
+
+    /**
+     * Creates a scale-free graph by Barabási-Albert preferential attachment.
+     *
+     * @param nodes        Number of nodes.
+     * @param edgesPerNode Number of edges every new node attaches with.
+     * @param seed         Seed of the random generator.
+     * @return The generated graph.
+     */
+    public static Graph<String, DefaultWeightedEdge> initializeScaleFreeGraph(final int nodes, final int edgesPerNode, final long seed) {
+        final Graph<String, DefaultWeightedEdge> graph = createEmptyGraph();
+        new BarabasiAlbertGraphGenerator<String, DefaultWeightedEdge>(edgesPerNode + 1, edgesPerNode, nodes, seed).generateGraph(graph);
+        return graph;
+    }
+
+    /**
+     * Creates a rectangular grid graph.
+     *
+     * @param rows    Number of rows.
+     * @param columns Number of columns.
+     * @return The generated graph.
+     */
+    public static Graph<String, DefaultWeightedEdge> initializeGridGraph(final int rows, final int columns) {
+        final Graph<String, DefaultWeightedEdge> graph = createEmptyGraph();
+        new GridGraphGenerator<String, DefaultWeightedEdge>(rows, columns).generateGraph(graph);
+        return graph;
+    }
+
+    private static Graph<String, DefaultWeightedEdge> createEmptyGraph() {
+        return new SimpleWeightedGraph<>(SupplierUtil.createStringSupplier(), SupplierUtil.createDefaultWeightedEdgeSupplier());
+    }
+
     private static void addEdge(final Graph<String, DefaultWeightedEdge> graph,
                                 final String source,
                                 final String target,
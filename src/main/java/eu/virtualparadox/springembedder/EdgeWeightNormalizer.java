@@ -7,15 +7,15 @@ import java.util.Map;
 
 /**
  * Utility class for normalizing edge weights in a directed weighted graph.
+ * <p>
+ * The layouters and renderers use the primitive {@link EdgeWeightTable}; this class keeps the boxed
+ * {@code Map} view for callers that look weights up by edge.
  *
  * @param <V> the type of the vertices in the graph.
  * @param <E> the type of the edges in the graph.
  */
 public class EdgeWeightNormalizer<V, E> {
 
-    private static final double MIN_NORMALIZED_WEIGHT = 1.0;
-    private static final double MAX_NORMALIZED_WEIGHT = 10.0;
-
     /**
      * Normalizes the edge weights of the given graph to a specified range.
      * The normalization process scales the edge weights to fit within the range [1, 10].
@@ -24,48 +24,24 @@ public class EdgeWeightNormalizer<V, E> {
      * @return a map where the keys are the edges of the graph and the values are the normalized weights.
      */
     public Map<E, Double> normalizeEdgeWeights(final Graph<V, E> graph) {
+        final EdgeWeightTable table = EdgeWeightTable.of(graph);
         final Map<E, Double> normalizedWeights = new HashMap<>();
-
-        // if the graph is not weighted, assign a weight of 1.0 to all edges
-        if (!graph.getType().isWeighted()) {
-            for (E edge : graph.edgeSet()) {
-                normalizedWeights.put(edge, 1.0);
-            }
-            return normalizedWeights;
-        }
-
-        // otherwise, normalize the edge weights
-        double minWeight = Double.MAX_VALUE;
-        double maxWeight = Double.MIN_VALUE;
-
-        // Find the minimum and maximum edge weights in the graph.
-        for (E edge : graph.edgeSet()) {
-            double weight = graph.getEdgeWeight(edge);
-            if (weight < minWeight) {
-                minWeight = weight;
-            }
-            if (weight > maxWeight) {
-                maxWeight = weight;
-            }
-        }
-
-        // If all edge weights are the same, assign the midpoint of the normalized range to all edges.
-        if (minWeight == maxWeight) {
-            double midNormalizedWeight = (MIN_NORMALIZED_WEIGHT + MAX_NORMALIZED_WEIGHT) / 2.0;
-            for (E edge : graph.edgeSet()) {
-                normalizedWeights.put(edge, midNormalizedWeight);
-            }
-            return normalizedWeights;
+        int e = 0;
+        for (final E edge : graph.edgeSet()) {
+            normalizedWeights.put(edge, table.weight(e++));
         }
-
-        // Normalize the edge weights to the range [1, 10].
-        for (E edge : graph.edgeSet()) {
-            double rawWeight = graph.getEdgeWeight(edge);
-            double normalizationRange = MAX_NORMALIZED_WEIGHT - MIN_NORMALIZED_WEIGHT;
-            double normalizedWeight = MIN_NORMALIZED_WEIGHT + normalizationRange * (rawWeight - minWeight) / (maxWeight - minWeight);
-            normalizedWeights.put(edge, normalizedWeight);
-        }
-
         return normalizedWeights;
     }
+
+    /**
+     * Normalizes raw edge weights to the range [1, 10], the same way as {@link #normalizeEdgeWeights(Graph)}
+     * but without a graph, e.g. for edge lists loaded from a file.
+     *
+     * @param rawWeights the raw weight of every edge, or null if the edges are not weighted.
+     * @param edgeCount  the number of edges.
+     * @return the normalized weight of every edge.
+     */
+    public static double[] normalizeEdgeWeights(final double[] rawWeights, final int edgeCount) {
+        return EdgeWeightTable.of(rawWeights == null ? null : rawWeights.clone(), edgeCount, WeightCurve.LINEAR).getWeights();
+    }
 }
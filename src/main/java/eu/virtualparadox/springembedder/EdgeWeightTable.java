@@ -0,0 +1,142 @@
+package eu.virtualparadox.springembedder;
+
+import org.jgrapht.Graph;
+
+import java.util.Arrays;
+import java.util.DoubleSummaryStatistics;
+import java.util.stream.IntStream;
+
+/**
+ * The normalized weight of every edge of a graph, in a primitive array indexed by edge id. Edge ids follow
+ * the iteration order of the edge set, the same order the {@link eu.virtualparadox.springembedder.engine.IndexedGraph}
+ * uses, so a table is computed once per graph and shared by the layouter and the renderers.
+ * <p>
+ * The raw weights are transformed by a {@link WeightCurve} and scaled linearly to the range [1, 10]. If all
+ * transformed weights are the same, every edge gets the midpoint of the range, and edges of an unweighted
+ * graph all get 1. Edge sets of at least {@value #PARALLEL_THRESHOLD} edges are normalized in parallel on
+ * the common {@link java.util.concurrent.ForkJoinPool}.
+ */
+public final class EdgeWeightTable {
+
+    /**
+     * Number of edges from which the weights are computed in parallel.
+     */
+    public static final int PARALLEL_THRESHOLD = 1 << 16;
+
+    static final double MIN_NORMALIZED_WEIGHT = 1.0;
+    static final double MAX_NORMALIZED_WEIGHT = 10.0;
+
+    private final double[] weights;
+
+    private EdgeWeightTable(final double[] weights) {
+        this.weights = weights;
+    }
+
+    /**
+     * Computes the table of a graph with the {@link WeightCurve#LINEAR} curve.
+     *
+     * @param graph the graph.
+     * @return the normalized weights.
+     */
+    public static EdgeWeightTable of(final Graph<?, ?> graph) {
+        return of(graph, WeightCurve.LINEAR);
+    }
+
+    /**
+     * Computes the table of a graph.
+     *
+     * @param graph the graph.
+     * @param curve transforms the raw weights before they are scaled.
+     * @return the normalized weights.
+     */
+    public static <E> EdgeWeightTable of(final Graph<?, E> graph,
+                                         final WeightCurve curve) {
+        final int m = graph.edgeSet().size();
+        if (!graph.getType().isWeighted()) {
+            return of(null, m, curve);
+        }
+        @SuppressWarnings("unchecked") final E[] edges = (E[]) graph.edgeSet().toArray();
+        final double[] rawWeights = new double[m];
+        range(m).forEach(e -> rawWeights[e] = graph.getEdgeWeight(edges[e]));
+        return ofRawWeights(rawWeights, curve);
+    }
+
+    /**
+     * Computes the table of raw weights, e.g. of an edge list loaded from a file. The array is
+     * normalized in place and becomes the table.
+     *
+     * @param rawWeights the raw weight of every edge, overwritten.
+     * @param curve      transforms the raw weights before they are scaled.
+     * @return the normalized weights.
+     */
+    public static EdgeWeightTable ofRawWeights(final double[] rawWeights,
+                                               final WeightCurve curve) {
+        curve.apply(rawWeights, rawWeights.length >= PARALLEL_THRESHOLD);
+
+        final DoubleSummaryStatistics statistics = range(rawWeights.length)
+                .mapToDouble(e -> rawWeights[e])
+                .summaryStatistics();
+        final double minWeight = statistics.getMin();
+        final double maxWeight = statistics.getMax();
+        if (rawWeights.length == 0 || minWeight == maxWeight) {
+            Arrays.fill(rawWeights, (MIN_NORMALIZED_WEIGHT + MAX_NORMALIZED_WEIGHT) / 2.0);
+            return new EdgeWeightTable(rawWeights);
+        }
+
+        final double scale = (MAX_NORMALIZED_WEIGHT - MIN_NORMALIZED_WEIGHT) / (maxWeight - minWeight);
+        range(rawWeights.length).forEach(e -> rawWeights[e] = MIN_NORMALIZED_WEIGHT + scale * (rawWeights[e] - minWeight));
+        return new EdgeWeightTable(rawWeights);
+    }
+
+    /**
+     * Computes the table of raw weights that may be missing.
+     *
+     * @param rawWeights the raw weight of every edge, overwritten, or null if the edges are not weighted.
+     * @param edgeCount  the number of edges.
+     * @param curve      transforms the raw weights before they are scaled.
+     * @return the normalized weights.
+     */
+    public static EdgeWeightTable of(final double[] rawWeights,
+                                     final int edgeCount,
+                                     final WeightCurve curve) {
+        if (rawWeights == null) {
+            final double[] weights = new double[edgeCount];
+            Arrays.fill(weights, 1.0);
+            return new EdgeWeightTable(weights);
+        }
+        return ofRawWeights(rawWeights, curve);
+    }
+
+    private static IntStream range(final int length) {
+        final IntStream range = IntStream.range(0, length);
+        return length >= PARALLEL_THRESHOLD ? range.parallel() : range;
+    }
+
+    /**
+     * Returns the number of edges.
+     *
+     * @return the number of edges.
+     */
+    public int size() {
+        return weights.length;
+    }
+
+    /**
+     * Returns the normalized weight of an edge.
+     *
+     * @param edge the edge id.
+     * @return the normalized weight.
+     */
+    public double weight(final int edge) {
+        return weights[edge];
+    }
+
+    /**
+     * Returns the normalized weight of every edge. The array is shared, not copied, and must not be modified.
+     *
+     * @return the normalized weights, indexed by edge id.
+     */
+    public double[] getWeights() {
+        return weights;
+    }
+}
@@ -1,9 +1,9 @@
 package eu.virtualparadox.springembedder;
 
 import eu.virtualparadox.springembedder.layouter.AbstractLayouter;
-import eu.virtualparadox.springembedder.layouter.FruchtermanReingoldLayouter;
-import eu.virtualparadox.springembedder.layouter.FruchtermanReingoldLayouterOpenCL;
+import eu.virtualparadox.springembedder.layouter.LayouterFactory;
 import eu.virtualparadox.springembedder.renderercallback.AbstractRendererCallback;
+import eu.virtualparadox.springembedder.renderercallback.AsyncRendererCallback;
 import eu.virtualparadox.springembedder.renderercallback.VideoRendererCallback;
 import org.jgrapht.Graph;
 import org.jgrapht.graph.DefaultWeightedEdge;
@@ -15,16 +15,18 @@ public class Main {
 
     private static final int WIDTH = 640;
     private static final int HEIGHT = 480;
+    private static final int ITERATIONS = 1000;
 
     public static void main(String[] args) {
         final Path tempFolder = resolveTempFolder();
 
         final Graph<String, DefaultWeightedEdge> graph = DemoGraphInitializer.initializeDemoGraph(5, 100);
 
-        final AbstractRendererCallback<String, DefaultWeightedEdge> callback = new VideoRendererCallback<>(tempFolder, WIDTH, HEIGHT);
-        final AbstractLayouter<String, DefaultWeightedEdge> layouter = new FruchtermanReingoldLayouterOpenCL<>(WIDTH, HEIGHT, callback);
-
-        layouter.layout(graph, 1000);
+        final AbstractRendererCallback<String, DefaultWeightedEdge> callback = new AsyncRendererCallback<>(new VideoRendererCallback<>(tempFolder, WIDTH, HEIGHT));
+        try (final LayouterFactory factory = new LayouterFactory()) {
+            final AbstractLayouter<String, DefaultWeightedEdge> layouter = factory.create(graph, ITERATIONS, WIDTH, HEIGHT, callback);
+            layouter.layout(graph, ITERATIONS);
+        }
     }
 
     private static Path resolveTempFolder() {
@@ -0,0 +1,62 @@
+package eu.virtualparadox.springembedder;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Transforms raw edge weights before the {@link EdgeWeightTable} scales them to the normalized range.
+ * Only the order and the relative spacing of the transformed weights matter, as they are scaled linearly
+ * afterwards.
+ */
+@FunctionalInterface
+public interface WeightCurve {
+
+    /**
+     * Keeps the raw weights, so the normalized weights are proportional to them.
+     */
+    WeightCurve LINEAR = (weights, parallel) -> {
+    };
+
+    /**
+     * Compresses heavy-tailed weights: a weight w becomes {@code log(1 + w - min)}, so an edge a thousand
+     * times heavier than most does not squeeze all the others to the minimum.
+     */
+    WeightCurve LOG = (weights, parallel) -> {
+        final double min = range(weights.length, parallel).mapToDouble(e -> weights[e]).min().orElse(0);
+        range(weights.length, parallel).forEach(e -> weights[e] = Math.log1p(weights[e] - min));
+    };
+
+    /**
+     * Replaces every weight with its rank among the distinct weights, so the normalized weights are spread
+     * evenly whatever the distribution. Equal weights get the same rank.
+     */
+    WeightCurve RANK = (weights, parallel) -> {
+        final double[] sorted = weights.clone();
+        if (parallel) {
+            Arrays.parallelSort(sorted);
+        } else {
+            Arrays.sort(sorted);
+        }
+        int distinct = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (i == 0 || Double.compare(sorted[i], sorted[distinct - 1]) != 0) {
+                sorted[distinct++] = sorted[i];
+            }
+        }
+        final int distinctCount = distinct;
+        range(weights.length, parallel).forEach(e -> weights[e] = Arrays.binarySearch(sorted, 0, distinctCount, weights[e]));
+    };
+
+    /**
+     * Transforms the weights in place.
+     *
+     * @param weights  the raw weight of every edge, replaced by the transformed weight.
+     * @param parallel whether the transformation may use the common {@link java.util.concurrent.ForkJoinPool}.
+     */
+    void apply(double[] weights, boolean parallel);
+
+    private static IntStream range(final int length, final boolean parallel) {
+        final IntStream range = IntStream.range(0, length);
+        return parallel ? range.parallel() : range;
+    }
+}
@@ -0,0 +1,280 @@
+package eu.virtualparadox.springembedder.checkpoint;
+
+import eu.virtualparadox.springembedder.engine.IndexedGraph;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+
+/**
+ * Snapshot of a running layout: the positions, the next iteration and its temperature, the state of the
+ * random number generator, the cooling schedule and the convergence criterion. A layout resumed from a
+ * checkpoint continues exactly as the interrupted one would have, bit for bit.
+ * <p>
+ * The file is a version tag, a fingerprint of the graph and the values above in big-endian binary, the
+ * positions as raw doubles. {@link #write(Path)} writes a temporary file next to the target and renames
+ * it, so a crash leaves either the previous or the new checkpoint, never a partial one.
+ */
+public final class Checkpoint {
+
+    private static final int MAGIC = 0x53454350;
+    private static final int VERSION = 1;
+    private static final int BUFFER_SIZE = 1 << 16;
+    // magic, version, fingerprint, vertex count, iteration and temperature
+    private static final int HEADER_SIZE = 32;
+    // the random state comes from a file, only the classes of a plain Random may be deserialized from it
+    private static final ObjectInputFilter RANDOM_FILTER = ObjectInputFilter.Config.createFilter("java.util.Random;java.lang.Number;!*");
+
+    private final long fingerprint;
+    private final int iteration;
+    private final double temperature;
+    private final byte[] randomState;
+    private final double[] scheduleState;
+    private final double[] criterionState;
+    private final double[] x;
+    private final double[] y;
+
+    /**
+     * Constructor for the Checkpoint. The arrays are not copied.
+     *
+     * @param fingerprint    the {@link #fingerprint(IndexedGraph) fingerprint} of the graph.
+     * @param iteration      the iteration the layout continues with.
+     * @param temperature    the temperature of that iteration.
+     * @param random         the random number generator of the layouter, its state is copied.
+     * @param scheduleState  the state of the cooling schedule.
+     * @param criterionState the state of the convergence criterion.
+     * @param x              the x coordinates by vertex id.
+     * @param y              the y coordinates by vertex id.
+     */
+    public Checkpoint(final long fingerprint,
+                      final int iteration,
+                      final double temperature,
+                      final Random random,
+                      final double[] scheduleState,
+                      final double[] criterionState,
+                      final double[] x,
+                      final double[] y) {
+        this(fingerprint, iteration, temperature, serialize(random), scheduleState, criterionState, x, y);
+    }
+
+    private Checkpoint(final long fingerprint,
+                       final int iteration,
+                       final double temperature,
+                       final byte[] randomState,
+                       final double[] scheduleState,
+                       final double[] criterionState,
+                       final double[] x,
+                       final double[] y) {
+        this.fingerprint = fingerprint;
+        this.iteration = iteration;
+        this.temperature = temperature;
+        this.randomState = randomState;
+        this.scheduleState = scheduleState;
+        this.criterionState = criterionState;
+        this.x = x;
+        this.y = y;
+    }
+
+    /**
+     * Computes a fingerprint of the vertices and edges of a graph, so a checkpoint is not resumed on a
+     * different graph or on the same graph with a different vertex order.
+     *
+     * @param graph the graph.
+     * @return the fingerprint.
+     */
+    public static long fingerprint(final IndexedGraph<?> graph) {
+        long hash = graph.vertexCount();
+        for (int v = 0; v < graph.vertexCount(); v++) {
+            hash = 31 * hash + String.valueOf(graph.vertex(v)).hashCode();
+        }
+        // the same hashes as Arrays.hashCode of the edge arrays, over the live edges only
+        int sources = 1;
+        int targets = 1;
+        int weights = 1;
+        for (int e = 0; e < graph.edgeCount(); e++) {
+            sources = 31 * sources + graph.edgeSource(e);
+            targets = 31 * targets + graph.edgeTarget(e);
+            weights = 31 * weights + Double.hashCode(graph.edgeWeight(e));
+        }
+        hash = 31 * hash + sources;
+        hash = 31 * hash + targets;
+        return 31 * hash + weights;
+    }
+
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    public int getIteration() {
+        return iteration;
+    }
+
+    public double getTemperature() {
+        return temperature;
+    }
+
+    public double[] getScheduleState() {
+        return scheduleState;
+    }
+
+    public double[] getCriterionState() {
+        return criterionState;
+    }
+
+    public double[] getX() {
+        return x;
+    }
+
+    public double[] getY() {
+        return y;
+    }
+
+    /**
+     * Returns a random number generator in the saved state. The state is deserialized with a filter that
+     * rejects every class but {@link Random}, so a crafted checkpoint file cannot instantiate other classes.
+     *
+     * @return a new generator.
+     */
+    public Random restoreRandom() {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(randomState))) {
+            in.setObjectInputFilter(RANDOM_FILTER);
+            return (Random) in.readObject();
+        } catch (final IOException | ClassNotFoundException e) {
+            throw new IllegalStateException("Failed to restore the random number generator", e);
+        }
+    }
+
+    // Random keeps its seed private, serialization is the only way to copy its exact state
+    private static byte[] serialize(final Random random) {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(random);
+        } catch (final IOException e) {
+            throw new IllegalStateException("Failed to save the random number generator", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Writes the checkpoint atomically: to a temporary file, flushed to the disk, then renamed to the target.
+     *
+     * @param file the checkpoint file.
+     * @throws IOException if the file cannot be written.
+     */
+    public void write(final Path file) throws IOException {
+        final Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(fingerprint);
+            out.writeInt(x.length);
+            out.writeInt(iteration);
+            out.writeDouble(temperature);
+            out.writeInt(randomState.length);
+            out.write(randomState);
+            writeDoubles(out, scheduleState);
+            writeDoubles(out, criterionState);
+            for (final double value : x) {
+                out.writeDouble(value);
+            }
+            for (final double value : y) {
+                out.writeDouble(value);
+            }
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Reads a checkpoint file.
+     *
+     * @param file the checkpoint file.
+     * @return the checkpoint.
+     * @throws IOException              if the file cannot be read.
+     * @throws IllegalArgumentException if the file is not a checkpoint or is corrupt.
+     */
+    public static Checkpoint read(final Path file) throws IOException {
+        // every length is checked against the bytes left, so a corrupt file cannot request a huge array
+        long remaining = Files.size(file);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), BUFFER_SIZE))) {
+            if (in.readInt() != MAGIC) {
+                throw new IllegalArgumentException("Not a checkpoint file: " + file);
+            }
+            final int version = in.readInt();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported checkpoint version " + version + " in " + file);
+            }
+            final long fingerprint = in.readLong();
+            final int vertexCount = in.readInt();
+            final int iteration = in.readInt();
+            final double temperature = in.readDouble();
+            remaining -= HEADER_SIZE + Integer.BYTES;
+            final byte[] randomState = new byte[checkLength(file, "random state", in.readInt(), Byte.BYTES, remaining)];
+            in.readFully(randomState);
+            remaining -= randomState.length + Integer.BYTES;
+            final double[] scheduleState = readDoubles(in, checkLength(file, "schedule state", in.readInt(), Double.BYTES, remaining));
+            remaining -= (long) scheduleState.length * Double.BYTES + Integer.BYTES;
+            final double[] criterionState = readDoubles(in, checkLength(file, "criterion state", in.readInt(), Double.BYTES, remaining));
+            remaining -= (long) criterionState.length * Double.BYTES;
+            checkLength(file, "positions", vertexCount, 2 * Double.BYTES, remaining);
+            final double[] x = readDoubles(in, vertexCount);
+            final double[] y = readDoubles(in, vertexCount);
+            return new Checkpoint(fingerprint, iteration, temperature, randomState, scheduleState, criterionState, x, y);
+        }
+    }
+
+    /**
+     * Checks a length read from a checkpoint file before an array of that length is allocated.
+     *
+     * @param file        the checkpoint file.
+     * @param name        the name of the array.
+     * @param length      the length read from the file.
+     * @param elementSize the number of bytes of an element.
+     * @param remaining   the number of bytes left in the file after the length.
+     * @return the length.
+     * @throws IllegalArgumentException if the length is negative or the file is too short for it.
+     */
+    private static int checkLength(final Path file,
+                                   final String name,
+                                   final int length,
+                                   final int elementSize,
+                                   final long remaining) {
+        if (length < 0 || (long) length * elementSize > remaining) {
+            throw new IllegalArgumentException("Corrupt checkpoint " + file + ": the " + name + " of length " + length
+                    + " does not fit into the remaining " + remaining + " bytes");
+        }
+        return length;
+    }
+
+    private static void writeDoubles(final DataOutputStream out, final double[] values) throws IOException {
+        out.writeInt(values.length);
+        for (final double value : values) {
+            out.writeDouble(value);
+        }
+    }
+
+    private static double[] readDoubles(final DataInputStream in, final int length) throws IOException {
+        final double[] values = new double[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = in.readDouble();
+        }
+        return values;
+    }
+}
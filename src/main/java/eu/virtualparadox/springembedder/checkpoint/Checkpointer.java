@@ -0,0 +1,150 @@
+package eu.virtualparadox.springembedder.checkpoint;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Writes the checkpoints of a layout to a file every few iterations, on a background thread.
+ * <p>
+ * The layouter only copies the positions into a {@link Checkpoint} and {@link #submit submits} it, the
+ * file is written while the next iterations run. If the previous checkpoint is still being written when
+ * the next one is due, the pending checkpoint is replaced by the newer one, so a slow disk never stalls
+ * the layout. A layouter with a checkpointer resumes from the file if it exists.
+ */
+public class Checkpointer implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(Checkpointer.class);
+
+    private final Path file;
+    private final int interval;
+    private final ExecutorService writer;
+    private final AtomicReference<Checkpoint> pending;
+
+    private Future<?> lastWrite;
+    private IOException failure;
+
+    /**
+     * Constructor for the Checkpointer.
+     *
+     * @param file     The checkpoint file.
+     * @param interval Number of iterations between two checkpoints.
+     */
+    public Checkpointer(final Path file, final int interval) {
+        if (interval < 1) {
+            throw new IllegalArgumentException("Checkpoint interval must be positive: " + interval);
+        }
+        this.file = file;
+        this.interval = interval;
+        this.pending = new AtomicReference<>();
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            final Thread thread = new Thread(runnable, "checkpoint-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Tells whether a checkpoint should be taken after an iteration.
+     *
+     * @param iteration the iteration that just finished.
+     * @return true every interval iterations.
+     */
+    public boolean isDue(final int iteration) {
+        return (iteration + 1) % interval == 0;
+    }
+
+    /**
+     * Reads the checkpoint file, if there is one.
+     *
+     * @return the checkpoint, or null if the file does not exist.
+     * @throws IOException if the file cannot be read.
+     */
+    public Checkpoint load() throws IOException {
+        return Files.exists(file) ? Checkpoint.read(file) : null;
+    }
+
+    /**
+     * Writes a checkpoint in the background. Returns immediately.
+     *
+     * @param checkpoint the checkpoint, its arrays must not be changed afterwards.
+     */
+    public synchronized void submit(final Checkpoint checkpoint) {
+        throwFailure();
+        // only schedule a write if none is waiting, a waiting write picks up the newest checkpoint
+        if (pending.getAndSet(checkpoint) == null) {
+            lastWrite = writer.submit(this::writePending);
+        }
+    }
+
+    private void writePending() {
+        final Checkpoint checkpoint = pending.getAndSet(null);
+        if (checkpoint == null) {
+            return;
+        }
+        try {
+            checkpoint.write(file);
+            logger.debug("Wrote checkpoint of iteration {} to {}", checkpoint.getIteration(), file);
+        } catch (final IOException e) {
+            synchronized (this) {
+                failure = e;
+            }
+        }
+    }
+
+    /**
+     * Waits until the submitted checkpoints are written.
+     *
+     * @throws IllegalStateException if a checkpoint could not be written.
+     */
+    public void flush() {
+        final Future<?> write;
+        synchronized (this) {
+            write = lastWrite;
+        }
+        if (write != null) {
+            try {
+                write.get();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (final ExecutionException e) {
+                throw new IllegalStateException("Failed to write checkpoint " + file, e.getCause());
+            }
+        }
+        synchronized (this) {
+            throwFailure();
+        }
+    }
+
+    private void throwFailure() {
+        if (failure != null) {
+            throw new IllegalStateException("Failed to write checkpoint " + file, failure);
+        }
+    }
+
+    /**
+     * Writes the submitted checkpoints and stops the writer thread.
+     */
+    @Override
+    public void close() {
+        try {
+            flush();
+        } finally {
+            writer.shutdown();
+            try {
+                writer.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package eu.virtualparadox.springembedder.engine;
+
+/**
+ * Barnes-Hut approximation of the repulsion, O(n log n) per iteration.
+ * The quadtree is rebuilt over the current positions in {@link #prepare} and only read afterwards,
+ * so disjoint ranges may be accumulated concurrently.
+ */
+public final class BarnesHutRepulsion implements RepulsionKernel {
+
+    private final double theta;
+    private final QuadTree quadTree;
+
+    /**
+     * Constructs the kernel.
+     *
+     * @param theta the opening angle, 0 gives the exact result.
+     */
+    public BarnesHutRepulsion(final double theta) {
+        if (theta < 0) {
+            throw new IllegalArgumentException("Theta must not be negative: " + theta);
+        }
+        this.theta = theta;
+        this.quadTree = new QuadTree();
+    }
+
+    @Override
+    public void prepare(final LayoutState state, final double optimalDistance) {
+        quadTree.build(state.getX(), state.getY(), state.size());
+    }
+
+    @Override
+    public void accumulate(final LayoutState state, final double optimalDistance, final int from, final int to) {
+        final double strength = FruchtermanReingoldEngine.C * optimalDistance * optimalDistance;
+        final int[] stack = QuadTree.newTraversalStack();
+        for (int v = from; v < to; v++) {
+            quadTree.accumulateForce(v, state.getX(), state.getY(), theta, strength, state.getDx(), state.getDy(), stack);
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package eu.virtualparadox.springembedder.engine;
+
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * The connected components of an {@link IndexedGraph}, found with a union-find over the edge list.
+ * <p>
+ * Components are numbered in the order of their smallest vertex id, and their vertices are stored
+ * contiguously in ascending id order, so every component is a slice of {@link #getVertices()}.
+ */
+public final class ConnectedComponents {
+
+    private final IndexedGraph<?> graph;
+    private final int[] component;
+    private final int[] localIds;
+    private final int[] offsets;
+    private final int[] vertices;
+    private final int[] edgeOffsets;
+    private final int[] edges;
+
+    private ConnectedComponents(final IndexedGraph<?> graph,
+                                final int[] component,
+                                final int[] localIds,
+                                final int[] offsets,
+                                final int[] vertices,
+                                final int[] edgeOffsets,
+                                final int[] edges) {
+        this.graph = graph;
+        this.component = component;
+        this.localIds = localIds;
+        this.offsets = offsets;
+        this.vertices = vertices;
+        this.edgeOffsets = edgeOffsets;
+        this.edges = edges;
+    }
+
+    /**
+     * Finds the connected components of a graph, ignoring the direction of the edges.
+     *
+     * @param graph the graph.
+     * @return the components.
+     */
+    public static ConnectedComponents of(final IndexedGraph<?> graph) {
+        final int n = graph.vertexCount();
+        final int m = graph.edgeCount();
+        final int[] sources = graph.getEdgeSources();
+        final int[] targets = graph.getEdgeTargets();
+
+        final int[] parent = new int[n];
+        for (int v = 0; v < n; v++) {
+            parent[v] = v;
+        }
+        for (int e = 0; e < m; e++) {
+            final int a = find(parent, sources[e]);
+            final int b = find(parent, targets[e]);
+            // the smaller root wins, so every root is the smallest vertex of its component
+            if (a < b) {
+                parent[b] = a;
+            } else if (b < a) {
+                parent[a] = b;
+            }
+        }
+
+        // roots are visited before the rest of their component, so the numbering follows the smallest vertex id
+        final int[] component = new int[n];
+        int count = 0;
+        for (int v = 0; v < n; v++) {
+            final int root = find(parent, v);
+            component[v] = root == v ? count++ : component[root];
+        }
+
+        final int[] offsets = new int[count + 1];
+        for (int v = 0; v < n; v++) {
+            offsets[component[v] + 1]++;
+        }
+        for (int c = 0; c < count; c++) {
+            offsets[c + 1] += offsets[c];
+        }
+        final int[] vertices = new int[n];
+        final int[] localIds = new int[n];
+        final int[] cursor = new int[count];
+        for (int v = 0; v < n; v++) {
+            final int c = component[v];
+            localIds[v] = cursor[c]++;
+            vertices[offsets[c] + localIds[v]] = v;
+        }
+
+        final int[] edgeOffsets = new int[count + 1];
+        for (int e = 0; e < m; e++) {
+            edgeOffsets[component[sources[e]] + 1]++;
+        }
+        for (int c = 0; c < count; c++) {
+            edgeOffsets[c + 1] += edgeOffsets[c];
+        }
+        final int[] edges = new int[m];
+        final int[] edgeCursor = new int[count];
+        for (int e = 0; e < m; e++) {
+            final int c = component[sources[e]];
+            edges[edgeOffsets[c] + edgeCursor[c]++] = e;
+        }
+
+        return new ConnectedComponents(graph, component, localIds, offsets, vertices, edgeOffsets, edges);
+    }
+
+    private static int find(final int[] parent, final int vertex) {
+        int v = vertex;
+        while (parent[v] != v) {
+            // path halving
+            parent[v] = parent[parent[v]];
+            v = parent[v];
+        }
+        return v;
+    }
+
+    /**
+     * Returns the number of components.
+     *
+     * @return the number of components.
+     */
+    public int count() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * Returns the number of vertices of a component.
+     *
+     * @param component the component.
+     * @return the number of vertices.
+     */
+    public int vertexCount(final int component) {
+        return offsets[component + 1] - offsets[component];
+    }
+
+    /**
+     * Returns the number of edges of a component.
+     *
+     * @param component the component.
+     * @return the number of edges.
+     */
+    public int edgeCount(final int component) {
+        return edgeOffsets[component + 1] - edgeOffsets[component];
+    }
+
+    /**
+     * Returns the component of a vertex.
+     *
+     * @param vertex the vertex id.
+     * @return the component.
+     */
+    public int componentOf(final int vertex) {
+        return component[vertex];
+    }
+
+    /**
+     * Returns the offset of every component in {@link #getVertices()}, with the total vertex count at the end.
+     *
+     * @return the offsets.
+     */
+    public int[] getOffsets() {
+        return offsets;
+    }
+
+    /**
+     * Returns the vertex ids of all components, component by component.
+     *
+     * @return the vertex ids.
+     */
+    public int[] getVertices() {
+        return vertices;
+    }
+
+    /**
+     * Builds a component as a graph of its own. The local vertex ids follow the order of
+     * {@link #getVertices()}, the edges keep their order and their weights.
+     *
+     * @param component the component.
+     * @param <V>       the type of the vertices.
+     * @return the subgraph of the component.
+     */
+    @SuppressWarnings("unchecked")
+    public <V> IndexedGraph<V> subgraph(final int component) {
+        final IndexedGraph<V> parent = (IndexedGraph<V>) graph;
+        final int vertexOffset = offsets[component];
+        final int vertexCount = vertexCount(component);
+        final List<V> members = new AbstractList<>() {
+            @Override
+            public V get(final int index) {
+                return parent.vertex(vertices[vertexOffset + index]);
+            }
+
+            @Override
+            public int size() {
+                return vertexCount;
+            }
+        };
+
+        final int edgeCount = edgeCount(component);
+        final int[] sources = new int[edgeCount];
+        final int[] targets = new int[edgeCount];
+        final double[] weights = new double[edgeCount];
+        for (int i = 0; i < edgeCount; i++) {
+            final int e = edges[edgeOffsets[component] + i];
+            sources[i] = localIds[graph.getEdgeSources()[e]];
+            targets[i] = localIds[graph.getEdgeTargets()[e]];
+            weights[i] = graph.getEdgeWeights()[e];
+        }
+        return IndexedGraph.ofEdgeList(members, vertex -> {
+            final int id = parent.idOf(vertex);
+            return id >= 0 && this.component[id] == component ? localIds[id] : -1;
+        }, sources, targets, weights);
+    }
+}
@@ -0,0 +1,37 @@
+package eu.virtualparadox.springembedder.engine;
+
+/**
+ * Repulsion between all pairs of vertices, O(n²) per iteration.
+ */
+public final class ExactRepulsion implements RepulsionKernel {
+
+    @Override
+    public void accumulate(final LayoutState state, final double optimalDistance, final int from, final int to) {
+        final int n = state.size();
+        final double[] x = state.getX();
+        final double[] y = state.getY();
+        final double[] dx = state.getDx();
+        final double[] dy = state.getDy();
+        final double strength = FruchtermanReingoldEngine.C * optimalDistance * optimalDistance;
+
+        for (int v = from; v < to; v++) {
+            final double px = x[v];
+            final double py = y[v];
+            double fx = 0;
+            double fy = 0;
+            for (int u = 0; u < n; u++) {
+                final double deltaX = px - x[u];
+                final double deltaY = py - y[u];
+                final double distanceSquared = deltaX * deltaX + deltaY * deltaY;
+                // also skips u == v
+                if (distanceSquared > 0) {
+                    final double factor = strength / distanceSquared;
+                    fx += deltaX * factor;
+                    fy += deltaY * factor;
+                }
+            }
+            dx[v] += fx;
+            dy[v] += fy;
+        }
+    }
+}
@@ -0,0 +1,362 @@
+package eu.virtualparadox.springembedder.engine;
+
+import eu.virtualparadox.springembedder.Vector2D;
+import eu.virtualparadox.springembedder.metrics.LayoutMetricsListener;
+import eu.virtualparadox.springembedder.metrics.LayoutPhase;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Allocation-free Fruchterman-Reingold force model over an {@link IndexedGraph}.
+ * All phases work on vertex id ranges and only write the entries of their own range,
+ * so callers may split an iteration across threads.
+ *
+ * @param <V> the type of the vertices.
+ */
+public final class FruchtermanReingoldEngine<V> {
+
+    /**
+     * Scaling constant of both the repulsive and the attractive forces.
+     */
+    public static final double C = 0.01;
+
+    private final IndexedGraph<V> graph;
+    private final LayoutState state;
+    private final RepulsionKernel repulsionKernel;
+    private final int width;
+    private final int height;
+    private final double optimalDistance;
+    private final double attractionDistance;
+
+    /**
+     * Constructs an engine with every vertex at the origin.
+     *
+     * @param graph           the graph to layout.
+     * @param width           the width of the layout area.
+     * @param height          the height of the layout area.
+     * @param repulsionKernel the kernel computing the repulsive forces.
+     */
+    public FruchtermanReingoldEngine(final IndexedGraph<V> graph,
+                                     final int width,
+                                     final int height,
+                                     final RepulsionKernel repulsionKernel) {
+        this(graph, width, height, repulsionKernel, new LayoutState(graph.vertexCount()));
+    }
+
+    /**
+     * Constructs an engine on a reused state, e.g. the state of a previous engine on the same thread.
+     * The state is resized to the graph and every vertex is moved to the origin.
+     *
+     * @param graph           the graph to layout.
+     * @param width           the width of the layout area.
+     * @param height          the height of the layout area.
+     * @param repulsionKernel the kernel computing the repulsive forces.
+     * @param state           the state to reuse, it must not be used by another engine any more.
+     */
+    public FruchtermanReingoldEngine(final IndexedGraph<V> graph,
+                                     final int width,
+                                     final int height,
+                                     final RepulsionKernel repulsionKernel,
+                                     final LayoutState state) {
+        this(graph, width, height, repulsionKernel, state, true);
+    }
+
+    private FruchtermanReingoldEngine(final IndexedGraph<V> graph,
+                                      final int width,
+                                      final int height,
+                                      final RepulsionKernel repulsionKernel,
+                                      final LayoutState state,
+                                      final boolean reset) {
+        if (reset) {
+            state.resize(graph.vertexCount());
+        } else if (state.size() != graph.vertexCount()) {
+            throw new IllegalArgumentException("The state has " + state.size() + " vertices, the graph " + graph.vertexCount());
+        }
+        this.graph = graph;
+        this.state = state;
+        this.repulsionKernel = repulsionKernel;
+        this.width = width;
+        this.height = height;
+        this.optimalDistance = calcOptimalDistance(width, height, graph.vertexCount());
+        // the attraction has always used the truncated optimal distance, which must not become zero on huge graphs
+        this.attractionDistance = Math.max(1, (int) optimalDistance);
+    }
+
+    /**
+     * Constructs an engine that continues from the positions of the given state, e.g. after an incremental
+     * layout modified the graph. The kernel may be the one of a previous engine on the same state.
+     *
+     * @param graph           the graph to layout.
+     * @param width           the width of the layout area.
+     * @param height          the height of the layout area.
+     * @param repulsionKernel the kernel computing the repulsive forces.
+     * @param state           the positions of the vertices, of the size of the graph.
+     * @param <V>             the type of the vertices.
+     * @return the engine.
+     */
+    public static <V> FruchtermanReingoldEngine<V> warmStart(final IndexedGraph<V> graph,
+                                                             final int width,
+                                                             final int height,
+                                                             final RepulsionKernel repulsionKernel,
+                                                             final LayoutState state) {
+        return new FruchtermanReingoldEngine<>(graph, width, height, repulsionKernel, state, false);
+    }
+
+    /**
+     * Calculate optimal distance between nodes.
+     *
+     * @param width       the width of the layout area.
+     * @param height      the height of the layout area.
+     * @param vertexCount the number of vertices.
+     * @return the optimal distance.
+     */
+    public static double calcOptimalDistance(final int width, final int height, final int vertexCount) {
+        return Math.sqrt((width * height) * 1.0d / vertexCount) / 2;
+    }
+
+    /**
+     * Places every vertex at a random integer position within the layout area, in vertex id order.
+     *
+     * @param random the random number generator.
+     */
+    public void randomizePositions(final Random random) {
+        final double[] x = state.getX();
+        final double[] y = state.getY();
+        for (int v = 0; v < state.size(); v++) {
+            x[v] = random.nextInt(width);
+            y[v] = random.nextInt(height);
+        }
+    }
+
+    /**
+     * Performs a complete iteration on the calling thread.
+     *
+     * @param temperature the current temperature.
+     * @return the longest distance a vertex moved.
+     */
+    public double step(final double temperature) {
+        final int n = state.size();
+        clearDisplacements(0, n);
+        prepareRepulsion();
+        accumulateRepulsion(0, n);
+        accumulateAttraction(0, n);
+        return updatePositions(temperature, 0, n);
+    }
+
+    /**
+     * Performs a complete iteration on the calling thread and reports the duration of every phase.
+     *
+     * @param temperature the current temperature.
+     * @param metrics     receives the durations of the repulsion, attraction and update phases.
+     * @return the longest distance a vertex moved.
+     */
+    public double step(final double temperature, final LayoutMetricsListener metrics) {
+        if (metrics == LayoutMetricsListener.NONE) {
+            return step(temperature);
+        }
+        final int n = state.size();
+        final long start = System.nanoTime();
+        clearDisplacements(0, n);
+        prepareRepulsion();
+        accumulateRepulsion(0, n);
+        final long repulsionEnd = System.nanoTime();
+        accumulateAttraction(0, n);
+        final long attractionEnd = System.nanoTime();
+        final double maxDisplacement = updatePositions(temperature, 0, n);
+        final long updateEnd = System.nanoTime();
+        metrics.phaseCompleted(LayoutPhase.REPULSION, repulsionEnd - start);
+        metrics.phaseCompleted(LayoutPhase.ATTRACTION, attractionEnd - repulsionEnd);
+        metrics.phaseCompleted(LayoutPhase.UPDATE, updateEnd - attractionEnd);
+        return maxDisplacement;
+    }
+
+    /**
+     * Performs an iteration that only moves the given vertices. The other vertices still repel and
+     * attract the active ones, but keep their positions.
+     *
+     * @param temperature the current temperature.
+     * @param active      the ids of the vertices to move.
+     * @param activeCount the number of valid entries in {@code active}.
+     * @return the longest distance a vertex moved.
+     */
+    public double step(final double temperature, final int[] active, final int activeCount) {
+        for (int k = 0; k < activeCount; k++) {
+            clearDisplacements(active[k], active[k] + 1);
+        }
+        prepareRepulsion();
+        for (int k = 0; k < activeCount; k++) {
+            accumulateRepulsion(active[k], active[k] + 1);
+            accumulateAttraction(active[k], active[k] + 1);
+        }
+        double maxDisplacement = 0;
+        for (int k = 0; k < activeCount; k++) {
+            maxDisplacement = Math.max(maxDisplacement, updatePositions(temperature, active[k], active[k] + 1));
+        }
+        return maxDisplacement;
+    }
+
+    /**
+     * Resets the displacements of the vertices {@code [from, to)}.
+     *
+     * @param from the first vertex id, inclusive.
+     * @param to   the last vertex id, exclusive.
+     */
+    public void clearDisplacements(final int from, final int to) {
+        final double[] dx = state.getDx();
+        final double[] dy = state.getDy();
+        for (int v = from; v < to; v++) {
+            dx[v] = 0;
+            dy[v] = 0;
+        }
+    }
+
+    /**
+     * Prepares the repulsion kernel for the current positions, must be called once per iteration
+     * before {@link #accumulateRepulsion}.
+     */
+    public void prepareRepulsion() {
+        repulsionKernel.prepare(state, optimalDistance);
+    }
+
+    /**
+     * Adds the repulsive displacements of the vertices {@code [from, to)}.
+     *
+     * @param from the first vertex id, inclusive.
+     * @param to   the last vertex id, exclusive.
+     */
+    public void accumulateRepulsion(final int from, final int to) {
+        repulsionKernel.accumulate(state, optimalDistance, from, to);
+    }
+
+    /**
+     * Adds the attractive displacements of the vertices {@code [from, to)}.
+     * Every vertex gathers the forces of its own incident edges, nothing is scattered to other vertices.
+     *
+     * @param from the first vertex id, inclusive.
+     * @param to   the last vertex id, exclusive.
+     */
+    public void accumulateAttraction(final int from, final int to) {
+        final double[] x = state.getX();
+        final double[] y = state.getY();
+        final double[] dx = state.getDx();
+        final double[] dy = state.getDy();
+        final int[] offsets = graph.getOffsets();
+        final int[] neighbors = graph.getNeighbors();
+        final double[] weights = graph.getNeighborWeights();
+
+        for (int v = from; v < to; v++) {
+            final double px = x[v];
+            final double py = y[v];
+            double fx = 0;
+            double fy = 0;
+            for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+                final int u = neighbors[k];
+                final double deltaX = px - x[u];
+                final double deltaY = py - y[u];
+                final double distance = Math.sqrt(deltaX * deltaX + deltaY * deltaY);
+                if (distance > 0) {
+                    // C * w * d² / k along the unit vector, i.e. delta * C * w * d / k
+                    final double factor = C * weights[k] * distance / attractionDistance;
+                    fx -= deltaX * factor;
+                    fy -= deltaY * factor;
+                }
+            }
+            dx[v] += fx;
+            dy[v] += fy;
+        }
+    }
+
+    /**
+     * Moves the vertices {@code [from, to)} along their displacement, limited by the temperature
+     * and bounded to the layout area.
+     *
+     * @param temperature the current temperature.
+     * @param from        the first vertex id, inclusive.
+     * @param to          the last vertex id, exclusive.
+     * @return the longest distance a vertex of the range moved.
+     */
+    public double updatePositions(final double temperature, final int from, final int to) {
+        final double[] x = state.getX();
+        final double[] y = state.getY();
+        final double[] dx = state.getDx();
+        final double[] dy = state.getDy();
+
+        double maxDisplacementSquared = 0;
+        for (int v = from; v < to; v++) {
+            final double length = Math.sqrt(dx[v] * dx[v] + dy[v] * dy[v]);
+            if (length > 0) {
+                final double scale = Math.min(length, temperature) / length;
+                final double newX = Math.max(0, Math.min(width, x[v] + dx[v] * scale));
+                final double newY = Math.max(0, Math.min(height, y[v] + dy[v] * scale));
+                final double movedX = newX - x[v];
+                final double movedY = newY - y[v];
+                maxDisplacementSquared = Math.max(maxDisplacementSquared, movedX * movedX + movedY * movedY);
+                x[v] = newX;
+                y[v] = newY;
+            }
+        }
+        return Math.sqrt(maxDisplacementSquared);
+    }
+
+    /**
+     * Returns the energy of the vertices {@code [from, to)}, the sum of the squared lengths of the forces
+     * accumulated in the current iteration.
+     *
+     * @param from the first vertex id, inclusive.
+     * @param to   the last vertex id, exclusive.
+     * @return the energy of the range.
+     */
+    public double energy(final int from, final int to) {
+        final double[] dx = state.getDx();
+        final double[] dy = state.getDy();
+        double energy = 0;
+        for (int v = from; v < to; v++) {
+            energy += dx[v] * dx[v] + dy[v] * dy[v];
+        }
+        return energy;
+    }
+
+    /**
+     * Converts the current positions to a map, the only allocating operation of the engine.
+     *
+     * @return the positions of the vertices.
+     */
+    public Map<V, Vector2D> toPositionMap() {
+        final double[] x = state.getX();
+        final double[] y = state.getY();
+        final Map<V, Vector2D> result = new HashMap<>();
+        for (int v = 0; v < state.size(); v++) {
+            result.put(graph.vertex(v), new Vector2D(x[v], y[v]));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the indexed graph.
+     *
+     * @return the indexed graph.
+     */
+    public IndexedGraph<V> getGraph() {
+        return graph;
+    }
+
+    /**
+     * Returns the layout state.
+     *
+     * @return the layout state.
+     */
+    public LayoutState getState() {
+        return state;
+    }
+
+    /**
+     * Returns the optimal distance between vertices.
+     *
+     * @return the optimal distance.
+     */
+    public double getOptimalDistance() {
+        return optimalDistance;
+    }
+}
@@ -0,0 +1,178 @@
+package eu.virtualparadox.springembedder.engine;
+
+import java.util.Arrays;
+
+/**
+ * Builds coarser versions of an {@link IndexedGraph} for multilevel layouts.
+ * <p>
+ * Vertices are visited in ascending degree order and matched with their heaviest unmatched neighbor.
+ * A vertex without an unmatched neighbor that hangs off a single neighbor (a leaf) joins the group of
+ * that neighbor, so stars collapse like solar systems instead of stalling the coarsening. Parallel coarse
+ * edges are merged, keeping the strongest weight, and edges inside a group disappear.
+ */
+public final class GraphCoarsener {
+
+    private GraphCoarsener() {
+        throw new UnsupportedOperationException("This class cannot be instantiated");
+    }
+
+    /**
+     * Coarsens the given graph by one level.
+     *
+     * @param fine the graph to coarsen.
+     * @return the coarse graph and the mapping of the fine vertices to the coarse ones.
+     */
+    public static CoarseLevel coarsen(final IndexedGraph<?> fine) {
+        final int n = fine.vertexCount();
+        final int[] offsets = fine.getOffsets();
+        final int[] neighbors = fine.getNeighbors();
+        final double[] weights = fine.getNeighborWeights();
+
+        final int[] parent = new int[n];
+        Arrays.fill(parent, -1);
+        int coarseCount = 0;
+
+        for (final int v : verticesByDegree(offsets, n)) {
+            if (parent[v] != -1) {
+                continue;
+            }
+
+            int best = -1;
+            double bestWeight = Double.NEGATIVE_INFINITY;
+            int single = -1;
+            boolean leaf = true;
+            for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+                final int u = neighbors[k];
+                if (u == v) {
+                    continue;
+                }
+                if (single == -1) {
+                    single = u;
+                } else if (single != u) {
+                    leaf = false;
+                }
+                if (parent[u] == -1 && weights[k] > bestWeight) {
+                    best = u;
+                    bestWeight = weights[k];
+                }
+            }
+
+            if (best != -1) {
+                parent[v] = coarseCount;
+                parent[best] = coarseCount;
+                coarseCount++;
+            } else if (single != -1 && leaf) {
+                parent[v] = parent[single];
+            } else {
+                parent[v] = coarseCount++;
+            }
+        }
+
+        return new CoarseLevel(mergeEdges(fine, parent, coarseCount), parent);
+    }
+
+    private static int[] verticesByDegree(final int[] offsets, final int n) {
+        int maxDegree = 0;
+        for (int v = 0; v < n; v++) {
+            maxDegree = Math.max(maxDegree, offsets[v + 1] - offsets[v]);
+        }
+        final int[] start = new int[maxDegree + 2];
+        for (int v = 0; v < n; v++) {
+            start[offsets[v + 1] - offsets[v] + 1]++;
+        }
+        for (int d = 0; d <= maxDegree; d++) {
+            start[d + 1] += start[d];
+        }
+        final int[] order = new int[n];
+        for (int v = 0; v < n; v++) {
+            order[start[offsets[v + 1] - offsets[v]]++] = v;
+        }
+        return order;
+    }
+
+    private static IndexedGraph<Integer> mergeEdges(final IndexedGraph<?> fine, final int[] parent, final int coarseCount) {
+        final int m = fine.edgeCount();
+        final int[] sources = fine.getEdgeSources();
+        final int[] targets = fine.getEdgeTargets();
+        final double[] weights = fine.getEdgeWeights();
+
+        // bucket the fine edges by their smaller coarse endpoint
+        final int[] bucketStart = new int[coarseCount + 1];
+        for (int e = 0; e < m; e++) {
+            bucketStart[Math.min(parent[sources[e]], parent[targets[e]]) + 1]++;
+        }
+        for (int c = 0; c < coarseCount; c++) {
+            bucketStart[c + 1] += bucketStart[c];
+        }
+        final int[] bucketEdges = new int[m];
+        final int[] cursor = Arrays.copyOf(bucketStart, coarseCount);
+        for (int e = 0; e < m; e++) {
+            bucketEdges[cursor[Math.min(parent[sources[e]], parent[targets[e]])]++] = e;
+        }
+
+        final int[] coarseSources = new int[m];
+        final int[] coarseTargets = new int[m];
+        final double[] coarseWeights = new double[m];
+        final int[] seenFrom = new int[coarseCount];
+        final int[] slot = new int[coarseCount];
+        Arrays.fill(seenFrom, -1);
+        int count = 0;
+
+        for (int a = 0; a < coarseCount; a++) {
+            for (int k = bucketStart[a]; k < bucketStart[a + 1]; k++) {
+                final int e = bucketEdges[k];
+                final int b = Math.max(parent[sources[e]], parent[targets[e]]);
+                if (a == b) {
+                    continue;
+                }
+                if (seenFrom[b] != a) {
+                    seenFrom[b] = a;
+                    slot[b] = count;
+                    coarseSources[count] = a;
+                    coarseTargets[count] = b;
+                    coarseWeights[count] = weights[e];
+                    count++;
+                } else {
+                    coarseWeights[slot[b]] = Math.max(coarseWeights[slot[b]], weights[e]);
+                }
+            }
+        }
+
+        return IndexedGraph.ofEdgeList(coarseCount,
+                Arrays.copyOf(coarseSources, count),
+                Arrays.copyOf(coarseTargets, count),
+                Arrays.copyOf(coarseWeights, count));
+    }
+
+    /**
+     * A coarse graph together with the group every vertex of the finer graph belongs to.
+     */
+    public static final class CoarseLevel {
+
+        private final IndexedGraph<Integer> graph;
+        private final int[] parent;
+
+        private CoarseLevel(final IndexedGraph<Integer> graph, final int[] parent) {
+            this.graph = graph;
+            this.parent = parent;
+        }
+
+        /**
+         * Returns the coarse graph.
+         *
+         * @return the coarse graph.
+         */
+        public IndexedGraph<Integer> getGraph() {
+            return graph;
+        }
+
+        /**
+         * Returns the coarse vertex id of every fine vertex.
+         *
+         * @return the coarse ids, indexed by fine vertex id.
+         */
+        public int[] getParent() {
+            return parent;
+        }
+    }
+}
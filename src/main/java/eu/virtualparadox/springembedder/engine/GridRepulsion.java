@@ -0,0 +1,168 @@
+package eu.virtualparadox.springembedder.engine;
+
+import java.util.Arrays;
+
+/**
+ * Repulsion with the cutoff of the original Fruchterman-Reingold paper: vertices further apart than
+ * twice the optimal distance do not repel each other. The vertices are bucketed into a grid whose cell
+ * size is the optimal distance, so only the 5x5 cells around a vertex have to be visited and an
+ * iteration costs O(n) on evenly spread layouts.
+ * <p>
+ * The grid is kept between iterations. It is rebuilt with a counting sort only if a vertex moved to
+ * another cell or the covered area changed; within a cell the vertices are always ordered by id, so the
+ * result depends on the positions alone.
+ */
+public final class GridRepulsion implements RepulsionKernel {
+
+    private static final double CUTOFF_FACTOR = 2.0;
+    private static final int MAX_CELLS_PER_VERTEX = 16;
+
+    private int[] cellOf = new int[0];
+    private int[] cellStart = new int[0];
+    private int[] cellVertices = new int[0];
+
+    private int vertexCount;
+    private double cellSize;
+    private int originX;
+    private int originY;
+    private int columns;
+    private int rows;
+    private boolean built;
+
+    @Override
+    public void prepare(final LayoutState state, final double optimalDistance) {
+        final int n = state.size();
+        final double[] x = state.getX();
+        final double[] y = state.getY();
+
+        double minX = Double.MAX_VALUE;
+        double minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE;
+        double maxY = -Double.MAX_VALUE;
+        for (int v = 0; v < n; v++) {
+            minX = Math.min(minX, x[v]);
+            minY = Math.min(minY, y[v]);
+            maxX = Math.max(maxX, x[v]);
+            maxY = Math.max(maxY, y[v]);
+        }
+        if (n == 0) {
+            minX = minY = maxX = maxY = 0;
+        }
+
+        // the optimal distance is the cell size unless the layout is spread so wide that the grid would be mostly empty
+        double size = optimalDistance;
+        final long maxCells = (long) MAX_CELLS_PER_VERTEX * n + 1024;
+        while (cellCount(minX, maxX, size) * cellCount(minY, maxY, size) > maxCells) {
+            size *= 2;
+        }
+
+        final int newOriginX = (int) Math.floor(minX / size);
+        final int newOriginY = (int) Math.floor(minY / size);
+        final int newColumns = (int) Math.floor(maxX / size) - newOriginX + 1;
+        final int newRows = (int) Math.floor(maxY / size) - newOriginY + 1;
+        final boolean sameGeometry = built && size == cellSize && newOriginX == originX && newOriginY == originY
+                && newColumns == columns && newRows == rows && vertexCount == n;
+
+        cellSize = size;
+        originX = newOriginX;
+        originY = newOriginY;
+        columns = newColumns;
+        rows = newRows;
+
+        // the arrays only grow, so the vertices an incremental layout adds do not reallocate them every time
+        if (cellOf.length < n) {
+            cellOf = new int[Math.max(n, cellOf.length + (cellOf.length >> 1))];
+            cellVertices = new int[cellOf.length];
+        }
+        vertexCount = n;
+        boolean moved = !sameGeometry;
+        for (int v = 0; v < n; v++) {
+            final int cell = cellIndex(x[v], y[v]);
+            if (cellOf[v] != cell) {
+                cellOf[v] = cell;
+                moved = true;
+            }
+        }
+        if (moved) {
+            rebuild(n);
+        }
+        built = true;
+    }
+
+    @Override
+    public void accumulate(final LayoutState state, final double optimalDistance, final int from, final int to) {
+        final double[] x = state.getX();
+        final double[] y = state.getY();
+        final double[] dx = state.getDx();
+        final double[] dy = state.getDy();
+        final double strength = FruchtermanReingoldEngine.C * optimalDistance * optimalDistance;
+        final double cutoff = CUTOFF_FACTOR * optimalDistance;
+        final double cutoffSquared = cutoff * cutoff;
+        final int reach = (int) Math.ceil(cutoff / cellSize);
+
+        for (int v = from; v < to; v++) {
+            final double px = x[v];
+            final double py = y[v];
+            final int column = cellOf[v] % columns;
+            final int row = cellOf[v] / columns;
+            double fx = 0;
+            double fy = 0;
+
+            for (int r = Math.max(0, row - reach); r <= Math.min(rows - 1, row + reach); r++) {
+                for (int c = Math.max(0, column - reach); c <= Math.min(columns - 1, column + reach); c++) {
+                    final int cell = r * columns + c;
+                    for (int k = cellStart[cell]; k < cellStart[cell + 1]; k++) {
+                        final int u = cellVertices[k];
+                        final double deltaX = px - x[u];
+                        final double deltaY = py - y[u];
+                        final double distanceSquared = deltaX * deltaX + deltaY * deltaY;
+                        // also skips u == v
+                        if (distanceSquared > 0 && distanceSquared < cutoffSquared) {
+                            final double factor = strength / distanceSquared;
+                            fx += deltaX * factor;
+                            fy += deltaY * factor;
+                        }
+                    }
+                }
+            }
+
+            dx[v] += fx;
+            dy[v] += fy;
+        }
+    }
+
+    private void rebuild(final int n) {
+        final int cells = columns * rows;
+        if (cellStart.length < cells + 1) {
+            cellStart = new int[cells + 1];
+        } else {
+            Arrays.fill(cellStart, 0, cells + 1, 0);
+        }
+
+        // counting sort by cell, stable in vertex id order
+        for (int v = 0; v < n; v++) {
+            cellStart[cellOf[v] + 1]++;
+        }
+        for (int cell = 0; cell < cells; cell++) {
+            cellStart[cell + 1] += cellStart[cell];
+        }
+        for (int v = 0; v < n; v++) {
+            cellVertices[cellStart[cellOf[v]]++] = v;
+        }
+        // the fill pass advanced every start to the next cell's start, shift them back
+        for (int cell = cells; cell > 0; cell--) {
+            cellStart[cell] = cellStart[cell - 1];
+        }
+        cellStart[0] = 0;
+    }
+
+    private int cellIndex(final double px, final double py) {
+        final int column = (int) Math.floor(px / cellSize) - originX;
+        final int row = (int) Math.floor(py / cellSize) - originY;
+        return row * columns + column;
+    }
+
+    private static long cellCount(final double min, final double max, final double size) {
+        return (long) Math.floor(max / size) - (long) Math.floor(min / size) + 1;
+    }
+}
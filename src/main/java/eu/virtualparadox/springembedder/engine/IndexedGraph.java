@@ -0,0 +1,530 @@
+package eu.virtualparadox.springembedder.engine;
+
+import eu.virtualparadox.springembedder.EdgeWeightTable;
+import org.jgrapht.Graph;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+/**
+ * Compact view of a graph for the layout engines.
+ * Vertices are mapped to dense int ids once, edges are kept both as a plain edge list and as a
+ * symmetric incidence list in CSR (compressed sparse row) form, so each vertex can gather the
+ * forces of all of its edges without touching shared state.
+ * <p>
+ * A graph indexed {@link #of from a Graph} can be modified in place by an incremental layout, see
+ * {@link #addVertex}. The arrays then grow with headroom and may be longer than the counts; only the
+ * first {@link #edgeCount()} edges and the first {@code offsets[vertexCount()]} incidences are meaningful.
+ * The layout engines only read the CSR form within the offsets, so they work on a modified graph unchanged.
+ *
+ * @param <V> the type of the vertices.
+ */
+public final class IndexedGraph<V> {
+
+    private final List<V> vertices;
+    private final ToIntFunction<V> vertexIds;
+    // the id of every vertex, only kept by graphs that can be modified
+    private final Map<V, Integer> idMap;
+
+    private int[] edgeSources;
+    private int[] edgeTargets;
+    private double[] edgeWeights;
+    private int edgeCount;
+
+    private int[] offsets;
+    private int[] neighbors;
+    private double[] neighborWeights;
+
+    private IndexedGraph(final List<V> vertices,
+                         final ToIntFunction<V> vertexIds,
+                         final Map<V, Integer> idMap,
+                         final int[] edgeSources,
+                         final int[] edgeTargets,
+                         final double[] edgeWeights) {
+        this.vertices = vertices;
+        this.vertexIds = vertexIds;
+        this.idMap = idMap;
+        this.edgeSources = edgeSources;
+        this.edgeTargets = edgeTargets;
+        this.edgeWeights = edgeWeights;
+        this.edgeCount = edgeSources.length;
+
+        final int n = vertices.size();
+        final int m = edgeSources.length;
+
+        // count the degree of every vertex, both endpoints of an edge see it
+        this.offsets = new int[n + 1];
+        for (int e = 0; e < m; e++) {
+            offsets[edgeSources[e] + 1]++;
+            offsets[edgeTargets[e] + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+
+        this.neighbors = new int[2 * m];
+        this.neighborWeights = new double[2 * m];
+        final int[] cursor = new int[n];
+        for (int e = 0; e < m; e++) {
+            final int source = edgeSources[e];
+            final int target = edgeTargets[e];
+
+            final int sourceSlot = offsets[source] + cursor[source]++;
+            neighbors[sourceSlot] = target;
+            neighborWeights[sourceSlot] = edgeWeights[e];
+
+            final int targetSlot = offsets[target] + cursor[target]++;
+            neighbors[targetSlot] = source;
+            neighborWeights[targetSlot] = edgeWeights[e];
+        }
+    }
+
+    /**
+     * Indexes the given graph. Vertex and edge ids follow the iteration order of the vertex and edge sets.
+     *
+     * @param graph             the graph to index.
+     * @param normalizedWeights the normalized weight of every edge.
+     * @param <V>               the type of the vertices.
+     * @param <E>               the type of the edges.
+     * @return the indexed graph.
+     */
+    public static <V, E> IndexedGraph<V> of(final Graph<V, E> graph,
+                                            final Map<E, Double> normalizedWeights) {
+        final double[] edgeWeights = new double[graph.edgeSet().size()];
+        int e = 0;
+        for (final E edge : graph.edgeSet()) {
+            edgeWeights[e++] = normalizedWeights.get(edge);
+        }
+        return of(graph, edgeWeights);
+    }
+
+    /**
+     * Indexes the given graph. Vertex and edge ids follow the iteration order of the vertex and edge sets.
+     *
+     * @param graph       the graph to index.
+     * @param edgeWeights the normalized weight of every edge, indexed the same way.
+     * @param <V>         the type of the vertices.
+     * @param <E>         the type of the edges.
+     * @return the indexed graph.
+     */
+    public static <V, E> IndexedGraph<V> of(final Graph<V, E> graph,
+                                            final EdgeWeightTable edgeWeights) {
+        if (edgeWeights.size() != graph.edgeSet().size()) {
+            throw new IllegalArgumentException("The graph has " + graph.edgeSet().size() + " edges, the weight table " + edgeWeights.size());
+        }
+        return of(graph, edgeWeights.getWeights());
+    }
+
+    private static <V, E> IndexedGraph<V> of(final Graph<V, E> graph,
+                                             final double[] edgeWeights) {
+        final List<V> vertices = new ArrayList<>(graph.vertexSet());
+        final Map<V, Integer> vertexIds = new HashMap<>();
+        for (int i = 0; i < vertices.size(); i++) {
+            vertexIds.put(vertices.get(i), i);
+        }
+
+        final int m = graph.edgeSet().size();
+        final int[] edgeSources = new int[m];
+        final int[] edgeTargets = new int[m];
+        int e = 0;
+        for (final E edge : graph.edgeSet()) {
+            edgeSources[e] = vertexIds.get(graph.getEdgeSource(edge));
+            edgeTargets[e] = vertexIds.get(graph.getEdgeTarget(edge));
+            e++;
+        }
+
+        return new IndexedGraph<>(vertices, v -> vertexIds.getOrDefault(v, -1), vertexIds, edgeSources, edgeTargets, edgeWeights);
+    }
+
+    /**
+     * Creates a graph from edge arrays over dense vertex ids, without a backing {@link Graph}.
+     *
+     * @param vertices the vertex of every id.
+     * @param idOf     the inverse of {@code vertices}, -1 for unknown vertices.
+     * @param sources  the source vertex id of every edge.
+     * @param targets  the target vertex id of every edge.
+     * @param weights  the normalized weight of every edge.
+     * @param <V>      the type of the vertices.
+     * @return the indexed graph.
+     */
+    public static <V> IndexedGraph<V> ofEdgeList(final List<V> vertices,
+                                                 final ToIntFunction<V> idOf,
+                                                 final int[] sources,
+                                                 final int[] targets,
+                                                 final double[] weights) {
+        if (sources.length != targets.length || sources.length != weights.length) {
+            throw new IllegalArgumentException("Edge arrays must have the same length");
+        }
+        return new IndexedGraph<>(vertices, idOf, null, sources, targets, weights);
+    }
+
+    /**
+     * Creates a graph whose vertices are their own ids {@code 0..vertexCount-1}, without a backing {@link Graph}.
+     *
+     * @param vertexCount the number of vertices.
+     * @param sources     the source vertex id of every edge.
+     * @param targets     the target vertex id of every edge.
+     * @param weights     the normalized weight of every edge.
+     * @return the indexed graph.
+     */
+    public static IndexedGraph<Integer> ofEdgeList(final int vertexCount,
+                                                   final int[] sources,
+                                                   final int[] targets,
+                                                   final double[] weights) {
+        if (sources.length != targets.length || sources.length != weights.length) {
+            throw new IllegalArgumentException("Edge arrays must have the same length");
+        }
+        final List<Integer> vertices = new AbstractList<>() {
+            @Override
+            public Integer get(final int index) {
+                return index;
+            }
+
+            @Override
+            public int size() {
+                return vertexCount;
+            }
+        };
+        return ofEdgeList(vertices, id -> id >= 0 && id < vertexCount ? id : -1, sources, targets, weights);
+    }
+
+    /**
+     * Appends an isolated vertex.
+     *
+     * @param vertex the vertex, which must not be part of the graph yet.
+     * @return the id of the vertex, the former vertex count.
+     */
+    public int addVertex(final V vertex) {
+        requireModifiable();
+        final int id = vertices.size();
+        if (idMap.putIfAbsent(vertex, id) != null) {
+            throw new IllegalArgumentException("The vertex is already part of the graph: " + vertex);
+        }
+        vertices.add(vertex);
+        if (offsets.length < id + 2) {
+            offsets = Arrays.copyOf(offsets, grownCapacity(offsets.length, id + 2));
+        }
+        offsets[id + 1] = offsets[id];
+        return id;
+    }
+
+    /**
+     * Removes an isolated vertex. The last vertex takes over its id, so the caller has to move the
+     * entries of its own per-vertex arrays from the last id to the removed one.
+     *
+     * @param id the id of the vertex, which must not have any edges left.
+     */
+    public void removeVertex(final int id) {
+        requireModifiable();
+        if (offsets[id] != offsets[id + 1]) {
+            throw new IllegalArgumentException("The vertex still has edges: " + vertices.get(id));
+        }
+        final int last = vertices.size() - 1;
+        idMap.remove(vertices.get(id));
+        if (id != last) {
+            final V moved = vertices.get(last);
+            final int degree = offsets[last + 1] - offsets[last];
+
+            // point the incidences and edges of the last vertex to its new id
+            for (int k = offsets[last]; k < offsets[last + 1]; k++) {
+                if (neighbors[k] == last) {
+                    neighbors[k] = id;
+                } else {
+                    neighbors[findIncidence(neighbors[k], last, Double.NaN)] = id;
+                }
+            }
+            for (int e = 0; e < edgeCount; e++) {
+                if (edgeSources[e] == last) {
+                    edgeSources[e] = id;
+                }
+                if (edgeTargets[e] == last) {
+                    edgeTargets[e] = id;
+                }
+            }
+
+            // the row of the removed vertex is empty, move the row of the last vertex in front of the rows in between
+            final int start = offsets[id];
+            final int end = offsets[last];
+            final int[] movedNeighbors = Arrays.copyOfRange(neighbors, end, end + degree);
+            final double[] movedWeights = Arrays.copyOfRange(neighborWeights, end, end + degree);
+            System.arraycopy(neighbors, start, neighbors, start + degree, end - start);
+            System.arraycopy(neighborWeights, start, neighborWeights, start + degree, end - start);
+            System.arraycopy(movedNeighbors, 0, neighbors, start, degree);
+            System.arraycopy(movedWeights, 0, neighborWeights, start, degree);
+            for (int v = id + 1; v <= last; v++) {
+                offsets[v] += degree;
+            }
+
+            vertices.set(id, moved);
+            idMap.put(moved, id);
+        }
+        vertices.remove(last);
+    }
+
+    /**
+     * Appends an edge.
+     *
+     * @param source the source vertex id.
+     * @param target the target vertex id.
+     * @param weight the normalized weight.
+     * @return the id of the edge, the former edge count.
+     */
+    public int addEdge(final int source, final int target, final double weight) {
+        requireModifiable();
+        final int e = edgeCount;
+        if (edgeSources.length == e) {
+            final int capacity = grownCapacity(e, e + 1);
+            edgeSources = Arrays.copyOf(edgeSources, capacity);
+            edgeTargets = Arrays.copyOf(edgeTargets, capacity);
+            edgeWeights = Arrays.copyOf(edgeWeights, capacity);
+        }
+        edgeSources[e] = source;
+        edgeTargets[e] = target;
+        edgeWeights[e] = weight;
+        edgeCount++;
+        insertIncidence(source, target, weight);
+        insertIncidence(target, source, weight);
+        return e;
+    }
+
+    /**
+     * Removes an edge. The last edge takes over its id, so the caller has to move the entries of its
+     * own per-edge arrays from the last id to the removed one.
+     *
+     * @param edge the id of the edge.
+     */
+    public void removeEdge(final int edge) {
+        requireModifiable();
+        final int source = edgeSources[edge];
+        final int target = edgeTargets[edge];
+        final double weight = edgeWeights[edge];
+        removeIncidence(source, findIncidence(source, target, weight));
+        removeIncidence(target, findIncidence(target, source, weight));
+
+        final int last = --edgeCount;
+        edgeSources[edge] = edgeSources[last];
+        edgeTargets[edge] = edgeTargets[last];
+        edgeWeights[edge] = edgeWeights[last];
+    }
+
+    /**
+     * Changes the normalized weight of an edge, e.g. after the weights of an incremental layout were
+     * normalized again.
+     *
+     * @param edge   the id of the edge.
+     * @param weight the normalized weight.
+     */
+    public void setEdgeWeight(final int edge, final double weight) {
+        requireModifiable();
+        final int source = edgeSources[edge];
+        final int target = edgeTargets[edge];
+        final double previous = edgeWeights[edge];
+        neighborWeights[findIncidence(source, target, previous)] = weight;
+        neighborWeights[findIncidence(target, source, previous)] = weight;
+        edgeWeights[edge] = weight;
+    }
+
+    private void requireModifiable() {
+        if (idMap == null) {
+            throw new UnsupportedOperationException("Only a graph indexed from a Graph can be modified");
+        }
+    }
+
+    /**
+     * Finds an incidence of a vertex. Parallel edges with the same weight are interchangeable, so any of them will do.
+     *
+     * @param v        the vertex whose row is searched.
+     * @param neighbor the opposite endpoint.
+     * @param weight   the weight of the edge, NaN to match any weight.
+     * @return the CSR slot of the incidence.
+     */
+    private int findIncidence(final int v, final int neighbor, final double weight) {
+        for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+            if (neighbors[k] == neighbor && (Double.isNaN(weight) || neighborWeights[k] == weight)) {
+                return k;
+            }
+        }
+        throw new IllegalStateException("No incidence of vertex " + v + " to " + neighbor);
+    }
+
+    /**
+     * Inserts an incidence at the end of the row of a vertex, shifting the following rows by one slot.
+     */
+    private void insertIncidence(final int v, final int neighbor, final double weight) {
+        final int n = vertices.size();
+        final int total = offsets[n];
+        if (neighbors.length == total) {
+            final int capacity = grownCapacity(total, total + 1);
+            neighbors = Arrays.copyOf(neighbors, capacity);
+            neighborWeights = Arrays.copyOf(neighborWeights, capacity);
+        }
+        final int slot = offsets[v + 1];
+        System.arraycopy(neighbors, slot, neighbors, slot + 1, total - slot);
+        System.arraycopy(neighborWeights, slot, neighborWeights, slot + 1, total - slot);
+        neighbors[slot] = neighbor;
+        neighborWeights[slot] = weight;
+        for (int u = v + 1; u <= n; u++) {
+            offsets[u]++;
+        }
+    }
+
+    /**
+     * Removes an incidence from the row of a vertex, shifting the following rows back by one slot.
+     */
+    private void removeIncidence(final int v, final int slot) {
+        final int n = vertices.size();
+        final int total = offsets[n];
+        System.arraycopy(neighbors, slot + 1, neighbors, slot, total - slot - 1);
+        System.arraycopy(neighborWeights, slot + 1, neighborWeights, slot, total - slot - 1);
+        for (int u = v + 1; u <= n; u++) {
+            offsets[u]--;
+        }
+    }
+
+    private static int grownCapacity(final int length, final int required) {
+        return Math.max(required, length + (length >> 1));
+    }
+
+    /**
+     * Returns the number of vertices.
+     *
+     * @return the number of vertices.
+     */
+    public int vertexCount() {
+        return vertices.size();
+    }
+
+    /**
+     * Returns the number of edges.
+     *
+     * @return the number of edges.
+     */
+    public int edgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * Returns the vertex with the given id.
+     *
+     * @param id the id of the vertex.
+     * @return the vertex.
+     */
+    public V vertex(final int id) {
+        return vertices.get(id);
+    }
+
+    /**
+     * Returns the id of the given vertex.
+     *
+     * @param vertex the vertex.
+     * @return the id of the vertex, or -1 if it is not part of the graph.
+     */
+    public int idOf(final V vertex) {
+        return vertexIds.applyAsInt(vertex);
+    }
+
+    /**
+     * Returns the source vertex id of an edge.
+     *
+     * @param edge the id of the edge.
+     * @return the source vertex id.
+     */
+    public int edgeSource(final int edge) {
+        return edgeSources[edge];
+    }
+
+    /**
+     * Returns the target vertex id of an edge.
+     *
+     * @param edge the id of the edge.
+     * @return the target vertex id.
+     */
+    public int edgeTarget(final int edge) {
+        return edgeTargets[edge];
+    }
+
+    /**
+     * Returns the normalized weight of an edge.
+     *
+     * @param edge the id of the edge.
+     * @return the weight.
+     */
+    public double edgeWeight(final int edge) {
+        return edgeWeights[edge];
+    }
+
+    /**
+     * Returns the source vertex id of every edge. The array is only valid until the graph is modified.
+     *
+     * @return the source ids, indexed by edge id, of length {@link #edgeCount()}.
+     */
+    public int[] getEdgeSources() {
+        trimEdges();
+        return edgeSources;
+    }
+
+    /**
+     * Returns the target vertex id of every edge. The array is only valid until the graph is modified.
+     *
+     * @return the target ids, indexed by edge id, of length {@link #edgeCount()}.
+     */
+    public int[] getEdgeTargets() {
+        trimEdges();
+        return edgeTargets;
+    }
+
+    /**
+     * Returns the normalized weight of every edge. The array is only valid until the graph is modified.
+     *
+     * @return the weights, indexed by edge id, of length {@link #edgeCount()}.
+     */
+    public double[] getEdgeWeights() {
+        trimEdges();
+        return edgeWeights;
+    }
+
+    /**
+     * Drops the spare capacity of the edge arrays a modification left behind, so the bulk getters never
+     * expose removed edges. Graphs that are never modified are exact already.
+     */
+    private void trimEdges() {
+        if (edgeSources.length != edgeCount) {
+            edgeSources = Arrays.copyOf(edgeSources, edgeCount);
+            edgeTargets = Arrays.copyOf(edgeTargets, edgeCount);
+            edgeWeights = Arrays.copyOf(edgeWeights, edgeCount);
+        }
+    }
+
+    /**
+     * Returns the CSR row offsets. The incident edges of vertex {@code v} are stored in
+     * {@code [offsets[v], offsets[v + 1])} of {@link #getNeighbors()} and {@link #getNeighborWeights()}.
+     *
+     * @return the row offsets, of length {@code vertexCount() + 1} or longer.
+     */
+    public int[] getOffsets() {
+        return offsets;
+    }
+
+    /**
+     * Returns the opposite endpoint of every incident edge.
+     *
+     * @return the neighbor ids, in CSR order.
+     */
+    public int[] getNeighbors() {
+        return neighbors;
+    }
+
+    /**
+     * Returns the normalized weight of every incident edge.
+     *
+     * @return the weights, in CSR order.
+     */
+    public double[] getNeighborWeights() {
+        return neighborWeights;
+    }
+}
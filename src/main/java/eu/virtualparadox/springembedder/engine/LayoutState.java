@@ -0,0 +1,120 @@
+package eu.virtualparadox.springembedder.engine;
+
+import java.util.Arrays;
+
+/**
+ * Positions and displacements of the vertices of an {@link IndexedGraph}, stored as structure of arrays.
+ * A state can be {@link #resize resized} to be reused for another graph, so the arrays may be longer
+ * than {@link #size()}; only the first {@code size()} entries are meaningful.
+ */
+public final class LayoutState {
+
+    private int size;
+    private double[] x;
+    private double[] y;
+    private double[] dx;
+    private double[] dy;
+
+    /**
+     * Constructs a state for the given number of vertices, with every vertex at the origin.
+     *
+     * @param size the number of vertices.
+     */
+    public LayoutState(final int size) {
+        this.size = size;
+        this.x = new double[size];
+        this.y = new double[size];
+        this.dx = new double[size];
+        this.dy = new double[size];
+    }
+
+    /**
+     * Prepares the state for another number of vertices, moving every vertex to the origin.
+     * The arrays are only reallocated if they are too short.
+     *
+     * @param size the number of vertices.
+     */
+    public void resize(final int size) {
+        if (x.length < size) {
+            x = new double[size];
+            y = new double[size];
+            dx = new double[size];
+            dy = new double[size];
+        } else {
+            Arrays.fill(x, 0, size, 0);
+            Arrays.fill(y, 0, size, 0);
+            Arrays.fill(dx, 0, size, 0);
+            Arrays.fill(dy, 0, size, 0);
+        }
+        this.size = size;
+    }
+
+    /**
+     * Changes the number of vertices, keeping the positions of the vertices that remain, e.g. after a
+     * vertex was added to or removed from the graph of an incremental layout. New vertices start at the
+     * origin. Too short arrays grow by half, so a series of additions reallocates rarely.
+     *
+     * @param size the number of vertices.
+     */
+    public void setSize(final int size) {
+        if (x.length < size) {
+            final int capacity = Math.max(size, x.length + (x.length >> 1));
+            x = Arrays.copyOf(x, capacity);
+            y = Arrays.copyOf(y, capacity);
+            dx = Arrays.copyOf(dx, capacity);
+            dy = Arrays.copyOf(dy, capacity);
+        }
+        for (int v = this.size; v < size; v++) {
+            x[v] = 0;
+            y[v] = 0;
+            dx[v] = 0;
+            dy[v] = 0;
+        }
+        this.size = size;
+    }
+
+    /**
+     * Returns the number of vertices.
+     *
+     * @return the number of vertices.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the x-coordinates of the vertices.
+     *
+     * @return the x-coordinates, indexed by vertex id.
+     */
+    public double[] getX() {
+        return x;
+    }
+
+    /**
+     * Returns the y-coordinates of the vertices.
+     *
+     * @return the y-coordinates, indexed by vertex id.
+     */
+    public double[] getY() {
+        return y;
+    }
+
+    /**
+     * Returns the x-components of the displacements accumulated in the current iteration.
+     *
+     * @return the x-displacements, indexed by vertex id.
+     */
+    public double[] getDx() {
+        return dx;
+    }
+
+    /**
+     * Returns the y-components of the displacements accumulated in the current iteration.
+     *
+     * @return the y-displacements, indexed by vertex id.
+     */
+    public double[] getDy() {
+        return dy;
+    }
+}
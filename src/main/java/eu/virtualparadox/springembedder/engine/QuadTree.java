@@ -0,0 +1,249 @@
+package eu.virtualparadox.springembedder.engine;
+
+import java.util.Arrays;
+
+/**
+ * Barnes-Hut quadtree over a set of points.
+ * The nodes are stored in flat arrays which are reused between rebuilds, so rebuilding the tree
+ * in every iteration does not allocate once the arrays have grown to the required size.
+ */
+final class QuadTree {
+
+    private static final int MAX_DEPTH = 32;
+    private static final int NO_BODY = -1;
+    private static final int LEAF = -1;
+
+    private double[] nodeMinX = new double[0];
+    private double[] nodeMinY = new double[0];
+    private double[] nodeSize = new double[0];
+    private double[] massX = new double[0];
+    private double[] massY = new double[0];
+    private int[] mass = new int[0];
+    private int[] firstChild = new int[0];
+    private int[] body = new int[0];
+    private int[] depth = new int[0];
+    private int[] leafOf = new int[0];
+    private int nodeCount;
+
+    /**
+     * Rebuilds the tree over the given points.
+     *
+     * @param x the x-coordinates of the points.
+     * @param y the y-coordinates of the points.
+     * @param n the number of points.
+     */
+    void build(final double[] x, final double[] y, final int n) {
+        ensureCapacity(4 * n + 1);
+        if (leafOf.length < n) {
+            leafOf = new int[n];
+        }
+        nodeCount = 0;
+        if (n == 0) {
+            return;
+        }
+
+        double minX = Double.MAX_VALUE;
+        double minY = Double.MAX_VALUE;
+        double maxX = -Double.MAX_VALUE;
+        double maxY = -Double.MAX_VALUE;
+        for (int i = 0; i < n; i++) {
+            minX = Math.min(minX, x[i]);
+            minY = Math.min(minY, y[i]);
+            maxX = Math.max(maxX, x[i]);
+            maxY = Math.max(maxY, y[i]);
+        }
+        final double size = Math.max(Math.max(maxX - minX, maxY - minY), Double.MIN_NORMAL);
+
+        newNode(minX, minY, size, 0);
+        for (int i = 0; i < n; i++) {
+            insert(i, x[i], y[i]);
+        }
+    }
+
+    /**
+     * Creates a traversal stack for {@link #accumulateForce}. The tree itself is read-only during the
+     * traversal, so threads with their own stack may query it concurrently.
+     *
+     * @return a stack large enough for any tree.
+     */
+    static int[] newTraversalStack() {
+        // every popped node pushes at most four children, three slots per level plus the last four are enough
+        return new int[3 * (MAX_DEPTH + 1) + 4];
+    }
+
+    /**
+     * Adds the repulsive force acting on point {@code i} to {@code forceX[i]} and {@code forceY[i]}.
+     * A node is treated as a single body at its center of mass if its size divided by its distance
+     * from the point is below {@code theta}; {@code theta = 0} gives the exact all-pairs result.
+     *
+     * @param i        the index of the point.
+     * @param x        the x-coordinates of the points, as passed to {@link #build}.
+     * @param y        the y-coordinates of the points, as passed to {@link #build}.
+     * @param theta    the opening angle.
+     * @param strength the repulsion numerator, a body of mass m at distance d pushes with strength * m / d.
+     * @param forceX   the x-components of the accumulated forces.
+     * @param forceY   the y-components of the accumulated forces.
+     * @param stack    the traversal stack of the calling thread, see {@link #newTraversalStack()}.
+     */
+    void accumulateForce(final int i,
+                         final double[] x,
+                         final double[] y,
+                         final double theta,
+                         final double strength,
+                         final double[] forceX,
+                         final double[] forceY,
+                         final int[] stack) {
+        if (nodeCount == 0) {
+            return;
+        }
+
+        final double px = x[i];
+        final double py = y[i];
+        final double thetaSquared = theta * theta;
+        double fx = 0;
+        double fy = 0;
+
+        int top = 0;
+        stack[top++] = 0;
+        while (top > 0) {
+            final int node = stack[--top];
+            int m = mass[node];
+            double cx = massX[node];
+            double cy = massY[node];
+
+            if (firstChild[node] == LEAF) {
+                // a leaf at maximum depth may hold several coincident bodies including this one
+                if (leafOf[i] == node) {
+                    if (m == 1) {
+                        continue;
+                    }
+                    cx -= px;
+                    cy -= py;
+                    m--;
+                }
+            } else {
+                final double dx = px - cx / m;
+                final double dy = py - cy / m;
+                final double distanceSquared = dx * dx + dy * dy;
+                final double size = nodeSize[node];
+                if (size * size >= thetaSquared * distanceSquared) {
+                    final int child = firstChild[node];
+                    for (int c = 0; c < 4; c++) {
+                        if (mass[child + c] > 0) {
+                            stack[top++] = child + c;
+                        }
+                    }
+                    continue;
+                }
+            }
+
+            final double dx = px - cx / m;
+            final double dy = py - cy / m;
+            final double distanceSquared = dx * dx + dy * dy;
+            if (distanceSquared > 0) {
+                final double factor = strength * m / distanceSquared;
+                fx += dx * factor;
+                fy += dy * factor;
+            }
+        }
+
+        forceX[i] += fx;
+        forceY[i] += fy;
+    }
+
+    private void insert(final int i, final double px, final double py) {
+        int node = 0;
+        while (true) {
+            if (firstChild[node] == LEAF) {
+                if (mass[node] == 0) {
+                    body[node] = i;
+                    leafOf[i] = node;
+                    addMass(node, px, py);
+                    return;
+                }
+                if (depth[node] == MAX_DEPTH) {
+                    body[node] = NO_BODY;
+                    leafOf[i] = node;
+                    addMass(node, px, py);
+                    return;
+                }
+                subdivide(node);
+            }
+            addMass(node, px, py);
+            node = childFor(node, px, py);
+        }
+    }
+
+    private void subdivide(final int node) {
+        final double half = nodeSize[node] / 2;
+        final double minX = nodeMinX[node];
+        final double minY = nodeMinY[node];
+        final int childDepth = depth[node] + 1;
+
+        final int child = newNode(minX, minY, half, childDepth);
+        newNode(minX + half, minY, half, childDepth);
+        newNode(minX, minY + half, half, childDepth);
+        newNode(minX + half, minY + half, half, childDepth);
+        firstChild[node] = child;
+
+        // push the body of the former leaf one level down
+        final int existing = body[node];
+        final double ex = massX[node];
+        final double ey = massY[node];
+        final int target = childFor(node, ex, ey);
+        body[target] = existing;
+        leafOf[existing] = target;
+        addMass(target, ex, ey);
+        body[node] = NO_BODY;
+    }
+
+    private int childFor(final int node, final double px, final double py) {
+        final double half = nodeSize[node] / 2;
+        int child = firstChild[node];
+        if (px >= nodeMinX[node] + half) {
+            child += 1;
+        }
+        if (py >= nodeMinY[node] + half) {
+            child += 2;
+        }
+        return child;
+    }
+
+    private void addMass(final int node, final double px, final double py) {
+        massX[node] += px;
+        massY[node] += py;
+        mass[node]++;
+    }
+
+    private int newNode(final double minX, final double minY, final double size, final int nodeDepth) {
+        if (nodeCount == mass.length) {
+            ensureCapacity(2 * nodeCount);
+        }
+        final int node = nodeCount++;
+        nodeMinX[node] = minX;
+        nodeMinY[node] = minY;
+        nodeSize[node] = size;
+        massX[node] = 0;
+        massY[node] = 0;
+        mass[node] = 0;
+        firstChild[node] = LEAF;
+        body[node] = NO_BODY;
+        depth[node] = nodeDepth;
+        return node;
+    }
+
+    private void ensureCapacity(final int capacity) {
+        if (mass.length >= capacity) {
+            return;
+        }
+        nodeMinX = Arrays.copyOf(nodeMinX, capacity);
+        nodeMinY = Arrays.copyOf(nodeMinY, capacity);
+        nodeSize = Arrays.copyOf(nodeSize, capacity);
+        massX = Arrays.copyOf(massX, capacity);
+        massY = Arrays.copyOf(massY, capacity);
+        mass = Arrays.copyOf(mass, capacity);
+        firstChild = Arrays.copyOf(firstChild, capacity);
+        body = Arrays.copyOf(body, capacity);
+        depth = Arrays.copyOf(depth, capacity);
+    }
+}
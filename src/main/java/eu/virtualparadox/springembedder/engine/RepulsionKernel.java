@@ -0,0 +1,29 @@
+package eu.virtualparadox.springembedder.engine;
+
+/**
+ * Computes the repulsive displacements of the vertices.
+ * Kernels may keep scratch data between iterations, so an instance belongs to a single engine.
+ */
+public interface RepulsionKernel {
+
+    /**
+     * Prepares the kernel for an iteration, called once before any {@link #accumulate} call of that iteration.
+     *
+     * @param state           the current layout state.
+     * @param optimalDistance the optimal distance between vertices.
+     */
+    default void prepare(final LayoutState state, final double optimalDistance) {
+        // nothing to prepare
+    }
+
+    /**
+     * Adds the repulsive displacement of the vertices {@code [from, to)} to the displacement arrays of the state.
+     * Only the displacements of these vertices are written, so disjoint ranges may be processed concurrently.
+     *
+     * @param state           the current layout state.
+     * @param optimalDistance the optimal distance between vertices.
+     * @param from            the first vertex id, inclusive.
+     * @param to              the last vertex id, exclusive.
+     */
+    void accumulate(LayoutState state, double optimalDistance, int from, int to);
+}
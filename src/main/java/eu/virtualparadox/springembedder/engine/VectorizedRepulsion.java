@@ -0,0 +1,178 @@
+package eu.virtualparadox.springembedder.engine;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Exact repulsion between all pairs of vertices, O(n²) per iteration, computed with the SIMD
+ * instructions of the CPU through the incubating Vector API.
+ * <p>
+ * For every vertex the inner loop handles as many other vertices at once as the preferred vector
+ * species has lanes, e.g. 4 doubles on AVX2 and 8 on AVX-512. In single precision the positions are
+ * copied into float arrays in {@link #prepare}, which doubles the number of lanes; the sums are still
+ * added to the double displacements. The lanes are summed in a different order than
+ * {@link ExactRepulsion} does, so the results agree up to rounding.
+ * <p>
+ * This class needs the {@code jdk.incubator.vector} module at runtime, use
+ * {@code RepulsionMode.VECTORIZED}, which falls back to the scalar kernel when the module is absent.
+ */
+public final class VectorizedRepulsion implements RepulsionKernel {
+
+    private static final VectorSpecies<Double> DOUBLE_SPECIES = DoubleVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Float> FLOAT_SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    private final boolean singlePrecision;
+    private float[] floatX;
+    private float[] floatY;
+
+    /**
+     * Constructor for the VectorizedRepulsion.
+     *
+     * @param singlePrecision whether the pairs are computed in float instead of double precision.
+     */
+    public VectorizedRepulsion(final boolean singlePrecision) {
+        this.singlePrecision = singlePrecision;
+    }
+
+    @Override
+    public void prepare(final LayoutState state, final double optimalDistance) {
+        if (!singlePrecision) {
+            return;
+        }
+        final int n = state.size();
+        if (floatX == null || floatX.length < n) {
+            floatX = new float[n];
+            floatY = new float[n];
+        }
+        final double[] x = state.getX();
+        final double[] y = state.getY();
+        for (int v = 0; v < n; v++) {
+            floatX[v] = (float) x[v];
+            floatY[v] = (float) y[v];
+        }
+    }
+
+    @Override
+    public void accumulate(final LayoutState state, final double optimalDistance, final int from, final int to) {
+        final double strength = FruchtermanReingoldEngine.C * optimalDistance * optimalDistance;
+        if (singlePrecision) {
+            accumulate(floatX, floatY, state.getDx(), state.getDy(), state.size(), (float) strength, from, to);
+        } else {
+            accumulate(state.getX(), state.getY(), state.getDx(), state.getDy(), state.size(), strength, from, to);
+        }
+    }
+
+    /**
+     * Adds the repulsion of all vertices to the displacements of the vertices {@code [from, to)}, in double precision.
+     *
+     * @param x        the x coordinates.
+     * @param y        the y coordinates.
+     * @param dx       the x displacements.
+     * @param dy       the y displacements.
+     * @param n        the number of vertices.
+     * @param strength the repulsion constant times the squared optimal distance.
+     * @param from     the first vertex id, inclusive.
+     * @param to       the last vertex id, exclusive.
+     */
+    public static void accumulate(final double[] x, final double[] y,
+                                  final double[] dx, final double[] dy,
+                                  final int n, final double strength,
+                                  final int from, final int to) {
+        final int upperBound = DOUBLE_SPECIES.loopBound(n);
+        final DoubleVector strengths = DoubleVector.broadcast(DOUBLE_SPECIES, strength);
+
+        for (int v = from; v < to; v++) {
+            final double px = x[v];
+            final double py = y[v];
+            final DoubleVector pxs = DoubleVector.broadcast(DOUBLE_SPECIES, px);
+            final DoubleVector pys = DoubleVector.broadcast(DOUBLE_SPECIES, py);
+            DoubleVector fxs = DoubleVector.zero(DOUBLE_SPECIES);
+            DoubleVector fys = DoubleVector.zero(DOUBLE_SPECIES);
+
+            int u = 0;
+            for (; u < upperBound; u += DOUBLE_SPECIES.length()) {
+                final DoubleVector deltaX = pxs.sub(DoubleVector.fromArray(DOUBLE_SPECIES, x, u));
+                final DoubleVector deltaY = pys.sub(DoubleVector.fromArray(DOUBLE_SPECIES, y, u));
+                final DoubleVector distanceSquared = deltaX.mul(deltaX).add(deltaY.mul(deltaY));
+                // also masks u == v, whose strength / 0 would poison the sum
+                final VectorMask<Double> apart = distanceSquared.compare(VectorOperators.GT, 0);
+                final DoubleVector factor = strengths.div(distanceSquared, apart);
+                fxs = fxs.add(deltaX.mul(factor), apart);
+                fys = fys.add(deltaY.mul(factor), apart);
+            }
+
+            double fx = fxs.reduceLanes(VectorOperators.ADD);
+            double fy = fys.reduceLanes(VectorOperators.ADD);
+            for (; u < n; u++) {
+                final double deltaX = px - x[u];
+                final double deltaY = py - y[u];
+                final double distanceSquared = deltaX * deltaX + deltaY * deltaY;
+                if (distanceSquared > 0) {
+                    final double factor = strength / distanceSquared;
+                    fx += deltaX * factor;
+                    fy += deltaY * factor;
+                }
+            }
+            dx[v] += fx;
+            dy[v] += fy;
+        }
+    }
+
+    /**
+     * Adds the repulsion of all vertices to the displacements of the vertices {@code [from, to)}, in single precision.
+     *
+     * @param x        the x coordinates.
+     * @param y        the y coordinates.
+     * @param dx       the x displacements.
+     * @param dy       the y displacements.
+     * @param n        the number of vertices.
+     * @param strength the repulsion constant times the squared optimal distance.
+     * @param from     the first vertex id, inclusive.
+     * @param to       the last vertex id, exclusive.
+     */
+    public static void accumulate(final float[] x, final float[] y,
+                                  final double[] dx, final double[] dy,
+                                  final int n, final float strength,
+                                  final int from, final int to) {
+        final int upperBound = FLOAT_SPECIES.loopBound(n);
+        final FloatVector strengths = FloatVector.broadcast(FLOAT_SPECIES, strength);
+
+        for (int v = from; v < to; v++) {
+            final float px = x[v];
+            final float py = y[v];
+            final FloatVector pxs = FloatVector.broadcast(FLOAT_SPECIES, px);
+            final FloatVector pys = FloatVector.broadcast(FLOAT_SPECIES, py);
+            FloatVector fxs = FloatVector.zero(FLOAT_SPECIES);
+            FloatVector fys = FloatVector.zero(FLOAT_SPECIES);
+
+            int u = 0;
+            for (; u < upperBound; u += FLOAT_SPECIES.length()) {
+                final FloatVector deltaX = pxs.sub(FloatVector.fromArray(FLOAT_SPECIES, x, u));
+                final FloatVector deltaY = pys.sub(FloatVector.fromArray(FLOAT_SPECIES, y, u));
+                final FloatVector distanceSquared = deltaX.mul(deltaX).add(deltaY.mul(deltaY));
+                final VectorMask<Float> apart = distanceSquared.compare(VectorOperators.GT, 0);
+                final FloatVector factor = strengths.div(distanceSquared, apart);
+                fxs = fxs.add(deltaX.mul(factor), apart);
+                fys = fys.add(deltaY.mul(factor), apart);
+            }
+
+            float fx = fxs.reduceLanes(VectorOperators.ADD);
+            float fy = fys.reduceLanes(VectorOperators.ADD);
+            for (; u < n; u++) {
+                final float deltaX = px - x[u];
+                final float deltaY = py - y[u];
+                final float distanceSquared = deltaX * deltaX + deltaY * deltaY;
+                if (distanceSquared > 0) {
+                    final float factor = strength / distanceSquared;
+                    fx += deltaX * factor;
+                    fy += deltaY * factor;
+                }
+            }
+            dx[v] += fx;
+            dy[v] += fy;
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package eu.virtualparadox.springembedder.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Buffered writer of text and little-endian binary values to a channel. Numbers are formatted into the
+ * buffer directly, so writing a vertex allocates nothing but the bytes of its key.
+ */
+final class ChannelWriter implements Closeable {
+
+    static final int BUFFER_SIZE = 1 << 16;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    // the largest magnitude whose hundredths fit into a long
+    private static final double MAX_DECIMAL = Long.MAX_VALUE / 100.0;
+
+    private final byte[] digits = new byte[20];
+
+    ChannelWriter(final WritableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    private void ensure(final int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+    ChannelWriter ascii(final String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            ensure(1);
+            buffer.put((byte) text.charAt(i));
+        }
+        return this;
+    }
+
+    ChannelWriter ascii(final char c) throws IOException {
+        ensure(1);
+        buffer.put((byte) c);
+        return this;
+    }
+
+    /**
+     * Writes text as UTF-8, escaping the XML special characters.
+     */
+    ChannelWriter xml(final String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            switch (c) {
+                case '&' -> ascii("&amp;");
+                case '<' -> ascii("&lt;");
+                case '>' -> ascii("&gt;");
+                case '"' -> ascii("&quot;");
+                default -> {
+                    if (c < 0x80) {
+                        ascii(c);
+                    } else {
+                        final int codePoint = text.codePointAt(i);
+                        utf8(codePoint);
+                        i += Character.charCount(codePoint) - 1;
+                    }
+                }
+            }
+        }
+        return this;
+    }
+
+    private void utf8(final int codePoint) throws IOException {
+        ensure(4);
+        if (codePoint < 0x800) {
+            buffer.put((byte) (0xc0 | codePoint >> 6));
+        } else if (codePoint < 0x10000) {
+            buffer.put((byte) (0xe0 | codePoint >> 12));
+            buffer.put((byte) (0x80 | codePoint >> 6 & 0x3f));
+        } else {
+            buffer.put((byte) (0xf0 | codePoint >> 18));
+            buffer.put((byte) (0x80 | codePoint >> 12 & 0x3f));
+            buffer.put((byte) (0x80 | codePoint >> 6 & 0x3f));
+        }
+        buffer.put((byte) (0x80 | codePoint & 0x3f));
+    }
+
+    /**
+     * Writes text as a UTF-8 CSV field, quoted if it contains a delimiter, a quote or a line break.
+     */
+    ChannelWriter csv(final String text) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < text.length() && !quote; i++) {
+            final char c = text.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        final String field = quote ? '"' + text.replace("\"", "\"\"") + '"' : text;
+        bytes(field.getBytes(StandardCharsets.UTF_8));
+        return this;
+    }
+
+    ChannelWriter bytes(final byte[] bytes) throws IOException {
+        int offset = 0;
+        while (offset < bytes.length) {
+            ensure(1);
+            final int length = Math.min(buffer.remaining(), bytes.length - offset);
+            buffer.put(bytes, offset, length);
+            offset += length;
+        }
+        return this;
+    }
+
+    ChannelWriter integer(final long value) throws IOException {
+        ensure(digits.length + 1);
+        if (value < 0) {
+            buffer.put((byte) '-');
+        }
+        // the digits of a negative value are taken without negating it, which would overflow Long.MIN_VALUE
+        long rest = value;
+        int count = 0;
+        do {
+            digits[count++] = (byte) ('0' + Math.abs(rest % 10));
+            rest /= 10;
+        } while (rest != 0);
+        while (count > 0) {
+            buffer.put(digits[--count]);
+        }
+        return this;
+    }
+
+    /**
+     * Writes a number with two decimals, enough for pixel coordinates. NaN and infinite values are rejected
+     * instead of being rounded to a wrong number.
+     */
+    ChannelWriter decimal(final double value) throws IOException {
+        if (!(Math.abs(value) < MAX_DECIMAL)) {
+            throw new IllegalArgumentException("Cannot write " + value + " with two decimals");
+        }
+        long scaled = Math.round(value * 100);
+        if (scaled < 0) {
+            ascii('-');
+            scaled = -scaled;
+        }
+        integer(scaled / 100);
+        ensure(3);
+        buffer.put((byte) '.');
+        buffer.put((byte) ('0' + scaled / 10 % 10));
+        buffer.put((byte) ('0' + scaled % 10));
+        return this;
+    }
+
+    ChannelWriter putInt(final int value) throws IOException {
+        ensure(Integer.BYTES);
+        buffer.putInt(value);
+        return this;
+    }
+
+    ChannelWriter putFloat(final float value) throws IOException {
+        ensure(Float.BYTES);
+        buffer.putFloat(value);
+        return this;
+    }
+
+    void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package eu.virtualparadox.springembedder.io;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compression of exported layouts.
+ */
+public enum Compression {
+
+    /**
+     * The file is written as is.
+     */
+    NONE {
+        @Override
+        WritableByteChannel wrap(final WritableByteChannel channel) {
+            return channel;
+        }
+    },
+
+    /**
+     * The file is gzip compressed as it is written, conventionally with a {@code .gz} suffix.
+     */
+    GZIP {
+        @Override
+        WritableByteChannel wrap(final WritableByteChannel channel) throws IOException {
+            return Channels.newChannel(new GZIPOutputStream(Channels.newOutputStream(channel), ChannelWriter.BUFFER_SIZE));
+        }
+    };
+
+    /**
+     * Wraps a channel so the bytes written to it are compressed. Closing the returned channel finishes the
+     * compressed stream and closes the wrapped channel.
+     *
+     * @param channel the channel of the file.
+     * @return the channel to write the uncompressed bytes to.
+     * @throws IOException if the compressed stream cannot be started.
+     */
+    abstract WritableByteChannel wrap(WritableByteChannel channel) throws IOException;
+}
@@ -0,0 +1,159 @@
+package eu.virtualparadox.springembedder.io;
+
+import eu.virtualparadox.springembedder.EdgeWeightNormalizer;
+import eu.virtualparadox.springembedder.engine.IndexedGraph;
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultWeightedEdge;
+import org.jgrapht.graph.DirectedPseudograph;
+import org.jgrapht.graph.DirectedWeightedPseudograph;
+
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * Edge list over dense vertex ids, as read by the {@link EdgeListLoader}.
+ * <p>
+ * The vertices of the file are identified by long ids, which are mapped to the dense ids
+ * {@code 0..vertexCount()-1} in the order of their first appearance. The edges are kept in primitive
+ * arrays, about 16 bytes per edge plus 12 per vertex, instead of the several hundred bytes of a JGraphT
+ * edge object with its entries in the vertex and edge maps.
+ */
+public final class EdgeList {
+
+    private final long[] vertexIds;
+    private final LongIntHashMap ids;
+    private final int[] sources;
+    private final int[] targets;
+    private final double[] weights;
+
+    EdgeList(final long[] vertexIds,
+             final LongIntHashMap ids,
+             final int[] sources,
+             final int[] targets,
+             final double[] weights) {
+        this.vertexIds = vertexIds;
+        this.ids = ids;
+        this.sources = sources;
+        this.targets = targets;
+        this.weights = weights;
+    }
+
+    /**
+     * Returns the number of vertices.
+     *
+     * @return the number of vertices.
+     */
+    public int vertexCount() {
+        return vertexIds.length;
+    }
+
+    /**
+     * Returns the number of edges.
+     *
+     * @return the number of edges.
+     */
+    public int edgeCount() {
+        return sources.length;
+    }
+
+    /**
+     * Tells whether the edges have weights. Unweighted edges are laid out as edges of an unweighted graph.
+     *
+     * @return true if the file had a weight column.
+     */
+    public boolean isWeighted() {
+        return weights != null;
+    }
+
+    /**
+     * Returns the vertex id of the file for a dense id.
+     *
+     * @param id the dense id.
+     * @return the vertex id of the file.
+     */
+    public long vertexId(final int id) {
+        return vertexIds[id];
+    }
+
+    /**
+     * Returns the dense id of a vertex id of the file.
+     *
+     * @param vertexId the vertex id of the file.
+     * @return the dense id, or -1 if no edge has this vertex.
+     */
+    public int idOf(final long vertexId) {
+        return ids.get(vertexId);
+    }
+
+    /**
+     * Returns the source dense id of every edge.
+     *
+     * @return the source ids, indexed by edge id.
+     */
+    public int[] getSources() {
+        return sources;
+    }
+
+    /**
+     * Returns the target dense id of every edge.
+     *
+     * @return the target ids, indexed by edge id.
+     */
+    public int[] getTargets() {
+        return targets;
+    }
+
+    /**
+     * Returns the raw weight of every edge.
+     *
+     * @return the weights, indexed by edge id, or null if the edges are not weighted.
+     */
+    public double[] getWeights() {
+        return weights;
+    }
+
+    /**
+     * Creates the indexed graph for the layout engines, without building a {@link Graph}. The weights are
+     * normalized like those of a graph, the vertices are the vertex ids of the file and their ids in the
+     * indexed graph are the dense ids.
+     *
+     * @return the indexed graph.
+     */
+    public IndexedGraph<Long> toIndexedGraph() {
+        final List<Long> vertices = new AbstractList<>() {
+            @Override
+            public Long get(final int index) {
+                return vertexIds[index];
+            }
+
+            @Override
+            public int size() {
+                return vertexIds.length;
+            }
+        };
+        return IndexedGraph.ofEdgeList(vertices, ids::get, sources, targets,
+                EdgeWeightNormalizer.normalizeEdgeWeights(weights, sources.length));
+    }
+
+    /**
+     * Builds a JGraphT graph of the edge list, for callers that need one, e.g. the renderer callbacks.
+     * This costs the memory the edge list saves, so it should only be used for graphs that fit as objects.
+     *
+     * @return a directed pseudograph, weighted if the edge list is weighted.
+     */
+    public Graph<Long, DefaultWeightedEdge> toGraph() {
+        final Graph<Long, DefaultWeightedEdge> graph = weights != null
+                ? new DirectedWeightedPseudograph<>(DefaultWeightedEdge.class)
+                : new DirectedPseudograph<>(DefaultWeightedEdge.class);
+        for (final long vertexId : vertexIds) {
+            graph.addVertex(vertexId);
+        }
+        for (int e = 0; e < sources.length; e++) {
+            final DefaultWeightedEdge edge = graph.addEdge(vertexIds[sources[e]], vertexIds[targets[e]]);
+            if (weights != null) {
+                graph.setEdgeWeight(edge, weights[e]);
+            }
+        }
+        return graph;
+    }
+}
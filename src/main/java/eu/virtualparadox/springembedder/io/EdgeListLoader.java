@@ -0,0 +1,554 @@
+package eu.virtualparadox.springembedder.io;
+
+import eu.virtualparadox.springembedder.TimeWatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loads large edge lists straight into primitive arrays, without creating a JGraphT graph.
+ * <p>
+ * The file is memory-mapped and split into chunks that are parsed in parallel on a fork/join pool.
+ * Text chunks end at a line break, so every line belongs to exactly one chunk. The vertex ids of the
+ * chunks are then mapped to dense ids in file order, so the result does not depend on the number of
+ * threads.
+ * <p>
+ * Text files have one edge per line: source id, target id and an optional weight, separated by the
+ * delimiter or by blanks. Lines starting with {@code #} or {@code %} are comments, and a first line that
+ * does not start with a number is taken as a header. Vertex ids must be integers.
+ * <p>
+ * The binary format is little-endian: the int {@link #BINARY_MAGIC}, an int of flags (bit 0: weighted),
+ * the long number of edges, then per edge the long source id, the long target id and, if weighted, a
+ * float weight.
+ */
+public class EdgeListLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(EdgeListLoader.class);
+
+    /**
+     * First four bytes of the binary format, "SEEL" read as a little-endian int.
+     */
+    public static final int BINARY_MAGIC = 0x4c454553;
+
+    private static final int FLAG_WEIGHTED = 1;
+    private static final int BINARY_HEADER_SIZE = 16;
+    private static final long MIN_CHUNK_SIZE = 1 << 20;
+    // a mapping is limited to 2 GB, smaller chunks also balance better
+    private static final long MAX_CHUNK_SIZE = 1 << 26;
+    // every edge takes two entries of the incidence list of the indexed graph
+    private static final int MAX_EDGES = Integer.MAX_VALUE / 2 - 8;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructor for the EdgeListLoader.
+     *
+     * @param pool Pool parsing the chunks.
+     */
+    public EdgeListLoader(final ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Constructor for the EdgeListLoader, parsing on the common pool.
+     */
+    public EdgeListLoader() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Loads a tab separated edge list.
+     *
+     * @param path the file.
+     * @return the edge list.
+     * @throws IOException if the file cannot be read.
+     */
+    public EdgeList loadTsv(final Path path) throws IOException {
+        return loadText(path, '\t');
+    }
+
+    /**
+     * Loads a comma separated edge list.
+     *
+     * @param path the file.
+     * @return the edge list.
+     * @throws IOException if the file cannot be read.
+     */
+    public EdgeList loadCsv(final Path path) throws IOException {
+        return loadText(path, ',');
+    }
+
+    /**
+     * Loads a text edge list.
+     *
+     * @param path      the file.
+     * @param delimiter the column delimiter, blanks around it are ignored.
+     * @return the edge list.
+     * @throws IOException              if the file cannot be read.
+     * @throws IllegalArgumentException if a line is not an edge.
+     */
+    public EdgeList loadText(final Path path, final char delimiter) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long[] bounds = splitAtLineBreaks(channel);
+            final List<TextChunk> chunks = new ArrayList<>();
+            for (int c = 0; c + 1 < bounds.length; c++) {
+                chunks.add(new TextChunk(channel, bounds[c], bounds[c + 1], delimiter, c == 0));
+            }
+            final TimeWatch tw = TimeWatch.start();
+            final List<ParsedEdges> parsed = invokeAll(chunks);
+            logger.debug("Parsed {} in {} chunks in {} ms", path, chunks.size(), tw.time(TimeUnit.MILLISECONDS));
+            return index(parsed);
+        }
+    }
+
+    /**
+     * Loads a binary edge list.
+     *
+     * @param path the file.
+     * @return the edge list.
+     * @throws IOException              if the file cannot be read.
+     * @throws IllegalArgumentException if the file is not in the binary format.
+     */
+    public EdgeList loadBinary(final Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(channel.size(), BINARY_HEADER_SIZE))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (header.remaining() < BINARY_HEADER_SIZE || header.getInt() != BINARY_MAGIC) {
+                throw new IllegalArgumentException("Not a binary edge list: " + path);
+            }
+            final boolean weighted = (header.getInt() & FLAG_WEIGHTED) != 0;
+            final long edgeCount = header.getLong();
+            final int recordSize = weighted ? 20 : 16;
+            if (edgeCount < 0 || edgeCount > MAX_EDGES || BINARY_HEADER_SIZE + edgeCount * recordSize > channel.size()) {
+                throw new IllegalArgumentException("Invalid number of edges " + edgeCount + " in " + path);
+            }
+
+            final int m = (int) edgeCount;
+            final ParsedEdges edges = new ParsedEdges(m, weighted);
+            edges.size = m;
+            final int recordsPerChunk = (int) Math.max(1, chunkSize(edgeCount * recordSize) / recordSize);
+            final List<BinaryChunk> chunks = new ArrayList<>();
+            for (int from = 0; from < m; from += recordsPerChunk) {
+                chunks.add(new BinaryChunk(channel, edges, from, Math.min(m, from + recordsPerChunk), recordSize));
+            }
+            invokeAll(chunks);
+            return index(List.of(edges));
+        }
+    }
+
+    /**
+     * Writes an edge list in the binary format, with the vertex ids of the file.
+     *
+     * @param edgeList the edge list.
+     * @param path     the file, replaced if it exists.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void writeBinary(final EdgeList edgeList, final Path path) throws IOException {
+        final boolean weighted = edgeList.isWeighted();
+        final int recordSize = weighted ? 20 : 16;
+        final long size = BINARY_HEADER_SIZE + (long) edgeList.edgeCount() * recordSize;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            final ByteBuffer buffer = ByteBuffer.allocateDirect((int) Math.min(size, MIN_CHUNK_SIZE)).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(BINARY_MAGIC);
+            buffer.putInt(weighted ? FLAG_WEIGHTED : 0);
+            buffer.putLong(edgeList.edgeCount());
+            for (int e = 0; e < edgeList.edgeCount(); e++) {
+                if (buffer.remaining() < recordSize) {
+                    drain(channel, buffer);
+                }
+                buffer.putLong(edgeList.vertexId(edgeList.getSources()[e]));
+                buffer.putLong(edgeList.vertexId(edgeList.getTargets()[e]));
+                if (weighted) {
+                    buffer.putFloat((float) edgeList.getWeights()[e]);
+                }
+            }
+            drain(channel, buffer);
+        }
+    }
+
+    private static void drain(final FileChannel channel, final ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private <T> List<T> invokeAll(final List<? extends RecursiveTask<T>> tasks) throws IOException {
+        try {
+            return pool.submit(() -> ForkJoinTask.invokeAll(tasks).stream().map(ForkJoinTask::join).toList()).join();
+        } catch (final UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private long chunkSize(final long fileSize) {
+        final long perTask = fileSize / (4L * pool.getParallelism());
+        return Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, perTask));
+    }
+
+    /**
+     * Splits the file into chunks that end right after a line break, or at the end of the file.
+     *
+     * @return the chunk boundaries, starting with 0 and ending with the file size.
+     */
+    private long[] splitAtLineBreaks(final FileChannel channel) throws IOException {
+        final long size = channel.size();
+        final long chunkSize = chunkSize(size);
+        final List<Long> bounds = new ArrayList<>();
+        bounds.add(0L);
+        long position = 0;
+        while (size - position > chunkSize) {
+            position = nextLineStart(channel, position + chunkSize, size);
+            if (position < size) {
+                bounds.add(position);
+            }
+        }
+        bounds.add(size);
+        return bounds.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private static long nextLineStart(final FileChannel channel, final long from, final long size) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(8192);
+        long position = from;
+        while (position < size) {
+            buffer.clear();
+            final int read = channel.read(buffer, position);
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * Maps the vertex ids of the parsed chunks to dense ids, in file order.
+     */
+    private static EdgeList index(final List<ParsedEdges> chunks) {
+        long total = 0;
+        boolean weighted = false;
+        for (final ParsedEdges chunk : chunks) {
+            total += chunk.size;
+            weighted |= chunk.weights != null;
+        }
+        if (total > MAX_EDGES) {
+            throw new IllegalArgumentException("Too many edges: " + total);
+        }
+
+        final int m = (int) total;
+        final int[] sources = new int[m];
+        final int[] targets = new int[m];
+        final double[] weights = weighted ? new double[m] : null;
+        final DenseIds ids = new DenseIds(m / 4);
+        int e = 0;
+        for (final ParsedEdges chunk : chunks) {
+            for (int i = 0; i < chunk.size; i++, e++) {
+                sources[e] = ids.assign(chunk.sources[i]);
+                targets[e] = ids.assign(chunk.targets[i]);
+                if (weights != null) {
+                    // a line without weight in a weighted file counts as weight 1
+                    weights[e] = chunk.weights != null ? chunk.weights[i] : 1.0;
+                }
+            }
+        }
+        return new EdgeList(Arrays.copyOf(ids.vertexIds, ids.map.size()), ids.map, sources, targets, weights);
+    }
+
+    /**
+     * Assigns the next dense id to every new vertex id.
+     */
+    private static final class DenseIds {
+
+        private final LongIntHashMap map;
+        private long[] vertexIds;
+
+        private DenseIds(final int expectedSize) {
+            this.map = new LongIntHashMap(expectedSize);
+            this.vertexIds = new long[Math.max(16, expectedSize)];
+        }
+
+        private int assign(final long vertexId) {
+            final int next = map.size();
+            final int id = map.putIfAbsent(vertexId, next);
+            if (id == next) {
+                if (next == vertexIds.length) {
+                    vertexIds = Arrays.copyOf(vertexIds, next + (next >> 1));
+                }
+                vertexIds[next] = vertexId;
+            }
+            return id;
+        }
+    }
+
+    /**
+     * The edges of a chunk with the vertex ids of the file, grown as lines are parsed.
+     */
+    private static final class ParsedEdges {
+
+        private long[] sources;
+        private long[] targets;
+        private double[] weights;
+        private int size;
+
+        private ParsedEdges(final int capacity, final boolean weighted) {
+            this.sources = new long[capacity];
+            this.targets = new long[capacity];
+            this.weights = weighted ? new double[capacity] : null;
+        }
+
+        private void add(final long source, final long target, final double weight, final boolean hasWeight) {
+            if (size == sources.length) {
+                final int capacity = size + (size >> 1) + 16;
+                sources = Arrays.copyOf(sources, capacity);
+                targets = Arrays.copyOf(targets, capacity);
+                if (weights != null) {
+                    weights = Arrays.copyOf(weights, capacity);
+                }
+            }
+            if (hasWeight && weights == null) {
+                // the first weighted line, the earlier lines had none
+                weights = new double[sources.length];
+                Arrays.fill(weights, 0, size, 1.0);
+            }
+            sources[size] = source;
+            targets[size] = target;
+            if (weights != null) {
+                weights[size] = hasWeight ? weight : 1.0;
+            }
+            size++;
+        }
+    }
+
+    /**
+     * Parses the lines of a region of a text file.
+     */
+    @SuppressWarnings("serial")
+    private static final class TextChunk extends RecursiveTask<ParsedEdges> {
+
+        private final FileChannel channel;
+        private final long start;
+        private final long end;
+        private final char delimiter;
+        private final boolean first;
+
+        private ByteBuffer buffer;
+        private int position;
+        private int limit;
+
+        private TextChunk(final FileChannel channel, final long start, final long end, final char delimiter, final boolean first) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+            this.delimiter = delimiter;
+            this.first = first;
+        }
+
+        @Override
+        protected ParsedEdges compute() {
+            final MappedByteBuffer mapped;
+            try {
+                mapped = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            buffer = mapped;
+            limit = mapped.limit();
+            // about 20 bytes per line is a fair guess for two ids and a weight
+            final ParsedEdges edges = new ParsedEdges(Math.max(16, limit / 20), false);
+            boolean headerAllowed = first;
+            while (position < limit) {
+                final int lineStart = position;
+                skipBlanks();
+                if (position >= limit || isLineEnd(buffer.get(position)) || buffer.get(position) == '#' || buffer.get(position) == '%') {
+                    skipLine();
+                    continue;
+                }
+                if (headerAllowed && !isNumberStart(buffer.get(position))) {
+                    headerAllowed = false;
+                    skipLine();
+                    continue;
+                }
+                headerAllowed = false;
+
+                final long source = parseLong(lineStart);
+                skipSeparators();
+                final long target = parseLong(lineStart);
+                skipSeparators();
+                final boolean hasWeight = position < limit && !isLineEnd(buffer.get(position));
+                final double weight = hasWeight ? parseDouble(lineStart) : 1.0;
+                edges.add(source, target, weight, hasWeight);
+                skipLine();
+            }
+            return edges;
+        }
+
+        private long parseLong(final int lineStart) {
+            final boolean negative = position < limit && buffer.get(position) == '-';
+            if (negative) {
+                position++;
+            }
+            final int digitsStart = position;
+            long value = 0;
+            while (position < limit && isDigit(buffer.get(position))) {
+                value = value * 10 + (buffer.get(position++) - '0');
+            }
+            if (position == digitsStart || position < limit && !isSeparator(buffer.get(position)) && !isLineEnd(buffer.get(position))) {
+                throw malformed(lineStart);
+            }
+            return negative ? -value : value;
+        }
+
+        private double parseDouble(final int lineStart) {
+            final int tokenStart = position;
+            final boolean negative = buffer.get(position) == '-';
+            if (negative || buffer.get(position) == '+') {
+                position++;
+            }
+            double value = 0;
+            int digits = 0;
+            while (position < limit && isDigit(buffer.get(position))) {
+                value = value * 10 + (buffer.get(position++) - '0');
+                digits++;
+            }
+            if (position < limit && buffer.get(position) == '.') {
+                position++;
+                double scale = 1;
+                long fraction = 0;
+                // beyond 18 digits the long would overflow, they do not change a double anyway
+                while (position < limit && isDigit(buffer.get(position))) {
+                    if (scale < 1e18) {
+                        fraction = fraction * 10 + (buffer.get(position) - '0');
+                        scale *= 10;
+                    }
+                    position++;
+                    digits++;
+                }
+                value += fraction / scale;
+            }
+            if (position < limit && !isSeparator(buffer.get(position)) && !isLineEnd(buffer.get(position)) || digits > 15) {
+                // exponents, infinities and long mantissas are rare, the JDK parses them exactly
+                position = tokenStart;
+                while (position < limit && !isSeparator(buffer.get(position)) && !isLineEnd(buffer.get(position))) {
+                    position++;
+                }
+                final byte[] token = new byte[position - tokenStart];
+                buffer.get(tokenStart, token);
+                try {
+                    return Double.parseDouble(new String(token, StandardCharsets.US_ASCII));
+                } catch (final NumberFormatException e) {
+                    throw malformed(lineStart);
+                }
+            }
+            if (digits == 0) {
+                throw malformed(lineStart);
+            }
+            return negative ? -value : value;
+        }
+
+        private IllegalArgumentException malformed(final int lineStart) {
+            int lineEnd = lineStart;
+            while (lineEnd < limit && !isLineEnd(buffer.get(lineEnd)) && lineEnd - lineStart < 200) {
+                lineEnd++;
+            }
+            final byte[] line = new byte[lineEnd - lineStart];
+            buffer.get(lineStart, line);
+            return new IllegalArgumentException("Malformed edge at byte " + (start + lineStart) + ": "
+                    + new String(line, StandardCharsets.UTF_8));
+        }
+
+        private void skipBlanks() {
+            while (position < limit && (buffer.get(position) == ' ' || buffer.get(position) == '\t')) {
+                position++;
+            }
+        }
+
+        private void skipSeparators() {
+            while (position < limit && isSeparator(buffer.get(position))) {
+                position++;
+            }
+        }
+
+        private void skipLine() {
+            while (position < limit && buffer.get(position) != '\n') {
+                position++;
+            }
+            position++;
+        }
+
+        private boolean isSeparator(final byte b) {
+            return b == delimiter || b == ' ' || b == '\t';
+        }
+
+        private static boolean isLineEnd(final byte b) {
+            return b == '\n' || b == '\r';
+        }
+
+        private static boolean isDigit(final byte b) {
+            return b >= '0' && b <= '9';
+        }
+
+        private static boolean isNumberStart(final byte b) {
+            return isDigit(b) || b == '-';
+        }
+    }
+
+    /**
+     * Copies a range of records of a binary file into the shared arrays, every chunk writes its own range.
+     */
+    @SuppressWarnings("serial")
+    private static final class BinaryChunk extends RecursiveTask<Void> {
+
+        private final FileChannel channel;
+        private final ParsedEdges edges;
+        private final int from;
+        private final int to;
+        private final int recordSize;
+
+        private BinaryChunk(final FileChannel channel, final ParsedEdges edges, final int from, final int to, final int recordSize) {
+            this.channel = channel;
+            this.edges = edges;
+            this.from = from;
+            this.to = to;
+            this.recordSize = recordSize;
+        }
+
+        @Override
+        protected Void compute() {
+            final ByteBuffer buffer;
+            try {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, BINARY_HEADER_SIZE + (long) from * recordSize,
+                        (long) (to - from) * recordSize).order(ByteOrder.LITTLE_ENDIAN);
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            for (int e = from; e < to; e++) {
+                edges.sources[e] = buffer.getLong();
+                edges.targets[e] = buffer.getLong();
+                if (edges.weights != null) {
+                    edges.weights[e] = buffer.getFloat();
+                }
+            }
+            return null;
+        }
+    }
+}
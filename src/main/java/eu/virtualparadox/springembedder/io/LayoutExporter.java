@@ -0,0 +1,81 @@
+package eu.virtualparadox.springembedder.io;
+
+import eu.virtualparadox.springembedder.engine.IndexedGraph;
+import eu.virtualparadox.springembedder.engine.LayoutState;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streams a layout to a file in one of the {@link LayoutFormat}s, optionally compressed.
+ * <p>
+ * The vertices and edges are written straight from the arrays of the {@link IndexedGraph} and the
+ * {@link LayoutState} through one 64 KB buffer, without a position map, a DOM tree or a string of the
+ * whole file, so a layout of millions of vertices is exported in constant memory. The result of
+ * {@code FruchtermanReingoldLayouter.layout(IndexedGraph, int)} can be passed as it is.
+ */
+public class LayoutExporter {
+
+    /**
+     * First int of the binary format.
+     */
+    public static final int BINARY_MAGIC = 0x4c41594f;
+
+    private final LayoutFormat format;
+    private final Compression compression;
+
+    /**
+     * Constructor for the LayoutExporter.
+     *
+     * @param format      The file format.
+     * @param compression The compression of the file.
+     */
+    public LayoutExporter(final LayoutFormat format,
+                          final Compression compression) {
+        this.format = format;
+        this.compression = compression;
+    }
+
+    /**
+     * Constructor for the LayoutExporter, writing uncompressed files.
+     *
+     * @param format The file format.
+     */
+    public LayoutExporter(final LayoutFormat format) {
+        this(format, Compression.NONE);
+    }
+
+    /**
+     * Writes a layout, replacing the file if it exists.
+     *
+     * @param graph The graph that was laid out.
+     * @param state The positions of the vertices, indexed by vertex id.
+     * @param path  The file.
+     * @throws IOException              if the file cannot be written.
+     * @throws IllegalArgumentException if the state does not hold a finite position for every vertex.
+     */
+    public void export(final IndexedGraph<?> graph,
+                       final LayoutState state,
+                       final Path path) throws IOException {
+        if (state.size() != graph.vertexCount()) {
+            throw new IllegalArgumentException("The graph has " + graph.vertexCount() + " vertices, the layout " + state.size());
+        }
+        // checked before the file is opened, so a diverged layout does not leave a truncated file behind
+        for (int v = 0; v < state.size(); v++) {
+            if (!Double.isFinite(state.getX()[v]) || !Double.isFinite(state.getY()[v])) {
+                throw new IllegalArgumentException("The position of vertex " + graph.vertex(v) + " is not finite: "
+                        + state.getX()[v] + ", " + state.getY()[v]);
+            }
+        }
+        final FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        try (ChannelWriter out = new ChannelWriter(compression.wrap(channel))) {
+            format.write(graph, state, out);
+        } finally {
+            // closed by the writer unless the compressed stream could not be started
+            channel.close();
+        }
+    }
+}
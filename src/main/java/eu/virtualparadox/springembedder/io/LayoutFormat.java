@@ -0,0 +1,133 @@
+package eu.virtualparadox.springembedder.io;
+
+import eu.virtualparadox.springembedder.engine.IndexedGraph;
+import eu.virtualparadox.springembedder.engine.LayoutState;
+
+import java.io.IOException;
+
+/**
+ * File formats of the {@link LayoutExporter}. Every format streams the vertices and edges in id order
+ * straight from the arrays of the engine.
+ */
+public enum LayoutFormat {
+
+    /**
+     * One {@code vertex,x,y} line per vertex after an {@code id,x,y} header. Vertices are written with their
+     * {@code toString()}, quoted if needed.
+     */
+    CSV {
+        @Override
+        void write(final IndexedGraph<?> graph, final LayoutState state, final ChannelWriter out) throws IOException {
+            out.ascii("id,x,y\n");
+            for (int v = 0; v < state.size(); v++) {
+                out.csv(String.valueOf(graph.vertex(v))).ascii(',')
+                        .decimal(state.getX()[v]).ascii(',')
+                        .decimal(state.getY()[v]).ascii('\n');
+            }
+        }
+    },
+
+    /**
+     * An SVG image like the frames of the renderers: black lines as wide as the normalized edge weights
+     * under red vertex discs, on a canvas fitted to the positions.
+     */
+    SVG {
+        @Override
+        void write(final IndexedGraph<?> graph, final LayoutState state, final ChannelWriter out) throws IOException {
+            final double[] x = state.getX();
+            final double[] y = state.getY();
+            double minX = 0;
+            double minY = 0;
+            double maxX = 0;
+            double maxY = 0;
+            for (int v = 0; v < state.size(); v++) {
+                minX = Math.min(minX, x[v]);
+                minY = Math.min(minY, y[v]);
+                maxX = Math.max(maxX, x[v]);
+                maxY = Math.max(maxY, y[v]);
+            }
+            minX -= SVG_MARGIN;
+            minY -= SVG_MARGIN;
+            final double width = maxX + SVG_MARGIN - minX;
+            final double height = maxY + SVG_MARGIN - minY;
+
+            out.ascii("<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"").decimal(width)
+                    .ascii("\" height=\"").decimal(height)
+                    .ascii("\" viewBox=\"").decimal(minX).ascii(' ').decimal(minY).ascii(' ').decimal(width).ascii(' ').decimal(height)
+                    .ascii("\">\n<rect x=\"").decimal(minX).ascii("\" y=\"").decimal(minY)
+                    .ascii("\" width=\"100%\" height=\"100%\" fill=\"white\"/>\n<g stroke=\"black\">\n");
+            final int[] sources = graph.getEdgeSources();
+            final int[] targets = graph.getEdgeTargets();
+            final double[] weights = graph.getEdgeWeights();
+            for (int e = 0; e < graph.edgeCount(); e++) {
+                out.ascii("<line x1=\"").decimal(x[sources[e]]).ascii("\" y1=\"").decimal(y[sources[e]])
+                        .ascii("\" x2=\"").decimal(x[targets[e]]).ascii("\" y2=\"").decimal(y[targets[e]])
+                        .ascii("\" stroke-width=\"").decimal(weights[e]).ascii("\"/>\n");
+            }
+            out.ascii("</g>\n<g fill=\"red\">\n");
+            for (int v = 0; v < state.size(); v++) {
+                out.ascii("<circle cx=\"").decimal(x[v]).ascii("\" cy=\"").decimal(y[v]).ascii("\" r=\"5\"/>\n");
+            }
+            out.ascii("</g>\n</svg>\n");
+        }
+    },
+
+    /**
+     * GraphML with the coordinates as {@code x} and {@code y} node data and the normalized weight as
+     * {@code weight} edge data. Nodes are identified as {@code n<id>}, their {@code toString()} is the
+     * {@code label} data.
+     */
+    GRAPHML {
+        @Override
+        void write(final IndexedGraph<?> graph, final LayoutState state, final ChannelWriter out) throws IOException {
+            out.ascii("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n")
+                    .ascii("<graphml xmlns=\"http://graphml.graphdrawing.org/xmlns\">\n")
+                    .ascii("<key id=\"label\" for=\"node\" attr.name=\"label\" attr.type=\"string\"/>\n")
+                    .ascii("<key id=\"x\" for=\"node\" attr.name=\"x\" attr.type=\"double\"/>\n")
+                    .ascii("<key id=\"y\" for=\"node\" attr.name=\"y\" attr.type=\"double\"/>\n")
+                    .ascii("<key id=\"weight\" for=\"edge\" attr.name=\"weight\" attr.type=\"double\"/>\n")
+                    .ascii("<graph edgedefault=\"directed\">\n");
+            for (int v = 0; v < state.size(); v++) {
+                out.ascii("<node id=\"n").integer(v)
+                        .ascii("\"><data key=\"label\">").xml(String.valueOf(graph.vertex(v)))
+                        .ascii("</data><data key=\"x\">").decimal(state.getX()[v])
+                        .ascii("</data><data key=\"y\">").decimal(state.getY()[v])
+                        .ascii("</data></node>\n");
+            }
+            final int[] sources = graph.getEdgeSources();
+            final int[] targets = graph.getEdgeTargets();
+            final double[] weights = graph.getEdgeWeights();
+            for (int e = 0; e < graph.edgeCount(); e++) {
+                out.ascii("<edge source=\"n").integer(sources[e]).ascii("\" target=\"n").integer(targets[e])
+                        .ascii("\"><data key=\"weight\">").decimal(weights[e]).ascii("</data></edge>\n");
+            }
+            out.ascii("</graph>\n</graphml>\n");
+        }
+    },
+
+    /**
+     * Little-endian binary: the int {@link LayoutExporter#BINARY_MAGIC}, the int vertex and edge counts,
+     * the float x, y pair of every vertex and the int source, int target and float weight of every edge.
+     * Vertices are identified by their id in the {@link IndexedGraph}, e.g. the dense id of an
+     * {@link EdgeList}, whose {@link EdgeList#vertexId(int)} maps it back.
+     */
+    BINARY {
+        @Override
+        void write(final IndexedGraph<?> graph, final LayoutState state, final ChannelWriter out) throws IOException {
+            out.putInt(LayoutExporter.BINARY_MAGIC).putInt(state.size()).putInt(graph.edgeCount());
+            for (int v = 0; v < state.size(); v++) {
+                out.putFloat((float) state.getX()[v]).putFloat((float) state.getY()[v]);
+            }
+            final int[] sources = graph.getEdgeSources();
+            final int[] targets = graph.getEdgeTargets();
+            final double[] weights = graph.getEdgeWeights();
+            for (int e = 0; e < graph.edgeCount(); e++) {
+                out.putInt(sources[e]).putInt(targets[e]).putFloat((float) weights[e]);
+            }
+        }
+    };
+
+    private static final double SVG_MARGIN = 10;
+
+    abstract void write(IndexedGraph<?> graph, LayoutState state, ChannelWriter out) throws IOException;
+}
@@ -0,0 +1,102 @@
+package eu.virtualparadox.springembedder.io;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from long keys to non-negative int values, without boxing.
+ * Used to map the vertex ids of an edge list to dense ids; a {@code HashMap<Long, Integer>}
+ * would need about five times the memory for millions of vertices.
+ */
+final class LongIntHashMap {
+
+    private static final int MISSING = -1;
+    private static final double MAX_LOAD = 0.5;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+    LongIntHashMap(final int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) Math.min(1 << 30, (long) (expectedSize / MAX_LOAD)))) << 1;
+        allocate(Math.min(capacity, 1 << 30));
+    }
+
+    private void allocate(final int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(values, MISSING);
+        mask = capacity - 1;
+    }
+
+    /**
+     * Returns the value of the key, or -1 if the key is not present.
+     *
+     * @param key the key.
+     * @return the value, or -1.
+     */
+    int get(final long key) {
+        int slot = hash(key) & mask;
+        while (values[slot] != MISSING) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return MISSING;
+    }
+
+    /**
+     * Returns the value of the key, adding the key with the given value if it is not present.
+     *
+     * @param key   the key.
+     * @param value the value for a new key, not negative.
+     * @return the existing or the new value.
+     */
+    int putIfAbsent(final long key, final int value) {
+        int slot = hash(key) & mask;
+        while (values[slot] != MISSING) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > MAX_LOAD * keys.length) {
+            rehash();
+        }
+        return value;
+    }
+
+    int size() {
+        return size;
+    }
+
+    private void rehash() {
+        final long[] oldKeys = keys;
+        final int[] oldValues = values;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != MISSING) {
+                int slot = hash(oldKeys[i]) & mask;
+                while (values[slot] != MISSING) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int hash(final long key) {
+        // the finalizer of MurmurHash3, consecutive ids must not end up in consecutive slots
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+}
@@ -1,32 +1,294 @@
 package eu.virtualparadox.springembedder.layouter;
 
-import eu.virtualparadox.springembedder.EdgeWeightNormalizer;
+import eu.virtualparadox.springembedder.EdgeWeightTable;
 import eu.virtualparadox.springembedder.Vector2D;
+import eu.virtualparadox.springembedder.WeightCurve;
+import eu.virtualparadox.springembedder.checkpoint.Checkpoint;
+import eu.virtualparadox.springembedder.checkpoint.Checkpointer;
+import eu.virtualparadox.springembedder.engine.LayoutState;
+import eu.virtualparadox.springembedder.layouter.schedule.ConvergenceCriterion;
+import eu.virtualparadox.springembedder.layouter.schedule.CoolingSchedule;
+import eu.virtualparadox.springembedder.layouter.schedule.GeometricCoolingSchedule;
+import eu.virtualparadox.springembedder.metrics.LayoutMetricsListener;
 import eu.virtualparadox.springembedder.renderercallback.AbstractRendererCallback;
 import org.jgrapht.Graph;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.Random;
+import java.util.function.DoubleSupplier;
 
 public abstract class AbstractLayouter<V, E> {
 
+    /**
+     * Performs one iteration of a layout, see {@link #anneal}.
+     */
+    @FunctionalInterface
+    protected interface AnnealingStep {
+
+        /**
+         * Moves the vertices once and renders the frame of the iteration if the callback requests it.
+         *
+         * @param iteration   the index of the iteration.
+         * @param temperature the temperature of the iteration.
+         * @return the longest distance a vertex moved, or NaN if it was not computed.
+         */
+        double step(int iteration, double temperature);
+    }
+
+    /**
+     * Called between two iterations of a layout, see {@link #anneal}.
+     */
+    @FunctionalInterface
+    protected interface IterationHook {
+
+        /**
+         * The hook of layouts that need nothing between the iterations.
+         */
+        IterationHook NONE = (nextIteration, temperature) -> {
+        };
+
+        /**
+         * Called after the temperature was lowered, unless the layout converged.
+         *
+         * @param nextIteration the index of the following iteration, equal to the requested number of
+         *                      iterations after the last one.
+         * @param temperature   the temperature of the following iteration.
+         */
+        void beforeIteration(int nextIteration, double temperature);
+    }
+
     protected final Logger logger = LoggerFactory.getLogger(getClass());
 
     protected final int width;
     protected final int height;
     protected final AbstractRendererCallback<V, E> callback;
-    protected final EdgeWeightNormalizer<V, E> edgeWeightNormalizer;
-    protected final Random random;
+    // replaced when a layout resumes from a checkpoint
+    protected Random random;
+
+    protected CoolingSchedule coolingSchedule;
+    protected ConvergenceCriterion convergenceCriterion;
+    protected int lastIterationCount;
+    protected Checkpointer checkpointer;
+    protected LayoutMetricsListener metricsListener;
+    protected WeightCurve weightCurve;
 
     protected AbstractLayouter(int width, int height, AbstractRendererCallback<V, E> callback) {
         this.width = width;
         this.height = height;
         this.callback = callback;
-        this.edgeWeightNormalizer = new EdgeWeightNormalizer<>();
         this.random = new Random(1);
+        this.coolingSchedule = GeometricCoolingSchedule.DEFAULT;
+        this.convergenceCriterion = ConvergenceCriterion.never();
+        this.metricsListener = LayoutMetricsListener.NONE;
+        this.weightCurve = WeightCurve.LINEAR;
     }
 
     public abstract Map<V, Vector2D> layout(Graph<V, E> graph, int i);
+
+    /**
+     * Sets the cooling schedule of the following layouts.
+     *
+     * @param coolingSchedule the cooling schedule.
+     */
+    public void setCoolingSchedule(final CoolingSchedule coolingSchedule) {
+        this.coolingSchedule = coolingSchedule;
+    }
+
+    /**
+     * Sets the criterion that lets the following layouts return before the requested number of iterations.
+     *
+     * @param convergenceCriterion the convergence criterion.
+     */
+    public void setConvergenceCriterion(final ConvergenceCriterion convergenceCriterion) {
+        this.convergenceCriterion = convergenceCriterion;
+    }
+
+    /**
+     * Sets the curve that transforms the raw edge weights of the following layouts before they are normalized.
+     *
+     * @param weightCurve the weight curve.
+     */
+    public void setWeightCurve(final WeightCurve weightCurve) {
+        this.weightCurve = weightCurve;
+    }
+
+    /**
+     * Normalizes the edge weights of a graph with the weight curve and hands them to the callback, so the
+     * renderer does not compute them again.
+     *
+     * @param graph the graph to layout.
+     * @return the normalized edge weights.
+     */
+    protected EdgeWeightTable prepareEdgeWeights(final Graph<V, E> graph) {
+        final EdgeWeightTable edgeWeights = EdgeWeightTable.of(graph, weightCurve);
+        callback.start(graph, edgeWeights);
+        return edgeWeights;
+    }
+
+    /**
+     * Sets the listener receiving the phase durations and statistics of the following layouts.
+     *
+     * @param metricsListener the listener, {@link LayoutMetricsListener#NONE} to disable metrics.
+     */
+    public void setMetricsListener(final LayoutMetricsListener metricsListener) {
+        this.metricsListener = metricsListener;
+    }
+
+    /**
+     * Sets the checkpointer of the following layouts, or null to disable checkpoints. A layout with a
+     * checkpointer resumes from its file if it exists, and saves a checkpoint every few iterations.
+     * Not every layouter supports checkpoints, those that do say so.
+     *
+     * @param checkpointer the checkpointer.
+     */
+    public void setCheckpointer(final Checkpointer checkpointer) {
+        this.checkpointer = checkpointer;
+    }
+
+    /**
+     * Reads the checkpoint of the checkpointer and restores the positions, the random number generator,
+     * the cooling schedule and the convergence criterion from it.
+     *
+     * @param fingerprint the fingerprint of the graph, which must match the checkpoint.
+     * @param state       receives the positions.
+     * @return the checkpoint, or null if there is no checkpoint to resume from.
+     */
+    protected Checkpoint resumeFromCheckpoint(final long fingerprint, final LayoutState state) {
+        final Checkpoint checkpoint;
+        try {
+            checkpoint = checkpointer.load();
+        } catch (final IOException e) {
+            throw new IllegalStateException("Failed to read checkpoint", e);
+        }
+        if (checkpoint == null) {
+            return null;
+        }
+        if (checkpoint.getFingerprint() != fingerprint || checkpoint.getX().length != state.size()) {
+            throw new IllegalStateException("The checkpoint was saved for a different graph");
+        }
+        System.arraycopy(checkpoint.getX(), 0, state.getX(), 0, state.size());
+        System.arraycopy(checkpoint.getY(), 0, state.getY(), 0, state.size());
+        random = checkpoint.restoreRandom();
+        coolingSchedule.restoreState(checkpoint.getScheduleState());
+        convergenceCriterion.restoreState(checkpoint.getCriterionState());
+        logger.info("Resuming from the checkpoint of iteration {}", checkpoint.getIteration());
+        return checkpoint;
+    }
+
+    /**
+     * Submits a checkpoint to the checkpointer, to be written in the background.
+     *
+     * @param fingerprint the fingerprint of the graph.
+     * @param iteration   the iteration the layout continues with.
+     * @param temperature the temperature of that iteration.
+     * @param state       the positions, which are copied.
+     */
+    protected void saveCheckpoint(final long fingerprint,
+                                  final int iteration,
+                                  final double temperature,
+                                  final LayoutState state) {
+        checkpointer.submit(new Checkpoint(fingerprint, iteration, temperature, random,
+                coolingSchedule.saveState(), convergenceCriterion.saveState(),
+                Arrays.copyOf(state.getX(), state.size()), Arrays.copyOf(state.getY(), state.size())));
+    }
+
+    /**
+     * Returns the number of iterations the last layout actually ran, which is less than requested
+     * if the convergence criterion stopped it early.
+     *
+     * @return the number of iterations.
+     */
+    public int getLastIterationCount() {
+        return lastIterationCount;
+    }
+
+    /**
+     * Runs the iterations of a layout with the cooling schedule, the convergence criterion and the metrics
+     * listener of this layouter, see {@link #anneal(CoolingSchedule, ConvergenceCriterion, LayoutMetricsListener,
+     * double, int, int, AnnealingStep, DoubleSupplier, IterationHook)}.
+     *
+     * @param temperature    the temperature of the first iteration.
+     * @param firstIteration the index of the first iteration, 0 unless the layout resumes.
+     * @param iterations     the number of iterations of the whole layout.
+     * @param step           performs an iteration.
+     * @param energy         the energy of the last iteration, only called if the statistics are required.
+     * @param hook           called between the iterations.
+     * @return the number of iterations that ran, including those before the first one.
+     */
+    protected int anneal(final double temperature,
+                         final int firstIteration,
+                         final int iterations,
+                         final AnnealingStep step,
+                         final DoubleSupplier energy,
+                         final IterationHook hook) {
+        final int count = anneal(coolingSchedule, convergenceCriterion, metricsListener, temperature, firstIteration,
+                iterations, step, energy, hook);
+        if (count < iterations) {
+            logger.debug("Converged after {} iterations", count);
+        }
+        return count;
+    }
+
+    /**
+     * Runs the iterations of a layout, the loop shared by all layouters: performs a step, reports it to the
+     * metrics listener, stops when the criterion sees convergence and otherwise lowers the temperature and
+     * calls the hook. A layout starting at iteration 0 resets the schedule and the criterion, a resumed one
+     * continues with their restored state. The energy is only computed if the schedule or the criterion
+     * reads it, otherwise they see 0 and the listener NaN.
+     *
+     * @param schedule       the cooling schedule, which must not be shared with a concurrent layout.
+     * @param criterion      the convergence criterion, which must not be shared with a concurrent layout.
+     * @param metrics        receives the statistics of every iteration.
+     * @param temperature    the temperature of the first iteration.
+     * @param firstIteration the index of the first iteration, 0 unless the layout resumes.
+     * @param iterations     the number of iterations of the whole layout.
+     * @param step           performs an iteration.
+     * @param energy         the energy of the last iteration, only called if the statistics are required.
+     * @param hook           called between the iterations.
+     * @return the number of iterations that ran, including those before the first one.
+     */
+    protected static int anneal(final CoolingSchedule schedule,
+                                final ConvergenceCriterion criterion,
+                                final LayoutMetricsListener metrics,
+                                final double temperature,
+                                final int firstIteration,
+                                final int iterations,
+                                final AnnealingStep step,
+                                final DoubleSupplier energy,
+                                final IterationHook hook) {
+        if (firstIteration == 0) {
+            schedule.reset();
+            criterion.reset();
+        }
+        final boolean statisticsRequired = schedule.usesEnergy() || criterion.usesStatistics();
+        double t = temperature;
+        int i = firstIteration;
+        while (i < iterations) {
+            final long iterationStart = System.nanoTime();
+            final double maxDisplacement = step.step(i, t);
+            final double e = statisticsRequired ? energy.getAsDouble() : 0;
+            metrics.iterationCompleted(i, System.nanoTime() - iterationStart, maxDisplacement,
+                    statisticsRequired ? e : Double.NaN);
+            if (criterion.isConverged(i++, maxDisplacement, e)) {
+                break;
+            }
+            t = schedule.nextTemperature(t, e);
+            hook.beforeIteration(i, t);
+        }
+        return i;
+    }
+
+    /**
+     * Tells whether the energy of the iterations has to be computed for the cooling schedule or the
+     * convergence criterion.
+     *
+     * @return true if the statistics of an iteration are used.
+     */
+    protected boolean isStatisticsRequired() {
+        return coolingSchedule.usesEnergy() || convergenceCriterion.usesStatistics();
+    }
 }
@@ -0,0 +1,250 @@
+package eu.virtualparadox.springembedder.layouter;
+
+import eu.virtualparadox.springembedder.EdgeWeightTable;
+import eu.virtualparadox.springembedder.TimeWatch;
+import eu.virtualparadox.springembedder.Vector2D;
+import eu.virtualparadox.springembedder.WeightCurve;
+import eu.virtualparadox.springembedder.engine.FruchtermanReingoldEngine;
+import eu.virtualparadox.springembedder.engine.IndexedGraph;
+import eu.virtualparadox.springembedder.engine.LayoutState;
+import eu.virtualparadox.springembedder.engine.RepulsionKernel;
+import eu.virtualparadox.springembedder.layouter.schedule.ConvergenceCriterion;
+import eu.virtualparadox.springembedder.layouter.schedule.CoolingSchedule;
+import eu.virtualparadox.springembedder.layouter.schedule.GeometricCoolingSchedule;
+import eu.virtualparadox.springembedder.metrics.LayoutMetricsListener;
+import org.jgrapht.Graph;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Lays out many small graphs at once, one graph per task on a fork/join pool.
+ * <p>
+ * A single small graph cannot keep several cores busy, so instead of splitting every iteration like the
+ * {@link ParallelFruchtermanReingoldLayouter}, every graph is laid out sequentially and the graphs run in
+ * parallel, balanced by work stealing. Each worker thread keeps its layout state, repulsion kernel,
+ * cooling schedule and convergence criterion between graphs, so the arrays are only reallocated when a
+ * larger graph arrives.
+ * <p>
+ * Every graph starts from the same seed, so its layout is identical to that of a new
+ * {@link FruchtermanReingoldLayouter} with the same settings, whichever thread runs it. The metrics
+ * listener is called by all worker threads at once, so it must be thread-safe.
+ *
+ * @param <V> Type of the vertices in the graph.
+ * @param <E> Type of the edges in the graph.
+ */
+public class BatchLayouter<V, E> {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchLayouter.class);
+
+    private static final long SEED = 1;
+
+    private final int width;
+    private final int height;
+    private final RepulsionMode repulsionMode;
+    private final double theta;
+    private final ForkJoinPool pool;
+    // replaced whenever the settings change, so every thread creates a worker with the new settings
+    private volatile ThreadLocal<Worker> workers;
+
+    private Supplier<CoolingSchedule> coolingSchedule;
+    private Supplier<ConvergenceCriterion> convergenceCriterion;
+    private LayoutMetricsListener metricsListener;
+    private WeightCurve weightCurve;
+
+    /**
+     * Constructor for the BatchLayouter.
+     *
+     * @param width         Width of the layout area.
+     * @param height        Height of the layout area.
+     * @param pool          Pool executing the layouts.
+     * @param repulsionMode Strategy for computing the repulsive forces.
+     * @param theta         Opening angle of the Barnes-Hut approximation, ignored by the other modes.
+     */
+    public BatchLayouter(final int width,
+                         final int height,
+                         final ForkJoinPool pool,
+                         final RepulsionMode repulsionMode,
+                         final double theta) {
+        this.width = width;
+        this.height = height;
+        this.pool = pool;
+        this.repulsionMode = repulsionMode;
+        this.theta = theta;
+        this.workers = ThreadLocal.withInitial(Worker::new);
+        this.coolingSchedule = () -> GeometricCoolingSchedule.DEFAULT;
+        this.convergenceCriterion = ConvergenceCriterion::never;
+        this.metricsListener = LayoutMetricsListener.NONE;
+        this.weightCurve = WeightCurve.LINEAR;
+    }
+
+    /**
+     * Constructor for the BatchLayouter, using exact repulsion on the common pool.
+     *
+     * @param width  Width of the layout area.
+     * @param height Height of the layout area.
+     */
+    public BatchLayouter(final int width,
+                         final int height) {
+        this(width, height, ForkJoinPool.commonPool(), RepulsionMode.EXACT, FruchtermanReingoldLayouter.DEFAULT_THETA);
+    }
+
+    /**
+     * Sets the cooling schedule of the following layouts. Schedules may keep state during a layout, so every
+     * worker thread gets its own instance from the supplier.
+     *
+     * @param coolingSchedule creates the cooling schedule of a worker thread.
+     */
+    public void setCoolingSchedule(final Supplier<CoolingSchedule> coolingSchedule) {
+        this.coolingSchedule = coolingSchedule;
+        this.workers = ThreadLocal.withInitial(Worker::new);
+    }
+
+    /**
+     * Sets the convergence criterion of the following layouts. Criteria may keep state during a layout, so
+     * every worker thread gets its own instance from the supplier.
+     *
+     * @param convergenceCriterion creates the convergence criterion of a worker thread.
+     */
+    public void setConvergenceCriterion(final Supplier<ConvergenceCriterion> convergenceCriterion) {
+        this.convergenceCriterion = convergenceCriterion;
+        this.workers = ThreadLocal.withInitial(Worker::new);
+    }
+
+    /**
+     * Sets the curve that transforms the raw edge weights of the following layouts before they are normalized.
+     *
+     * @param weightCurve the weight curve.
+     */
+    public void setWeightCurve(final WeightCurve weightCurve) {
+        this.weightCurve = weightCurve;
+    }
+
+    /**
+     * Sets the listener receiving the timings and statistics of the following layouts. Every graph is
+     * reported as a layout of its own, from the worker thread running it, so the listener must be thread-safe.
+     *
+     * @param metricsListener the listener, {@link LayoutMetricsListener#NONE} to disable metrics.
+     */
+    public void setMetricsListener(final LayoutMetricsListener metricsListener) {
+        this.metricsListener = metricsListener;
+    }
+
+    /**
+     * Lays out all graphs and hands every result to the sink as soon as its graph is done. The sink is
+     * called from the worker threads, in no particular order, so it must be thread-safe. Returns when all
+     * graphs are done.
+     *
+     * @param graphs     The graphs to layout.
+     * @param iterations Number of iterations per graph.
+     * @param sink       Receives each graph with the final positions of its nodes.
+     */
+    public void layoutAll(final Collection<? extends Graph<V, E>> graphs,
+                          final int iterations,
+                          final BiConsumer<Graph<V, E>, Map<V, Vector2D>> sink) {
+        final List<? extends Graph<V, E>> list = new ArrayList<>(graphs);
+        final TimeWatch tw = TimeWatch.start();
+        pool.invoke(new GraphTask(list, 0, list.size(), (index, positions) -> sink.accept(list.get(index), positions), iterations));
+        final long millis = Math.max(1, tw.time(TimeUnit.MILLISECONDS));
+        logger.debug("Laid out {} graphs in {} ms, {} graphs/s", list.size(), millis, list.size() * 1000L / millis);
+    }
+
+    /**
+     * Lays out all graphs and returns the results in the order of the graphs.
+     *
+     * @param graphs     The graphs to layout.
+     * @param iterations Number of iterations per graph.
+     * @return The final positions of the nodes of every graph.
+     */
+    public List<Map<V, Vector2D>> layoutAll(final List<? extends Graph<V, E>> graphs,
+                                            final int iterations) {
+        // every task sets its own index only
+        final List<Map<V, Vector2D>> results = new ArrayList<>(Collections.nCopies(graphs.size(), null));
+        pool.invoke(new GraphTask(graphs, 0, graphs.size(), results::set, iterations));
+        return results;
+    }
+
+    /**
+     * Receives the result of the graph at an index of the batch.
+     */
+    @FunctionalInterface
+    private interface ResultSink<V> {
+        void accept(int index, Map<V, Vector2D> positions);
+    }
+
+    /**
+     * Splits a range of the batch in halves until it is a single graph, which is laid out by the worker
+     * of the executing thread.
+     */
+    @SuppressWarnings("serial")
+    private final class GraphTask extends RecursiveAction {
+
+        private final List<? extends Graph<V, E>> graphs;
+        private final int from;
+        private final int to;
+        private final ResultSink<V> sink;
+        private final int iterations;
+
+        private GraphTask(final List<? extends Graph<V, E>> graphs,
+                          final int from,
+                          final int to,
+                          final ResultSink<V> sink,
+                          final int iterations) {
+            this.graphs = graphs;
+            this.from = from;
+            this.to = to;
+            this.sink = sink;
+            this.iterations = iterations;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                sink.accept(from, workers.get().layout(graphs.get(from), iterations));
+            } else if (to - from > 1) {
+                final int middle = (from + to) >>> 1;
+                invokeAll(new GraphTask(graphs, from, middle, sink, iterations),
+                        new GraphTask(graphs, middle, to, sink, iterations));
+            }
+        }
+    }
+
+    /**
+     * The reusable per-thread part of a layout.
+     */
+    private final class Worker {
+
+        private final Random random = new Random(SEED);
+        private final LayoutState state = new LayoutState(0);
+        private final RepulsionKernel repulsionKernel = repulsionMode.createKernel(theta);
+        private final CoolingSchedule schedule = coolingSchedule.get();
+        private final ConvergenceCriterion criterion = convergenceCriterion.get();
+
+        private Map<V, Vector2D> layout(final Graph<V, E> graph, final int iterations) {
+            final IndexedGraph<V> indexedGraph = IndexedGraph.of(graph, EdgeWeightTable.of(graph, weightCurve));
+            final FruchtermanReingoldEngine<V> engine = new FruchtermanReingoldEngine<>(indexedGraph, width, height, repulsionKernel, state);
+            random.setSeed(SEED);
+            engine.randomizePositions(random);
+
+            final LayoutMetricsListener metrics = metricsListener;
+            metrics.layoutStarted(indexedGraph.vertexCount(), indexedGraph.edgeCount());
+            final long layoutStart = System.nanoTime();
+            final int i = AbstractLayouter.anneal(schedule, criterion, metrics, schedule.initialTemperature(), 0, iterations,
+                    (iteration, t) -> engine.step(t, metrics), () -> engine.energy(0, state.size()),
+                    AbstractLayouter.IterationHook.NONE);
+            metrics.layoutFinished(i, System.nanoTime() - layoutStart);
+            return engine.toPositionMap();
+        }
+    }
+}
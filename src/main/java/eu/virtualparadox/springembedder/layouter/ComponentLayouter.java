@@ -0,0 +1,418 @@
+package eu.virtualparadox.springembedder.layouter;
+
+import eu.virtualparadox.springembedder.Vector2D;
+import eu.virtualparadox.springembedder.engine.ConnectedComponents;
+import eu.virtualparadox.springembedder.engine.FruchtermanReingoldEngine;
+import eu.virtualparadox.springembedder.engine.IndexedGraph;
+import eu.virtualparadox.springembedder.engine.LayoutState;
+import eu.virtualparadox.springembedder.layouter.schedule.ConvergenceCriterion;
+import eu.virtualparadox.springembedder.layouter.schedule.CoolingSchedule;
+import eu.virtualparadox.springembedder.layouter.schedule.GeometricCoolingSchedule;
+import eu.virtualparadox.springembedder.metrics.LayoutPhase;
+import eu.virtualparadox.springembedder.renderercallback.AbstractRendererCallback;
+import eu.virtualparadox.springembedder.renderercallback.NoOpRendererCallback;
+import org.jgrapht.Graph;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Lays out every connected component of a graph on its own and packs the results into the layout area.
+ * <p>
+ * Vertices of different components never attract each other, so the repulsion between them only pushes the
+ * components apart. Instead of paying for it in every iteration, the graph is split into its components,
+ * which are laid out in parallel on a fork/join pool, each on a square area sized so that its optimal
+ * distance matches that of the whole graph. Isolated vertices and components of two vertices are placed
+ * directly. The bounding boxes of the components are then shelf-packed, tallest first, into a strip with
+ * the aspect ratio of the layout area, and the packing is scaled uniformly to fit it.
+ * <p>
+ * Every component draws its seed from the layouter's random number generator in component order, so the
+ * result does not depend on the thread that runs a component. No frames are rendered during the layout,
+ * the callback only receives the packed result. The metrics listener sees the iterations and phases of
+ * every simulated component, from the threads of the pool.
+ *
+ * @param <V> Type of the vertices in the graph.
+ * @param <E> Type of the edges in the graph.
+ */
+public class ComponentLayouter<V, E> extends AbstractLayouter<V, E> {
+
+    // components up to this size are placed without a simulation
+    private static final int TRIVIAL_SIZE = 2;
+
+    private final ForkJoinPool pool;
+    private final RepulsionMode repulsionMode;
+    private final double theta;
+
+    private Supplier<CoolingSchedule> coolingSchedules;
+    private Supplier<ConvergenceCriterion> convergenceCriteria;
+
+    /**
+     * Constructor for the ComponentLayouter.
+     *
+     * @param width         Width of the layout area.
+     * @param height        Height of the layout area.
+     * @param callback      Callback to render the packed layout.
+     * @param pool          Pool laying out the components.
+     * @param repulsionMode Strategy for computing the repulsive forces within a component.
+     * @param theta         Opening angle of the Barnes-Hut approximation, ignored by the other modes.
+     */
+    public ComponentLayouter(final int width,
+                             final int height,
+                             final AbstractRendererCallback<V, E> callback,
+                             final ForkJoinPool pool,
+                             final RepulsionMode repulsionMode,
+                             final double theta) {
+        super(width, height, callback);
+        if (theta < 0) {
+            throw new IllegalArgumentException("Theta must not be negative: " + theta);
+        }
+        this.pool = pool;
+        this.repulsionMode = repulsionMode;
+        this.theta = theta;
+        this.coolingSchedules = () -> GeometricCoolingSchedule.DEFAULT;
+        this.convergenceCriteria = ConvergenceCriterion::never;
+    }
+
+    /**
+     * Constructor for the ComponentLayouter, using Barnes-Hut repulsion on the common pool.
+     *
+     * @param width    Width of the layout area.
+     * @param height   Height of the layout area.
+     * @param callback Callback to render the packed layout.
+     */
+    public ComponentLayouter(final int width,
+                             final int height,
+                             final AbstractRendererCallback<V, E> callback) {
+        this(width, height, callback, ForkJoinPool.commonPool(), RepulsionMode.BARNES_HUT, FruchtermanReingoldLayouter.DEFAULT_THETA);
+    }
+
+    /**
+     * Constructor for the ComponentLayouter, using Barnes-Hut repulsion on the common pool.
+     *
+     * @param width  Width of the layout area.
+     * @param height Height of the layout area.
+     */
+    public ComponentLayouter(final int width,
+                             final int height) {
+        this(width, height, new NoOpRendererCallback<>());
+    }
+
+    /**
+     * Sets a single cooling schedule for all components. Schedules may keep state during a layout, so the
+     * components are laid out one after another until a supplier is set with
+     * {@link #setCoolingSchedule(Supplier)}.
+     *
+     * @param coolingSchedule the cooling schedule.
+     */
+    @Override
+    public void setCoolingSchedule(final CoolingSchedule coolingSchedule) {
+        super.setCoolingSchedule(coolingSchedule);
+        this.coolingSchedules = null;
+    }
+
+    /**
+     * Sets the cooling schedule of the following layouts, created once per component so the components can
+     * be laid out in parallel.
+     *
+     * @param coolingSchedule creates the cooling schedule of a component.
+     */
+    public void setCoolingSchedule(final Supplier<CoolingSchedule> coolingSchedule) {
+        this.coolingSchedules = coolingSchedule;
+    }
+
+    /**
+     * Sets a single convergence criterion for all components. Criteria may keep state during a layout, so
+     * the components are laid out one after another until a supplier is set with
+     * {@link #setConvergenceCriterion(Supplier)}.
+     *
+     * @param convergenceCriterion the convergence criterion.
+     */
+    @Override
+    public void setConvergenceCriterion(final ConvergenceCriterion convergenceCriterion) {
+        super.setConvergenceCriterion(convergenceCriterion);
+        this.convergenceCriteria = null;
+    }
+
+    /**
+     * Sets the convergence criterion of the following layouts, created once per component so the components
+     * can be laid out in parallel.
+     *
+     * @param convergenceCriterion creates the convergence criterion of a component.
+     */
+    public void setConvergenceCriterion(final Supplier<ConvergenceCriterion> convergenceCriterion) {
+        this.convergenceCriteria = convergenceCriterion;
+    }
+
+    /**
+     * Main method to perform the layout.
+     *
+     * @param graph      The graph to layout.
+     * @param iterations Number of iterations per component.
+     * @return The final positions of the nodes.
+     */
+    @Override
+    public Map<V, Vector2D> layout(final Graph<V, E> graph,
+                                   final int iterations) {
+        final IndexedGraph<V> indexedGraph = IndexedGraph.of(graph, prepareEdgeWeights(graph));
+        final LayoutState state = layout(indexedGraph, iterations);
+
+        final Map<V, Vector2D> positions = new HashMap<>();
+        for (int v = 0; v < state.size(); v++) {
+            positions.put(indexedGraph.vertex(v), new Vector2D(state.getX()[v], state.getY()[v]));
+        }
+        final int lastIteration = Math.max(0, lastIterationCount - 1);
+        if (callback.isFrameRequested(lastIteration)) {
+            final long renderStart = System.nanoTime();
+            callback.render(graph, lastIteration, positions);
+            metricsListener.phaseCompleted(LayoutPhase.RENDER, System.nanoTime() - renderStart);
+        }
+        callback.finish();
+        return positions;
+    }
+
+    /**
+     * Performs the layout of an already indexed graph, e.g. one loaded by the
+     * {@link eu.virtualparadox.springembedder.io.EdgeListLoader}.
+     *
+     * @param graph      The graph to layout.
+     * @param iterations Number of iterations per component.
+     * @return The final positions of the nodes, indexed by vertex id.
+     */
+    public LayoutState layout(final IndexedGraph<V> graph,
+                              final int iterations) {
+        final int n = graph.vertexCount();
+        final LayoutState state = new LayoutState(n);
+        lastIterationCount = 0;
+        if (n == 0) {
+            return state;
+        }
+        metricsListener.layoutStarted(n, graph.edgeCount());
+        final long layoutStart = System.nanoTime();
+
+        final ConnectedComponents components = ConnectedComponents.of(graph);
+        final int count = components.count();
+        final double optimalDistance = FruchtermanReingoldEngine.calcOptimalDistance(width, height, n);
+        final double[] boxWidths = new double[count];
+        final double[] boxHeights = new double[count];
+        final int[] iterationCounts = new int[count];
+        final long[] seeds = new long[count];
+        for (int c = 0; c < count; c++) {
+            seeds[c] = random.nextLong();
+        }
+
+        // the largest components first, so the small ones fill the gaps of the work stealing
+        final int[] simulated = IntStream.range(0, count)
+                .filter(c -> components.vertexCount(c) > TRIVIAL_SIZE)
+                .boxed()
+                .sorted(Comparator.comparingInt(components::vertexCount).reversed())
+                .mapToInt(Integer::intValue)
+                .toArray();
+        for (int c = 0; c < count; c++) {
+            if (components.vertexCount(c) <= TRIVIAL_SIZE) {
+                placeTrivial(components, c, optimalDistance, state, boxWidths);
+            }
+        }
+        if (coolingSchedules != null && convergenceCriteria != null) {
+            pool.invoke(new ComponentTask(components, simulated, 0, simulated.length, iterations,
+                    optimalDistance, seeds, state, boxWidths, boxHeights, iterationCounts));
+        } else {
+            // a single schedule or criterion instance must not be shared between threads
+            for (final int c : simulated) {
+                iterationCounts[c] = simulate(components, c, iterations, optimalDistance, seeds[c], state, boxWidths, boxHeights);
+            }
+        }
+        logger.debug("Laid out {} components, {} of them simulated", count, simulated.length);
+
+        pack(components, optimalDistance, boxWidths, boxHeights, state);
+        lastIterationCount = Arrays.stream(iterationCounts).max().orElse(0);
+        metricsListener.layoutFinished(lastIterationCount, System.nanoTime() - layoutStart);
+        return state;
+    }
+
+    /**
+     * Places an isolated vertex at the origin, or the two vertices of a component at the optimal distance.
+     */
+    private void placeTrivial(final ConnectedComponents components,
+                              final int component,
+                              final double optimalDistance,
+                              final LayoutState state,
+                              final double[] boxWidths) {
+        final int[] vertices = components.getVertices();
+        final int offset = components.getOffsets()[component];
+        for (int i = 0; i < components.vertexCount(component); i++) {
+            state.getX()[vertices[offset + i]] = i * optimalDistance;
+            state.getY()[vertices[offset + i]] = 0;
+        }
+        boxWidths[component] = (components.vertexCount(component) - 1) * optimalDistance;
+    }
+
+    /**
+     * Runs the simulation of a component and stores its positions relative to the top left corner of its
+     * bounding box.
+     */
+    private int simulate(final ConnectedComponents components,
+                         final int component,
+                         final int iterations,
+                         final double optimalDistance,
+                         final long seed,
+                         final LayoutState state,
+                         final double[] boxWidths,
+                         final double[] boxHeights) {
+        final int size = components.vertexCount(component);
+        // the same optimal distance as the whole graph: sqrt(side^2 / size) / 2 == optimalDistance
+        final int side = Math.max(1, (int) Math.ceil(2 * optimalDistance * Math.sqrt(size)));
+        final FruchtermanReingoldEngine<V> engine = new FruchtermanReingoldEngine<>(
+                components.subgraph(component), side, side, repulsionMode.createKernel(theta));
+        engine.randomizePositions(new Random(seed));
+
+        final CoolingSchedule schedule = coolingSchedules != null ? coolingSchedules.get() : coolingSchedule;
+        final ConvergenceCriterion criterion = convergenceCriteria != null ? convergenceCriteria.get() : convergenceCriterion;
+        // the listener is thread-safe, the components of the pool report their iterations concurrently
+        final int i = anneal(schedule, criterion, metricsListener, schedule.initialTemperature(), 0, iterations,
+                (iteration, t) -> engine.step(t, metricsListener), () -> engine.energy(0, size), IterationHook.NONE);
+
+        final double[] x = engine.getState().getX();
+        final double[] y = engine.getState().getY();
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
+        for (int v = 0; v < size; v++) {
+            minX = Math.min(minX, x[v]);
+            minY = Math.min(minY, y[v]);
+            maxX = Math.max(maxX, x[v]);
+            maxY = Math.max(maxY, y[v]);
+        }
+        final int[] vertices = components.getVertices();
+        final int offset = components.getOffsets()[component];
+        for (int v = 0; v < size; v++) {
+            state.getX()[vertices[offset + v]] = x[v] - minX;
+            state.getY()[vertices[offset + v]] = y[v] - minY;
+        }
+        boxWidths[component] = maxX - minX;
+        boxHeights[component] = maxY - minY;
+        return i;
+    }
+
+    /**
+     * Shelf-packs the bounding boxes of the components, tallest first, with a gap of the optimal distance
+     * between them, and scales the packing uniformly into the layout area.
+     */
+    private void pack(final ConnectedComponents components,
+                      final double gap,
+                      final double[] boxWidths,
+                      final double[] boxHeights,
+                      final LayoutState state) {
+        final int count = components.count();
+        double area = 0;
+        double widest = 0;
+        for (int c = 0; c < count; c++) {
+            area += (boxWidths[c] + gap) * (boxHeights[c] + gap);
+            widest = Math.max(widest, boxWidths[c] + gap);
+        }
+        // a strip with the aspect ratio of the layout area, unless a component is wider
+        final double stripWidth = Math.max(widest, Math.sqrt(area * width / height));
+
+        final Integer[] order = new Integer[count];
+        for (int c = 0; c < count; c++) {
+            order[c] = c;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(boxHeights[b], boxHeights[a]));
+
+        final double[] left = new double[count];
+        final double[] top = new double[count];
+        double x = 0;
+        double y = 0;
+        double shelfHeight = 0;
+        double usedWidth = 0;
+        for (final int c : order) {
+            final double paddedWidth = boxWidths[c] + gap;
+            if (x > 0 && x + paddedWidth > stripWidth) {
+                y += shelfHeight;
+                x = 0;
+                shelfHeight = 0;
+            }
+            left[c] = x + gap / 2;
+            top[c] = y + gap / 2;
+            x += paddedWidth;
+            shelfHeight = Math.max(shelfHeight, boxHeights[c] + gap);
+            usedWidth = Math.max(usedWidth, x);
+        }
+        final double usedHeight = y + shelfHeight;
+
+        final double scale = Math.min(width / usedWidth, height / usedHeight);
+        final double marginX = (width - usedWidth * scale) / 2;
+        final double marginY = (height - usedHeight * scale) / 2;
+        final double[] stateX = state.getX();
+        final double[] stateY = state.getY();
+        for (int v = 0; v < state.size(); v++) {
+            final int c = components.componentOf(v);
+            stateX[v] = marginX + (left[c] + stateX[v]) * scale;
+            stateY[v] = marginY + (top[c] + stateY[v]) * scale;
+        }
+    }
+
+    /**
+     * Splits a range of the simulated components in halves until it is a single component.
+     */
+    @SuppressWarnings("serial")
+    private final class ComponentTask extends RecursiveAction {
+
+        private final ConnectedComponents components;
+        private final int[] simulated;
+        private final int from;
+        private final int to;
+        private final int iterations;
+        private final double optimalDistance;
+        private final long[] seeds;
+        private final LayoutState state;
+        private final double[] boxWidths;
+        private final double[] boxHeights;
+        private final int[] iterationCounts;
+
+        private ComponentTask(final ConnectedComponents components,
+                              final int[] simulated,
+                              final int from,
+                              final int to,
+                              final int iterations,
+                              final double optimalDistance,
+                              final long[] seeds,
+                              final LayoutState state,
+                              final double[] boxWidths,
+                              final double[] boxHeights,
+                              final int[] iterationCounts) {
+            this.components = components;
+            this.simulated = simulated;
+            this.from = from;
+            this.to = to;
+            this.iterations = iterations;
+            this.optimalDistance = optimalDistance;
+            this.seeds = seeds;
+            this.state = state;
+            this.boxWidths = boxWidths;
+            this.boxHeights = boxHeights;
+            this.iterationCounts = iterationCounts;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                final int c = simulated[from];
+                iterationCounts[c] = simulate(components, c, iterations, optimalDistance, seeds[c], state, boxWidths, boxHeights);
+            } else if (to - from > 1) {
+                final int middle = (from + to) >>> 1;
+                invokeAll(new ComponentTask(components, simulated, from, middle, iterations, optimalDistance, seeds,
+                                state, boxWidths, boxHeights, iterationCounts),
+                        new ComponentTask(components, simulated, middle, to, iterations, optimalDistance, seeds,
+                                state, boxWidths, boxHeights, iterationCounts));
+            }
+        }
+    }
+}
@@ -0,0 +1,330 @@
+package eu.virtualparadox.springembedder.layouter;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Predicted run time of every calibrated {@link LayoutEngine} on the machine it was measured on.
+ * <p>
+ * A layout of {@code n} vertices, {@code m} edges and {@code i} iterations is modeled as
+ * {@code s0 + s1 (n + m) + i (a + b f(n) + c m)}, where {@code f} is the {@link LayoutEngine#vertexTerm vertex
+ * term} of the engine: the setup, e.g. indexing the graph or uploading it to a device, plus the iterations.
+ * The coefficients are fitted by non-negative least squares to a few calibration layouts, so the model
+ * extrapolates with the asymptotic cost of every engine.
+ * <p>
+ * The model is stored as a properties file together with the fingerprint of the hardware it describes and
+ * the engines whose calibration failed, so they are not measured again on every start.
+ */
+public final class CostModel {
+
+    private static final int VERSION = 1;
+
+    private final String fingerprint;
+    private final Map<LayoutEngine, double[]> setupCoefficients;
+    private final Map<LayoutEngine, double[]> iterationCoefficients;
+    private final Set<LayoutEngine> failedEngines;
+
+    /**
+     * Constructs a model from fitted coefficients.
+     *
+     * @param fingerprint           the hardware the coefficients were measured on.
+     * @param setupCoefficients     {@code s0, s1} of every engine, in nanoseconds.
+     * @param iterationCoefficients {@code a, b, c} of every engine, in nanoseconds.
+     * @param failedEngines         the engines whose calibration failed.
+     */
+    CostModel(final String fingerprint,
+              final Map<LayoutEngine, double[]> setupCoefficients,
+              final Map<LayoutEngine, double[]> iterationCoefficients,
+              final Set<LayoutEngine> failedEngines) {
+        if (!setupCoefficients.keySet().equals(iterationCoefficients.keySet())) {
+            throw new IllegalArgumentException("Every engine needs setup and iteration coefficients");
+        }
+        if (!Collections.disjoint(setupCoefficients.keySet(), failedEngines)) {
+            throw new IllegalArgumentException("A failed engine cannot have coefficients");
+        }
+        this.fingerprint = fingerprint;
+        this.setupCoefficients = new EnumMap<>(setupCoefficients);
+        this.iterationCoefficients = new EnumMap<>(iterationCoefficients);
+        this.failedEngines = failedEngines.isEmpty() ? EnumSet.noneOf(LayoutEngine.class) : EnumSet.copyOf(failedEngines);
+    }
+
+    /**
+     * Constructs a model from fitted coefficients, without failed engines.
+     *
+     * @param fingerprint           the hardware the coefficients were measured on.
+     * @param setupCoefficients     {@code s0, s1} of every engine, in nanoseconds.
+     * @param iterationCoefficients {@code a, b, c} of every engine, in nanoseconds.
+     */
+    CostModel(final String fingerprint,
+              final Map<LayoutEngine, double[]> setupCoefficients,
+              final Map<LayoutEngine, double[]> iterationCoefficients) {
+        this(fingerprint, setupCoefficients, iterationCoefficients, EnumSet.noneOf(LayoutEngine.class));
+    }
+
+    /**
+     * Predicts the run time of a layout.
+     *
+     * @param engine      the engine, which must be calibrated.
+     * @param vertexCount the number of vertices.
+     * @param edgeCount   the number of edges.
+     * @param iterations  the number of iterations.
+     * @return the predicted run time in nanoseconds.
+     */
+    public double predict(final LayoutEngine engine,
+                          final int vertexCount,
+                          final int edgeCount,
+                          final int iterations) {
+        final double[] setup = setupCoefficients.get(engine);
+        final double[] iteration = iterationCoefficients.get(engine);
+        if (setup == null) {
+            throw new IllegalArgumentException("The engine " + engine + " is not calibrated");
+        }
+        return setup[0] + setup[1] * ((double) vertexCount + edgeCount)
+                + iterations * (iteration[0] + iteration[1] * engine.vertexTerm(vertexCount) + iteration[2] * edgeCount);
+    }
+
+    /**
+     * Returns the calibrated engines.
+     *
+     * @return the engines.
+     */
+    public Set<LayoutEngine> getEngines() {
+        return Collections.unmodifiableSet(setupCoefficients.keySet());
+    }
+
+    /**
+     * Returns the engines whose calibration failed on this hardware, e.g. an OpenCL device that cannot build
+     * the kernels.
+     *
+     * @return the failed engines.
+     */
+    public Set<LayoutEngine> getFailedEngines() {
+        return Collections.unmodifiableSet(failedEngines);
+    }
+
+    /**
+     * Tells whether every engine was either calibrated or failed, so calibrating again gives no new engine.
+     *
+     * @param engines the engines.
+     * @return true if the model covers all of them.
+     */
+    public boolean isCalibratedFor(final Collection<LayoutEngine> engines) {
+        for (final LayoutEngine engine : engines) {
+            if (!setupCoefficients.containsKey(engine) && !failedEngines.contains(engine)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the fingerprint of the hardware the model was measured on.
+     *
+     * @return the fingerprint.
+     */
+    public String getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Writes the model to a temporary file next to the given one and renames it over the file.
+     *
+     * @param file the model file.
+     * @throws IOException if the file cannot be written.
+     */
+    public void save(final Path file) throws IOException {
+        final Properties properties = new Properties();
+        properties.setProperty("version", String.valueOf(VERSION));
+        properties.setProperty("fingerprint", fingerprint);
+        for (final LayoutEngine engine : setupCoefficients.keySet()) {
+            properties.setProperty(engine.name() + ".setup", join(setupCoefficients.get(engine)));
+            properties.setProperty(engine.name() + ".iteration", join(iterationCoefficients.get(engine)));
+        }
+        if (!failedEngines.isEmpty()) {
+            final StringBuilder failed = new StringBuilder();
+            for (final LayoutEngine engine : failedEngines) {
+                failed.append(failed.length() == 0 ? "" : ",").append(engine.name());
+            }
+            properties.setProperty("failed", failed.toString());
+        }
+
+        final Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        final Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            properties.store(writer, "Spring embedder layout engine cost model, times in nanoseconds");
+        }
+        Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Reads a model file.
+     *
+     * @param file the model file.
+     * @return the model, or null if the file does not exist or was written by another version.
+     * @throws IOException              if the file cannot be read.
+     * @throws IllegalArgumentException if the file is not a valid model.
+     */
+    public static CostModel load(final Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        final Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        if (!String.valueOf(VERSION).equals(properties.getProperty("version"))) {
+            return null;
+        }
+        final String fingerprint = properties.getProperty("fingerprint");
+        if (fingerprint == null) {
+            throw new IllegalArgumentException("The cost model " + file + " has no fingerprint");
+        }
+        final Map<LayoutEngine, double[]> setup = new EnumMap<>(LayoutEngine.class);
+        final Map<LayoutEngine, double[]> iteration = new EnumMap<>(LayoutEngine.class);
+        for (final LayoutEngine engine : LayoutEngine.values()) {
+            final String setupValue = properties.getProperty(engine.name() + ".setup");
+            final String iterationValue = properties.getProperty(engine.name() + ".iteration");
+            if (setupValue != null && iterationValue != null) {
+                setup.put(engine, split(setupValue, 2));
+                iteration.put(engine, split(iterationValue, 3));
+            }
+        }
+        final Set<LayoutEngine> failed = EnumSet.noneOf(LayoutEngine.class);
+        final String failedValue = properties.getProperty("failed", "");
+        for (final String name : failedValue.split(",")) {
+            if (!name.isBlank()) {
+                failed.add(LayoutEngine.valueOf(name.trim()));
+            }
+        }
+        return new CostModel(fingerprint, setup, iteration, failed);
+    }
+
+    private static String join(final double[] values) {
+        final StringBuilder result = new StringBuilder();
+        for (int i = 0; i < values.length; i++) {
+            result.append(i == 0 ? "" : ",").append(values[i]);
+        }
+        return result.toString();
+    }
+
+    private static double[] split(final String value, final int length) {
+        final String[] parts = value.split(",");
+        if (parts.length != length) {
+            throw new IllegalArgumentException("Expected " + length + " coefficients: " + value);
+        }
+        final double[] result = new double[length];
+        for (int i = 0; i < length; i++) {
+            result[i] = Double.parseDouble(parts[i].trim());
+            if (!(result[i] >= 0) || Double.isInfinite(result[i])) {
+                throw new IllegalArgumentException("Coefficients must be finite and non-negative: " + value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Fits non-negative coefficients {@code x} minimizing {@code |A x - b|}: a least squares fit that drops
+     * the feature with the most negative coefficient and fits again until no coefficient is negative.
+     * Measurement noise on a few samples can otherwise make the fit trade a negative constant for a steeper
+     * growth, which ruins the extrapolation.
+     *
+     * @param features the feature vector of every sample, the rows of {@code A}.
+     * @param values   the measured value of every sample.
+     * @return the coefficients, one per feature.
+     */
+    static double[] fitNonNegative(final double[][] features, final double[] values) {
+        final int k = features[0].length;
+        final boolean[] active = new boolean[k];
+        Arrays.fill(active, true);
+        double[] coefficients = new double[k];
+        for (int round = 0; round < k; round++) {
+            coefficients = fit(features, values, active);
+            int worst = -1;
+            for (int j = 0; j < k; j++) {
+                if (active[j] && coefficients[j] < 0 && (worst == -1 || coefficients[j] < coefficients[worst])) {
+                    worst = j;
+                }
+            }
+            if (worst == -1) {
+                break;
+            }
+            active[worst] = false;
+            coefficients[worst] = 0;
+        }
+        for (int j = 0; j < k; j++) {
+            coefficients[j] = Math.max(0, coefficients[j]);
+        }
+        return coefficients;
+    }
+
+    private static double[] fit(final double[][] features, final double[] values, final boolean[] active) {
+        final int k = active.length;
+        // features of very different magnitude, e.g. 1 and n^2, are scaled to the same range first
+        final double[] scale = new double[k];
+        for (final double[] row : features) {
+            for (int j = 0; j < k; j++) {
+                scale[j] = Math.max(scale[j], Math.abs(row[j]));
+            }
+        }
+        // normal equations over the active features, solved by Gaussian elimination with partial pivoting
+        final double[][] matrix = new double[k][k + 1];
+        for (int r = 0; r < features.length; r++) {
+            for (int i = 0; i < k; i++) {
+                final double fi = active[i] && scale[i] > 0 ? features[r][i] / scale[i] : 0;
+                for (int j = 0; j < k; j++) {
+                    final double fj = active[j] && scale[j] > 0 ? features[r][j] / scale[j] : 0;
+                    matrix[i][j] += fi * fj;
+                }
+                matrix[i][k] += fi * values[r];
+            }
+        }
+        for (int i = 0; i < k; i++) {
+            if (matrix[i][i] == 0) {
+                // an inactive or all-zero feature
+                matrix[i][i] = 1;
+            }
+        }
+        for (int column = 0; column < k; column++) {
+            int pivot = column;
+            for (int row = column + 1; row < k; row++) {
+                if (Math.abs(matrix[row][column]) > Math.abs(matrix[pivot][column])) {
+                    pivot = row;
+                }
+            }
+            final double[] swap = matrix[column];
+            matrix[column] = matrix[pivot];
+            matrix[pivot] = swap;
+            if (Math.abs(matrix[column][column]) < 1e-12) {
+                continue;
+            }
+            for (int row = 0; row < k; row++) {
+                if (row != column) {
+                    final double factor = matrix[row][column] / matrix[column][column];
+                    for (int j = column; j <= k; j++) {
+                        matrix[row][j] -= factor * matrix[column][j];
+                    }
+                }
+            }
+        }
+        final double[] coefficients = new double[k];
+        for (int j = 0; j < k; j++) {
+            final boolean solvable = active[j] && scale[j] > 0 && Math.abs(matrix[j][j]) >= 1e-12;
+            coefficients[j] = solvable ? matrix[j][k] / matrix[j][j] / scale[j] : 0;
+        }
+        return coefficients;
+    }
+}
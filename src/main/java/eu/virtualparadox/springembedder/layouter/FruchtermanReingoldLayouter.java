@@ -1,23 +1,73 @@
 package eu.virtualparadox.springembedder.layouter;
 
-import eu.virtualparadox.springembedder.TimeWatch;
 import eu.virtualparadox.springembedder.Vector2D;
+import eu.virtualparadox.springembedder.checkpoint.Checkpoint;
+import eu.virtualparadox.springembedder.engine.FruchtermanReingoldEngine;
+import eu.virtualparadox.springembedder.engine.IndexedGraph;
+import eu.virtualparadox.springembedder.engine.LayoutState;
+import eu.virtualparadox.springembedder.engine.RepulsionKernel;
+import eu.virtualparadox.springembedder.metrics.LayoutPhase;
 import eu.virtualparadox.springembedder.renderercallback.NoOpRendererCallback;
 import eu.virtualparadox.springembedder.renderercallback.AbstractRendererCallback;
 import org.jgrapht.Graph;
 
-import java.util.HashMap;
 import java.util.Map;
 
 /**
  * Class for performing layout calculations using the Spring Embedder algorithm.
+ * <p>
+ * Supports checkpoints, see {@link #setCheckpointer}: a resumed layout continues exactly as the
+ * interrupted one would have, the callback only sees the iterations after the checkpoint.
  *
  * @param <V> Type of the vertices in the graph.
  * @param <E> Type of the edges in the graph.
  */
 public class FruchtermanReingoldLayouter<V, E> extends AbstractLayouter<V, E> {
 
-    private static final double C = 0.01;
+    /**
+     * Default opening angle of the Barnes-Hut approximation.
+     */
+    public static final double DEFAULT_THETA = 0.9;
+
+    private final RepulsionMode repulsionMode;
+    private final double theta;
+
+    /**
+     * Constructor for the SpringEmbedderLayouter.
+     *
+     * @param width         Width of the layout area.
+     * @param height        Height of the layout area.
+     * @param callback      Callback to render the layout at each iteration.
+     * @param repulsionMode Strategy for computing the repulsive forces.
+     * @param theta         Opening angle of the Barnes-Hut approximation, ignored by the other modes.
+     */
+    public FruchtermanReingoldLayouter(final int width,
+                                       final int height,
+                                       final AbstractRendererCallback<V, E> callback,
+                                       final RepulsionMode repulsionMode,
+                                       final double theta) {
+        super(width, height, callback);
+        if (theta < 0) {
+            throw new IllegalArgumentException("Theta must not be negative: " + theta);
+        }
+        this.repulsionMode = repulsionMode;
+        this.theta = theta;
+    }
+
+    /**
+     * Constructor for the SpringEmbedderLayouter.
+     *
+     * @param width         Width of the layout area.
+     * @param height        Height of the layout area.
+     * @param callback      Callback to render the layout at each iteration.
+     * @param repulsionMode Strategy for computing the repulsive forces.
+     */
+    public FruchtermanReingoldLayouter(final int width,
+                                       final int height,
+                                       final AbstractRendererCallback<V, E> callback,
+                                       final RepulsionMode repulsionMode) {
+        this(width, height, callback, repulsionMode, DEFAULT_THETA);
+    }
 
     /**
      * Constructor for the SpringEmbedderLayouter.
@@ -29,7 +79,7 @@ public class FruchtermanReingoldLayouter<V, E> extends AbstractLayouter<V, E> {
     public FruchtermanReingoldLayouter(final int width,
                                        final int height,
                                        final AbstractRendererCallback<V, E> callback) {
-        super(width, height, callback);
+        this(width, height, callback, RepulsionMode.EXACT);
     }
 
     /**
@@ -53,214 +103,97 @@ public class FruchtermanReingoldLayouter<V, E> extends AbstractLayouter<V, E> {
     @Override
     public Map<V, Vector2D> layout(final Graph<V, E> graph,
                                    final int iterations) {
-        Map<V, Vector2D> positions = setInitialPositions(graph);
-        double temperature = 50;
-        final Map<E, Double> normalizedWeights = edgeWeightNormalizer.normalizeEdgeWeights(graph);
-
-        final TimeWatch tw = TimeWatch.start();
-        for (int i = 0; i < iterations; i++) {
-            tw.reset();
-            positions = computeForcesAndUpdatePositions(graph, positions, normalizedWeights, temperature);
-            logger.debug("Iteration {} took {}", i, tw.toMilliSeconds());
-            callback.render(graph, i, positions);
-            temperature = Math.max(1.5, temperature * 0.95);
-        }
-
-        callback.finish();
-        return positions;
+        final FruchtermanReingoldEngine<V> engine = anneal(IndexedGraph.of(graph, prepareEdgeWeights(graph)), iterations, graph);
+        return engine.toPositionMap();
     }
 
     /**
-     * Set initial positions for the nodes randomly within a defined area.
+     * Performs the layout of an already indexed graph, e.g. one loaded by the
+     * {@link eu.virtualparadox.springembedder.io.EdgeListLoader}. No frames are rendered, as the callback
+     * needs a {@link Graph}.
      *
-     * @param graph The graph.
-     * @return A map with the initial positions of the nodes.
-     */
-    private Map<V, Vector2D> setInitialPositions(final Graph<V, E> graph) {
-        final Map<V, Vector2D> result = new HashMap<>();
-        for (V v : graph.vertexSet()) {
-            final double x = random.nextInt(width);
-            final double y = random.nextInt(height);
-            final Vector2D position = new Vector2D(x, y);
-            result.put(v, position);
-        }
-        return result;
-    }
-
-    /**
-     * Compute forces and update positions for all vertices.
-     *
-     * @param graph             The graph.
-     * @param positions         The current positions of the nodes.
-     * @param normalizedWeights The normalized edge weights.
-     * @param temperature       The current temperature.
-     * @return Updated positions of the nodes.
-     */
-    private Map<V, Vector2D> computeForcesAndUpdatePositions(final Graph<V, E> graph,
-                                                             final Map<V, Vector2D> positions,
-                                                             final Map<E, Double> normalizedWeights,
-                                                             final double temperature) {
-        final Map<V, Vector2D> displacements = computeForces(graph, positions, normalizedWeights);
-        return updatePositions(graph, positions, displacements, temperature);
-    }
-
-    /**
-     * Compute the forces for all vertices.
-     *
-     * @param graph             The graph.
-     * @param positions         The current positions of the nodes.
-     * @param normalizedWeights The normalized edge weights.
-     * @return A map with the computed forces for each vertex.
+     * @param graph      The graph to layout.
+     * @param iterations Number of iterations to perform.
+     * @return The final positions of the nodes, indexed by vertex id.
      */
-    private Map<V, Vector2D> computeForces(final Graph<V, E> graph,
-                                           final Map<V, Vector2D> positions,
-                                           final Map<E, Double> normalizedWeights) {
-        final Map<V, Vector2D> repulsiveDisplacements = calculateRepulsiveForces(graph, positions);
-        final Map<V, Vector2D> attractiveDisplacements = calculateAttractiveForces(graph, positions, normalizedWeights);
-        return summarizeDisplacementVectors(repulsiveDisplacements, attractiveDisplacements);
+    public LayoutState layout(final IndexedGraph<V> graph,
+                              final int iterations) {
+        return anneal(graph, iterations, null).getState();
     }
 
     /**
-     * Summarize the repulsive and attractive forces for each vertex.
+     * Runs a full layout of an indexed graph from random positions, or from the checkpoint if there is one.
      *
-     * @param repulsiveDisplacements  The repulsive forces.
-     * @param attractiveDisplacements The attractive forces.
-     * @return A map with the summarized forces for each vertex.
+     * @param indexedGraph The indexed graph to layout.
+     * @param iterations   Number of iterations to perform.
+     * @param graph        The graph the frames are rendered for, null to render no frames.
+     * @return The engine holding the final positions.
      */
-    private Map<V, Vector2D> summarizeDisplacementVectors(final Map<V, Vector2D> repulsiveDisplacements,
-                                                          final Map<V, Vector2D> attractiveDisplacements) {
-        final Map<V, Vector2D> result = new HashMap<>();
-        for (V v : repulsiveDisplacements.keySet()) {
-            final Vector2D repulsive = repulsiveDisplacements.get(v);
-            final Vector2D attractive = attractiveDisplacements.get(v);
-            result.put(v, repulsive.add(attractive));
+    protected FruchtermanReingoldEngine<V> anneal(final IndexedGraph<V> indexedGraph,
+                                                  final int iterations,
+                                                  final Graph<V, E> graph) {
+        final FruchtermanReingoldEngine<V> engine = new FruchtermanReingoldEngine<>(
+                indexedGraph, width, height, createRepulsionKernel());
+        final LayoutState state = engine.getState();
+        final long fingerprint = checkpointer != null ? Checkpoint.fingerprint(indexedGraph) : 0;
+        final Checkpoint checkpoint = checkpointer != null ? resumeFromCheckpoint(fingerprint, state) : null;
+
+        final double temperature;
+        final int firstIteration;
+        if (checkpoint == null) {
+            engine.randomizePositions(random);
+            temperature = coolingSchedule.initialTemperature();
+            firstIteration = 0;
+        } else {
+            temperature = checkpoint.getTemperature();
+            firstIteration = checkpoint.getIteration();
         }
-        return result;
-    }
-
-    /**
-     * Calculate the repulsive forces between all pairs of vertices.
-     *
-     * @param graph     The graph.
-     * @param positions The current positions of the nodes.
-     * @return A map with the repulsive forces for each vertex.
-     */
-    private Map<V, Vector2D> calculateRepulsiveForces(final Graph<V, E> graph,
-                                                      final Map<V, Vector2D> positions) {
-        final Map<V, Vector2D> result = initDisplacementVector(graph);
-        double optimalDistance = calcOptimalDistance(graph);
 
-        for (V v : graph.vertexSet()) {
-            final Vector2D posV = positions.get(v);
-            for (V u : graph.vertexSet()) {
-                if (!v.equals(u)) {
-                    final Vector2D posU = positions.get(u);
-                    final Vector2D delta = posV.subtract(posU);
-                    final double distance = delta.length();
-
-                    if (distance > 0) {
-                        double repulsion = C * (optimalDistance * optimalDistance) / distance;
-                        Vector2D force = delta.normalize().scale(repulsion);
-                        result.put(v, result.get(v).add(force));
-                    }
-                }
+        metricsListener.layoutStarted(indexedGraph.vertexCount(), indexedGraph.edgeCount());
+        final long layoutStart = System.nanoTime();
+        final int i = anneal(temperature, firstIteration, iterations, (iteration, t) -> {
+            final double maxDisplacement = iterate(engine, t);
+            if (graph != null && callback.isFrameRequested(iteration)) {
+                final long renderStart = System.nanoTime();
+                callback.render(graph, iteration, engine.toPositionMap());
+                metricsListener.phaseCompleted(LayoutPhase.RENDER, System.nanoTime() - renderStart);
             }
-        }
-
-        return result;
-    }
-
-    /**
-     * Calculate the attractive forces between connected vertices.
-     *
-     * @param graph             The graph.
-     * @param positions         The current positions of the nodes.
-     * @param normalizedWeights The normalized edge weights.
-     * @return A map with the attractive forces for each vertex.
-     */
-    private Map<V, Vector2D> calculateAttractiveForces(final Graph<V, E> graph,
-                                                       final Map<V, Vector2D> positions,
-                                                       final Map<E, Double> normalizedWeights) {
-        final Map<V, Vector2D> result = initDisplacementVector(graph);
-        final int optimalDistance = (int) calcOptimalDistance(graph);
-
-        for (E edge : graph.edgeSet()) {
-            final V fromVertex = graph.getEdgeSource(edge);
-            final V toVertex = graph.getEdgeTarget(edge);
-
-            final Vector2D from = positions.get(fromVertex);
-            final Vector2D to = positions.get(toVertex);
-
-            final Vector2D delta = from.subtract(to);
-            double distance = delta.length();
-
-            if (distance > 0) {
-                double normalizedWeight = normalizedWeights.get(edge);
-                double attraction = C * normalizedWeight * (distance * distance) / optimalDistance;
-                Vector2D force = delta.normalize().scale(attraction);
-                result.put(fromVertex, result.get(fromVertex).subtract(force));
-                result.put(toVertex, result.get(toVertex).add(force));
+            return maxDisplacement;
+        }, () -> engine.energy(0, state.size()), (nextIteration, t) -> {
+            if (checkpointer != null && checkpointer.isDue(nextIteration - 1)) {
+                saveCheckpoint(fingerprint, nextIteration, t, state);
             }
+        });
+        lastIterationCount = i;
+        metricsListener.layoutFinished(i, System.nanoTime() - layoutStart);
+        if (checkpointer != null) {
+            checkpointer.flush();
         }
 
-        return result;
-    }
-
-    /**
-     * Initializes displacement vector map for all vertices.
-     *
-     * @param graph The graph.
-     * @return A map with zero displacement vectors for each vertex.
-     */
-    private Map<V, Vector2D> initDisplacementVector(final Graph<V, E> graph) {
-        final Map<V, Vector2D> displacement = new HashMap<>();
-        for (V v : graph.vertexSet()) {
-            displacement.put(v, new Vector2D(0, 0));
+        if (graph != null) {
+            callback.finish();
         }
-        return displacement;
+        return engine;
     }
 
     /**
-     * Calculate optimal distance between nodes.
+     * Perform a single iteration: compute the forces and update the positions.
      *
-     * @param graph The graph.
-     * @return The optimal distance.
+     * @param engine      The engine holding the current layout state.
+     * @param temperature The current temperature.
+     * @return The longest distance a node moved.
      */
-    private double calcOptimalDistance(final Graph<V, E> graph) {
-        return Math.sqrt((width * height) * 1.0d / graph.vertexSet().size()) / 2;
+    protected double iterate(final FruchtermanReingoldEngine<V> engine,
+                             final double temperature) {
+        return engine.step(temperature, metricsListener);
     }
 
     /**
-     * Update the positions of the nodes based on the calculated forces.
+     * Create a new kernel for the configured repulsion mode.
      *
-     * @param graph         The graph.
-     * @param positions     The current positions of the nodes.
-     * @param displacements The calculated forces for each node.
-     * @param temperature   The current temperature.
-     * @return Updated positions of the nodes.
+     * @return The repulsion kernel.
      */
-    private Map<V, Vector2D> updatePositions(final Graph<V, E> graph,
-                                             final Map<V, Vector2D> positions,
-                                             final Map<V, Vector2D> displacements,
-                                             final double temperature) {
-        final Map<V, Vector2D> result = new HashMap<>();
-
-        for (V v : graph.vertexSet()) {
-            // Get displacement of the vertex
-            final Vector2D pos = positions.get(v);
-            Vector2D displacement = displacements.get(v);
-
-            // Downscale displacement vector to the temperature
-            double displacementLength = displacement.length();
-            displacement = displacement.scale(Math.min(displacementLength, temperature) / displacementLength);
-            final Vector2D newPos = pos.add(displacement);
-
-            // Bound the position within the layout area
-            double newX = Math.max(0, Math.min(width, newPos.getX()));
-            double newY = Math.max(0, Math.min(height, newPos.getY()));
-            result.put(v, new Vector2D(newX, newY));
-        }
-
-        return result;
+    protected RepulsionKernel createRepulsionKernel() {
+        return repulsionMode.createKernel(theta);
     }
 }
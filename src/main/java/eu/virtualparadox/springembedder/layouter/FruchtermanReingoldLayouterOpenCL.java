@@ -1,212 +1,400 @@
 package eu.virtualparadox.springembedder.layouter;
 
-import eu.virtualparadox.springembedder.ResourceLoader;
-import eu.virtualparadox.springembedder.TimeWatch;
 import eu.virtualparadox.springembedder.Vector2D;
+import eu.virtualparadox.springembedder.engine.IndexedGraph;
+import eu.virtualparadox.springembedder.layouter.schedule.GeometricCoolingSchedule;
+import eu.virtualparadox.springembedder.metrics.LayoutMetricsListener;
+import eu.virtualparadox.springembedder.metrics.LayoutPhase;
+import eu.virtualparadox.springembedder.opencl.OpenCLSession;
+import eu.virtualparadox.springembedder.opencl.OpenCLWorkspace;
 import eu.virtualparadox.springembedder.renderercallback.AbstractRendererCallback;
 import eu.virtualparadox.springembedder.renderercallback.NoOpRendererCallback;
 import org.jgrapht.Graph;
 import org.jocl.*;
 
-import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
 import java.util.*;
 
 import static org.jocl.CL.*;
 
-public class FruchtermanReingoldLayouterOpenCL<V, E> extends AbstractLayouter<V, E> {
+/**
+ * Fruchterman-Reingold layouter running the force computation on an OpenCL device.
+ * <p>
+ * The OpenCL context and the compiled kernels live in an {@link OpenCLSession}, which can be shared by
+ * many layouters and threads, so a layout only pays for uploading its graph. A layouter created without
+ * a session opens its own and closes it in {@link #close()}.
+ * <p>
+ * The iterations stay on the device: the kernel arguments are set once per layout, the temperature lives
+ * in a device buffer and is cooled down by a kernel when the schedule is geometric, and positions are only
+ * read back for the frames the callback requests, asynchronously into one of two host buffers. Only a
+ * schedule or a convergence criterion that needs the energy or the displacements makes the host wait for
+ * every iteration.
+ *
+ * @param <V> Type of the vertices in the graph.
+ * @param <E> Type of the edges in the graph.
+ */
+public class FruchtermanReingoldLayouterOpenCL<V, E> extends AbstractLayouter<V, E> implements AutoCloseable {
 
     private static final float C = 0.01f;
+    private static final cl_event[] NO_EVENTS = new cl_event[3];
+
+    private final OpenCLSession session;
+    private final boolean ownsSession;
+
+    /**
+     * Constructor for the FruchtermanReingoldLayouterOpenCL, running on a shared session. Closing the
+     * layouter does not close the session.
+     *
+     * @param width    Width of the layout area.
+     * @param height   Height of the layout area.
+     * @param callback Callback to render the layout at each iteration.
+     * @param session  The OpenCL session to run on.
+     */
+    public FruchtermanReingoldLayouterOpenCL(final int width,
+                                             final int height,
+                                             final AbstractRendererCallback<V, E> callback,
+                                             final OpenCLSession session) {
+        this(width, height, callback, session, false);
+    }
 
-    private final cl_context context;
-    private final cl_command_queue commandQueue;
-    private final cl_program program;
-    private final cl_kernel kernelRepulsive;
-    private final cl_kernel kernelAttractive;
-    private final cl_kernel kernelSummarize;
-    private final cl_kernel kernelUpdate;
-
+    /**
+     * Constructor for the FruchtermanReingoldLayouterOpenCL, opening a session of its own.
+     *
+     * @param width    Width of the layout area.
+     * @param height   Height of the layout area.
+     * @param callback Callback to render the layout at each iteration.
+     */
     public FruchtermanReingoldLayouterOpenCL(final int width, final int height, final AbstractRendererCallback<V, E> callback) {
-        super(width, height, callback);
-        this.context = initCLContext();
-        this.commandQueue = initCLCommandQueue(this.context);
-        this.program = initCLProgram(this.context);
-        this.kernelRepulsive = initCLKernel(this.program, "calculateRepulsiveForces");
-        this.kernelAttractive = initCLKernel(this.program, "calculateAttractiveForces");
-        this.kernelSummarize = initCLKernel(this.program, "summarizeForces");
-        this.kernelUpdate = initCLKernel(this.program, "updatePositions");
+        this(width, height, callback, new OpenCLSession(), true);
     }
 
+    /**
+     * Constructor for the FruchtermanReingoldLayouterOpenCL, opening a session of its own.
+     *
+     * @param width  Width of the layout area.
+     * @param height Height of the layout area.
+     */
     public FruchtermanReingoldLayouterOpenCL(final int width, final int height) {
         this(width, height, new NoOpRendererCallback<>());
     }
 
-    private cl_context initCLContext() {
-        CL.setExceptionsEnabled(true);
+    private FruchtermanReingoldLayouterOpenCL(final int width,
+                                              final int height,
+                                              final AbstractRendererCallback<V, E> callback,
+                                              final OpenCLSession session,
+                                              final boolean ownsSession) {
+        super(width, height, callback);
+        this.session = session;
+        this.ownsSession = ownsSession;
+    }
 
-        final int[] numPlatformsArray = new int[1];
-        final cl_platform_id[] platforms = new cl_platform_id[1];
-        clGetPlatformIDs(platforms.length, platforms, numPlatformsArray);
-        final cl_platform_id platform = platforms[0];
+    /**
+     * Closes the session if the layouter opened it.
+     */
+    @Override
+    public void close() {
+        if (ownsSession) {
+            session.close();
+        }
+    }
 
-        final cl_device_id[] devices = new cl_device_id[1];
-        clGetDeviceIDs(platform, CL_DEVICE_TYPE_ALL, devices.length, devices, null);
-        final cl_device_id device = devices[0];
+    @Override
+    public Map<V, Vector2D> layout(final Graph<V, E> graph, final int iterations) {
+        final IndexedGraph<V> indexedGraph = IndexedGraph.of(graph, prepareEdgeWeights(graph));
+        final int numVertices = indexedGraph.vertexCount();
+
+        final float[] positions = new float[2 * numVertices];
+        for (int v = 0; v < numVertices; v++) {
+            positions[2 * v] = random.nextInt(width);
+            positions[2 * v + 1] = random.nextInt(height);
+        }
 
-        return clCreateContext(null, 1, new cl_device_id[]{device}, null, null, null);
+        final OpenCLWorkspace workspace = session.acquire();
+        try {
+            return layout(graph, iterations, workspace, indexedGraph, positions);
+        } finally {
+            session.release(workspace);
+        }
     }
 
-    private cl_command_queue initCLCommandQueue(final cl_context context) {
-        final cl_device_id[] devices = new cl_device_id[1];
-        clGetContextInfo(context, CL_CONTEXT_DEVICES, Sizeof.cl_device_id * devices.length, Pointer.to(devices), null);
-        final cl_device_id device = devices[0];
+    private Map<V, Vector2D> layout(final Graph<V, E> graph,
+                                    final int iterations,
+                                    final OpenCLWorkspace workspace,
+                                    final IndexedGraph<V> indexedGraph,
+                                    final float[] positions) {
+        final int numVertices = indexedGraph.vertexCount();
+        final int numEdges = indexedGraph.edgeCount();
+        final float[] displacements = new float[2 * numVertices];
 
-        return clCreateCommandQueue(context, device, 0, null);
-    }
+        final cl_command_queue commandQueue = workspace.getCommandQueue();
+        final cl_kernel kernelRepulsive = workspace.getKernelRepulsive();
+        final cl_kernel kernelAttractive = workspace.getKernelAttractive();
+        final cl_kernel kernelUpdate = workspace.getKernelUpdate();
+        final cl_kernel kernelCoolDown = workspace.getKernelCoolDown();
 
-    private cl_program initCLProgram(final cl_context context) {
+        metricsListener.layoutStarted(numVertices, numEdges);
+        final long layoutStart = System.nanoTime();
+        workspace.upload(indexedGraph, positions);
+        final cl_mem positionsMem = workspace.getPositionsMem();
+        final cl_mem displacementsMem = workspace.getDisplacementsMem();
+        metricsListener.phaseCompleted(LayoutPhase.TRANSFER, System.nanoTime() - layoutStart);
+
+        final double optimalDistance = Math.sqrt((width * height) / numVertices) / 2;
+        final int localSize = workspace.getRepulsionLocalSize();
+        final long repulsionGlobalSize = (long) (numVertices + localSize - 1) / localSize * localSize;
+        final cl_mem temperatureMem = workspace.getTemperatureMem();
+
+        final boolean statisticsRequired = isStatisticsRequired();
+        // a geometric schedule without statistics needs nothing from the host, the device cools down itself
+        final boolean coolOnDevice = !statisticsRequired && coolingSchedule instanceof GeometricCoolingSchedule;
+
+        workspace.setKernelArguments(numVertices, (float) optimalDistance, C, width, height);
+
+        if (coolOnDevice) {
+            final GeometricCoolingSchedule schedule = (GeometricCoolingSchedule) coolingSchedule;
+            clSetKernelArg(kernelCoolDown, 0, Sizeof.cl_mem, Pointer.to(temperatureMem));
+            clSetKernelArg(kernelCoolDown, 1, Sizeof.cl_float, Pointer.to(new float[]{(float) schedule.getFactor()}));
+            clSetKernelArg(kernelCoolDown, 2, Sizeof.cl_float, Pointer.to(new float[]{(float) schedule.getMinTemperature()}));
+        }
+
+        final double temperature = coolingSchedule.initialTemperature();
+        clEnqueueWriteBuffer(commandQueue, temperatureMem, CL_TRUE, 0, Sizeof.cl_float, Pointer.to(new float[]{(float) temperature}), 0, null, null);
+
+        final float[] previousPositions = statisticsRequired ? new float[2 * numVertices] : null;
+        final FrameReader frameReader = new FrameReader(graph, indexedGraph, commandQueue, positionsMem);
+        final KernelTimer kernelTimer = metricsListener != LayoutMetricsListener.NONE ? new KernelTimer() : null;
+
+        final int i;
         try {
-            final String source = ResourceLoader.loadResourceAsString("/fruchterman-reingold.cl");
-            final cl_program program = clCreateProgramWithSource(context, 1, new String[]{source}, null, null);
-            clBuildProgram(program, 0, null, null, null, null);
+            i = anneal(temperature, 0, iterations, (iteration, t) -> {
+                final cl_event[] kernelEvents = kernelTimer != null ? kernelTimer.newEvents() : NO_EVENTS;
+                clEnqueueNDRangeKernel(commandQueue, kernelRepulsive, 1, null, new long[]{repulsionGlobalSize}, new long[]{localSize}, 0, null, kernelEvents[0]);
+                clEnqueueNDRangeKernel(commandQueue, kernelAttractive, 1, null, new long[]{numVertices}, null, 0, null, kernelEvents[1]);
+                clEnqueueNDRangeKernel(commandQueue, kernelUpdate, 1, null, new long[]{numVertices}, null, 0, null, kernelEvents[2]);
+                if (coolOnDevice) {
+                    clEnqueueNDRangeKernel(commandQueue, kernelCoolDown, 1, null, new long[]{1}, null, 0, null, null);
+                }
+                if (kernelTimer != null) {
+                    kernelTimer.submitted(kernelEvents);
+                }
+
+                // Statistics for the cooling schedule and the convergence criterion, these need a synchronous readback
+                double maxDisplacement = Double.NaN;
+                if (statisticsRequired) {
+                    System.arraycopy(positions, 0, previousPositions, 0, positions.length);
+                    final long readStart = System.nanoTime();
+                    clEnqueueReadBuffer(commandQueue, positionsMem, CL_TRUE, 0, Sizeof.cl_float * 2L * numVertices, Pointer.to(positions), 0, null, null);
+                    clEnqueueReadBuffer(commandQueue, displacementsMem, CL_TRUE, 0, Sizeof.cl_float * 2L * numVertices, Pointer.to(displacements), 0, null, null);
+                    metricsListener.phaseCompleted(LayoutPhase.TRANSFER, System.nanoTime() - readStart);
+                    maxDisplacement = maxDisplacement(positions, previousPositions);
+                }
+
+                // Request the frame before the temperature changes
+                if (callback.isFrameRequested(iteration)) {
+                    frameReader.request(iteration);
+                }
+                return maxDisplacement;
+            }, () -> energy(displacements), (nextIteration, t) -> {
+                if (!coolOnDevice) {
+                    clEnqueueWriteBuffer(commandQueue, temperatureMem, CL_TRUE, 0, Sizeof.cl_float, Pointer.to(new float[]{(float) t}), 0, null, null);
+                }
+            });
+            frameReader.finish();
+            if (kernelTimer != null) {
+                kernelTimer.finish();
+            }
+        } finally {
+            frameReader.release();
+            if (kernelTimer != null) {
+                kernelTimer.release();
+            }
+        }
+        lastIterationCount = i;
+
+        // Read final positions from the device
+        final long readStart = System.nanoTime();
+        clEnqueueReadBuffer(commandQueue, positionsMem, CL_TRUE, 0, Sizeof.cl_float * 2L * numVertices, Pointer.to(positions), 0, null, null);
+        metricsListener.phaseCompleted(LayoutPhase.TRANSFER, System.nanoTime() - readStart);
+        metricsListener.layoutFinished(i, System.nanoTime() - layoutStart);
+        callback.finish();
+
+        return toPositionMap(indexedGraph, positions);
+    }
 
-            return program;
-        } catch (final IOException e) {
-            throw new IllegalStateException("Failed to load OpenCL kernel", e);
+    /**
+     * Returns the energy of an iteration, the sum of the squared displacements read back from the device.
+     *
+     * @param displacements the x, y displacement of every vertex.
+     * @return the energy.
+     */
+    static double energy(final float[] displacements) {
+        double energy = 0;
+        for (int k = 0; k < displacements.length; k += 2) {
+            energy += displacements[k] * displacements[k] + displacements[k + 1] * displacements[k + 1];
         }
+        return energy;
     }
 
-    private cl_kernel initCLKernel(final cl_program program, final String kernelName) {
-        return clCreateKernel(program, kernelName, null);
+    private static double maxDisplacement(final float[] positions, final float[] previousPositions) {
+        double maxDisplacement = 0;
+        for (int k = 0; k < positions.length; k += 2) {
+            final double movedX = positions[k] - previousPositions[k];
+            final double movedY = positions[k + 1] - previousPositions[k + 1];
+            maxDisplacement = Math.max(maxDisplacement, Math.sqrt(movedX * movedX + movedY * movedY));
+        }
+        return maxDisplacement;
     }
 
-    @Override
-    public Map<V, Vector2D> layout(final Graph<V, E> graph, final int iterations) {
-        final int numVertices = graph.vertexSet().size();
-        final int numEdges = graph.edgeSet().size();
+    /**
+     * Reads the positions of the requested frames back without stalling the device.
+     * <p>
+     * There are two host buffers. A requested frame is read into one of them with a non-blocking read,
+     * and the frame is only rendered when the buffer is needed again, two frames later, or at the end
+     * of the layout. Meanwhile the device continues with the next iterations, and the host renders the
+     * previous frame while the device computes. Frames are rendered in iteration order.
+     */
+    private final class FrameReader {
+
+        private final Graph<V, E> graph;
+        private final IndexedGraph<V> indexedGraph;
+        private final cl_command_queue commandQueue;
+        private final cl_mem positionsMem;
+        private final FloatBuffer[] buffers = new FloatBuffer[2];
+        private final cl_event[] events = new cl_event[2];
+        private final int[] iterations = new int[2];
+        private int next;
+
+        private FrameReader(final Graph<V, E> graph,
+                            final IndexedGraph<V> indexedGraph,
+                            final cl_command_queue commandQueue,
+                            final cl_mem positionsMem) {
+            this.graph = graph;
+            this.indexedGraph = indexedGraph;
+            this.commandQueue = commandQueue;
+            this.positionsMem = positionsMem;
+        }
 
-        final float[] positions = new float[2 * numVertices];
-        final int[] repulsiveForces = new int[2 * numVertices];
-        final int[] attractiveForces = new int[2 * numVertices];
-        final float[] displacements = new float[2 * numVertices];
-        final int[] edges = new int[2 * numEdges];
-        final float[] weights = new float[numEdges];
-
-        final Map<V, Integer> vertexIndexMap = new HashMap<>();
-        int idx = 0;
-        for (final V v : graph.vertexSet()) {
-            vertexIndexMap.put(v, idx);
-            positions[2 * idx] = random.nextInt(width);
-            positions[2 * idx + 1] = random.nextInt(height);
-            idx++;
-        }
-
-        idx = 0;
-        final Map<E, Double> normalizedWeights = edgeWeightNormalizer.normalizeEdgeWeights(graph);
-        for (final E e : graph.edgeSet()) {
-            final V from = graph.getEdgeSource(e);
-            final V to = graph.getEdgeTarget(e);
-            edges[2 * idx] = vertexIndexMap.get(from);
-            edges[2 * idx + 1] = vertexIndexMap.get(to);
-            weights[idx] = normalizedWeights.get(e).floatValue();
-            idx++;
-        }
-
-        final cl_mem positionsMem = clCreateBuffer(context, CL_MEM_READ_WRITE | CL_MEM_COPY_HOST_PTR, Sizeof.cl_float * 2 * numVertices, Pointer.to(positions), null);
-        final cl_mem repulsiveForcesMem = clCreateBuffer(context, CL_MEM_READ_WRITE | CL_MEM_COPY_HOST_PTR, Sizeof.cl_int * 2 * numVertices, Pointer.to(repulsiveForces), null);
-        final cl_mem attractiveForcesMem = clCreateBuffer(context, CL_MEM_READ_WRITE | CL_MEM_COPY_HOST_PTR, Sizeof.cl_int * 2 * numVertices, Pointer.to(attractiveForces), null);
-        final cl_mem displacementsMem = clCreateBuffer(context, CL_MEM_READ_WRITE | CL_MEM_COPY_HOST_PTR, Sizeof.cl_float * 2 * numVertices, Pointer.to(displacements), null);
-        final cl_mem edgesMem = clCreateBuffer(context, CL_MEM_READ_ONLY | CL_MEM_COPY_HOST_PTR, Sizeof.cl_int * 2 * numEdges, Pointer.to(edges), null);
-        final cl_mem weightsMem = clCreateBuffer(context, CL_MEM_READ_ONLY | CL_MEM_COPY_HOST_PTR, Sizeof.cl_float * numEdges, Pointer.to(weights), null);
+        /**
+         * Enqueues the readback of the positions after the iteration that has just been enqueued.
+         *
+         * @param iteration the iteration.
+         */
+        private void request(final int iteration) {
+            final int slot = next;
+            renderPending(slot);
+            if (buffers[slot] == null) {
+                // direct memory, the device writes into it asynchronously
+                buffers[slot] = ByteBuffer.allocateDirect(Sizeof.cl_float * 2 * indexedGraph.vertexCount())
+                        .order(ByteOrder.nativeOrder())
+                        .asFloatBuffer();
+            }
+            events[slot] = new cl_event();
+            iterations[slot] = iteration;
+            clEnqueueReadBuffer(commandQueue, positionsMem, CL_FALSE, 0, Sizeof.cl_float * 2L * indexedGraph.vertexCount(), Pointer.to(buffers[slot]), 0, null, events[slot]);
+            clFlush(commandQueue);
+            next = 1 - slot;
+        }
 
-        final double optimalDistance = Math.sqrt((width * height) / numVertices) / 2;
-        float temperature = 50f;
-
-        final TimeWatch tw = TimeWatch.start();
-        for (int i = 0; i < iterations; i++) {
-            tw.reset();
-
-            // Zero out repulsiveForces and attractiveForces
-            Arrays.fill(repulsiveForces, 0);
-            Arrays.fill(attractiveForces, 0);
-            clEnqueueWriteBuffer(commandQueue, repulsiveForcesMem, CL_TRUE, 0, Sizeof.cl_int * 2 * numVertices, Pointer.to(repulsiveForces), 0, null, null);
-            clEnqueueWriteBuffer(commandQueue, attractiveForcesMem, CL_TRUE, 0, Sizeof.cl_int * 2 * numVertices, Pointer.to(attractiveForces), 0, null, null);
-
-            // Calculate repulsive forces
-            clSetKernelArg(kernelRepulsive, 0, Sizeof.cl_mem, Pointer.to(positionsMem));
-            clSetKernelArg(kernelRepulsive, 1, Sizeof.cl_mem, Pointer.to(repulsiveForcesMem));
-            clSetKernelArg(kernelRepulsive, 2, Sizeof.cl_int, Pointer.to(new int[]{numVertices}));
-            clSetKernelArg(kernelRepulsive, 3, Sizeof.cl_float, Pointer.to(new float[]{(float) optimalDistance}));
-            clSetKernelArg(kernelRepulsive, 4, Sizeof.cl_float, Pointer.to(new float[]{C}));
-            clEnqueueNDRangeKernel(commandQueue, kernelRepulsive, 1, null, new long[]{numVertices}, null, 0, null, null);
-
-            // Calculate attractive forces
-            clSetKernelArg(kernelAttractive, 0, Sizeof.cl_mem, Pointer.to(positionsMem));
-            clSetKernelArg(kernelAttractive, 1, Sizeof.cl_mem, Pointer.to(attractiveForcesMem));
-            clSetKernelArg(kernelAttractive, 2, Sizeof.cl_mem, Pointer.to(edgesMem));
-            clSetKernelArg(kernelAttractive, 3, Sizeof.cl_mem, Pointer.to(weightsMem));
-            clSetKernelArg(kernelAttractive, 4, Sizeof.cl_int, Pointer.to(new int[]{numEdges}));
-            clSetKernelArg(kernelAttractive, 5, Sizeof.cl_int, Pointer.to(new int[]{numVertices}));
-            clSetKernelArg(kernelAttractive, 6, Sizeof.cl_float, Pointer.to(new float[]{(float) optimalDistance}));
-            clSetKernelArg(kernelAttractive, 7, Sizeof.cl_float, Pointer.to(new float[]{C}));
-            clEnqueueNDRangeKernel(commandQueue, kernelAttractive, 1, null, new long[]{numEdges}, null, 0, null, null);
-
-            // Summarize forces
-            clSetKernelArg(kernelSummarize, 0, Sizeof.cl_mem, Pointer.to(repulsiveForcesMem));
-            clSetKernelArg(kernelSummarize, 1, Sizeof.cl_mem, Pointer.to(attractiveForcesMem));
-            clSetKernelArg(kernelSummarize, 2, Sizeof.cl_mem, Pointer.to(displacementsMem));
-            clSetKernelArg(kernelSummarize, 3, Sizeof.cl_int, Pointer.to(new int[]{numVertices}));
-            clEnqueueNDRangeKernel(commandQueue, kernelSummarize, 1, null, new long[]{numVertices}, null, 0, null, null);
-
-            // Update positions
-            clSetKernelArg(kernelUpdate, 0, Sizeof.cl_mem, Pointer.to(positionsMem));
-            clSetKernelArg(kernelUpdate, 1, Sizeof.cl_mem, Pointer.to(displacementsMem));
-            clSetKernelArg(kernelUpdate, 2, Sizeof.cl_int, Pointer.to(new int[]{numVertices}));
-            clSetKernelArg(kernelUpdate, 3, Sizeof.cl_float, Pointer.to(new float[]{temperature}));
-            clSetKernelArg(kernelUpdate, 4, Sizeof.cl_int, Pointer.to(new int[]{width}));
-            clSetKernelArg(kernelUpdate, 5, Sizeof.cl_int, Pointer.to(new int[]{height}));
-            clEnqueueNDRangeKernel(commandQueue, kernelUpdate, 1, null, new long[]{numVertices}, null, 0, null, null);
-
-            // Call the callback before changing the temperature
-            clEnqueueReadBuffer(commandQueue, positionsMem, CL_TRUE, 0, Sizeof.cl_float * 2 * numVertices, Pointer.to(positions), 0, null, null);
-            final Map<V, Vector2D> positionsMap = new HashMap<>();
-            for (final Map.Entry<V, Integer> entry : vertexIndexMap.entrySet()) {
-                final V v = entry.getKey();
-                idx = entry.getValue();
-                positionsMap.put(v, new Vector2D(positions[2 * idx], positions[2 * idx + 1]));
+        /**
+         * Renders the frames that are still pending, the older one first.
+         */
+        private void finish() {
+            renderPending(next);
+            renderPending(1 - next);
+        }
+
+        /**
+         * Waits for the outstanding reads without rendering them, so the buffers can be dropped.
+         */
+        private void release() {
+            for (int slot = 0; slot < 2; slot++) {
+                if (events[slot] != null) {
+                    clWaitForEvents(1, new cl_event[]{events[slot]});
+                    clReleaseEvent(events[slot]);
+                    events[slot] = null;
+                }
             }
-            logger.debug("Iteration {} took {}.", i, tw.toMilliSeconds());
-            callback.render(graph, i, positionsMap);
+        }
 
-            // Decrease temperature
-            temperature = Math.max(1.5f, temperature * 0.95f);
+        private void renderPending(final int slot) {
+            if (events[slot] == null) {
+                return;
+            }
+            final long waitStart = System.nanoTime();
+            clWaitForEvents(1, new cl_event[]{events[slot]});
+            clReleaseEvent(events[slot]);
+            events[slot] = null;
+            final long renderStart = System.nanoTime();
+            metricsListener.phaseCompleted(LayoutPhase.TRANSFER, renderStart - waitStart);
+
+            final FloatBuffer buffer = buffers[slot];
+            final Map<V, Vector2D> positionMap = new HashMap<>();
+            for (int v = 0; v < indexedGraph.vertexCount(); v++) {
+                positionMap.put(indexedGraph.vertex(v), new Vector2D(buffer.get(2 * v), buffer.get(2 * v + 1)));
+            }
+            callback.render(graph, iterations[slot], positionMap);
+            metricsListener.phaseCompleted(LayoutPhase.RENDER, System.nanoTime() - renderStart);
         }
-        callback.finish();
+    }
 
-        // Read final positions from the device
-        clEnqueueReadBuffer(commandQueue, positionsMem, CL_TRUE, 0, Sizeof.cl_float * 2 * numVertices, Pointer.to(positions), 0, null, null);
+    /**
+     * Reports the device time of the force and update kernels from their profiling events.
+     * <p>
+     * Waiting for the events right after enqueuing them would stall the pipeline, so the events of an
+     * iteration are only evaluated when the next iteration has been enqueued, or at the end of the layout.
+     */
+    private final class KernelTimer {
 
-        final Map<V, Vector2D> result = new HashMap<>();
-        for (final Map.Entry<V, Integer> entry : vertexIndexMap.entrySet()) {
-            final V v = entry.getKey();
-            idx = entry.getValue();
-            result.put(v, new Vector2D(positions[2 * idx], positions[2 * idx + 1]));
-        }
-
-        // Release OpenCL resources
-        clReleaseMemObject(positionsMem);
-        clReleaseMemObject(repulsiveForcesMem);
-        clReleaseMemObject(attractiveForcesMem);
-        clReleaseMemObject(displacementsMem);
-        clReleaseMemObject(edgesMem);
-        clReleaseMemObject(weightsMem);
-        clReleaseKernel(kernelRepulsive);
-        clReleaseKernel(kernelAttractive);
-        clReleaseKernel(kernelUpdate);
-        clReleaseKernel(kernelSummarize);
-        clReleaseProgram(program);
-        clReleaseCommandQueue(commandQueue);
-        clReleaseContext(context);
+        private static final LayoutPhase[] PHASES = {LayoutPhase.REPULSION, LayoutPhase.ATTRACTION, LayoutPhase.UPDATE};
+
+        private final long[] start = new long[1];
+        private final long[] end = new long[1];
+        private cl_event[] pending;
+
+        private cl_event[] newEvents() {
+            return new cl_event[]{new cl_event(), new cl_event(), new cl_event()};
+        }
+
+        /**
+         * Reports the kernels of the previous iteration and keeps the events of the current one.
+         *
+         * @param events the events of the kernels that have just been enqueued.
+         */
+        private void submitted(final cl_event[] events) {
+            finish();
+            pending = events;
+        }
+
+        private void finish() {
+            if (pending == null) {
+                return;
+            }
+            clWaitForEvents(pending.length, pending);
+            for (int k = 0; k < pending.length; k++) {
+                clGetEventProfilingInfo(pending[k], CL_PROFILING_COMMAND_START, Sizeof.cl_ulong, Pointer.to(start), null);
+                clGetEventProfilingInfo(pending[k], CL_PROFILING_COMMAND_END, Sizeof.cl_ulong, Pointer.to(end), null);
+                metricsListener.phaseCompleted(PHASES[k], end[0] - start[0]);
+            }
+            release();
+        }
+
+        private void release() {
+            if (pending != null) {
+                for (final cl_event event : pending) {
+                    clReleaseEvent(event);
+                }
+                pending = null;
+            }
+        }
+    }
 
+    private Map<V, Vector2D> toPositionMap(final IndexedGraph<V> indexedGraph, final float[] positions) {
+        final Map<V, Vector2D> result = new HashMap<>();
+        for (int v = 0; v < indexedGraph.vertexCount(); v++) {
+            result.put(indexedGraph.vertex(v), new Vector2D(positions[2 * v], positions[2 * v + 1]));
+        }
         return result;
     }
 }
@@ -0,0 +1,561 @@
+package eu.virtualparadox.springembedder.layouter;
+
+import eu.virtualparadox.springembedder.EdgeWeightTable;
+import eu.virtualparadox.springembedder.TimeWatch;
+import eu.virtualparadox.springembedder.Vector2D;
+import eu.virtualparadox.springembedder.engine.FruchtermanReingoldEngine;
+import eu.virtualparadox.springembedder.engine.IndexedGraph;
+import eu.virtualparadox.springembedder.engine.LayoutState;
+import eu.virtualparadox.springembedder.engine.RepulsionKernel;
+import eu.virtualparadox.springembedder.renderercallback.AbstractRendererCallback;
+import eu.virtualparadox.springembedder.renderercallback.NoOpRendererCallback;
+import org.jgrapht.Graph;
+import org.jgrapht.ListenableGraph;
+import org.jgrapht.event.GraphEdgeChangeEvent;
+import org.jgrapht.event.GraphListener;
+import org.jgrapht.event.GraphVertexChangeEvent;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Layouter for graphs that change a few vertices and edges at a time.
+ * <p>
+ * After an initial {@link #layout}, {@link #relayout} warm-starts from the previous positions and only
+ * relaxes the neighborhood of the changed vertices for a few low-temperature iterations, keeping every
+ * other vertex and all pinned vertices in place. {@link #attach} subscribes to a {@link ListenableGraph}
+ * and relaxes the layout after every change. The indexed graph and the positions of an attached graph
+ * are kept across changes and modified in place, so a change costs the relaxation of its neighborhood
+ * instead of indexing the whole graph again.
+ * <p>
+ * A vertex added without edges is placed at random until its first edge arrives, it is then moved next
+ * to its neighbors. The relaxations follow the {@link #setCoolingSchedule cooling schedule} from the relax
+ * temperature on and stop early once the {@link #setConvergenceCriterion convergence criterion} is met.
+ * The renderer callback is only used by the full {@link #layout}.
+ *
+ * @param <V> Type of the vertices in the graph.
+ * @param <E> Type of the edges in the graph.
+ */
+public class IncrementalLayouter<V, E> extends FruchtermanReingoldLayouter<V, E> {
+
+    /**
+     * Default number of hops around a changed vertex that are relaxed.
+     */
+    public static final int DEFAULT_NEIGHBORHOOD_DEPTH = 2;
+
+    /**
+     * Default number of iterations of a relaxation.
+     */
+    public static final int DEFAULT_RELAX_ITERATIONS = 20;
+
+    /**
+     * Default start temperature of a relaxation, capped by the initial temperature of the cooling schedule.
+     */
+    public static final double DEFAULT_RELAX_TEMPERATURE = 5;
+
+    private final int neighborhoodDepth;
+    private final int relaxIterations;
+    private final double relaxTemperature;
+    private final Set<V> pinned = new HashSet<>();
+    private final Set<V> pendingChanges = new LinkedHashSet<>();
+    // vertices without edges, and so without a meaningful position yet
+    private final Set<V> floating = new LinkedHashSet<>();
+    private final Map<V, Vector2D> positions = new HashMap<>();
+
+    // the indexed form of indexedSource, modified in place by the events of the attached graph
+    private Graph<V, E> indexedSource;
+    private IndexedGraph<V> index;
+    private LayoutState state;
+    private RepulsionKernel relaxKernel;
+    private final List<E> edges = new ArrayList<>();
+    private final Map<E, Integer> edgeIds = new HashMap<>();
+    private boolean weighted;
+    private double[] rawWeights = new double[0];
+    private boolean weightsChanged;
+
+    // scratch of the neighborhood search, depth is -1 for every vertex between two searches
+    private int[] depth = new int[0];
+    private int[] queue = new int[0];
+
+    private ListenableGraph<V, E> attachedGraph;
+    private GraphListener<V, E> listener;
+    private boolean relaxOnChange;
+
+    /**
+     * Constructor for the IncrementalLayouter.
+     *
+     * @param width             Width of the layout area.
+     * @param height            Height of the layout area.
+     * @param callback          Callback to render the full layout at each iteration.
+     * @param repulsionMode     Strategy for computing the repulsive forces.
+     * @param neighborhoodDepth Number of hops around a changed vertex that are relaxed.
+     * @param relaxIterations   Number of iterations of a relaxation.
+     * @param relaxTemperature  Start temperature of a relaxation, capped by the initial temperature of the cooling schedule.
+     */
+    public IncrementalLayouter(final int width,
+                               final int height,
+                               final AbstractRendererCallback<V, E> callback,
+                               final RepulsionMode repulsionMode,
+                               final int neighborhoodDepth,
+                               final int relaxIterations,
+                               final double relaxTemperature) {
+        super(width, height, callback, repulsionMode);
+        this.neighborhoodDepth = neighborhoodDepth;
+        this.relaxIterations = relaxIterations;
+        this.relaxTemperature = relaxTemperature;
+    }
+
+    /**
+     * Constructor for the IncrementalLayouter, using grid repulsion so a relaxation only visits the
+     * vertices near the changed ones.
+     *
+     * @param width    Width of the layout area.
+     * @param height   Height of the layout area.
+     * @param callback Callback to render the full layout at each iteration.
+     */
+    public IncrementalLayouter(final int width,
+                               final int height,
+                               final AbstractRendererCallback<V, E> callback) {
+        this(width, height, callback, RepulsionMode.GRID,
+                DEFAULT_NEIGHBORHOOD_DEPTH, DEFAULT_RELAX_ITERATIONS, DEFAULT_RELAX_TEMPERATURE);
+    }
+
+    /**
+     * Constructor for the IncrementalLayouter, using grid repulsion.
+     *
+     * @param width  Width of the layout area.
+     * @param height Height of the layout area.
+     */
+    public IncrementalLayouter(final int width,
+                               final int height) {
+        this(width, height, new NoOpRendererCallback<>());
+    }
+
+    /**
+     * Performs a full layout from random positions and remembers the result as the base of later relaxations.
+     *
+     * @param graph      The graph to layout.
+     * @param iterations Number of iterations to perform.
+     * @return The final positions of the nodes.
+     */
+    @Override
+    public synchronized Map<V, Vector2D> layout(final Graph<V, E> graph,
+                                                final int iterations) {
+        final FruchtermanReingoldEngine<V> engine = anneal(IndexedGraph.of(graph, prepareEdgeWeights(graph)), iterations, graph);
+        index(graph, engine.getGraph(), engine.getState());
+        final Map<V, Vector2D> result = engine.toPositionMap();
+        positions.putAll(result);
+        return result;
+    }
+
+    /**
+     * Relaxes the neighborhood of the changed vertices, starting from the given positions.
+     * Vertices without a previous position start next to their positioned neighbors.
+     * <p>
+     * The graph is indexed anew, which costs O(n + m); changes of an {@link #attach attached} graph
+     * are applied to the kept index instead.
+     *
+     * @param graph      The current graph.
+     * @param previous   The previous positions, may miss new vertices and contain removed ones.
+     * @param pinned     Vertices which must not move.
+     * @param changed    Vertices whose edges or existence changed.
+     * @param iterations Number of iterations to perform.
+     * @return The new positions of all vertices of the graph.
+     */
+    public synchronized Map<V, Vector2D> relayout(final Graph<V, E> graph,
+                                                  final Map<V, Vector2D> previous,
+                                                  final Set<V> pinned,
+                                                  final Collection<V> changed,
+                                                  final int iterations) {
+        reindex(graph, previous);
+        relax(changed, pinned, iterations);
+        return new HashMap<>(positions);
+    }
+
+    /**
+     * Subscribes to the given graph and relaxes the layout after every change, starting from the
+     * current positions. A previously attached graph is detached.
+     *
+     * @param graph  The graph to follow.
+     * @param pinned Vertices which must not move.
+     */
+    public synchronized void attach(final ListenableGraph<V, E> graph,
+                                    final Set<V> pinned) {
+        detach();
+        if (indexedSource != graph) {
+            reindex(graph, new HashMap<>(positions));
+        }
+        this.pinned.clear();
+        this.pinned.addAll(pinned);
+        this.attachedGraph = graph;
+        this.listener = new ChangeListener();
+        this.relaxOnChange = true;
+        graph.addGraphListener(listener);
+    }
+
+    /**
+     * Stops following the attached graph, if any.
+     */
+    public synchronized void detach() {
+        if (attachedGraph != null) {
+            attachedGraph.removeGraphListener(listener);
+            attachedGraph = null;
+            listener = null;
+        }
+        pendingChanges.clear();
+    }
+
+    /**
+     * Runs the given batch of modifications on the attached graph and relaxes the layout once afterwards,
+     * instead of after every single change.
+     *
+     * @param modifications The modifications of the attached graph.
+     * @return The positions of all vertices of the graph, see {@link #getPositions()}.
+     */
+    public synchronized Map<V, Vector2D> batch(final Runnable modifications) {
+        if (attachedGraph == null) {
+            throw new IllegalStateException("No graph attached");
+        }
+        relaxOnChange = false;
+        try {
+            modifications.run();
+        } finally {
+            relaxOnChange = true;
+        }
+        return relaxPendingChanges();
+    }
+
+    /**
+     * Returns the positions of the latest layout or relaxation. The map is a read-only view that follows
+     * the later relaxations, copy it to keep a snapshot.
+     *
+     * @return The positions of the nodes.
+     */
+    public synchronized Map<V, Vector2D> getPositions() {
+        return Collections.unmodifiableMap(positions);
+    }
+
+    /**
+     * Keeps the given index and state as the base of later relaxations.
+     */
+    private void index(final Graph<V, E> graph,
+                       final IndexedGraph<V> indexedGraph,
+                       final LayoutState layoutState) {
+        indexedSource = graph;
+        index = indexedGraph;
+        state = layoutState;
+        relaxKernel = createRepulsionKernel();
+        edges.clear();
+        edgeIds.clear();
+        edges.addAll(graph.edgeSet());
+        for (int e = 0; e < edges.size(); e++) {
+            edgeIds.put(edges.get(e), e);
+        }
+        weighted = graph.getType().isWeighted();
+        rawWeights = new double[weighted ? edges.size() : 0];
+        for (int e = 0; e < rawWeights.length; e++) {
+            rawWeights[e] = graph.getEdgeWeight(edges.get(e));
+        }
+        weightsChanged = false;
+        positions.clear();
+        floating.clear();
+    }
+
+    /**
+     * Indexes a graph from scratch, with the given positions. Vertices without a position are floating.
+     */
+    private void reindex(final Graph<V, E> graph,
+                         final Map<V, Vector2D> previous) {
+        final IndexedGraph<V> indexedGraph = IndexedGraph.of(graph, EdgeWeightTable.of(graph, weightCurve));
+        index(graph, indexedGraph, new LayoutState(indexedGraph.vertexCount()));
+        for (int v = 0; v < indexedGraph.vertexCount(); v++) {
+            final V vertex = indexedGraph.vertex(v);
+            final Vector2D position = previous.get(vertex);
+            if (position != null) {
+                state.getX()[v] = position.getX();
+                state.getY()[v] = position.getY();
+                positions.put(vertex, position);
+            } else {
+                placeAtRandom(v);
+                floating.add(vertex);
+            }
+        }
+    }
+
+    /**
+     * Relaxes the neighborhood of the changed vertices in place.
+     */
+    private void relax(final Collection<V> changed,
+                       final Set<V> pinned,
+                       final int iterations) {
+        final TimeWatch tw = TimeWatch.start();
+        if (weightsChanged) {
+            normalizeWeights();
+        }
+        final Set<V> seeds = new LinkedHashSet<>(changed);
+        placeFloatingVertices(seeds);
+
+        final int n = index.vertexCount();
+        final FruchtermanReingoldEngine<V> engine = FruchtermanReingoldEngine.warmStart(index, width, height, relaxKernel, state);
+        final int activeCount = collectNeighborhood(seeds, pinned);
+        metricsListener.layoutStarted(n, index.edgeCount());
+        final double temperature = Math.max(coolingSchedule.getMinTemperature(), Math.min(coolingSchedule.initialTemperature(), relaxTemperature));
+        // only the neighborhood moves, so the energy of the other vertices is left out
+        final int i = anneal(temperature, 0, activeCount > 0 ? iterations : 0,
+                (iteration, t) -> engine.step(t, queue, activeCount), () -> activeEnergy(engine, activeCount), IterationHook.NONE);
+        lastIterationCount = i;
+        metricsListener.layoutFinished(i, tw.time());
+
+        for (int k = 0; k < activeCount; k++) {
+            updatePosition(queue[k]);
+        }
+        logger.debug("Relaxed {} of {} vertices in {} ms", activeCount, n, tw.time(TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Returns the energy of the active vertices, the others did not accumulate forces in this iteration.
+     */
+    private double activeEnergy(final FruchtermanReingoldEngine<V> engine,
+                                final int activeCount) {
+        double energy = 0;
+        for (int k = 0; k < activeCount; k++) {
+            energy += engine.energy(queue[k], queue[k] + 1);
+        }
+        return energy;
+    }
+
+    private synchronized void onVertexAdded(final V vertex) {
+        // the edges follow in their own events, the vertex is placed next to its neighbors when they arrive
+        final int id = index.addVertex(vertex);
+        state.setSize(index.vertexCount());
+        placeAtRandom(id);
+        floating.add(vertex);
+        pendingChanges.add(vertex);
+    }
+
+    private synchronized void onVertexRemoved(final V vertex) {
+        // the incident edges have been reported before, their endpoints cover the neighborhood
+        final int id = index.idOf(vertex);
+        final int last = index.vertexCount() - 1;
+        index.removeVertex(id);
+        state.getX()[id] = state.getX()[last];
+        state.getY()[id] = state.getY()[last];
+        state.setSize(last);
+        pendingChanges.remove(vertex);
+        floating.remove(vertex);
+        positions.remove(vertex);
+    }
+
+    private synchronized void onEdgeAdded(final E edge, final V source, final V target) {
+        // the weights of a weighted graph are normalized again before the next relaxation
+        final int id = index.addEdge(index.idOf(source), index.idOf(target), 1.0);
+        edges.add(edge);
+        edgeIds.put(edge, id);
+        if (weighted) {
+            if (rawWeights.length == id) {
+                rawWeights = Arrays.copyOf(rawWeights, Math.max(id + 1, id + (id >> 1)));
+            }
+            rawWeights[id] = attachedGraph.getEdgeWeight(edge);
+            weightsChanged = true;
+        }
+        onChange(source, target);
+    }
+
+    private synchronized void onEdgeRemoved(final E edge, final V source, final V target) {
+        final int id = edgeIds.remove(edge);
+        final int last = edges.size() - 1;
+        index.removeEdge(id);
+        if (id != last) {
+            final E moved = edges.get(last);
+            edges.set(id, moved);
+            edgeIds.put(moved, id);
+            if (weighted) {
+                rawWeights[id] = rawWeights[last];
+            }
+        }
+        edges.remove(last);
+        weightsChanged = weighted;
+        onChange(source, target);
+    }
+
+    private void onChange(final V source, final V target) {
+        pendingChanges.add(source);
+        pendingChanges.add(target);
+        if (relaxOnChange) {
+            relaxPendingChanges();
+        }
+    }
+
+    private Map<V, Vector2D> relaxPendingChanges() {
+        relax(pendingChanges, pinned, relaxIterations);
+        pendingChanges.clear();
+        return getPositions();
+    }
+
+    /**
+     * Normalizes the raw weights of all edges again, as an added or removed edge may have changed their range.
+     */
+    private void normalizeWeights() {
+        final double[] normalized = EdgeWeightTable.ofRawWeights(Arrays.copyOf(rawWeights, edges.size()), weightCurve).getWeights();
+        for (int e = 0; e < normalized.length; e++) {
+            if (normalized[e] != index.edgeWeight(e)) {
+                index.setEdgeWeight(e, normalized[e]);
+            }
+        }
+        weightsChanged = false;
+    }
+
+    /**
+     * Places every floating vertex that has edges at the mean position of its placed neighbors, with a small
+     * offset so that it does not sit on top of a neighbor. A new component without any placed vertex starts
+     * at a random position. Isolated vertices keep floating.
+     *
+     * @param seeds receives the placed vertices.
+     */
+    private void placeFloatingVertices(final Set<V> seeds) {
+        final double[] x = state.getX();
+        final double[] y = state.getY();
+        final double jitter = FruchtermanReingoldEngine.calcOptimalDistance(width, height, index.vertexCount());
+
+        boolean progress = !floating.isEmpty();
+        while (progress) {
+            progress = false;
+            for (final Iterator<V> it = floating.iterator(); it.hasNext(); ) {
+                final V vertex = it.next();
+                final int v = index.idOf(vertex);
+                final int[] offsets = index.getOffsets();
+                final int[] neighbors = index.getNeighbors();
+                double sumX = 0;
+                double sumY = 0;
+                int count = 0;
+                for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+                    final int u = neighbors[k];
+                    if (u != v && !floating.contains(index.vertex(u))) {
+                        sumX += x[u];
+                        sumY += y[u];
+                        count++;
+                    }
+                }
+                if (count > 0) {
+                    x[v] = Math.max(0, Math.min(width, sumX / count + (random.nextDouble() - 0.5) * jitter));
+                    y[v] = Math.max(0, Math.min(height, sumY / count + (random.nextDouble() - 0.5) * jitter));
+                    it.remove();
+                    seeds.add(vertex);
+                    updatePosition(v);
+                    progress = true;
+                }
+            }
+            if (!progress) {
+                for (final Iterator<V> it = floating.iterator(); it.hasNext(); ) {
+                    final V vertex = it.next();
+                    final int v = index.idOf(vertex);
+                    if (index.getOffsets()[v] != index.getOffsets()[v + 1]) {
+                        // its random position becomes the anchor of its component
+                        it.remove();
+                        seeds.add(vertex);
+                        progress = true;
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    private void placeAtRandom(final int v) {
+        state.getX()[v] = random.nextInt(width);
+        state.getY()[v] = random.nextInt(height);
+        updatePosition(v);
+    }
+
+    private void updatePosition(final int v) {
+        positions.put(index.vertex(v), new Vector2D(state.getX()[v], state.getY()[v]));
+    }
+
+    /**
+     * Collects the vertices within {@link #neighborhoodDepth} hops of the seeds, except the pinned ones,
+     * into the first entries of {@link #queue}.
+     *
+     * @return the number of collected vertices.
+     */
+    private int collectNeighborhood(final Collection<V> seeds,
+                                    final Set<V> pinned) {
+        final int n = index.vertexCount();
+        if (depth.length < n) {
+            final int previousLength = depth.length;
+            depth = Arrays.copyOf(depth, Math.max(n, previousLength + (previousLength >> 1)));
+            Arrays.fill(depth, previousLength, depth.length, -1);
+            queue = new int[depth.length];
+        }
+        final int[] offsets = index.getOffsets();
+        final int[] neighbors = index.getNeighbors();
+        int head = 0;
+        int tail = 0;
+
+        for (final V seed : seeds) {
+            final int v = index.idOf(seed);
+            if (v >= 0 && depth[v] == -1) {
+                depth[v] = 0;
+                queue[tail++] = v;
+            }
+        }
+        while (head < tail) {
+            final int v = queue[head++];
+            if (depth[v] == neighborhoodDepth) {
+                continue;
+            }
+            for (int k = offsets[v]; k < offsets[v + 1]; k++) {
+                final int u = neighbors[k];
+                if (depth[u] == -1) {
+                    depth[u] = depth[v] + 1;
+                    queue[tail++] = u;
+                }
+            }
+        }
+
+        int count = 0;
+        for (int k = 0; k < tail; k++) {
+            final int v = queue[k];
+            depth[v] = -1;
+            if (!pinned.contains(index.vertex(v))) {
+                queue[count++] = v;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Translates the graph events into changes of the index.
+     */
+    private final class ChangeListener implements GraphListener<V, E> {
+
+        @Override
+        public void edgeAdded(final GraphEdgeChangeEvent<V, E> e) {
+            onEdgeAdded(e.getEdge(), e.getEdgeSource(), e.getEdgeTarget());
+        }
+
+        @Override
+        public void edgeRemoved(final GraphEdgeChangeEvent<V, E> e) {
+            onEdgeRemoved(e.getEdge(), e.getEdgeSource(), e.getEdgeTarget());
+        }
+
+        @Override
+        public void vertexAdded(final GraphVertexChangeEvent<V> e) {
+            onVertexAdded(e.getVertex());
+        }
+
+        @Override
+        public void vertexRemoved(final GraphVertexChangeEvent<V> e) {
+            onVertexRemoved(e.getVertex());
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package eu.virtualparadox.springembedder.layouter;
+
+import eu.virtualparadox.springembedder.opencl.OpenCLSession;
+import eu.virtualparadox.springembedder.renderercallback.AbstractRendererCallback;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * The layouters a {@link LayouterFactory} chooses from, with the growth of their iteration cost in the
+ * number of vertices that its {@link CostModel} is fitted to.
+ */
+public enum LayoutEngine {
+
+    /**
+     * {@link FruchtermanReingoldLayouter} with exact repulsion.
+     */
+    EXACT {
+        @Override
+        double vertexTerm(final int vertexCount) {
+            return (double) vertexCount * vertexCount;
+        }
+
+        @Override
+        <V, E> AbstractLayouter<V, E> create(final int width,
+                                             final int height,
+                                             final AbstractRendererCallback<V, E> callback,
+                                             final OpenCLSession session) {
+            return new FruchtermanReingoldLayouter<>(width, height, callback, RepulsionMode.EXACT);
+        }
+    },
+
+    /**
+     * {@link FruchtermanReingoldLayouter} with Barnes-Hut repulsion.
+     */
+    BARNES_HUT {
+        @Override
+        double vertexTerm(final int vertexCount) {
+            return nLogN(vertexCount);
+        }
+
+        @Override
+        <V, E> AbstractLayouter<V, E> create(final int width,
+                                             final int height,
+                                             final AbstractRendererCallback<V, E> callback,
+                                             final OpenCLSession session) {
+            return new FruchtermanReingoldLayouter<>(width, height, callback, RepulsionMode.BARNES_HUT);
+        }
+    },
+
+    /**
+     * {@link ParallelFruchtermanReingoldLayouter} with Barnes-Hut repulsion on the common pool.
+     */
+    PARALLEL_BARNES_HUT {
+        @Override
+        double vertexTerm(final int vertexCount) {
+            return nLogN(vertexCount);
+        }
+
+        @Override
+        <V, E> AbstractLayouter<V, E> create(final int width,
+                                             final int height,
+                                             final AbstractRendererCallback<V, E> callback,
+                                             final OpenCLSession session) {
+            return new ParallelFruchtermanReingoldLayouter<>(width, height, callback,
+                    ForkJoinPool.commonPool(), RepulsionMode.BARNES_HUT, FruchtermanReingoldLayouter.DEFAULT_THETA);
+        }
+    },
+
+    /**
+     * {@link FruchtermanReingoldLayouterOpenCL} on the session of the factory.
+     */
+    OPENCL {
+        @Override
+        double vertexTerm(final int vertexCount) {
+            return (double) vertexCount * vertexCount;
+        }
+
+        @Override
+        <V, E> AbstractLayouter<V, E> create(final int width,
+                                             final int height,
+                                             final AbstractRendererCallback<V, E> callback,
+                                             final OpenCLSession session) {
+            if (session == null) {
+                throw new IllegalStateException("The OpenCL engine needs a session");
+            }
+            return new FruchtermanReingoldLayouterOpenCL<>(width, height, callback, session);
+        }
+    };
+
+    /**
+     * Returns how the cost of an iteration grows with the number of vertices, up to a constant factor.
+     *
+     * @param vertexCount the number of vertices.
+     * @return the vertex term of the cost model.
+     */
+    abstract double vertexTerm(int vertexCount);
+
+    /**
+     * Creates a layouter of this engine.
+     *
+     * @param width    Width of the layout area.
+     * @param height   Height of the layout area.
+     * @param callback Callback to render the layout at each iteration.
+     * @param session  The OpenCL session, only used by {@link #OPENCL}.
+     * @param <V>      Type of the vertices in the graph.
+     * @param <E>      Type of the edges in the graph.
+     * @return the layouter.
+     */
+    abstract <V, E> AbstractLayouter<V, E> create(int width,
+                                                  int height,
+                                                  AbstractRendererCallback<V, E> callback,
+                                                  OpenCLSession session);
+
+    private static double nLogN(final int vertexCount) {
+        return vertexCount * Math.log(Math.max(2, vertexCount)) / Math.log(2);
+    }
+}
@@ -0,0 +1,288 @@
+package eu.virtualparadox.springembedder.layouter;
+
+import eu.virtualparadox.springembedder.opencl.DeviceSelector;
+import eu.virtualparadox.springembedder.opencl.OpenCLSession;
+import eu.virtualparadox.springembedder.renderercallback.AbstractRendererCallback;
+import eu.virtualparadox.springembedder.renderercallback.NoOpRendererCallback;
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultWeightedEdge;
+import org.jgrapht.graph.DirectedWeightedPseudograph;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Creates the layouter that is predicted to be fastest for a graph on this machine.
+ * <p>
+ * The prediction comes from a {@link CostModel}, which is read from a cache file. If there is none, or it was
+ * measured on different hardware, every available {@link LayoutEngine} lays out a few small random graphs,
+ * which takes about a second, and the fitted model is written to the cache. Engines whose calibration
+ * failed are recorded in the cache as well, so they do not trigger a new calibration on the next start.
+ * The OpenCL engine is only available if an OpenCL session can be opened on the selected device; without
+ * an OpenCL runtime the factory silently chooses among the CPU engines. The parallel engine needs more
+ * than one processor.
+ * <p>
+ * The factory holds the OpenCL session shared by the layouters it creates until it is {@link #close() closed}.
+ */
+public class LayouterFactory implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(LayouterFactory.class);
+
+    /**
+     * The default cache file, in the home directory of the user.
+     */
+    public static final Path DEFAULT_CACHE_FILE = Paths.get(System.getProperty("user.home"), ".springembedder", "cost-model.properties");
+
+    // the calibration graphs: vertices and edges, including a dense one to separate the edge cost
+    private static final int[][] CALIBRATION_GRAPHS = {{200, 400}, {800, 1600}, {2000, 4000}, {800, 6400}};
+    // every graph is laid out with two iteration counts, the difference is the cost of the iterations
+    private static final int SHORT_RUN = 2;
+    private static final int LONG_RUN = 8;
+    private static final int CALIBRATION_SIZE = 640;
+
+    private final OpenCLSession session;
+    private final List<LayoutEngine> engines;
+    private final CostModel costModel;
+
+    /**
+     * Creates a factory with the model of the default cache file, running the OpenCL engine on the first device.
+     */
+    public LayouterFactory() {
+        this(DEFAULT_CACHE_FILE, DeviceSelector.any());
+    }
+
+    /**
+     * Creates a factory with the model of a cache file, calibrating and writing it if needed.
+     *
+     * @param cacheFile      The cache file of the cost model.
+     * @param deviceSelector Chooses the device of the OpenCL engine.
+     */
+    public LayouterFactory(final Path cacheFile,
+                           final DeviceSelector deviceSelector) {
+        this.session = openSession(deviceSelector);
+        this.engines = availableEngines(session != null);
+        final String fingerprint = fingerprint(session);
+        final CostModel cached = loadModel(cacheFile, fingerprint);
+        if (cached != null && cached.isCalibratedFor(engines)) {
+            this.costModel = cached;
+        } else {
+            this.costModel = calibrate(fingerprint);
+            try {
+                costModel.save(cacheFile);
+                logger.info("Saved the layout engine calibration to {}", cacheFile);
+            } catch (final IOException e) {
+                logger.warn("Failed to save the layout engine calibration to {}", cacheFile, e);
+            }
+        }
+    }
+
+    /**
+     * Creates a factory with a known model, e.g. one shared between factories.
+     *
+     * @param costModel The cost model.
+     * @param session   The OpenCL session of the OpenCL engine, or null to use the CPU engines only. It is
+     *                  closed with the factory.
+     */
+    public LayouterFactory(final CostModel costModel,
+                           final OpenCLSession session) {
+        this.session = session;
+        this.engines = availableEngines(session != null);
+        this.costModel = costModel;
+    }
+
+    private static OpenCLSession openSession(final DeviceSelector deviceSelector) {
+        try {
+            return new OpenCLSession(deviceSelector);
+        } catch (final RuntimeException | LinkageError e) {
+            // no ICD loader, no platform or no matching device
+            logger.info("OpenCL is not available, choosing among the CPU engines: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private static List<LayoutEngine> availableEngines(final boolean openCL) {
+        final List<LayoutEngine> result = new ArrayList<>(List.of(LayoutEngine.EXACT, LayoutEngine.BARNES_HUT));
+        if (Runtime.getRuntime().availableProcessors() > 1) {
+            result.add(LayoutEngine.PARALLEL_BARNES_HUT);
+        }
+        if (openCL) {
+            result.add(LayoutEngine.OPENCL);
+        }
+        return result;
+    }
+
+    private static String fingerprint(final OpenCLSession session) {
+        return "processors=" + Runtime.getRuntime().availableProcessors()
+                + ";arch=" + System.getProperty("os.arch")
+                + ";java=" + System.getProperty("java.specification.version")
+                + ";opencl=" + (session != null ? session.getDevice() : "none");
+    }
+
+    private static CostModel loadModel(final Path cacheFile, final String fingerprint) {
+        try {
+            final CostModel model = CostModel.load(cacheFile);
+            if (model != null && model.getFingerprint().equals(fingerprint)) {
+                return model;
+            }
+        } catch (final IOException | IllegalArgumentException e) {
+            logger.warn("Ignoring the unreadable layout engine calibration {}", cacheFile, e);
+        }
+        return null;
+    }
+
+    /**
+     * Measures every available engine on the calibration graphs and fits the cost model. An engine that
+     * fails, e.g. an OpenCL device that cannot build the kernels, is left out.
+     */
+    private CostModel calibrate(final String fingerprint) {
+        logger.info("Calibrating the layout engines {}", engines);
+        final List<Graph<Integer, DefaultWeightedEdge>> graphs = new ArrayList<>();
+        for (final int[] size : CALIBRATION_GRAPHS) {
+            graphs.add(randomGraph(size[0], size[1]));
+        }
+
+        final Map<LayoutEngine, double[]> setup = new EnumMap<>(LayoutEngine.class);
+        final Map<LayoutEngine, double[]> iteration = new EnumMap<>(LayoutEngine.class);
+        final Set<LayoutEngine> failed = EnumSet.noneOf(LayoutEngine.class);
+        for (final LayoutEngine engine : engines) {
+            try {
+                final double[][] setupFeatures = new double[graphs.size()][];
+                final double[] setupTimes = new double[graphs.size()];
+                final double[][] iterationFeatures = new double[graphs.size()][];
+                final double[] iterationTimes = new double[graphs.size()];
+                // warm up the JIT compiler and the device on the smallest graph
+                measure(engine, graphs.get(0), LONG_RUN);
+                for (int g = 0; g < graphs.size(); g++) {
+                    final int n = CALIBRATION_GRAPHS[g][0];
+                    final int m = CALIBRATION_GRAPHS[g][1];
+                    final long shortRun = measure(engine, graphs.get(g), SHORT_RUN);
+                    final long longRun = measure(engine, graphs.get(g), LONG_RUN);
+                    final double perIteration = Math.max(0, (double) (longRun - shortRun) / (LONG_RUN - SHORT_RUN));
+                    setupFeatures[g] = new double[]{1, n + m};
+                    setupTimes[g] = Math.max(0, shortRun - SHORT_RUN * perIteration);
+                    iterationFeatures[g] = new double[]{1, engine.vertexTerm(n), m};
+                    iterationTimes[g] = perIteration;
+                }
+                setup.put(engine, CostModel.fitNonNegative(setupFeatures, setupTimes));
+                iteration.put(engine, CostModel.fitNonNegative(iterationFeatures, iterationTimes));
+            } catch (final RuntimeException e) {
+                logger.warn("Leaving out the layout engine {}, its calibration failed", engine, e);
+                failed.add(engine);
+            }
+        }
+        if (setup.isEmpty()) {
+            throw new IllegalStateException("No layout engine could be calibrated");
+        }
+        return new CostModel(fingerprint, setup, iteration, failed);
+    }
+
+    private long measure(final LayoutEngine engine,
+                         final Graph<Integer, DefaultWeightedEdge> graph,
+                         final int iterations) {
+        final AbstractLayouter<Integer, DefaultWeightedEdge> layouter = engine.create(CALIBRATION_SIZE, CALIBRATION_SIZE,
+                new NoOpRendererCallback<>(), session);
+        final long start = System.nanoTime();
+        layouter.layout(graph, iterations);
+        return System.nanoTime() - start;
+    }
+
+    private static Graph<Integer, DefaultWeightedEdge> randomGraph(final int vertexCount, final int edgeCount) {
+        final Graph<Integer, DefaultWeightedEdge> graph = new DirectedWeightedPseudograph<>(DefaultWeightedEdge.class);
+        for (int v = 0; v < vertexCount; v++) {
+            graph.addVertex(v);
+        }
+        final Random random = new Random(1);
+        for (int e = 0; e < edgeCount; e++) {
+            graph.addEdge(random.nextInt(vertexCount), random.nextInt(vertexCount));
+        }
+        return graph;
+    }
+
+    /**
+     * Chooses the engine with the lowest predicted run time among the available ones.
+     *
+     * @param vertexCount the number of vertices.
+     * @param edgeCount   the number of edges.
+     * @param iterations  the number of iterations.
+     * @return the engine.
+     */
+    public LayoutEngine choose(final int vertexCount,
+                               final int edgeCount,
+                               final int iterations) {
+        LayoutEngine best = null;
+        double bestTime = Double.POSITIVE_INFINITY;
+        for (final LayoutEngine engine : engines) {
+            if (costModel.getEngines().contains(engine)) {
+                final double time = costModel.predict(engine, vertexCount, edgeCount, iterations);
+                if (time < bestTime) {
+                    best = engine;
+                    bestTime = time;
+                }
+            }
+        }
+        if (best == null) {
+            throw new IllegalStateException("The cost model covers none of the available engines " + engines);
+        }
+        return best;
+    }
+
+    /**
+     * Creates the layouter of the engine predicted to be fastest for a graph.
+     *
+     * @param graph      The graph to layout.
+     * @param iterations Number of iterations the graph will be laid out with.
+     * @param width      Width of the layout area.
+     * @param height     Height of the layout area.
+     * @param callback   Callback to render the layout at each iteration.
+     * @param <V>        Type of the vertices in the graph.
+     * @param <E>        Type of the edges in the graph.
+     * @return the layouter, which must not outlive the factory.
+     */
+    public <V, E> AbstractLayouter<V, E> create(final Graph<V, E> graph,
+                                                final int iterations,
+                                                final int width,
+                                                final int height,
+                                                final AbstractRendererCallback<V, E> callback) {
+        final LayoutEngine engine = choose(graph.vertexSet().size(), graph.edgeSet().size(), iterations);
+        logger.debug("Chose the {} engine for {} vertices and {} edges", engine, graph.vertexSet().size(), graph.edgeSet().size());
+        return engine.create(width, height, callback, session);
+    }
+
+    /**
+     * Returns the cost model.
+     *
+     * @return the cost model.
+     */
+    public CostModel getCostModel() {
+        return costModel;
+    }
+
+    /**
+     * Returns the engines available on this machine.
+     *
+     * @return the engines.
+     */
+    public List<LayoutEngine> getEngines() {
+        return engines;
+    }
+
+    /**
+     * Closes the OpenCL session, if there is one.
+     */
+    @Override
+    public void close() {
+        if (session != null) {
+            session.close();
+        }
+    }
+}
@@ -0,0 +1,364 @@
+package eu.virtualparadox.springembedder.layouter;
+
+import eu.virtualparadox.springembedder.Vector2D;
+import eu.virtualparadox.springembedder.engine.IndexedGraph;
+import eu.virtualparadox.springembedder.layouter.schedule.GeometricCoolingSchedule;
+import eu.virtualparadox.springembedder.metrics.LayoutPhase;
+import eu.virtualparadox.springembedder.opencl.DeviceSelector;
+import eu.virtualparadox.springembedder.opencl.OpenCLSession;
+import eu.virtualparadox.springembedder.opencl.OpenCLWorkspace;
+import eu.virtualparadox.springembedder.renderercallback.AbstractRendererCallback;
+import eu.virtualparadox.springembedder.renderercallback.NoOpRendererCallback;
+import org.jgrapht.Graph;
+import org.jocl.Pointer;
+import org.jocl.Sizeof;
+import org.jocl.cl_command_queue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.jocl.CL.*;
+
+/**
+ * Fruchterman-Reingold layouter splitting every iteration across several OpenCL devices.
+ * <p>
+ * Every device holds the positions of all vertices, but computes the forces and updates the positions of
+ * its own slice of the vertices only, using a global work offset, so the kernels are the same as those of
+ * the {@link FruchtermanReingoldLayouterOpenCL}. After every iteration the host reads the slices back and
+ * writes each device the slices of the others, so all devices start the next iteration from the same
+ * positions. The slices are sized in proportion to the compute units of the devices unless
+ * {@link #setDeviceWeights(double...) weights} are given.
+ * <p>
+ * Every device runs on an {@link OpenCLSession} of its own, as contexts cannot span platforms; the same
+ * device may appear more than once. A layouter created with a {@link DeviceSelector} opens a session per
+ * matching device and closes them in {@link #close()}.
+ *
+ * @param <V> Type of the vertices in the graph.
+ * @param <E> Type of the edges in the graph.
+ */
+public class MultiDeviceFruchtermanReingoldLayouterOpenCL<V, E> extends AbstractLayouter<V, E> implements AutoCloseable {
+
+    private static final float C = 0.01f;
+
+    private final List<OpenCLSession> sessions;
+    private final boolean ownsSessions;
+    private double[] deviceWeights;
+
+    /**
+     * Constructor for the MultiDeviceFruchtermanReingoldLayouterOpenCL, running on shared sessions. Closing
+     * the layouter does not close the sessions.
+     *
+     * @param width    Width of the layout area.
+     * @param height   Height of the layout area.
+     * @param callback Callback to render the layout at each iteration.
+     * @param sessions The sessions of the devices to run on.
+     */
+    public MultiDeviceFruchtermanReingoldLayouterOpenCL(final int width,
+                                                        final int height,
+                                                        final AbstractRendererCallback<V, E> callback,
+                                                        final List<OpenCLSession> sessions) {
+        this(width, height, callback, sessions, false);
+    }
+
+    /**
+     * Constructor for the MultiDeviceFruchtermanReingoldLayouterOpenCL, opening a session on every device
+     * that matches the selector.
+     *
+     * @param width    Width of the layout area.
+     * @param height   Height of the layout area.
+     * @param callback Callback to render the layout at each iteration.
+     * @param selector Chooses the devices.
+     */
+    public MultiDeviceFruchtermanReingoldLayouterOpenCL(final int width,
+                                                        final int height,
+                                                        final AbstractRendererCallback<V, E> callback,
+                                                        final DeviceSelector selector) {
+        this(width, height, callback, OpenCLSession.openAll(selector), true);
+    }
+
+    /**
+     * Constructor for the MultiDeviceFruchtermanReingoldLayouterOpenCL, opening a session on every device.
+     *
+     * @param width  Width of the layout area.
+     * @param height Height of the layout area.
+     */
+    public MultiDeviceFruchtermanReingoldLayouterOpenCL(final int width,
+                                                        final int height) {
+        this(width, height, new NoOpRendererCallback<>(), DeviceSelector.any());
+    }
+
+    private MultiDeviceFruchtermanReingoldLayouterOpenCL(final int width,
+                                                         final int height,
+                                                         final AbstractRendererCallback<V, E> callback,
+                                                         final List<OpenCLSession> sessions,
+                                                         final boolean ownsSessions) {
+        super(width, height, callback);
+        if (sessions.isEmpty()) {
+            throw new IllegalArgumentException("At least one OpenCL session is required");
+        }
+        this.sessions = new ArrayList<>(sessions);
+        this.ownsSessions = ownsSessions;
+        this.deviceWeights = new double[sessions.size()];
+        for (int d = 0; d < sessions.size(); d++) {
+            deviceWeights[d] = sessions.get(d).getDevice().getComputeUnits();
+        }
+    }
+
+    /**
+     * Sets the share of the vertices of every device, e.g. measured throughputs. The slices are sized in
+     * proportion to the weights.
+     *
+     * @param weights one positive weight per session, in session order.
+     */
+    public void setDeviceWeights(final double... weights) {
+        if (weights.length != sessions.size()) {
+            throw new IllegalArgumentException("Expected " + sessions.size() + " weights, got " + weights.length);
+        }
+        for (final double weight : weights) {
+            if (!(weight > 0)) {
+                throw new IllegalArgumentException("Device weights must be positive: " + weight);
+            }
+        }
+        this.deviceWeights = weights.clone();
+    }
+
+    /**
+     * Returns the devices' sessions.
+     *
+     * @return the sessions, in slice order.
+     */
+    public List<OpenCLSession> getSessions() {
+        return sessions;
+    }
+
+    /**
+     * Closes the sessions if the layouter opened them.
+     */
+    @Override
+    public void close() {
+        if (ownsSessions) {
+            for (final OpenCLSession session : sessions) {
+                session.close();
+            }
+        }
+    }
+
+    @Override
+    public Map<V, Vector2D> layout(final Graph<V, E> graph, final int iterations) {
+        final IndexedGraph<V> indexedGraph = IndexedGraph.of(graph, prepareEdgeWeights(graph));
+        final int numVertices = indexedGraph.vertexCount();
+
+        final float[] positions = new float[2 * numVertices];
+        for (int v = 0; v < numVertices; v++) {
+            positions[2 * v] = random.nextInt(width);
+            positions[2 * v + 1] = random.nextInt(height);
+        }
+
+        final List<OpenCLWorkspace> workspaces = new ArrayList<>();
+        try {
+            for (final OpenCLSession session : sessions) {
+                workspaces.add(session.acquire());
+            }
+            return layout(graph, iterations, workspaces, indexedGraph, positions);
+        } finally {
+            for (int d = 0; d < workspaces.size(); d++) {
+                sessions.get(d).release(workspaces.get(d));
+            }
+        }
+    }
+
+    private Map<V, Vector2D> layout(final Graph<V, E> graph,
+                                    final int iterations,
+                                    final List<OpenCLWorkspace> workspaces,
+                                    final IndexedGraph<V> indexedGraph,
+                                    final float[] positions) {
+        final int numVertices = indexedGraph.vertexCount();
+        final int devices = workspaces.size();
+        final int[] bounds = partition(numVertices, deviceWeights);
+        // keep the formula of the single device layouter, the results match for the same seed
+        final float optimalDistance = (float) (Math.sqrt((width * height) / numVertices) / 2);
+
+        metricsListener.layoutStarted(numVertices, indexedGraph.edgeCount());
+        final long layoutStart = System.nanoTime();
+        final boolean statisticsRequired = isStatisticsRequired();
+        final boolean coolOnDevice = !statisticsRequired && coolingSchedule instanceof GeometricCoolingSchedule;
+        final double temperature = coolingSchedule.initialTemperature();
+
+        for (final OpenCLWorkspace workspace : workspaces) {
+            workspace.upload(indexedGraph, positions);
+            workspace.setKernelArguments(numVertices, optimalDistance, C, width, height);
+            clEnqueueWriteBuffer(workspace.getCommandQueue(), workspace.getTemperatureMem(), CL_TRUE, 0, Sizeof.cl_float,
+                    Pointer.to(new float[]{(float) temperature}), 0, null, null);
+            if (coolOnDevice) {
+                final GeometricCoolingSchedule schedule = (GeometricCoolingSchedule) coolingSchedule;
+                clSetKernelArg(workspace.getKernelCoolDown(), 0, Sizeof.cl_mem, Pointer.to(workspace.getTemperatureMem()));
+                clSetKernelArg(workspace.getKernelCoolDown(), 1, Sizeof.cl_float, Pointer.to(new float[]{(float) schedule.getFactor()}));
+                clSetKernelArg(workspace.getKernelCoolDown(), 2, Sizeof.cl_float, Pointer.to(new float[]{(float) schedule.getMinTemperature()}));
+            }
+        }
+        metricsListener.phaseCompleted(LayoutPhase.TRANSFER, System.nanoTime() - layoutStart);
+
+        // Two direct host buffers: the devices read one asynchronously while the slices of the next
+        // iteration are read into the other. Every device has read a buffer before it returns its next
+        // slices, so a buffer is free again once all slices of the following iteration are back.
+        final FloatBuffer[] buffers = new FloatBuffer[2];
+        for (int b = 0; b < 2; b++) {
+            buffers[b] = ByteBuffer.allocateDirect(Sizeof.cl_float * 2 * Math.max(1, numVertices))
+                    .order(ByteOrder.nativeOrder())
+                    .asFloatBuffer();
+        }
+        // absolute puts and gets only, JOCL pointers start at the position of a buffer
+        buffers[0].put(0, positions);
+        final float[] displacements = statisticsRequired ? new float[2 * numVertices] : null;
+
+        // iteration i reads the positions of buffers[i % 2] and returns its slices into the other buffer
+        final int i;
+        try {
+            i = anneal(temperature, 0, iterations, (iteration, t) -> {
+                for (int d = 0; d < devices; d++) {
+                    enqueueIteration(workspaces.get(d), bounds[d], bounds[d + 1], coolOnDevice);
+                }
+
+                final long readStart = System.nanoTime();
+                final FloatBuffer previous = buffers[iteration & 1];
+                final FloatBuffer next = buffers[1 - (iteration & 1)];
+                for (int d = 0; d < devices; d++) {
+                    readSlice(workspaces.get(d), bounds[d], bounds[d + 1], next, displacements);
+                }
+                metricsListener.phaseCompleted(LayoutPhase.TRANSFER, System.nanoTime() - readStart);
+
+                double maxDisplacement = Double.NaN;
+                if (statisticsRequired) {
+                    maxDisplacement = 0;
+                    for (int k = 0; k < 2 * numVertices; k += 2) {
+                        final double movedX = next.get(k) - previous.get(k);
+                        final double movedY = next.get(k + 1) - previous.get(k + 1);
+                        maxDisplacement = Math.max(maxDisplacement, Math.sqrt(movedX * movedX + movedY * movedY));
+                    }
+                }
+
+                if (callback.isFrameRequested(iteration)) {
+                    final long renderStart = System.nanoTime();
+                    callback.render(graph, iteration, toPositionMap(indexedGraph, next));
+                    metricsListener.phaseCompleted(LayoutPhase.RENDER, System.nanoTime() - renderStart);
+                }
+                return maxDisplacement;
+            }, () -> FruchtermanReingoldLayouterOpenCL.energy(displacements), (nextIteration, t) -> {
+                for (int d = 0; d < devices; d++) {
+                    final OpenCLWorkspace workspace = workspaces.get(d);
+                    if (!coolOnDevice) {
+                        clEnqueueWriteBuffer(workspace.getCommandQueue(), workspace.getTemperatureMem(), CL_TRUE, 0, Sizeof.cl_float,
+                                Pointer.to(new float[]{(float) t}), 0, null, null);
+                    }
+                    writeForeignSlices(workspace, bounds[d], bounds[d + 1], numVertices, buffers[nextIteration & 1]);
+                }
+            });
+        } finally {
+            // the devices may still read the host buffers, e.g. after the last iteration
+            for (final OpenCLWorkspace workspace : workspaces) {
+                clFinish(workspace.getCommandQueue());
+            }
+        }
+        lastIterationCount = i;
+        metricsListener.layoutFinished(i, System.nanoTime() - layoutStart);
+        callback.finish();
+
+        return toPositionMap(indexedGraph, buffers[i & 1]);
+    }
+
+    /**
+     * Enqueues the kernels of an iteration for the slice of a device, without waiting for them.
+     */
+    private static void enqueueIteration(final OpenCLWorkspace workspace,
+                                         final int from,
+                                         final int to,
+                                         final boolean coolOnDevice) {
+        final cl_command_queue commandQueue = workspace.getCommandQueue();
+        if (to > from) {
+            final int localSize = workspace.getRepulsionLocalSize();
+            final long repulsionGlobalSize = (long) (to - from + localSize - 1) / localSize * localSize;
+            final long[] offset = {from};
+            clEnqueueNDRangeKernel(commandQueue, workspace.getKernelRepulsive(), 1, offset, new long[]{repulsionGlobalSize}, new long[]{localSize}, 0, null, null);
+            clEnqueueNDRangeKernel(commandQueue, workspace.getKernelAttractive(), 1, offset, new long[]{to - from}, null, 0, null, null);
+            clEnqueueNDRangeKernel(commandQueue, workspace.getKernelUpdate(), 1, offset, new long[]{to - from}, null, 0, null, null);
+        }
+        if (coolOnDevice) {
+            clEnqueueNDRangeKernel(commandQueue, workspace.getKernelCoolDown(), 1, null, new long[]{1}, null, 0, null, null);
+        }
+        clFlush(commandQueue);
+    }
+
+    /**
+     * Reads the positions, and the forces if requested, of the slice of a device, waiting for the iteration.
+     */
+    private static void readSlice(final OpenCLWorkspace workspace,
+                                  final int from,
+                                  final int to,
+                                  final FloatBuffer positions,
+                                  final float[] displacements) {
+        if (to == from) {
+            return;
+        }
+        final long offset = Sizeof.cl_float * 2L * from;
+        final long size = Sizeof.cl_float * 2L * (to - from);
+        final cl_command_queue commandQueue = workspace.getCommandQueue();
+        clEnqueueReadBuffer(commandQueue, workspace.getPositionsMem(), CL_TRUE, offset, size, Pointer.to(positions).withByteOffset(offset), 0, null, null);
+        if (displacements != null) {
+            clEnqueueReadBuffer(commandQueue, workspace.getDisplacementsMem(), CL_TRUE, offset, size, Pointer.to(displacements).withByteOffset(offset), 0, null, null);
+        }
+    }
+
+    /**
+     * Enqueues the writes of the positions outside the slice of a device, without waiting for them.
+     */
+    private static void writeForeignSlices(final OpenCLWorkspace workspace,
+                                           final int from,
+                                           final int to,
+                                           final int numVertices,
+                                           final FloatBuffer positions) {
+        final cl_command_queue commandQueue = workspace.getCommandQueue();
+        if (from > 0) {
+            clEnqueueWriteBuffer(commandQueue, workspace.getPositionsMem(), CL_FALSE, 0, Sizeof.cl_float * 2L * from,
+                    Pointer.to(positions), 0, null, null);
+        }
+        if (to < numVertices) {
+            final long offset = Sizeof.cl_float * 2L * to;
+            clEnqueueWriteBuffer(commandQueue, workspace.getPositionsMem(), CL_FALSE, offset, Sizeof.cl_float * 2L * (numVertices - to),
+                    Pointer.to(positions).withByteOffset(offset), 0, null, null);
+        }
+    }
+
+    /**
+     * Splits the vertices into contiguous slices in proportion to the weights.
+     *
+     * @param numVertices the number of vertices.
+     * @param weights     the weight of every slice.
+     * @return the bounds of the slices, slice d is {@code [bounds[d], bounds[d + 1])}.
+     */
+    static int[] partition(final int numVertices, final double[] weights) {
+        double total = 0;
+        for (final double weight : weights) {
+            total += weight;
+        }
+        final int[] bounds = new int[weights.length + 1];
+        double cumulative = 0;
+        for (int d = 0; d < weights.length; d++) {
+            cumulative += weights[d];
+            bounds[d + 1] = d == weights.length - 1 ? numVertices : (int) Math.round(numVertices * cumulative / total);
+        }
+        return bounds;
+    }
+
+    private Map<V, Vector2D> toPositionMap(final IndexedGraph<V> indexedGraph, final FloatBuffer positions) {
+        final Map<V, Vector2D> result = new HashMap<>();
+        for (int v = 0; v < indexedGraph.vertexCount(); v++) {
+            result.put(indexedGraph.vertex(v), new Vector2D(positions.get(2 * v), positions.get(2 * v + 1)));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,234 @@
+package eu.virtualparadox.springembedder.layouter;
+
+import eu.virtualparadox.springembedder.Vector2D;
+import eu.virtualparadox.springembedder.engine.FruchtermanReingoldEngine;
+import eu.virtualparadox.springembedder.engine.GraphCoarsener;
+import eu.virtualparadox.springembedder.engine.IndexedGraph;
+import eu.virtualparadox.springembedder.engine.LayoutState;
+import eu.virtualparadox.springembedder.metrics.LayoutPhase;
+import eu.virtualparadox.springembedder.renderercallback.AbstractRendererCallback;
+import eu.virtualparadox.springembedder.renderercallback.NoOpRendererCallback;
+import org.jgrapht.Graph;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * Multilevel Fruchterman-Reingold layouter for very large graphs.
+ * <p>
+ * The graph is coarsened repeatedly with the {@link GraphCoarsener} until it is small or stops shrinking.
+ * The coarsest level is laid out from random positions, then the positions are prolonged level by level:
+ * every vertex starts at the position of its coarse group and a few low-temperature iterations of the same
+ * Fruchterman-Reingold force model refine the layout. Global untangling thus happens on a graph of a few
+ * dozen vertices and the expensive levels only have to do local work.
+ * <p>
+ * Every level is cooled by the {@link #setCoolingSchedule cooling schedule}. The refinement levels start at
+ * the optimal distance of their level, capped by the initial temperature and never below the schedule's floor.
+ *
+ * @param <V> Type of the vertices in the graph.
+ * @param <E> Type of the edges in the graph.
+ */
+public class MultilevelLayouter<V, E> extends AbstractLayouter<V, E> {
+
+    /**
+     * Default size below which the graph is not coarsened any further.
+     */
+    public static final int DEFAULT_COARSEST_SIZE = 50;
+
+    /**
+     * Default number of refinement iterations per level.
+     */
+    public static final int DEFAULT_REFINEMENT_ITERATIONS = 30;
+
+    // a level that keeps more than this fraction of the vertices is not worth another level
+    private static final double MIN_REDUCTION = 0.9;
+
+    private final RepulsionMode repulsionMode;
+    private final double theta;
+    private final int coarsestSize;
+    private final int refinementIterations;
+
+    /**
+     * Constructor for the MultilevelLayouter.
+     *
+     * @param width                Width of the layout area.
+     * @param height               Height of the layout area.
+     * @param callback             Callback to render the finest level at each iteration.
+     * @param repulsionMode        Strategy for computing the repulsive forces on every level.
+     * @param theta                Opening angle of the Barnes-Hut approximation, ignored by the other modes.
+     * @param coarsestSize         Size below which the graph is not coarsened any further.
+     * @param refinementIterations Number of refinement iterations per level.
+     */
+    public MultilevelLayouter(final int width,
+                              final int height,
+                              final AbstractRendererCallback<V, E> callback,
+                              final RepulsionMode repulsionMode,
+                              final double theta,
+                              final int coarsestSize,
+                              final int refinementIterations) {
+        super(width, height, callback);
+        if (theta < 0) {
+            throw new IllegalArgumentException("Theta must not be negative: " + theta);
+        }
+        this.repulsionMode = repulsionMode;
+        this.theta = theta;
+        this.coarsestSize = coarsestSize;
+        this.refinementIterations = refinementIterations;
+    }
+
+    /**
+     * Constructor for the MultilevelLayouter, using Barnes-Hut repulsion.
+     *
+     * @param width    Width of the layout area.
+     * @param height   Height of the layout area.
+     * @param callback Callback to render the finest level at each iteration.
+     */
+    public MultilevelLayouter(final int width,
+                              final int height,
+                              final AbstractRendererCallback<V, E> callback) {
+        this(width, height, callback, RepulsionMode.BARNES_HUT, FruchtermanReingoldLayouter.DEFAULT_THETA, DEFAULT_COARSEST_SIZE, DEFAULT_REFINEMENT_ITERATIONS);
+    }
+
+    /**
+     * Constructor for the MultilevelLayouter, using Barnes-Hut repulsion.
+     *
+     * @param width  Width of the layout area.
+     * @param height Height of the layout area.
+     */
+    public MultilevelLayouter(final int width,
+                              final int height) {
+        this(width, height, new NoOpRendererCallback<>());
+    }
+
+    /**
+     * Main method to perform the layout.
+     *
+     * @param graph      The graph to layout.
+     * @param iterations Number of iterations on the coarsest level, every finer level runs the refinement iterations.
+     * @return The final positions of the nodes.
+     */
+    @Override
+    public Map<V, Vector2D> layout(final Graph<V, E> graph,
+                                   final int iterations) {
+        final IndexedGraph<V> finest = IndexedGraph.of(graph, prepareEdgeWeights(graph));
+        return layout(finest, iterations, graph).toPositionMap();
+    }
+
+    /**
+     * Performs the layout of an already indexed graph, e.g. one loaded by the
+     * {@link eu.virtualparadox.springembedder.io.EdgeListLoader}. No frames are rendered, as the callback
+     * needs a {@link Graph}.
+     *
+     * @param graph      The graph to layout.
+     * @param iterations Number of iterations on the coarsest level, every finer level runs the refinement iterations.
+     * @return The final positions of the nodes, indexed by vertex id.
+     */
+    public LayoutState layout(final IndexedGraph<V> graph,
+                              final int iterations) {
+        return layout(graph, iterations, null).getState();
+    }
+
+    private FruchtermanReingoldEngine<V> layout(final IndexedGraph<V> finest,
+                                                final int iterations,
+                                                final Graph<V, E> graph) {
+
+        // levels.get(l + 1) is the coarse version of levels.get(l), parents.get(l) maps between them
+        final List<IndexedGraph<?>> levels = new ArrayList<>();
+        final List<int[]> parents = new ArrayList<>();
+        levels.add(finest);
+        IndexedGraph<?> current = finest;
+        while (current.vertexCount() > coarsestSize) {
+            final GraphCoarsener.CoarseLevel coarse = GraphCoarsener.coarsen(current);
+            if (coarse.getGraph().vertexCount() > MIN_REDUCTION * current.vertexCount()) {
+                break;
+            }
+            levels.add(coarse.getGraph());
+            parents.add(coarse.getParent());
+            current = coarse.getGraph();
+        }
+        logger.debug("Coarsened {} vertices into {} levels", finest.vertexCount(), levels.size());
+
+        metricsListener.layoutStarted(finest.vertexCount(), finest.edgeCount());
+        final long layoutStart = System.nanoTime();
+        final FruchtermanReingoldEngine<V> finestEngine = newEngine(finest);
+        final IntConsumer renderFinest = i -> {
+            if (graph != null && callback.isFrameRequested(i)) {
+                final long renderStart = System.nanoTime();
+                callback.render(graph, i, finestEngine.toPositionMap());
+                metricsListener.phaseCompleted(LayoutPhase.RENDER, System.nanoTime() - renderStart);
+            }
+        };
+
+        final int coarsest = levels.size() - 1;
+        FruchtermanReingoldEngine<?> engine = coarsest == 0 ? finestEngine : newEngine(levels.get(coarsest));
+        engine.randomizePositions(random);
+        lastIterationCount = 0;
+        anneal(engine, iterations, coolingSchedule.initialTemperature(), coarsest == 0 ? renderFinest : i -> {
+        });
+
+        for (int level = coarsest - 1; level >= 0; level--) {
+            final FruchtermanReingoldEngine<?> fine = level == 0 ? finestEngine : newEngine(levels.get(level));
+            prolong(engine.getState(), fine.getState(), parents.get(level), fine.getOptimalDistance());
+            final double temperature = Math.max(coolingSchedule.getMinTemperature(),
+                    Math.min(coolingSchedule.initialTemperature(), fine.getOptimalDistance()));
+            anneal(fine, refinementIterations, temperature, level == 0 ? renderFinest : i -> {
+            });
+            engine = fine;
+        }
+        metricsListener.layoutFinished(lastIterationCount, System.nanoTime() - layoutStart);
+
+        if (graph != null) {
+            callback.finish();
+        }
+        return finestEngine;
+    }
+
+    private <T> FruchtermanReingoldEngine<T> newEngine(final IndexedGraph<T> graph) {
+        return new FruchtermanReingoldEngine<>(graph, width, height, repulsionMode.createKernel(theta));
+    }
+
+    /**
+     * Run the iterations of a single level. The cooling schedule and the convergence criterion start
+     * over on every level, so the metrics listener sees the iterations of every level numbered from 0, and
+     * {@link #getLastIterationCount()} reports the sum over all levels.
+     *
+     * @param engine      The engine of the level.
+     * @param iterations  Number of iterations to perform.
+     * @param temperature The start temperature.
+     * @param onIteration Called after every iteration.
+     */
+    private void anneal(final FruchtermanReingoldEngine<?> engine,
+                        final int iterations,
+                        final double temperature,
+                        final IntConsumer onIteration) {
+        lastIterationCount += anneal(temperature, 0, iterations, (iteration, t) -> {
+            final double maxDisplacement = engine.step(t, metricsListener);
+            onIteration.accept(iteration);
+            return maxDisplacement;
+        }, () -> engine.energy(0, engine.getState().size()), IterationHook.NONE);
+    }
+
+    /**
+     * Place every fine vertex at the position of its coarse group. Vertices of the same group would sit
+     * on top of each other and never repel, so they are spread by a random offset of up to half the
+     * optimal distance of the fine level.
+     *
+     * @param coarse          The state of the coarse level.
+     * @param fine            The state of the fine level.
+     * @param parent          The coarse vertex id of every fine vertex.
+     * @param optimalDistance The optimal distance of the fine level.
+     */
+    private void prolong(final LayoutState coarse,
+                         final LayoutState fine,
+                         final int[] parent,
+                         final double optimalDistance) {
+        for (int v = 0; v < fine.size(); v++) {
+            final double jitterX = (random.nextDouble() - 0.5) * optimalDistance;
+            final double jitterY = (random.nextDouble() - 0.5) * optimalDistance;
+            fine.getX()[v] = Math.max(0, Math.min(width, coarse.getX()[parent[v]] + jitterX));
+            fine.getY()[v] = Math.max(0, Math.min(height, coarse.getY()[parent[v]] + jitterY));
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package eu.virtualparadox.springembedder.layouter;
+
+import eu.virtualparadox.springembedder.engine.FruchtermanReingoldEngine;
+import eu.virtualparadox.springembedder.metrics.LayoutMetricsListener;
+import eu.virtualparadox.springembedder.metrics.LayoutPhase;
+import eu.virtualparadox.springembedder.renderercallback.AbstractRendererCallback;
+import eu.virtualparadox.springembedder.renderercallback.NoOpRendererCallback;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Multi-core variant of the {@link FruchtermanReingoldLayouter}.
+ * Each iteration is split into vertex ranges which are processed on a fork/join pool. Every range
+ * computes the repulsion and gathers the attraction of its own vertices only, so there is no shared
+ * accumulator and the result does not depend on the scheduling: for a given seed it is identical to
+ * the single-threaded layouter, whatever the number of threads.
+ *
+ * @param <V> Type of the vertices in the graph.
+ * @param <E> Type of the edges in the graph.
+ */
+public class ParallelFruchtermanReingoldLayouter<V, E> extends FruchtermanReingoldLayouter<V, E> {
+
+    private static final int MIN_RANGE_SIZE = 64;
+    private static final int RANGES_PER_THREAD = 8;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructor for the ParallelFruchtermanReingoldLayouter.
+     *
+     * @param width         Width of the layout area.
+     * @param height        Height of the layout area.
+     * @param callback      Callback to render the layout at each iteration.
+     * @param pool          Pool executing the iterations.
+     * @param repulsionMode Strategy for computing the repulsive forces.
+     * @param theta         Opening angle of the Barnes-Hut approximation, ignored by the other modes.
+     */
+    public ParallelFruchtermanReingoldLayouter(final int width,
+                                               final int height,
+                                               final AbstractRendererCallback<V, E> callback,
+                                               final ForkJoinPool pool,
+                                               final RepulsionMode repulsionMode,
+                                               final double theta) {
+        super(width, height, callback, repulsionMode, theta);
+        this.pool = pool;
+    }
+
+    /**
+     * Constructor for the ParallelFruchtermanReingoldLayouter.
+     *
+     * @param width    Width of the layout area.
+     * @param height   Height of the layout area.
+     * @param callback Callback to render the layout at each iteration.
+     * @param pool     Pool executing the iterations.
+     */
+    public ParallelFruchtermanReingoldLayouter(final int width,
+                                               final int height,
+                                               final AbstractRendererCallback<V, E> callback,
+                                               final ForkJoinPool pool) {
+        this(width, height, callback, pool, RepulsionMode.EXACT, DEFAULT_THETA);
+    }
+
+    /**
+     * Constructor for the ParallelFruchtermanReingoldLayouter, running on the common pool.
+     *
+     * @param width    Width of the layout area.
+     * @param height   Height of the layout area.
+     * @param callback Callback to render the layout at each iteration.
+     */
+    public ParallelFruchtermanReingoldLayouter(final int width,
+                                               final int height,
+                                               final AbstractRendererCallback<V, E> callback) {
+        this(width, height, callback, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructor for the ParallelFruchtermanReingoldLayouter, running on the common pool.
+     *
+     * @param width  Width of the layout area.
+     * @param height Height of the layout area.
+     */
+    public ParallelFruchtermanReingoldLayouter(final int width,
+                                               final int height) {
+        this(width, height, new NoOpRendererCallback<>());
+    }
+
+    /**
+     * Perform a single iteration in two parallel phases. The forces of all ranges must be complete
+     * before any position moves, so the update runs after the force phase has joined.
+     *
+     * @param engine      The engine holding the current layout state.
+     * @param temperature The current temperature.
+     * @return The longest distance a node moved.
+     */
+    @Override
+    protected double iterate(final FruchtermanReingoldEngine<V> engine,
+                             final double temperature) {
+        final int n = engine.getState().size();
+        final int rangeSize = Math.max(MIN_RANGE_SIZE, n / (pool.getParallelism() * RANGES_PER_THREAD));
+
+        if (metricsListener != LayoutMetricsListener.NONE) {
+            return iterateTimed(engine, temperature, n, rangeSize);
+        }
+        engine.prepareRepulsion();
+        pool.invoke(new RangeTask(0, n, rangeSize, (from, to) -> {
+            engine.clearDisplacements(from, to);
+            engine.accumulateRepulsion(from, to);
+            engine.accumulateAttraction(from, to);
+            return 0;
+        }));
+        return pool.invoke(new RangeTask(0, n, rangeSize, (from, to) -> engine.updatePositions(temperature, from, to)));
+    }
+
+    /**
+     * Same as {@link #iterate}, but the repulsion and the attraction run in separate parallel passes, so
+     * each phase can be timed. The extra join costs a little, which is why it is only done with metrics.
+     */
+    private double iterateTimed(final FruchtermanReingoldEngine<V> engine,
+                                final double temperature,
+                                final int n,
+                                final int rangeSize) {
+        final long start = System.nanoTime();
+        engine.prepareRepulsion();
+        pool.invoke(new RangeTask(0, n, rangeSize, (from, to) -> {
+            engine.clearDisplacements(from, to);
+            engine.accumulateRepulsion(from, to);
+            return 0;
+        }));
+        final long repulsionEnd = System.nanoTime();
+        pool.invoke(new RangeTask(0, n, rangeSize, (from, to) -> {
+            engine.accumulateAttraction(from, to);
+            return 0;
+        }));
+        final long attractionEnd = System.nanoTime();
+        final double maxDisplacement = pool.invoke(new RangeTask(0, n, rangeSize, (from, to) -> engine.updatePositions(temperature, from, to)));
+        final long updateEnd = System.nanoTime();
+        metricsListener.phaseCompleted(LayoutPhase.REPULSION, repulsionEnd - start);
+        metricsListener.phaseCompleted(LayoutPhase.ATTRACTION, attractionEnd - repulsionEnd);
+        metricsListener.phaseCompleted(LayoutPhase.UPDATE, updateEnd - attractionEnd);
+        return maxDisplacement;
+    }
+
+    /**
+     * Work on a range of vertex ids, returning a value that is reduced by its maximum.
+     */
+    @FunctionalInterface
+    private interface RangeAction {
+        double run(int from, int to);
+    }
+
+    /**
+     * Splits a vertex range in halves until it is small enough to run the action directly.
+     */
+    @SuppressWarnings("serial")
+    private static final class RangeTask extends RecursiveTask<Double> {
+
+        private final int from;
+        private final int to;
+        private final int rangeSize;
+        private final RangeAction action;
+
+        private RangeTask(final int from, final int to, final int rangeSize, final RangeAction action) {
+            this.from = from;
+            this.to = to;
+            this.rangeSize = rangeSize;
+            this.action = action;
+        }
+
+        @Override
+        protected Double compute() {
+            if (to - from <= rangeSize) {
+                return action.run(from, to);
+            }
+            final int middle = (from + to) >>> 1;
+            final RangeTask left = new RangeTask(from, middle, rangeSize, action);
+            left.fork();
+            final double right = new RangeTask(middle, to, rangeSize, action).compute();
+            return Math.max(left.join(), right);
+        }
+    }
+}
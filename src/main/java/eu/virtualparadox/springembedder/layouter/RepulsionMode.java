@@ -0,0 +1,84 @@
+package eu.virtualparadox.springembedder.layouter;
+
+import eu.virtualparadox.springembedder.engine.BarnesHutRepulsion;
+import eu.virtualparadox.springembedder.engine.ExactRepulsion;
+import eu.virtualparadox.springembedder.engine.GridRepulsion;
+import eu.virtualparadox.springembedder.engine.RepulsionKernel;
+import eu.virtualparadox.springembedder.engine.VectorizedRepulsion;
+
+/**
+ * Strategies for computing the repulsive forces between vertices.
+ */
+public enum RepulsionMode {
+
+    /**
+     * Compares every vertex with every other vertex, O(n²) per iteration.
+     */
+    EXACT {
+        @Override
+        public RepulsionKernel createKernel(final double theta) {
+            return new ExactRepulsion();
+        }
+    },
+
+    /**
+     * Approximates far-away clusters by their center of mass using a quadtree, O(n log n) per iteration.
+     */
+    BARNES_HUT {
+        @Override
+        public RepulsionKernel createKernel(final double theta) {
+            return new BarnesHutRepulsion(theta);
+        }
+    },
+
+    /**
+     * Ignores vertices further apart than twice the optimal distance, as in the original paper,
+     * by bucketing the vertices into a grid. About O(n) per iteration on evenly spread layouts.
+     */
+    GRID {
+        @Override
+        public RepulsionKernel createKernel(final double theta) {
+            return new GridRepulsion();
+        }
+    },
+
+    /**
+     * Like {@link #EXACT}, but comparing several vertex pairs at once with SIMD instructions.
+     * Needs {@code --add-modules jdk.incubator.vector}, without it the scalar exact kernel is used.
+     */
+    VECTORIZED {
+        @Override
+        public RepulsionKernel createKernel(final double theta) {
+            return isVectorApiAvailable() ? new VectorizedRepulsion(false) : new ExactRepulsion();
+        }
+    },
+
+    /**
+     * Like {@link #VECTORIZED}, but in single precision, which doubles the number of pairs per instruction.
+     * Without the {@code jdk.incubator.vector} module the scalar exact kernel is used.
+     */
+    VECTORIZED_FLOAT {
+        @Override
+        public RepulsionKernel createKernel(final double theta) {
+            return isVectorApiAvailable() ? new VectorizedRepulsion(true) : new ExactRepulsion();
+        }
+    };
+
+    /**
+     * Tells whether the incubating Vector API was added to the module graph of this JVM.
+     * The check must not touch {@link VectorizedRepulsion}, which cannot be loaded without it.
+     *
+     * @return true if the vectorized modes run vectorized.
+     */
+    public static boolean isVectorApiAvailable() {
+        return ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+    }
+
+    /**
+     * Creates a new kernel instance for this mode.
+     *
+     * @param theta the opening angle of the Barnes-Hut approximation, ignored by the other modes.
+     * @return the kernel.
+     */
+    public abstract RepulsionKernel createKernel(double theta);
+}
@@ -0,0 +1,94 @@
+package eu.virtualparadox.springembedder.layouter.schedule;
+
+/**
+ * Adaptive cooling after Yifan Hu, "Efficient and high quality force-directed graph drawing" (2005).
+ * The temperature is lowered whenever the energy rises, and raised again after a number of iterations
+ * in a row that reduced the energy, so a layout that is still making progress is not frozen too early.
+ */
+public class AdaptiveCoolingSchedule implements CoolingSchedule {
+
+    private static final int DEFAULT_PROGRESS_STEPS = 5;
+
+    private final double initialTemperature;
+    private final double factor;
+    private final double minTemperature;
+    private final double maxTemperature;
+    private final int progressSteps;
+
+    private double previousEnergy;
+    private int progress;
+
+    /**
+     * Constructs the schedule.
+     *
+     * @param initialTemperature the temperature of the first iteration, also the highest one.
+     * @param factor             the cooling factor, between 0 and 1.
+     * @param minTemperature     the lowest temperature.
+     * @param progressSteps      the number of improving iterations in a row after which the temperature rises.
+     */
+    public AdaptiveCoolingSchedule(final double initialTemperature,
+                                   final double factor,
+                                   final double minTemperature,
+                                   final int progressSteps) {
+        if (factor <= 0 || factor >= 1) {
+            throw new IllegalArgumentException("Cooling factor must be in (0, 1): " + factor);
+        }
+        this.initialTemperature = initialTemperature;
+        this.factor = factor;
+        this.minTemperature = minTemperature;
+        this.maxTemperature = initialTemperature;
+        this.progressSteps = progressSteps;
+        reset();
+    }
+
+    /**
+     * Constructs the schedule with the temperatures of {@link GeometricCoolingSchedule#DEFAULT}.
+     */
+    public AdaptiveCoolingSchedule() {
+        this(50, 0.9, 1.5, DEFAULT_PROGRESS_STEPS);
+    }
+
+    @Override
+    public void reset() {
+        previousEnergy = Double.MAX_VALUE;
+        progress = 0;
+    }
+
+    @Override
+    public double[] saveState() {
+        return new double[]{previousEnergy, progress};
+    }
+
+    @Override
+    public void restoreState(final double[] state) {
+        previousEnergy = state[0];
+        progress = (int) state[1];
+    }
+
+    @Override
+    public double initialTemperature() {
+        return initialTemperature;
+    }
+
+    @Override
+    public double nextTemperature(final double temperature, final double energy) {
+        double next = temperature;
+        if (energy < previousEnergy) {
+            progress++;
+            if (progress >= progressSteps) {
+                progress = 0;
+                next = temperature / factor;
+            }
+        } else {
+            progress = 0;
+            next = temperature * factor;
+        }
+        previousEnergy = energy;
+        return Math.max(minTemperature, Math.min(maxTemperature, next));
+    }
+
+    @Override
+    public double getMinTemperature() {
+        return minTemperature;
+    }
+}
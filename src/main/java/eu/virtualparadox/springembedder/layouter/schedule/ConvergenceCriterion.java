@@ -0,0 +1,153 @@
+package eu.virtualparadox.springembedder.layouter.schedule;
+
+import java.util.Arrays;
+
+/**
+ * Decides whether a layout has stopped moving, so the layouter can return before the requested number
+ * of iterations. Implementations may keep state across the iterations of a layout; it is cleared by {@link #reset()}.
+ */
+public interface ConvergenceCriterion {
+
+    /**
+     * Clears the state of a previous layout, called before the first iteration.
+     */
+    default void reset() {
+        // stateless by default
+    }
+
+    /**
+     * Returns the state kept across iterations, so a layout resumed from a checkpoint converges at the
+     * same iteration.
+     *
+     * @return the state, empty for stateless criteria.
+     */
+    default double[] saveState() {
+        return new double[0];
+    }
+
+    /**
+     * Restores a state returned by {@link #saveState()}, called instead of {@link #reset()} when a layout resumes.
+     *
+     * @param state the saved state.
+     */
+    default void restoreState(final double[] state) {
+        // stateless by default
+    }
+
+    /**
+     * Called after every iteration.
+     *
+     * @param iteration       the index of the iteration that just finished.
+     * @param maxDisplacement the longest distance a vertex moved in that iteration.
+     * @param energy          the energy of that iteration, the sum of the squared force lengths.
+     * @return true if the layout has converged and no more iterations should run.
+     */
+    boolean isConverged(int iteration, double maxDisplacement, double energy);
+
+    /**
+     * Tells the layouter whether {@link #isConverged} reads its statistics, see {@link CoolingSchedule#usesEnergy()}.
+     *
+     * @return true if the displacement or the energy is used.
+     */
+    default boolean usesStatistics() {
+        return true;
+    }
+
+    /**
+     * Combines this criterion with another one, converging as soon as either of them does.
+     * Both criteria see every iteration.
+     *
+     * @param other the other criterion.
+     * @return the combined criterion.
+     */
+    default ConvergenceCriterion or(final ConvergenceCriterion other) {
+        final ConvergenceCriterion self = this;
+        return new ConvergenceCriterion() {
+            @Override
+            public void reset() {
+                self.reset();
+                other.reset();
+            }
+
+            @Override
+            public double[] saveState() {
+                // the length of the first state, then both states
+                final double[] first = self.saveState();
+                final double[] second = other.saveState();
+                final double[] state = new double[1 + first.length + second.length];
+                state[0] = first.length;
+                System.arraycopy(first, 0, state, 1, first.length);
+                System.arraycopy(second, 0, state, 1 + first.length, second.length);
+                return state;
+            }
+
+            @Override
+            public void restoreState(final double[] state) {
+                final int firstLength = (int) state[0];
+                self.restoreState(Arrays.copyOfRange(state, 1, 1 + firstLength));
+                other.restoreState(Arrays.copyOfRange(state, 1 + firstLength, state.length));
+            }
+
+            @Override
+            public boolean isConverged(final int iteration, final double maxDisplacement, final double energy) {
+                final boolean first = self.isConverged(iteration, maxDisplacement, energy);
+                final boolean second = other.isConverged(iteration, maxDisplacement, energy);
+                return first || second;
+            }
+
+            @Override
+            public boolean usesStatistics() {
+                return self.usesStatistics() || other.usesStatistics();
+            }
+        };
+    }
+
+    /**
+     * Never converges, the layouter always runs the requested number of iterations.
+     *
+     * @return the criterion.
+     */
+    static ConvergenceCriterion never() {
+        return new ConvergenceCriterion() {
+            @Override
+            public boolean isConverged(final int iteration, final double maxDisplacement, final double energy) {
+                return false;
+            }
+
+            @Override
+            public boolean usesStatistics() {
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Converges once no vertex moved further than the threshold in an iteration.
+     *
+     * @param threshold the distance threshold.
+     * @return the criterion.
+     */
+    static ConvergenceCriterion maxDisplacement(final double threshold) {
+        return (iteration, maxDisplacement, energy) -> maxDisplacement < threshold;
+    }
+
+    /**
+     * Converges once the energy changed by less than the given fraction between two iterations.
+     *
+     * @param relativeThreshold the relative energy change threshold.
+     * @return the criterion.
+     */
+    static ConvergenceCriterion energyDelta(final double relativeThreshold) {
+        return new EnergyDeltaCriterion(relativeThreshold);
+    }
+
+    /**
+     * Converges once the energy has not reached a new minimum for the given number of iterations.
+     *
+     * @param iterations the number of iterations without improvement.
+     * @return the criterion.
+     */
+    static ConvergenceCriterion stall(final int iterations) {
+        return new StallCriterion(iterations);
+    }
+}
@@ -0,0 +1,71 @@
+package eu.virtualparadox.springembedder.layouter.schedule;
+
+/**
+ * Controls the temperature, the maximum distance a vertex may move in an iteration.
+ * Implementations may keep state across the iterations of a layout; it is cleared by {@link #reset()}.
+ */
+public interface CoolingSchedule {
+
+    /**
+     * Clears the state of a previous layout, called before the first iteration.
+     */
+    default void reset() {
+        // stateless by default
+    }
+
+    /**
+     * Returns the state kept across iterations, so a layout resumed from a checkpoint continues with the
+     * same temperatures.
+     *
+     * @return the state, empty for stateless schedules.
+     */
+    default double[] saveState() {
+        return new double[0];
+    }
+
+    /**
+     * Restores a state returned by {@link #saveState()}, called instead of {@link #reset()} when a layout resumes.
+     *
+     * @param state the saved state.
+     */
+    default void restoreState(final double[] state) {
+        // stateless by default
+    }
+
+    /**
+     * Returns the temperature of the first iteration.
+     *
+     * @return the initial temperature.
+     */
+    double initialTemperature();
+
+    /**
+     * Returns the temperature of the next iteration.
+     *
+     * @param temperature the temperature of the iteration that just finished.
+     * @param energy      the energy of that iteration, the sum of the squared force lengths.
+     * @return the next temperature.
+     */
+    double nextTemperature(double temperature, double energy);
+
+    /**
+     * Returns the lowest temperature {@link #nextTemperature} ever returns. Layouters that start a second
+     * annealing phase below the initial temperature, like the refinement levels of the
+     * {@link eu.virtualparadox.springembedder.layouter.MultilevelLayouter}, do not start below it.
+     *
+     * @return the floor of the temperature, 0 if the schedule has none.
+     */
+    default double getMinTemperature() {
+        return 0;
+    }
+
+    /**
+     * Tells the layouter whether {@link #nextTemperature} reads the energy. Layouters that have to transfer
+     * data to compute it skip the transfer if neither the schedule nor the convergence criterion needs it.
+     *
+     * @return true if the energy is used.
+     */
+    default boolean usesEnergy() {
+        return true;
+    }
+}
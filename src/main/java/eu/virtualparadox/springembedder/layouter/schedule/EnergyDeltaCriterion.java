@@ -0,0 +1,40 @@
+package eu.virtualparadox.springembedder.layouter.schedule;
+
+/**
+ * Converges once the energy changed by less than a fraction between two iterations.
+ */
+class EnergyDeltaCriterion implements ConvergenceCriterion {
+
+    private final double relativeThreshold;
+    private double previousEnergy;
+
+    EnergyDeltaCriterion(final double relativeThreshold) {
+        this.relativeThreshold = relativeThreshold;
+        reset();
+    }
+
+    @Override
+    public void reset() {
+        previousEnergy = Double.NaN;
+    }
+
+    @Override
+    public double[] saveState() {
+        return new double[]{previousEnergy};
+    }
+
+    @Override
+    public void restoreState(final double[] state) {
+        previousEnergy = state[0];
+    }
+
+    @Override
+    public boolean isConverged(final int iteration, final double maxDisplacement, final double energy) {
+        final double previous = previousEnergy;
+        previousEnergy = energy;
+        if (Double.isNaN(previous)) {
+            return false;
+        }
+        return Math.abs(energy - previous) <= relativeThreshold * Math.max(previous, Double.MIN_NORMAL);
+    }
+}
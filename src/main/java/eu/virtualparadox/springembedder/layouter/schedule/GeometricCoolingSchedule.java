@@ -0,0 +1,63 @@
+package eu.virtualparadox.springembedder.layouter.schedule;
+
+/**
+ * Multiplies the temperature with a constant factor in every iteration, down to a floor.
+ */
+public class GeometricCoolingSchedule implements CoolingSchedule {
+
+    /**
+     * The schedule the layouters have always used: start at 50, cool by 5% per iteration, never below 1.5.
+     */
+    public static final GeometricCoolingSchedule DEFAULT = new GeometricCoolingSchedule(50, 0.95, 1.5);
+
+    private final double initialTemperature;
+    private final double factor;
+    private final double minTemperature;
+
+    /**
+     * Constructs the schedule.
+     *
+     * @param initialTemperature the temperature of the first iteration.
+     * @param factor             the cooling factor, between 0 and 1.
+     * @param minTemperature     the lowest temperature.
+     */
+    public GeometricCoolingSchedule(final double initialTemperature,
+                                    final double factor,
+                                    final double minTemperature) {
+        if (factor <= 0 || factor > 1) {
+            throw new IllegalArgumentException("Cooling factor must be in (0, 1]: " + factor);
+        }
+        this.initialTemperature = initialTemperature;
+        this.factor = factor;
+        this.minTemperature = minTemperature;
+    }
+
+    @Override
+    public double initialTemperature() {
+        return initialTemperature;
+    }
+
+    @Override
+    public double nextTemperature(final double temperature, final double energy) {
+        return Math.max(minTemperature, temperature * factor);
+    }
+
+    /**
+     * Returns the cooling factor.
+     *
+     * @return the factor the temperature is multiplied with per iteration.
+     */
+    public double getFactor() {
+        return factor;
+    }
+
+    @Override
+    public double getMinTemperature() {
+        return minTemperature;
+    }
+
+    @Override
+    public boolean usesEnergy() {
+        return false;
+    }
+}
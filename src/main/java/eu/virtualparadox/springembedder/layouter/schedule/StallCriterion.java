@@ -0,0 +1,44 @@
+package eu.virtualparadox.springembedder.layouter.schedule;
+
+/**
+ * Converges once the energy has not reached a new minimum for a number of iterations.
+ */
+class StallCriterion implements ConvergenceCriterion {
+
+    private final int iterations;
+    private double bestEnergy;
+    private int stalled;
+
+    StallCriterion(final int iterations) {
+        this.iterations = iterations;
+        reset();
+    }
+
+    @Override
+    public void reset() {
+        bestEnergy = Double.MAX_VALUE;
+        stalled = 0;
+    }
+
+    @Override
+    public double[] saveState() {
+        return new double[]{bestEnergy, stalled};
+    }
+
+    @Override
+    public void restoreState(final double[] state) {
+        bestEnergy = state[0];
+        stalled = (int) state[1];
+    }
+
+    @Override
+    public boolean isConverged(final int iteration, final double maxDisplacement, final double energy) {
+        if (energy < bestEnergy) {
+            bestEnergy = energy;
+            stalled = 0;
+            return false;
+        }
+        stalled++;
+        return stalled >= iterations;
+    }
+}
@@ -0,0 +1,136 @@
+package eu.virtualparadox.springembedder.metrics;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Aggregates the durations of every phase and of the iterations into {@link LatencyHistogram histograms},
+ * across any number of layouts. Thread-safe, so one instance can collect the metrics of all layouters of
+ * an application and be reported periodically, e.g. with {@link #summary()}.
+ */
+public class HistogramMetricsListener implements LayoutMetricsListener {
+
+    private final Map<LayoutPhase, LatencyHistogram> phases = new EnumMap<>(LayoutPhase.class);
+    private final LatencyHistogram iterations = new LatencyHistogram();
+    private final LatencyHistogram layouts = new LatencyHistogram();
+    private final LongAdder vertices = new LongAdder();
+    private volatile double lastMaxDisplacement = Double.NaN;
+    private volatile double lastEnergy = Double.NaN;
+
+    /**
+     * Constructor for the HistogramMetricsListener.
+     */
+    public HistogramMetricsListener() {
+        for (final LayoutPhase phase : LayoutPhase.values()) {
+            phases.put(phase, new LatencyHistogram());
+        }
+    }
+
+    @Override
+    public void layoutStarted(final int vertexCount, final int edgeCount) {
+        vertices.add(vertexCount);
+    }
+
+    @Override
+    public void phaseCompleted(final LayoutPhase phase, final long nanos) {
+        phases.get(phase).record(nanos);
+    }
+
+    @Override
+    public void iterationCompleted(final int iteration, final long nanos, final double maxDisplacement, final double energy) {
+        iterations.record(nanos);
+        lastMaxDisplacement = maxDisplacement;
+        lastEnergy = energy;
+    }
+
+    @Override
+    public void layoutFinished(final int iterations, final long nanos) {
+        layouts.record(nanos);
+    }
+
+    /**
+     * Returns the histogram of a phase.
+     *
+     * @param phase the phase.
+     * @return the durations of the phase.
+     */
+    public LatencyHistogram getPhaseHistogram(final LayoutPhase phase) {
+        return phases.get(phase);
+    }
+
+    /**
+     * Returns the histogram of the iterations.
+     *
+     * @return the durations of the iterations.
+     */
+    public LatencyHistogram getIterationHistogram() {
+        return iterations;
+    }
+
+    /**
+     * Returns the histogram of the layouts.
+     *
+     * @return the durations of the layouts.
+     */
+    public LatencyHistogram getLayoutHistogram() {
+        return layouts;
+    }
+
+    /**
+     * Returns the largest displacement of the last reported iteration.
+     *
+     * @return the displacement, NaN if it was not computed.
+     */
+    public double getLastMaxDisplacement() {
+        return lastMaxDisplacement;
+    }
+
+    /**
+     * Returns the energy of the last reported iteration.
+     *
+     * @return the energy, NaN if it was not computed.
+     */
+    public double getLastEnergy() {
+        return lastEnergy;
+    }
+
+    /**
+     * Clears all histograms.
+     */
+    public void reset() {
+        phases.values().forEach(LatencyHistogram::reset);
+        iterations.reset();
+        layouts.reset();
+        vertices.reset();
+    }
+
+    /**
+     * Formats the counts, means and percentiles of the layouts, iterations and phases, one per line.
+     *
+     * @return the summary.
+     */
+    public String summary() {
+        final StringBuilder summary = new StringBuilder();
+        summary.append(String.format(Locale.ROOT, "%d layouts of %d vertices in total%n", layouts.getCount(), vertices.sum()));
+        append(summary, "iteration", iterations);
+        for (final LayoutPhase phase : LayoutPhase.values()) {
+            if (phases.get(phase).getCount() > 0) {
+                append(summary, phase.name().toLowerCase(Locale.ROOT), phases.get(phase));
+            }
+        }
+        return summary.toString();
+    }
+
+    private static void append(final StringBuilder summary, final String name, final LatencyHistogram histogram) {
+        summary.append(String.format(Locale.ROOT, "%-10s n=%d mean=%.3f ms p50=%.3f ms p99=%.3f ms max=%.3f ms total=%d ms%n",
+                name, histogram.getCount(),
+                histogram.getMeanNanos() / 1e6,
+                histogram.getQuantileNanos(0.5) / 1e6,
+                histogram.getQuantileNanos(0.99) / 1e6,
+                histogram.getMaxNanos() / 1e6,
+                TimeUnit.NANOSECONDS.toMillis(histogram.getTotalNanos())));
+    }
+}
@@ -0,0 +1,103 @@
+package eu.virtualparadox.springembedder.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Emits the metrics as JDK Flight Recorder events, so the phases of production layouts show up in a
+ * recording next to the GC and the threads, e.g. with {@code -XX:StartFlightRecording}. Events that are
+ * not enabled in the recording settings cost one check and are optimized away by the JIT.
+ * <p>
+ * The times are measured by the layouters, so they are carried in an {@code elapsed} field; the built-in
+ * duration of the events is zero.
+ */
+public class JfrMetricsListener implements LayoutMetricsListener {
+
+    @Override
+    public void phaseCompleted(final LayoutPhase phase, final long nanos) {
+        final PhaseEvent event = new PhaseEvent();
+        if (event.isEnabled()) {
+            event.phase = phase.name();
+            event.elapsed = nanos;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void iterationCompleted(final int iteration, final long nanos, final double maxDisplacement, final double energy) {
+        final IterationEvent event = new IterationEvent();
+        if (event.isEnabled()) {
+            event.iteration = iteration;
+            event.elapsed = nanos;
+            event.maxDisplacement = maxDisplacement;
+            event.energy = energy;
+            event.commit();
+        }
+    }
+
+    @Override
+    public void layoutFinished(final int iterations, final long nanos) {
+        final LayoutEvent event = new LayoutEvent();
+        if (event.isEnabled()) {
+            event.iterations = iterations;
+            event.elapsed = nanos;
+            event.commit();
+        }
+    }
+
+    @Name("eu.virtualparadox.springembedder.LayoutPhase")
+    @Label("Layout Phase")
+    @Category("Spring Embedder")
+    @Description("A phase of a layout iteration")
+    @StackTrace(false)
+    static final class PhaseEvent extends Event {
+
+        @Label("Phase")
+        String phase;
+
+        @Label("Phase Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+    }
+
+    @Name("eu.virtualparadox.springembedder.LayoutIteration")
+    @Label("Layout Iteration")
+    @Category("Spring Embedder")
+    @Description("A complete layout iteration")
+    @StackTrace(false)
+    static final class IterationEvent extends Event {
+
+        @Label("Iteration")
+        int iteration;
+
+        @Label("Iteration Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+
+        @Label("Max Displacement")
+        double maxDisplacement;
+
+        @Label("Energy")
+        double energy;
+    }
+
+    @Name("eu.virtualparadox.springembedder.Layout")
+    @Label("Layout")
+    @Category("Spring Embedder")
+    @Description("A complete layout")
+    @StackTrace(false)
+    static final class LayoutEvent extends Event {
+
+        @Label("Iterations")
+        int iterations;
+
+        @Label("Layout Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long elapsed;
+    }
+}
@@ -0,0 +1,98 @@
+package eu.virtualparadox.springembedder.metrics;
+
+/**
+ * Receives the timings and statistics of the layouters, see {@code AbstractLayouter.setMetricsListener} and
+ * {@code BatchLayouter.setMetricsListener}.
+ * <p>
+ * The methods take primitives only, so reporting does not allocate. They are called on the thread running
+ * the layout, which for the {@code BatchLayouter} means several threads at once, so implementations shared
+ * between layouts must be thread-safe. All methods do nothing by default.
+ */
+public interface LayoutMetricsListener {
+
+    /**
+     * The listener of layouters without metrics. Layouters skip the timing of the phases for it.
+     */
+    LayoutMetricsListener NONE = new LayoutMetricsListener() {
+    };
+
+    /**
+     * Called before the first iteration of a layout.
+     *
+     * @param vertexCount the number of vertices.
+     * @param edgeCount   the number of edges.
+     */
+    default void layoutStarted(final int vertexCount, final int edgeCount) {
+        // nothing by default
+    }
+
+    /**
+     * Called after a phase of an iteration.
+     *
+     * @param phase the phase.
+     * @param nanos the duration of the phase in nanoseconds.
+     */
+    default void phaseCompleted(final LayoutPhase phase, final long nanos) {
+        // nothing by default
+    }
+
+    /**
+     * Called after every iteration.
+     *
+     * @param iteration       the index of the iteration.
+     * @param nanos           the duration of the iteration in nanoseconds, including its phases.
+     * @param maxDisplacement the longest distance a vertex moved, or NaN if the layouter did not compute it.
+     * @param energy          the sum of the squared force lengths, or NaN if the layouter did not compute it.
+     */
+    default void iterationCompleted(final int iteration,
+                                    final long nanos,
+                                    final double maxDisplacement,
+                                    final double energy) {
+        // nothing by default
+    }
+
+    /**
+     * Called after the last iteration of a layout.
+     *
+     * @param iterations the number of iterations that ran.
+     * @param nanos      the duration of the layout in nanoseconds.
+     */
+    default void layoutFinished(final int iterations, final long nanos) {
+        // nothing by default
+    }
+
+    /**
+     * Combines this listener with another one, both receive every call.
+     *
+     * @param other the other listener.
+     * @return the combined listener.
+     */
+    default LayoutMetricsListener and(final LayoutMetricsListener other) {
+        final LayoutMetricsListener self = this;
+        return new LayoutMetricsListener() {
+            @Override
+            public void layoutStarted(final int vertexCount, final int edgeCount) {
+                self.layoutStarted(vertexCount, edgeCount);
+                other.layoutStarted(vertexCount, edgeCount);
+            }
+
+            @Override
+            public void phaseCompleted(final LayoutPhase phase, final long nanos) {
+                self.phaseCompleted(phase, nanos);
+                other.phaseCompleted(phase, nanos);
+            }
+
+            @Override
+            public void iterationCompleted(final int iteration, final long nanos, final double maxDisplacement, final double energy) {
+                self.iterationCompleted(iteration, nanos, maxDisplacement, energy);
+                other.iterationCompleted(iteration, nanos, maxDisplacement, energy);
+            }
+
+            @Override
+            public void layoutFinished(final int iterations, final long nanos) {
+                self.layoutFinished(iterations, nanos);
+                other.layoutFinished(iterations, nanos);
+            }
+        };
+    }
+}
@@ -0,0 +1,32 @@
+package eu.virtualparadox.springembedder.metrics;
+
+/**
+ * The timed phases of a layout iteration.
+ */
+public enum LayoutPhase {
+
+    /**
+     * Computing the repulsive forces, including the preparation of the repulsion kernel.
+     */
+    REPULSION,
+
+    /**
+     * Computing the attractive forces along the edges.
+     */
+    ATTRACTION,
+
+    /**
+     * Moving the vertices by their displacements, limited by the temperature.
+     */
+    UPDATE,
+
+    /**
+     * Copying data between the host and an OpenCL device.
+     */
+    TRANSFER,
+
+    /**
+     * Running the renderer callback.
+     */
+    RENDER
+}
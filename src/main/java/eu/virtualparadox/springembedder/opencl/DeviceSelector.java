@@ -0,0 +1,73 @@
+package eu.virtualparadox.springembedder.opencl;
+
+import java.util.Locale;
+
+/**
+ * Chooses the OpenCL devices a session or a multi-device layout runs on.
+ * <p>
+ * Name matches are case-insensitive substring matches, so {@code platform("portable")} selects the
+ * {@code Portable Computing Language} runtime (POCL) and {@code name("rtx")} any GeForce RTX card. Selectors
+ * are combined with {@link #and(DeviceSelector)}.
+ */
+@FunctionalInterface
+public interface DeviceSelector {
+
+    /**
+     * Tells whether a device is selected.
+     *
+     * @param device the device.
+     * @return true if the device is selected.
+     */
+    boolean matches(OpenCLDevice device);
+
+    /**
+     * Combines this selector with another one, a device must match both.
+     *
+     * @param other the other selector.
+     * @return the combined selector.
+     */
+    default DeviceSelector and(final DeviceSelector other) {
+        return device -> matches(device) && other.matches(device);
+    }
+
+    /**
+     * Selects every device.
+     *
+     * @return the selector.
+     */
+    static DeviceSelector any() {
+        return device -> true;
+    }
+
+    /**
+     * Selects the devices of the platforms whose name contains the given text.
+     *
+     * @param name part of the platform name.
+     * @return the selector.
+     */
+    static DeviceSelector platform(final String name) {
+        final String part = name.toLowerCase(Locale.ROOT);
+        return device -> device.getPlatformName().toLowerCase(Locale.ROOT).contains(part);
+    }
+
+    /**
+     * Selects the devices whose name contains the given text.
+     *
+     * @param name part of the device name.
+     * @return the selector.
+     */
+    static DeviceSelector name(final String name) {
+        final String part = name.toLowerCase(Locale.ROOT);
+        return device -> device.getName().toLowerCase(Locale.ROOT).contains(part);
+    }
+
+    /**
+     * Selects the devices of a type.
+     *
+     * @param type the device type.
+     * @return the selector.
+     */
+    static DeviceSelector type(final OpenCLDevice.Type type) {
+        return device -> device.getType() == type;
+    }
+}
@@ -0,0 +1,189 @@
+package eu.virtualparadox.springembedder.opencl;
+
+import org.jocl.CL;
+import org.jocl.CLException;
+import org.jocl.Pointer;
+import org.jocl.Sizeof;
+import org.jocl.cl_device_id;
+import org.jocl.cl_platform_id;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.jocl.CL.*;
+
+/**
+ * An OpenCL device of an installed platform, with the properties {@link DeviceSelector}s match on.
+ * <p>
+ * {@link #list()} enumerates the devices of every platform, in platform order and then in the order the
+ * platform reports its devices, so the first device is the one a session has always used by default.
+ */
+public final class OpenCLDevice {
+
+    /**
+     * The kind of an OpenCL device.
+     */
+    public enum Type {
+        CPU,
+        GPU,
+        ACCELERATOR,
+        OTHER;
+
+        static Type of(final long deviceType) {
+            if ((deviceType & CL_DEVICE_TYPE_GPU) != 0) {
+                return GPU;
+            } else if ((deviceType & CL_DEVICE_TYPE_CPU) != 0) {
+                return CPU;
+            } else if ((deviceType & CL_DEVICE_TYPE_ACCELERATOR) != 0) {
+                return ACCELERATOR;
+            }
+            return OTHER;
+        }
+    }
+
+    private final cl_platform_id platform;
+    private final cl_device_id device;
+    private final String platformName;
+    private final String name;
+    private final Type type;
+    private final int computeUnits;
+
+    OpenCLDevice(final cl_platform_id platform,
+                 final cl_device_id device,
+                 final String platformName,
+                 final String name,
+                 final Type type,
+                 final int computeUnits) {
+        this.platform = platform;
+        this.device = device;
+        this.platformName = platformName;
+        this.name = name;
+        this.type = type;
+        this.computeUnits = computeUnits;
+    }
+
+    /**
+     * Enumerates the devices of all OpenCL platforms.
+     *
+     * @return the devices, empty if there is no OpenCL runtime.
+     */
+    public static List<OpenCLDevice> list() {
+        try {
+            CL.setExceptionsEnabled(true);
+            final int[] numPlatforms = new int[1];
+            clGetPlatformIDs(0, null, numPlatforms);
+            final cl_platform_id[] platforms = new cl_platform_id[numPlatforms[0]];
+            clGetPlatformIDs(platforms.length, platforms, null);
+
+            final List<OpenCLDevice> result = new ArrayList<>();
+            for (final cl_platform_id platform : platforms) {
+                final String platformName = platformInfo(platform, CL_PLATFORM_NAME);
+                final int[] numDevices = new int[1];
+                clGetDeviceIDs(platform, CL_DEVICE_TYPE_ALL, 0, null, numDevices);
+                final cl_device_id[] devices = new cl_device_id[numDevices[0]];
+                clGetDeviceIDs(platform, CL_DEVICE_TYPE_ALL, devices.length, devices, null);
+                for (final cl_device_id device : devices) {
+                    final long[] deviceType = new long[1];
+                    clGetDeviceInfo(device, CL_DEVICE_TYPE, Sizeof.cl_long, Pointer.to(deviceType), null);
+                    final int[] computeUnits = new int[1];
+                    clGetDeviceInfo(device, CL_DEVICE_MAX_COMPUTE_UNITS, Sizeof.cl_uint, Pointer.to(computeUnits), null);
+                    result.add(new OpenCLDevice(platform, device, platformName, deviceInfo(device, CL_DEVICE_NAME),
+                            Type.of(deviceType[0]), computeUnits[0]));
+                }
+            }
+            return result;
+        } catch (final CLException | LinkageError e) {
+            // no ICD loader, or a loader without platforms
+            return Collections.emptyList();
+        }
+    }
+
+    /**
+     * Enumerates the devices of all OpenCL platforms that match a selector.
+     *
+     * @param selector the selector.
+     * @return the matching devices in enumeration order.
+     */
+    public static List<OpenCLDevice> list(final DeviceSelector selector) {
+        final List<OpenCLDevice> result = new ArrayList<>();
+        for (final OpenCLDevice device : list()) {
+            if (selector.matches(device)) {
+                result.add(device);
+            }
+        }
+        return result;
+    }
+
+    private static String platformInfo(final cl_platform_id platform, final int parameter) {
+        final long[] size = new long[1];
+        clGetPlatformInfo(platform, parameter, 0, null, size);
+        final byte[] buffer = new byte[(int) size[0]];
+        clGetPlatformInfo(platform, parameter, buffer.length, Pointer.to(buffer), null);
+        return toString(buffer);
+    }
+
+    private static String deviceInfo(final cl_device_id device, final int parameter) {
+        final long[] size = new long[1];
+        clGetDeviceInfo(device, parameter, 0, null, size);
+        final byte[] buffer = new byte[(int) size[0]];
+        clGetDeviceInfo(device, parameter, buffer.length, Pointer.to(buffer), null);
+        return toString(buffer);
+    }
+
+    private static String toString(final byte[] buffer) {
+        // the strings are null terminated
+        final int length = buffer.length > 0 && buffer[buffer.length - 1] == 0 ? buffer.length - 1 : buffer.length;
+        return new String(buffer, 0, length, StandardCharsets.UTF_8).trim();
+    }
+
+    cl_platform_id getPlatform() {
+        return platform;
+    }
+
+    cl_device_id getDevice() {
+        return device;
+    }
+
+    /**
+     * Returns the name of the platform of the device, e.g. {@code Portable Computing Language}.
+     *
+     * @return the platform name.
+     */
+    public String getPlatformName() {
+        return platformName;
+    }
+
+    /**
+     * Returns the name of the device.
+     *
+     * @return the device name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the kind of the device.
+     *
+     * @return the type.
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Returns the number of parallel compute units, e.g. the cores of a CPU device.
+     *
+     * @return the number of compute units.
+     */
+    public int getComputeUnits() {
+        return computeUnits;
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + type + ", " + platformName + ", " + computeUnits + " compute units)";
+    }
+}
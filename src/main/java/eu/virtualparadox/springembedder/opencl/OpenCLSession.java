@@ -0,0 +1,179 @@
+package eu.virtualparadox.springembedder.opencl;
+
+import eu.virtualparadox.springembedder.ResourceLoader;
+import org.jocl.CL;
+import org.jocl.cl_context;
+import org.jocl.cl_device_id;
+import org.jocl.cl_program;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import static org.jocl.CL.*;
+
+/**
+ * Long-lived OpenCL context with the compiled Fruchterman-Reingold program.
+ * <p>
+ * Creating the context and compiling the kernels is by far the most expensive part of a small layout,
+ * a session does it once and can be shared by any number of layouters and threads. Every concurrent
+ * layout {@link #acquire() acquires} a {@link OpenCLWorkspace} with its own command queue, kernels and
+ * device buffers, and {@link #release(OpenCLWorkspace) releases} it afterwards. Released workspaces are
+ * pooled, so their buffers are reused by the next layout and only grow when a larger graph arrives.
+ * <p>
+ * The device is chosen with a {@link DeviceSelector} or taken from {@link OpenCLDevice#list()}, by default
+ * it is the first device of the first platform. A context cannot span platforms, so a multi-device layout
+ * runs on one session per device, see {@link #openAll(DeviceSelector)}.
+ * <p>
+ * The session holds native resources until it is {@link #close() closed}.
+ */
+public class OpenCLSession implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(OpenCLSession.class);
+
+    private final OpenCLDevice device;
+    private final cl_context context;
+    private final cl_program program;
+    private final Deque<OpenCLWorkspace> idleWorkspaces;
+
+    private int activeWorkspaces;
+    private boolean closed;
+
+    /**
+     * Creates a session on the first device of the first OpenCL platform.
+     */
+    public OpenCLSession() {
+        this(DeviceSelector.any());
+    }
+
+    /**
+     * Creates a session on the first device that matches a selector.
+     *
+     * @param selector chooses the device.
+     */
+    public OpenCLSession(final DeviceSelector selector) {
+        this(first(selector));
+    }
+
+    /**
+     * Creates a session on a device.
+     *
+     * @param device the device, from {@link OpenCLDevice#list()}.
+     */
+    public OpenCLSession(final OpenCLDevice device) {
+        CL.setExceptionsEnabled(true);
+        this.device = device;
+        this.context = clCreateContext(null, 1, new cl_device_id[]{device.getDevice()}, null, null, null);
+        this.program = initCLProgram(context);
+        this.idleWorkspaces = new ArrayDeque<>();
+        logger.debug("Opened OpenCL session on {}", device);
+    }
+
+    /**
+     * Opens a session on every device that matches a selector, e.g. for a multi-device layout. Contexts
+     * cannot span platforms, so every device gets a session of its own.
+     *
+     * @param selector chooses the devices.
+     * @return the sessions in device enumeration order, to be closed by the caller.
+     */
+    public static List<OpenCLSession> openAll(final DeviceSelector selector) {
+        final List<OpenCLDevice> devices = OpenCLDevice.list(selector);
+        if (devices.isEmpty()) {
+            throw new IllegalStateException("No OpenCL device matches the selector");
+        }
+        final List<OpenCLSession> sessions = new ArrayList<>();
+        for (final OpenCLDevice device : devices) {
+            sessions.add(new OpenCLSession(device));
+        }
+        return sessions;
+    }
+
+    private static OpenCLDevice first(final DeviceSelector selector) {
+        final List<OpenCLDevice> devices = OpenCLDevice.list(selector);
+        if (devices.isEmpty()) {
+            throw new IllegalStateException(OpenCLDevice.list().isEmpty() ? "No OpenCL platform found" : "No OpenCL device matches the selector");
+        }
+        return devices.get(0);
+    }
+
+    /**
+     * Returns the device of the session.
+     *
+     * @return the device.
+     */
+    public OpenCLDevice getDevice() {
+        return device;
+    }
+
+    private static cl_program initCLProgram(final cl_context context) {
+        try {
+            final String source = ResourceLoader.loadResourceAsString("/fruchterman-reingold.cl");
+            final cl_program program = clCreateProgramWithSource(context, 1, new String[]{source}, null, null);
+            clBuildProgram(program, 0, null, null, null, null);
+
+            return program;
+        } catch (final IOException e) {
+            throw new IllegalStateException("Failed to load OpenCL kernel", e);
+        }
+    }
+
+    /**
+     * Takes an idle workspace from the pool, or creates a new one if every workspace is in use.
+     *
+     * @return a workspace for the exclusive use of the caller until it is released.
+     */
+    public synchronized OpenCLWorkspace acquire() {
+        if (closed) {
+            throw new IllegalStateException("The OpenCL session is closed");
+        }
+        activeWorkspaces++;
+        final OpenCLWorkspace workspace = idleWorkspaces.pollFirst();
+        return workspace != null ? workspace : new OpenCLWorkspace(context, device.getDevice(), program);
+    }
+
+    /**
+     * Returns a workspace to the pool. If the session was closed in the meantime, the workspace is
+     * released right away.
+     *
+     * @param workspace the workspace obtained from {@link #acquire()}.
+     */
+    public synchronized void release(final OpenCLWorkspace workspace) {
+        activeWorkspaces--;
+        if (closed) {
+            workspace.release();
+            releaseIfUnused();
+        } else {
+            idleWorkspaces.addFirst(workspace);
+        }
+    }
+
+    /**
+     * Releases the pooled workspaces, the program and the context. Workspaces still in use are released
+     * when they are returned.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        while (!idleWorkspaces.isEmpty()) {
+            idleWorkspaces.pollFirst().release();
+        }
+        if (activeWorkspaces > 0) {
+            logger.warn("OpenCL session closed while {} workspaces are in use", activeWorkspaces);
+        }
+        releaseIfUnused();
+    }
+
+    private void releaseIfUnused() {
+        if (activeWorkspaces == 0) {
+            clReleaseProgram(program);
+            clReleaseContext(context);
+        }
+    }
+}
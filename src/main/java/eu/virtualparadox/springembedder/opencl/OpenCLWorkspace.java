@@ -0,0 +1,241 @@
+package eu.virtualparadox.springembedder.opencl;
+
+import eu.virtualparadox.springembedder.engine.IndexedGraph;
+import org.jocl.Pointer;
+import org.jocl.Sizeof;
+import org.jocl.cl_command_queue;
+import org.jocl.cl_context;
+import org.jocl.cl_device_id;
+import org.jocl.cl_kernel;
+import org.jocl.cl_mem;
+import org.jocl.cl_program;
+
+import static org.jocl.CL.*;
+
+/**
+ * Per-layout resources of an {@link OpenCLSession}: a command queue, the kernels and the device buffers.
+ * <p>
+ * Kernel arguments are state of the kernel object, so concurrent layouts cannot share kernels; every
+ * workspace creates its own from the compiled program of the session. The buffers are sized for a
+ * number of vertices and edges and are only reallocated when a layout needs more than that.
+ * <p>
+ * The edges are stored as a symmetric CSR incidence list: {@code offsets} has one entry per vertex plus
+ * one, {@code neighbors} and {@code weights} hold both directions of every edge.
+ */
+public final class OpenCLWorkspace {
+
+    private static final int MAX_TILE_SIZE = 256;
+
+    private final cl_context context;
+    private final cl_command_queue commandQueue;
+    private final cl_kernel kernelRepulsive;
+    private final cl_kernel kernelAttractive;
+    private final cl_kernel kernelUpdate;
+    private final cl_kernel kernelCoolDown;
+    private final cl_mem temperatureMem;
+    private final int repulsionLocalSize;
+
+    private int vertexCapacity;
+    private int edgeCapacity;
+    private cl_mem positionsMem;
+    private cl_mem displacementsMem;
+    private cl_mem offsetsMem;
+    private cl_mem neighborsMem;
+    private cl_mem weightsMem;
+
+    OpenCLWorkspace(final cl_context context,
+                    final cl_device_id device,
+                    final cl_program program) {
+        this.context = context;
+        // profiling lets the layouter report the device time of the kernels to a metrics listener
+        this.commandQueue = clCreateCommandQueue(context, device, CL_QUEUE_PROFILING_ENABLE, null);
+        this.kernelRepulsive = clCreateKernel(program, "calculateRepulsiveForces", null);
+        this.kernelAttractive = clCreateKernel(program, "calculateAttractiveForces", null);
+        this.kernelUpdate = clCreateKernel(program, "updatePositions", null);
+        this.kernelCoolDown = clCreateKernel(program, "coolDown", null);
+        this.temperatureMem = createBuffer(Sizeof.cl_float);
+        this.repulsionLocalSize = queryLocalSize(kernelRepulsive, device);
+    }
+
+    private static int queryLocalSize(final cl_kernel kernel, final cl_device_id device) {
+        final long[] maxWorkGroupSize = new long[1];
+        clGetKernelWorkGroupInfo(kernel, device, CL_KERNEL_WORK_GROUP_SIZE, Sizeof.size_t, Pointer.to(maxWorkGroupSize), null);
+        // larger tiles do not help, the inner loop is bound by the arithmetic
+        return (int) Math.max(1, Math.min(MAX_TILE_SIZE, maxWorkGroupSize[0]));
+    }
+
+    /**
+     * Makes sure the buffers can hold a graph of the given size. Buffers that are too small are
+     * reallocated with some headroom, so a series of slightly growing graphs does not reallocate every time.
+     * The content of reallocated buffers is undefined.
+     *
+     * @param numVertices the number of vertices.
+     * @param numEdges    the number of edges, every edge takes two entries of the incidence list.
+     */
+    public void ensureCapacity(final int numVertices, final int numEdges) {
+        if (numVertices > vertexCapacity || positionsMem == null) {
+            releaseVertexBuffers();
+            vertexCapacity = grow(vertexCapacity, numVertices);
+            positionsMem = createBuffer(Sizeof.cl_float * 2L * vertexCapacity);
+            displacementsMem = createBuffer(Sizeof.cl_float * 2L * vertexCapacity);
+            offsetsMem = createBuffer(Sizeof.cl_int * (vertexCapacity + 1L));
+        }
+        if (numEdges > edgeCapacity || neighborsMem == null) {
+            releaseEdgeBuffers();
+            edgeCapacity = grow(edgeCapacity, numEdges);
+            neighborsMem = createBuffer(Sizeof.cl_int * 2L * edgeCapacity);
+            weightsMem = createBuffer(Sizeof.cl_float * 2L * edgeCapacity);
+        }
+    }
+
+    /**
+     * Uploads the positions and the incidence list of a graph, growing the buffers if needed.
+     *
+     * @param graph     the graph.
+     * @param positions the interleaved (x, y) position of every vertex.
+     */
+    public void upload(final IndexedGraph<?> graph, final float[] positions) {
+        final int numVertices = graph.vertexCount();
+        final int numEdges = graph.edgeCount();
+        ensureCapacity(numVertices, numEdges);
+        clEnqueueWriteBuffer(commandQueue, positionsMem, CL_TRUE, 0, Sizeof.cl_float * 2L * numVertices, Pointer.to(positions), 0, null, null);
+        clEnqueueWriteBuffer(commandQueue, offsetsMem, CL_TRUE, 0, Sizeof.cl_int * (numVertices + 1L), Pointer.to(graph.getOffsets()), 0, null, null);
+        if (numEdges > 0) {
+            final double[] neighborWeights = graph.getNeighborWeights();
+            final float[] weights = new float[neighborWeights.length];
+            for (int k = 0; k < weights.length; k++) {
+                weights[k] = (float) neighborWeights[k];
+            }
+            clEnqueueWriteBuffer(commandQueue, neighborsMem, CL_TRUE, 0, Sizeof.cl_int * 2L * numEdges, Pointer.to(graph.getNeighbors()), 0, null, null);
+            clEnqueueWriteBuffer(commandQueue, weightsMem, CL_TRUE, 0, Sizeof.cl_float * 2L * numEdges, Pointer.to(weights), 0, null, null);
+        }
+    }
+
+    /**
+     * Binds the buffers and the constants of a layout to the force and update kernels. The arguments
+     * never change during a layout, only the content of the buffers.
+     *
+     * @param numVertices     the number of vertices.
+     * @param optimalDistance the optimal distance between vertices.
+     * @param c               the force constant.
+     * @param width           the width of the layout area.
+     * @param height          the height of the layout area.
+     */
+    public void setKernelArguments(final int numVertices,
+                                   final float optimalDistance,
+                                   final float c,
+                                   final int width,
+                                   final int height) {
+        clSetKernelArg(kernelRepulsive, 0, Sizeof.cl_mem, Pointer.to(positionsMem));
+        clSetKernelArg(kernelRepulsive, 1, Sizeof.cl_mem, Pointer.to(displacementsMem));
+        clSetKernelArg(kernelRepulsive, 2, Sizeof.cl_float * 2L * repulsionLocalSize, null);
+        clSetKernelArg(kernelRepulsive, 3, Sizeof.cl_int, Pointer.to(new int[]{numVertices}));
+        clSetKernelArg(kernelRepulsive, 4, Sizeof.cl_float, Pointer.to(new float[]{optimalDistance}));
+        clSetKernelArg(kernelRepulsive, 5, Sizeof.cl_float, Pointer.to(new float[]{c}));
+
+        clSetKernelArg(kernelAttractive, 0, Sizeof.cl_mem, Pointer.to(positionsMem));
+        clSetKernelArg(kernelAttractive, 1, Sizeof.cl_mem, Pointer.to(displacementsMem));
+        clSetKernelArg(kernelAttractive, 2, Sizeof.cl_mem, Pointer.to(offsetsMem));
+        clSetKernelArg(kernelAttractive, 3, Sizeof.cl_mem, Pointer.to(neighborsMem));
+        clSetKernelArg(kernelAttractive, 4, Sizeof.cl_mem, Pointer.to(weightsMem));
+        clSetKernelArg(kernelAttractive, 5, Sizeof.cl_int, Pointer.to(new int[]{numVertices}));
+        clSetKernelArg(kernelAttractive, 6, Sizeof.cl_float, Pointer.to(new float[]{optimalDistance}));
+        clSetKernelArg(kernelAttractive, 7, Sizeof.cl_float, Pointer.to(new float[]{c}));
+
+        clSetKernelArg(kernelUpdate, 0, Sizeof.cl_mem, Pointer.to(positionsMem));
+        clSetKernelArg(kernelUpdate, 1, Sizeof.cl_mem, Pointer.to(displacementsMem));
+        clSetKernelArg(kernelUpdate, 2, Sizeof.cl_mem, Pointer.to(temperatureMem));
+        clSetKernelArg(kernelUpdate, 3, Sizeof.cl_int, Pointer.to(new int[]{numVertices}));
+        clSetKernelArg(kernelUpdate, 4, Sizeof.cl_int, Pointer.to(new int[]{width}));
+        clSetKernelArg(kernelUpdate, 5, Sizeof.cl_int, Pointer.to(new int[]{height}));
+    }
+
+    private static int grow(final int capacity, final int required) {
+        // OpenCL does not allow empty buffers
+        return Math.max(1, Math.max(required, capacity + capacity / 2));
+    }
+
+    private cl_mem createBuffer(final long size) {
+        return clCreateBuffer(context, CL_MEM_READ_WRITE, size, null, null);
+    }
+
+    public cl_command_queue getCommandQueue() {
+        return commandQueue;
+    }
+
+    public cl_kernel getKernelRepulsive() {
+        return kernelRepulsive;
+    }
+
+    public cl_kernel getKernelAttractive() {
+        return kernelAttractive;
+    }
+
+    public cl_kernel getKernelUpdate() {
+        return kernelUpdate;
+    }
+
+    public cl_kernel getKernelCoolDown() {
+        return kernelCoolDown;
+    }
+
+    /**
+     * Returns the work group size of the repulsion kernel, which is also the number of positions per
+     * local memory tile. The global size of the kernel must be a multiple of it.
+     *
+     * @return the local size of the repulsion kernel.
+     */
+    public int getRepulsionLocalSize() {
+        return repulsionLocalSize;
+    }
+
+    public cl_mem getTemperatureMem() {
+        return temperatureMem;
+    }
+
+    public cl_mem getPositionsMem() {
+        return positionsMem;
+    }
+
+    public cl_mem getDisplacementsMem() {
+        return displacementsMem;
+    }
+
+    public cl_mem getOffsetsMem() {
+        return offsetsMem;
+    }
+
+    public cl_mem getNeighborsMem() {
+        return neighborsMem;
+    }
+
+    public cl_mem getWeightsMem() {
+        return weightsMem;
+    }
+
+    void release() {
+        releaseVertexBuffers();
+        releaseEdgeBuffers();
+        clReleaseKernel(kernelRepulsive);
+        clReleaseKernel(kernelAttractive);
+        clReleaseKernel(kernelUpdate);
+        clReleaseKernel(kernelCoolDown);
+        clReleaseMemObject(temperatureMem);
+        clReleaseCommandQueue(commandQueue);
+    }
+
+    private void releaseVertexBuffers() {
+        if (positionsMem != null) {
+            clReleaseMemObject(positionsMem);
+            clReleaseMemObject(displacementsMem);
+            clReleaseMemObject(offsetsMem);
+        }
+    }
+
+    private void releaseEdgeBuffers() {
+        if (neighborsMem != null) {
+            clReleaseMemObject(neighborsMem);
+            clReleaseMemObject(weightsMem);
+        }
+    }
+}
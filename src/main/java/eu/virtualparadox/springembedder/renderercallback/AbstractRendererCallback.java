@@ -1,5 +1,6 @@
 package eu.virtualparadox.springembedder.renderercallback;
 
+import eu.virtualparadox.springembedder.EdgeWeightTable;
 import eu.virtualparadox.springembedder.Vector2D;
 import org.jgrapht.Graph;
 import org.slf4j.Logger;
@@ -23,6 +24,28 @@ public abstract class AbstractRendererCallback<V, E> {
         this.height = height;
     }
 
+    /**
+     * Tells the layouter whether {@link #render} wants the positions of the given iteration.
+     * Layouters skip building the position map for iterations that are not requested.
+     *
+     * @param iteration the iteration.
+     * @return true if the iteration should be rendered.
+     */
+    public boolean isFrameRequested(final int iteration) {
+        return true;
+    }
+
+    /**
+     * Called by the layouter before the first frame of a layout with the edge weights it normalized, so
+     * renderers can reuse them instead of normalizing the graph again.
+     *
+     * @param graph       the graph to layout.
+     * @param edgeWeights the normalized weight of every edge, in the iteration order of the edge set.
+     */
+    public void start(final Graph<V, E> graph,
+                      final EdgeWeightTable edgeWeights) {
+    }
+
     public abstract void render(final Graph<V, E> graph,
                                 final int iteration,
                                 final Map<V, Vector2D> positionMap);
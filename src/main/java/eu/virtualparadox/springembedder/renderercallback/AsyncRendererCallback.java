@@ -0,0 +1,264 @@
+package eu.virtualparadox.springembedder.renderercallback;
+
+import eu.virtualparadox.springembedder.EdgeWeightTable;
+import eu.virtualparadox.springembedder.Vector2D;
+import org.jgrapht.Graph;
+
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Decorator that moves the rendering of another callback to a background thread.
+ * <p>
+ * The layouter hands the position snapshot of a frame to a bounded queue and continues with the next
+ * iteration, a single worker thread passes the frames to the delegate in iteration order. What happens
+ * when the delegate falls behind and the queue is full is decided by the {@link OverflowPolicy}.
+ * Frames can be sampled as well: only every n-th iteration is requested, and at most the given number
+ * of frames per second of wall clock time.
+ * <p>
+ * The worker thread is started by {@link #start} or the first frame of a layout, and {@link #finish()} waits
+ * until every queued frame is rendered, ends the worker and finishes the delegate, so one callback can
+ * serve any number of layouts. Exceptions of the delegate are rethrown on the layout thread by the next
+ * call of {@link #render} or {@link #finish()}.
+ *
+ * @param <V> Type of the vertices in the graph.
+ * @param <E> Type of the edges in the graph.
+ */
+public class AsyncRendererCallback<V, E> extends AbstractRendererCallback<V, E> {
+
+    /**
+     * Default number of frames the queue holds.
+     */
+    public static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * What to do with a frame when the queue is full.
+     */
+    public enum OverflowPolicy {
+        /**
+         * Wait until the worker takes a frame, no frame is lost.
+         */
+        BLOCK,
+        /**
+         * Discard the new frame.
+         */
+        DROP,
+        /**
+         * Discard the oldest queued frame, so the queue always holds the latest positions.
+         */
+        KEEP_LATEST
+    }
+
+    private final AbstractRendererCallback<V, E> delegate;
+    private final BlockingQueue<Frame<V, E>> queue;
+    private final OverflowPolicy overflowPolicy;
+    private final int frameInterval;
+    private final long minFrameNanos;
+
+    // the worker of the current layout, null between layouts
+    private Thread worker;
+
+    private long lastFrameNanos;
+    private int droppedFrames;
+    private volatile Throwable failure;
+
+    /**
+     * Constructor for the AsyncRendererCallback.
+     *
+     * @param delegate       The callback doing the actual rendering.
+     * @param capacity       Number of frames the queue holds.
+     * @param overflowPolicy What to do with a frame when the queue is full.
+     * @param frameInterval  Only every n-th iteration is rendered, 1 renders all of them.
+     * @param maxFps         Upper limit of rendered frames per second, 0 for no limit.
+     */
+    public AsyncRendererCallback(final AbstractRendererCallback<V, E> delegate,
+                                 final int capacity,
+                                 final OverflowPolicy overflowPolicy,
+                                 final int frameInterval,
+                                 final double maxFps) {
+        super(delegate.outputFolder, delegate.width, delegate.height);
+        if (capacity < 1 || frameInterval < 1 || maxFps < 0) {
+            throw new IllegalArgumentException("Capacity and frame interval must be positive, max fps must not be negative");
+        }
+        this.delegate = delegate;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.overflowPolicy = overflowPolicy;
+        this.frameInterval = frameInterval;
+        this.minFrameNanos = maxFps == 0 ? 0 : (long) (1e9 / maxFps);
+        this.lastFrameNanos = Long.MIN_VALUE;
+    }
+
+    /**
+     * Constructor for the AsyncRendererCallback, rendering every frame without losing any.
+     *
+     * @param delegate The callback doing the actual rendering.
+     */
+    public AsyncRendererCallback(final AbstractRendererCallback<V, E> delegate) {
+        this(delegate, DEFAULT_CAPACITY, OverflowPolicy.BLOCK, 1, 0);
+    }
+
+    @Override
+    public boolean isFrameRequested(final int iteration) {
+        if (iteration % frameInterval != 0 || !delegate.isFrameRequested(iteration)) {
+            return false;
+        }
+        if (minFrameNanos == 0) {
+            return true;
+        }
+        final long now = System.nanoTime();
+        if (lastFrameNanos != Long.MIN_VALUE && now - lastFrameNanos < minFrameNanos) {
+            return false;
+        }
+        lastFrameNanos = now;
+        return true;
+    }
+
+    @Override
+    public void start(final Graph<V, E> graph,
+                      final EdgeWeightTable edgeWeights) {
+        // no frame is queued yet, the queue publishes the weights to the worker
+        delegate.start(graph, edgeWeights);
+        startWorker();
+    }
+
+    @Override
+    public void render(final Graph<V, E> graph,
+                       final int iteration,
+                       final Map<V, Vector2D> positionMap) {
+        checkFailure();
+        startWorker();
+        final Frame<V, E> frame = new Frame<>(graph, iteration, positionMap);
+        switch (overflowPolicy) {
+            case BLOCK:
+                put(frame);
+                break;
+            case DROP:
+                if (!queue.offer(frame)) {
+                    droppedFrames++;
+                }
+                break;
+            case KEEP_LATEST:
+                while (!queue.offer(frame)) {
+                    if (queue.poll() != null) {
+                        droppedFrames++;
+                    }
+                }
+                break;
+            default:
+                throw new IllegalStateException("Unknown overflow policy " + overflowPolicy);
+        }
+    }
+
+    @Override
+    public void finish() {
+        if (worker != null) {
+            put(Frame.end());
+            try {
+                worker.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for the renderer", e);
+            }
+            worker = null;
+        }
+        lastFrameNanos = Long.MIN_VALUE;
+        if (droppedFrames > 0) {
+            logger.info("Dropped {} frames because the renderer could not keep up", droppedFrames);
+        }
+        checkFailure();
+        delegate.finish();
+    }
+
+    /**
+     * Returns the number of frames of the current or last layout discarded because the queue was full.
+     *
+     * @return the number of dropped frames.
+     */
+    public int getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    /**
+     * Starts the worker of a layout, unless it is running already. The failure of a previous layout has
+     * been rethrown by its {@link #finish()}, so it is cleared.
+     */
+    private void startWorker() {
+        if (worker != null) {
+            return;
+        }
+        droppedFrames = 0;
+        failure = null;
+        worker = new Thread(this::drain, "async-renderer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    private void put(final Frame<V, E> frame) {
+        try {
+            queue.put(frame);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing a frame", e);
+        }
+    }
+
+    private void drain() {
+        try {
+            while (true) {
+                final Frame<V, E> frame = queue.take();
+                if (frame.isEnd()) {
+                    return;
+                }
+                delegate.render(frame.graph, frame.iteration, frame.positionMap);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException | Error e) {
+            failure = e;
+            // keep emptying the queue until the end marker, so a blocked layout thread and finish() can continue
+            drainAfterFailure();
+        }
+    }
+
+    private void drainAfterFailure() {
+        try {
+            while (!queue.take().isEnd()) {
+                // discard
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void checkFailure() {
+        final Throwable t = failure;
+        if (t != null) {
+            throw new IllegalStateException("Rendering failed", t);
+        }
+    }
+
+    /**
+     * A queued frame, or the end marker if the graph is null.
+     */
+    private static final class Frame<V, E> {
+
+        private final Graph<V, E> graph;
+        private final int iteration;
+        private final Map<V, Vector2D> positionMap;
+
+        private Frame(final Graph<V, E> graph, final int iteration, final Map<V, Vector2D> positionMap) {
+            this.graph = graph;
+            this.iteration = iteration;
+            this.positionMap = positionMap;
+        }
+
+        private static <V, E> Frame<V, E> end() {
+            return new Frame<>(null, -1, null);
+        }
+
+        private boolean isEnd() {
+            return graph == null;
+        }
+    }
+}
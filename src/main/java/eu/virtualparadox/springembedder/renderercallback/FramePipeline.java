@@ -0,0 +1,222 @@
+package eu.virtualparadox.springembedder.renderercallback;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Rasterizes frames in parallel and writes them strictly in submission order.
+ * <p>
+ * Every submitted {@link Task} runs on a worker pool with an image from a pool of reusable
+ * {@link BufferedImage}s, so no frame allocates its own image once the pool is warm. The task rasterizes
+ * and converts the image, e.g. into a video picture or a PNG file, and returns the part of its work that
+ * must happen in order. Those writes go through a reorder buffer to a single writer thread, which runs them
+ * in the order the frames were submitted, however the workers finish.
+ * <p>
+ * At most {@code capacity} frames are in flight between {@link #submit} and their write, so
+ * {@link #submit} blocks the layout thread when the writer falls behind. Exceptions of a task or a write
+ * are rethrown by the next call of {@link #submit} or {@link #finish()}; the remaining frames are skipped.
+ */
+public final class FramePipeline {
+
+    /**
+     * The parallel part of a frame.
+     */
+    @FunctionalInterface
+    public interface Task {
+
+        /**
+         * Renders a frame into a pooled image. The image is returned to the pool afterwards, so it must
+         * not be referenced by the returned write.
+         *
+         * @param image a pooled image of the pipeline's size, with the content of an earlier frame.
+         * @return the part of the frame to run in order, or null if there is none.
+         * @throws IOException if the frame cannot be written.
+         */
+        Write render(BufferedImage image) throws IOException;
+    }
+
+    /**
+     * The ordered part of a frame.
+     */
+    @FunctionalInterface
+    public interface Write {
+
+        /**
+         * Writes the frame, called in submission order on the writer thread.
+         *
+         * @throws IOException if the frame cannot be written.
+         */
+        void write() throws IOException;
+    }
+
+    private static final Write NOTHING = () -> {
+    };
+
+    private final int width;
+    private final int height;
+    private final int capacity;
+    private final ExecutorService workers;
+    private final Thread writer;
+    private final Semaphore permits;
+    private final BlockingQueue<BufferedImage> images;
+
+    // the reorder buffer, frame s waits in slot s % capacity until every earlier frame is written
+    private final Write[] slots;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition published = lock.newCondition();
+    private long total = -1;
+
+    private long submitted;
+    private volatile Throwable failure;
+
+    /**
+     * Constructor for the FramePipeline.
+     *
+     * @param name     Prefix of the thread names.
+     * @param width    Width of the images.
+     * @param height   Height of the images.
+     * @param threads  Number of worker threads.
+     * @param capacity Number of frames in flight, and of pooled images.
+     */
+    public FramePipeline(final String name,
+                         final int width,
+                         final int height,
+                         final int threads,
+                         final int capacity) {
+        if (threads < 1 || capacity < 1) {
+            throw new IllegalArgumentException("Threads and capacity must be positive");
+        }
+        this.width = width;
+        this.height = height;
+        this.capacity = capacity;
+        this.permits = new Semaphore(capacity);
+        this.images = new ArrayBlockingQueue<>(capacity);
+        this.slots = new Write[capacity];
+
+        final AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+            final Thread thread = new Thread(runnable, name + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.writer = new Thread(this::drain, name + "-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Queues a frame, waiting while {@code capacity} frames are in flight.
+     *
+     * @param task Renders the frame.
+     */
+    public void submit(final Task task) {
+        checkFailure();
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing a frame", e);
+        }
+        final long sequence = submitted++;
+        workers.execute(() -> run(sequence, task));
+    }
+
+    private void run(final long sequence, final Task task) {
+        BufferedImage image = images.poll();
+        if (image == null) {
+            image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        }
+        Write write = null;
+        try {
+            if (failure == null) {
+                write = task.render(image);
+            }
+        } catch (IOException | RuntimeException | Error e) {
+            fail(e);
+        } finally {
+            images.offer(image);
+        }
+
+        lock.lock();
+        try {
+            slots[(int) (sequence % capacity)] = write != null ? write : NOTHING;
+            published.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void drain() {
+        long written = 0;
+        while (true) {
+            final Write write;
+            lock.lock();
+            try {
+                final int slot = (int) (written % capacity);
+                while (slots[slot] == null) {
+                    if (written == total) {
+                        return;
+                    }
+                    published.awaitUninterruptibly();
+                }
+                write = slots[slot];
+                slots[slot] = null;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                if (failure == null) {
+                    write.write();
+                }
+            } catch (IOException | RuntimeException | Error e) {
+                fail(e);
+            }
+            written++;
+            permits.release();
+        }
+    }
+
+    private void fail(final Throwable t) {
+        if (failure == null) {
+            failure = t;
+        }
+    }
+
+    /**
+     * Waits until every submitted frame is written and stops the threads.
+     */
+    public void finish() {
+        lock.lock();
+        try {
+            total = submitted;
+            published.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the frames", e);
+        } finally {
+            workers.shutdown();
+        }
+        checkFailure();
+    }
+
+    private void checkFailure() {
+        final Throwable t = failure;
+        if (t != null) {
+            throw new IllegalStateException("Rendering failed", t);
+        }
+    }
+}
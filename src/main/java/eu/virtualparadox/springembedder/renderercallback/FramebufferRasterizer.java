@@ -0,0 +1,304 @@
+package eu.virtualparadox.springembedder.renderercallback;
+
+import eu.virtualparadox.springembedder.EdgeWeightTable;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Draws graph frames straight into an {@code int[]} ARGB framebuffer, e.g. the data buffer of a
+ * {@link java.awt.image.BufferedImage#TYPE_INT_ARGB} image, without {@code Graphics2D}, strokes or any other
+ * allocation per frame.
+ * <p>
+ * Edges are grouped into {@link EdgeBatches} of equal stroke width once per graph, so the line loop never
+ * looks at a weight. Lines are clipped to the viewport before they are walked, edges shorter than a pixel
+ * are skipped as the vertex discs cover them, and discs outside the viewport are skipped. The framebuffer
+ * can be split into horizontal bands that are rendered in parallel on the common
+ * {@link java.util.concurrent.ForkJoinPool}; every band only writes its own rows.
+ */
+public final class FramebufferRasterizer {
+
+    public static final int BACKGROUND_COLOR = 0xFFFFFFFF;
+    public static final int EDGE_COLOR = 0xFF000000;
+    public static final int VERTEX_COLOR = 0xFFFF0000;
+
+    private final int width;
+    private final int height;
+    private final int vertexRadius;
+    // half the width of every row of a vertex disc, from the top row down
+    private final int[] discHalfWidths;
+
+    /**
+     * Constructor for the FramebufferRasterizer.
+     *
+     * @param width        Width of the framebuffer.
+     * @param height       Height of the framebuffer.
+     * @param vertexRadius Radius of the vertex discs in pixels.
+     */
+    public FramebufferRasterizer(final int width,
+                                 final int height,
+                                 final int vertexRadius) {
+        this.width = width;
+        this.height = height;
+        this.vertexRadius = vertexRadius;
+        this.discHalfWidths = new int[2 * vertexRadius];
+        for (int row = 0; row < discHalfWidths.length; row++) {
+            final double dy = row - vertexRadius + 0.5;
+            discHalfWidths[row] = (int) Math.round(Math.sqrt(vertexRadius * vertexRadius - dy * dy));
+        }
+    }
+
+    /**
+     * Renders a frame: clears the framebuffer, draws the edges batch by batch and the vertices on top.
+     *
+     * @param pixels      The framebuffer, {@code width * height} ARGB pixels row by row.
+     * @param x           The x coordinate of every vertex.
+     * @param y           The y coordinate of every vertex.
+     * @param vertexCount The number of vertices.
+     * @param edges       The edges, batched by stroke width.
+     * @param bands       The number of bands rendered in parallel, 1 renders on the calling thread.
+     */
+    public void render(final int[] pixels,
+                       final float[] x,
+                       final float[] y,
+                       final int vertexCount,
+                       final EdgeBatches edges,
+                       final int bands) {
+        if (pixels.length < width * height) {
+            throw new IllegalArgumentException("The framebuffer has " + pixels.length + " pixels, " + width * height + " expected");
+        }
+        if (bands <= 1) {
+            renderBand(pixels, x, y, vertexCount, edges, 0, height);
+        } else {
+            IntStream.range(0, bands).parallel().forEach(band ->
+                    renderBand(pixels, x, y, vertexCount, edges, band * height / bands, (band + 1) * height / bands));
+        }
+    }
+
+    private void renderBand(final int[] pixels,
+                            final float[] x,
+                            final float[] y,
+                            final int vertexCount,
+                            final EdgeBatches edges,
+                            final int top,
+                            final int bottom) {
+        Arrays.fill(pixels, top * width, bottom * width, BACKGROUND_COLOR);
+        for (int batch = 0; batch < edges.strokeWidths.length; batch++) {
+            final int strokeWidth = edges.strokeWidths[batch];
+            for (int i = edges.batchOffsets[batch]; i < edges.batchOffsets[batch + 1]; i++) {
+                final int source = edges.sources[i];
+                final int target = edges.targets[i];
+                drawLine(pixels, x[source], y[source], x[target], y[target], strokeWidth, top, bottom);
+            }
+        }
+        for (int v = 0; v < vertexCount; v++) {
+            drawDisc(pixels, Math.round(x[v]), Math.round(y[v]), top, bottom);
+        }
+    }
+
+    private void drawLine(final int[] pixels,
+                          final float x0,
+                          final float y0,
+                          final float x1,
+                          final float y1,
+                          final int strokeWidth,
+                          final int top,
+                          final int bottom) {
+        final float dx = x1 - x0;
+        final float dy = y1 - y0;
+        final float adx = Math.abs(dx);
+        final float ady = Math.abs(dy);
+        if (adx < 1 && ady < 1) {
+            return;
+        }
+        final boolean xMajor = adx >= ady;
+        // the stroke is measured across the line, the span along the minor axis is wider for diagonals
+        final int span = Math.max(1, Math.round(strokeWidth * (float) Math.sqrt(dx * dx + dy * dy) / (xMajor ? adx : ady)));
+        final float half = 0.5f * span;
+
+        // Liang-Barsky clipping against the band, grown by half the span
+        final float left = x0 + half;
+        final float right = width - 1 + half - x0;
+        final float above = y0 - top + half;
+        final float below = bottom - 1 + half - y0;
+        if (parallelOutside(dx, left) || parallelOutside(dx, right) || parallelOutside(dy, above) || parallelOutside(dy, below)) {
+            return;
+        }
+        final float t0 = Math.max(Math.max(enter(-dx, left), enter(dx, right)), Math.max(enter(-dy, above), enter(dy, below)));
+        final float t1 = Math.min(Math.min(leave(-dx, left), leave(dx, right)), Math.min(leave(-dy, above), leave(dy, below)));
+        if (t0 > t1) {
+            return;
+        }
+
+        final int offset = (span - 1) / 2;
+        if (xMajor) {
+            final float slope = dy / dx;
+            final float from = x0 + t0 * dx;
+            final float to = x0 + t1 * dx;
+            final int start = Math.max(0, Math.round(Math.min(from, to)));
+            final int end = Math.min(width - 1, Math.round(Math.max(from, to)));
+            if (start > end) {
+                return;
+            }
+            // column px covers the rows from round(y0 + (px - x0) * slope) - offset on, so instead of walking
+            // the columns, every row fills the run of columns that cover it, in memory order
+            final int firstAtStart = Math.round(y0 + (start - x0) * slope) - offset;
+            final int firstAtEnd = Math.round(y0 + (end - x0) * slope) - offset;
+            final int rowStart = Math.max(top, Math.min(firstAtStart, firstAtEnd));
+            final int rowEnd = Math.min(bottom, Math.max(firstAtStart, firstAtEnd) + span);
+            // y0 + (px - x0) * slope must lie in [row - span + 1 + offset - 0.5, row + offset + 0.5)
+            final float inverse = 1 / slope;
+            final float base = x0 - y0 * inverse;
+            final float lowShift = offset - span + 0.5f;
+            final float highShift = offset + 0.5f;
+            for (int row = rowStart; row < rowEnd; row++) {
+                int columnStart = start;
+                int columnEnd = end + 1;
+                if (slope > 0) {
+                    columnStart = Math.max(start, (int) Math.ceil((row + lowShift) * inverse + base));
+                    columnEnd = Math.min(columnEnd, (int) Math.ceil((row + highShift) * inverse + base));
+                } else if (slope < 0) {
+                    columnStart = Math.max(start, (int) Math.floor((row + highShift) * inverse + base) + 1);
+                    columnEnd = Math.min(columnEnd, (int) Math.floor((row + lowShift) * inverse + base) + 1);
+                }
+                fillRun(pixels, row * width, columnStart, columnEnd);
+            }
+        } else {
+            final float slope = dx / dy;
+            final float from = y0 + t0 * dy;
+            final float to = y0 + t1 * dy;
+            final int start = Math.max(top, Math.round(Math.min(from, to)));
+            final int end = Math.min(bottom - 1, Math.round(Math.max(from, to)));
+            for (int row = start; row <= end; row++) {
+                final int first = Math.round(x0 + (row - y0) * slope) - offset;
+                fillRun(pixels, row * width, Math.max(0, first), Math.min(width, first + span));
+            }
+        }
+    }
+
+    private static void fillRun(final int[] pixels,
+                                final int rowOffset,
+                                final int columnStart,
+                                final int columnEnd) {
+        // most runs are a few pixels wide, a plain loop beats the call of Arrays.fill
+        for (int i = rowOffset + columnStart; i < rowOffset + columnEnd; i++) {
+            pixels[i] = EDGE_COLOR;
+        }
+    }
+
+    private static boolean parallelOutside(final float p, final float q) {
+        return p == 0 && q < 0;
+    }
+
+    private static float enter(final float p, final float q) {
+        return p < 0 ? q / p : 0;
+    }
+
+    private static float leave(final float p, final float q) {
+        return p > 0 ? q / p : 1;
+    }
+
+    private void drawDisc(final int[] pixels,
+                          final int cx,
+                          final int cy,
+                          final int top,
+                          final int bottom) {
+        if (cx + vertexRadius < 0 || cx - vertexRadius >= width || cy + vertexRadius <= top || cy - vertexRadius >= bottom) {
+            return;
+        }
+        final int rowStart = Math.max(top, cy - vertexRadius);
+        final int rowEnd = Math.min(bottom, cy + vertexRadius);
+        for (int row = rowStart; row < rowEnd; row++) {
+            final int halfWidth = discHalfWidths[row - cy + vertexRadius];
+            final int columnStart = Math.max(0, cx - halfWidth);
+            final int columnEnd = Math.min(width, cx + halfWidth);
+            if (columnStart < columnEnd) {
+                Arrays.fill(pixels, row * width + columnStart, row * width + columnEnd, VERTEX_COLOR);
+            }
+        }
+    }
+
+    /**
+     * The edges of a graph grouped by stroke width, computed once per graph.
+     */
+    public static final class EdgeBatches {
+
+        private final int[] sources;
+        private final int[] targets;
+        private final int[] batchOffsets;
+        private final int[] strokeWidths;
+
+        private EdgeBatches(final int[] sources,
+                            final int[] targets,
+                            final int[] batchOffsets,
+                            final int[] strokeWidths) {
+            this.sources = sources;
+            this.targets = targets;
+            this.batchOffsets = batchOffsets;
+            this.strokeWidths = strokeWidths;
+        }
+
+        /**
+         * Groups edges by their normalized weight rounded to whole pixels, with a counting sort.
+         *
+         * @param sources     The source vertex of every edge.
+         * @param targets     The target vertex of every edge.
+         * @param edgeWeights The normalized weight of every edge, used as the stroke width.
+         * @return The batched edges.
+         */
+        public static EdgeBatches of(final int[] sources,
+                                     final int[] targets,
+                                     final EdgeWeightTable edgeWeights) {
+            final int m = sources.length;
+            final int[] widths = new int[m];
+            int maxWidth = 1;
+            for (int e = 0; e < m; e++) {
+                widths[e] = Math.max(1, (int) Math.round(edgeWeights.weight(e)));
+                maxWidth = Math.max(maxWidth, widths[e]);
+            }
+
+            final int[] counts = new int[maxWidth + 2];
+            for (int e = 0; e < m; e++) {
+                counts[widths[e] + 1]++;
+            }
+            for (int w = 1; w < counts.length; w++) {
+                counts[w] += counts[w - 1];
+            }
+            final int[] cursor = Arrays.copyOf(counts, counts.length);
+            final int[] sortedSources = new int[m];
+            final int[] sortedTargets = new int[m];
+            for (int e = 0; e < m; e++) {
+                final int slot = cursor[widths[e]]++;
+                sortedSources[slot] = sources[e];
+                sortedTargets[slot] = targets[e];
+            }
+
+            int batchCount = 0;
+            for (int w = 1; w <= maxWidth; w++) {
+                if (counts[w + 1] > counts[w]) {
+                    batchCount++;
+                }
+            }
+            final int[] batchOffsets = new int[batchCount + 1];
+            final int[] strokeWidths = new int[batchCount];
+            int batch = 0;
+            for (int w = 1; w <= maxWidth; w++) {
+                if (counts[w + 1] > counts[w]) {
+                    batchOffsets[batch] = counts[w];
+                    strokeWidths[batch++] = w;
+                }
+            }
+            batchOffsets[batchCount] = m;
+            return new EdgeBatches(sortedSources, sortedTargets, batchOffsets, strokeWidths);
+        }
+
+        /**
+         * Returns the number of edges.
+         *
+         * @return the number of edges.
+         */
+        public int size() {
+            return sources.length;
+        }
+    }
+}
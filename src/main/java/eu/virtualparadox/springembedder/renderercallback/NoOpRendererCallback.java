@@ -11,6 +11,11 @@ public class NoOpRendererCallback<V,E> extends AbstractRendererCallback<V,E> {
         super(null, 0, 0);
     }
 
+    @Override
+    public boolean isFrameRequested(int iteration) {
+        return false;
+    }
+
     @Override
     public void render(Graph<V, E> graph, int iteration, Map<V, Vector2D> positionMap) {
         // do nothing
@@ -1,78 +1,225 @@
 package eu.virtualparadox.springembedder.renderercallback;
 
-import eu.virtualparadox.springembedder.EdgeWeightNormalizer;
+import eu.virtualparadox.springembedder.EdgeWeightTable;
 import eu.virtualparadox.springembedder.Vector2D;
 import org.apache.commons.lang3.StringUtils;
 import org.jgrapht.Graph;
 
 import javax.imageio.ImageIO;
-import java.awt.*;
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+/**
+ * Renders every requested iteration to a PNG image.
+ * <p>
+ * Frames are rasterized and written in parallel by a {@link FramePipeline}, so {@link #render} returns as
+ * soon as a pooled image is free and the layout continues while the previous frames are encoded.
+ * {@link #finish()} waits for the remaining frames. The {@link FramebufferRasterizer} draws straight into
+ * the pixels of the pooled images; large frames can additionally be split into bands rendered in parallel.
+ *
+ * @param <V> Type of the vertices in the graph.
+ * @param <E> Type of the edges in the graph.
+ */
 public class PngRendererCallback<V, E> extends AbstractRendererCallback<V, E> {
 
-    private Map<E, Double> normalizedWeights;
+    private static final int VERTEX_RADIUS = 5;
 
+    private final int threads;
+    private final FramebufferRasterizer rasterizer;
+    // frames are rasterized in parallel, so every thread converts the positions into its own arrays
+    private final ThreadLocal<Coordinates> coordinates = ThreadLocal.withInitial(Coordinates::new);
+    private int bands = 1;
+    private EdgeWeightTable edgeWeights;
+    private Scene<V> scene;
+    private FramePipeline pipeline;
+
+    /**
+     * Constructor for the PngRendererCallback.
+     *
+     * @param outputFolder The folder of the images.
+     * @param width        Width of the images.
+     * @param height       Height of the images.
+     * @param threads      Number of threads rasterizing and writing frames.
+     */
     public PngRendererCallback(final Path outputFolder,
                                final int width,
-                               final int height) {
+                               final int height,
+                               final int threads) {
         super(outputFolder, width, height);
+        if (threads < 1) {
+            throw new IllegalArgumentException("Threads must be positive: " + threads);
+        }
+        this.threads = threads;
+        this.rasterizer = new FramebufferRasterizer(width, height, VERTEX_RADIUS);
+    }
+
+    /**
+     * Constructor for the PngRendererCallback, using a thread per available processor.
+     *
+     * @param outputFolder The folder of the images.
+     * @param width        Width of the images.
+     * @param height       Height of the images.
+     */
+    public PngRendererCallback(final Path outputFolder,
+                               final int width,
+                               final int height) {
+        this(outputFolder, width, height, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Sets the number of bands every frame is split into and rendered in parallel, 1 by default as the frames
+     * are already rendered in parallel. More bands help with few, large frames, e.g. 4K stills.
+     *
+     * @param bands The number of bands.
+     */
+    public void setBands(final int bands) {
+        if (bands < 1) {
+            throw new IllegalArgumentException("Bands must be positive: " + bands);
+        }
+        this.bands = bands;
+    }
+
+    @Override
+    public void start(final Graph<V, E> graph,
+                      final EdgeWeightTable edgeWeights) {
+        this.edgeWeights = edgeWeights;
+        this.scene = null;
     }
 
     public void render(final Graph<V, E> graph,
                        final int iteration,
                        final Map<V, Vector2D> positions) {
+        // resolved on the layout thread, the workers only read it
+        final Scene<V> frameScene = sceneOf(graph);
+        if (pipeline == null) {
+            pipeline = new FramePipeline(getClass().getSimpleName(), width, height, threads, 2 * threads);
+        }
+        pipeline.submit(image -> {
+            renderToImage(frameScene, positions, image);
+            return writeFrame(iteration, image);
+        });
+    }
+
+    /**
+     * Writes a rasterized frame, called in parallel on the worker threads. The image goes back to the pool
+     * afterwards, so the returned write must not reference it.
+     *
+     * @param iteration The iteration of the frame.
+     * @param image     The rasterized frame.
+     * @return The part of the frame that must be written in iteration order, or null if there is none.
+     * @throws IOException if the frame cannot be written.
+     */
+    protected FramePipeline.Write writeFrame(final int iteration,
+                                             final BufferedImage image) throws IOException {
+        final String step = StringUtils.leftPad(String.valueOf(iteration), 4, "0");
+        ImageIO.write(image, "PNG", outputFolder.resolve("iteration-" + step + ".png").toFile());
+        return null;
+    }
 
-        final BufferedImage image = renderToImage(graph, iteration, positions);
-        try {
-            final String step = StringUtils.leftPad(String.valueOf(iteration), 4, "0");
-            ImageIO.write(image, "PNG", outputFolder.resolve("iteration-" + step + ".png").toFile());
-        } catch (Exception e) {
-            throw new IllegalStateException("Failed to render frame", e);
+    /**
+     * Waits until every rendered frame is written.
+     */
+    protected void awaitFrames() {
+        if (pipeline != null) {
+            try {
+                pipeline.finish();
+            } finally {
+                pipeline = null;
+            }
+        }
+    }
+
+    private Scene<V> sceneOf(final Graph<V, E> graph) {
+        // a caller that renders without a layouter does not start the callback
+        if (edgeWeights == null || edgeWeights.size() != graph.edgeSet().size()) {
+            edgeWeights = EdgeWeightTable.of(graph);
+            scene = null;
+        }
+        if (scene == null || scene.graph != graph || scene.vertices.size() != graph.vertexSet().size()) {
+            scene = new Scene<>(graph, edgeWeights);
         }
+        return scene;
     }
 
     protected BufferedImage renderToImage(final Graph<V, E> graph,
                                           final int iteration,
                                           final Map<V, Vector2D> positions) {
-        // Normalize edge weights once,
-        // okay, it's disgusting... needs to be refactored
-        if (iteration == 0) {
-            final EdgeWeightNormalizer<V, E> edgeWeightNormalizer = new EdgeWeightNormalizer<>();
-            this.normalizedWeights = edgeWeightNormalizer.normalizeEdgeWeights(graph);
+        final BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        renderToImage(sceneOf(graph), positions, image);
+        return image;
+    }
+
+    private void renderToImage(final Scene<V> frameScene,
+                               final Map<V, Vector2D> positions,
+                               final BufferedImage image) {
+        final int n = frameScene.vertices.size();
+        final Coordinates buffers = coordinates.get();
+        buffers.ensureCapacity(n);
+        final float[] x = buffers.x;
+        final float[] y = buffers.y;
+        for (int v = 0; v < n; v++) {
+            final Vector2D position = positions.get(frameScene.vertices.get(v));
+            x[v] = (float) position.getX();
+            y[v] = (float) position.getY();
         }
+        final int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        rasterizer.render(pixels, x, y, n, frameScene.edges, bands);
+    }
 
-        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
-        Graphics2D g = image.createGraphics();
-        g.setColor(Color.WHITE);
-        g.fillRect(0, 0, width, height);
-
-        for (V from : graph.vertexSet()) {
-            for (E edge : graph.outgoingEdgesOf(from)) {
-                final V to = graph.getEdgeTarget(edge);
-                final Vector2D fromPosition = positions.get(from);
-                final Vector2D toPosition = positions.get(to);
-                double normalizedWeight = normalizedWeights.get(edge);
-                g.setStroke(new BasicStroke((float) normalizedWeight));
-                g.setColor(Color.BLACK);
-                g.drawLine((int) fromPosition.getX(), (int) fromPosition.getY(), (int) toPosition.getX(), (int) toPosition.getY());
+    /**
+     * The vertex coordinates of a frame as floats, grown only when a larger graph arrives.
+     */
+    private static final class Coordinates {
+
+        private float[] x = new float[0];
+        private float[] y = new float[0];
+
+        private void ensureCapacity(final int n) {
+            if (x.length < n) {
+                final int capacity = Math.max(n, x.length + (x.length >> 1));
+                x = new float[capacity];
+                y = new float[capacity];
             }
         }
+    }
 
-        g.setColor(Color.RED);
-        for (V v : graph.vertexSet()) {
-            final Vector2D n = positions.get(v);
-            g.fillOval((int) n.getX() - 5, (int) n.getY() - 5, 10, 10);
-        }
+    /**
+     * The vertex order and the batched edges of a graph, computed once per graph on the layout thread.
+     */
+    private static final class Scene<V> {
 
-        g.dispose();
-        return image;
+        private final Graph<V, ?> graph;
+        private final List<V> vertices;
+        private final FramebufferRasterizer.EdgeBatches edges;
+
+        private <E> Scene(final Graph<V, E> graph, final EdgeWeightTable edgeWeights) {
+            this.graph = graph;
+            this.vertices = new ArrayList<>(graph.vertexSet());
+            final Map<V, Integer> ids = new HashMap<>();
+            for (int v = 0; v < vertices.size(); v++) {
+                ids.put(vertices.get(v), v);
+            }
+            final int[] sources = new int[edgeWeights.size()];
+            final int[] targets = new int[edgeWeights.size()];
+            int e = 0;
+            for (final E edge : graph.edgeSet()) {
+                sources[e] = ids.get(graph.getEdgeSource(edge));
+                targets[e] = ids.get(graph.getEdgeTarget(edge));
+                e++;
+            }
+            this.edges = FramebufferRasterizer.EdgeBatches.of(sources, targets, edgeWeights);
+        }
     }
 
     @Override
     public void finish() {
+        awaitFrames();
         logger.info("Files saved to {}", outputFolder.toAbsolutePath());
     }
 }
@@ -1,22 +1,40 @@
 package eu.virtualparadox.springembedder.renderercallback;
 
-import eu.virtualparadox.springembedder.Vector2D;
 import org.jcodec.api.awt.AWTSequenceEncoder;
-import org.jgrapht.Graph;
+import org.jcodec.common.model.Picture;
+import org.jcodec.scale.AWTUtil;
 
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.nio.file.Path;
-import java.util.Map;
 
+/**
+ * Encodes every requested iteration as a frame of an MP4 video.
+ * <p>
+ * The worker threads of the {@link FramePipeline} rasterize the frames and convert them to the color space
+ * of the encoder in parallel, only the encoding itself runs on the single writer thread, in iteration order.
+ *
+ * @param <V> Type of the vertices in the graph.
+ * @param <E> Type of the edges in the graph.
+ */
 public class VideoRendererCallback<V, E> extends PngRendererCallback<V, E> {
 
-    private AWTSequenceEncoder encoder;
+    private final AWTSequenceEncoder encoder;
+    private int encodedFrames;
 
+    /**
+     * Constructor for the VideoRendererCallback.
+     *
+     * @param outputFolder The folder of the {@code output.mp4} video.
+     * @param width        Width of the video.
+     * @param height       Height of the video.
+     * @param threads      Number of threads rasterizing frames.
+     */
     public VideoRendererCallback(final Path outputFolder,
                                  final int width,
-                                 final int height) {
-        super(outputFolder, width, height);
+                                 final int height,
+                                 final int threads) {
+        super(outputFolder, width, height, threads);
         try {
             encoder = AWTSequenceEncoder.create25Fps(outputFolder.resolve("output.mp4").toFile());
         } catch (IOException e) {
@@ -24,24 +42,34 @@ public class VideoRendererCallback<V, E> extends PngRendererCallback<V, E> {
         }
     }
 
-    @Override
-    public void render(final Graph<V, E> graph,
-                       final int iteration,
-                       final Map<V, Vector2D> positions) {
+    /**
+     * Constructor for the VideoRendererCallback, using a thread per available processor.
+     *
+     * @param outputFolder The folder of the {@code output.mp4} video.
+     * @param width        Width of the video.
+     * @param height       Height of the video.
+     */
+    public VideoRendererCallback(final Path outputFolder,
+                                 final int width,
+                                 final int height) {
+        this(outputFolder, width, height, Runtime.getRuntime().availableProcessors());
+    }
 
-        try {
-            final BufferedImage image = renderToImage(graph, iteration, positions);
-            encoder.encodeImage(image);
-            if (iteration % 100 == 0) {
-                logger.info("Rendered frame {}", iteration);
+    @Override
+    protected FramePipeline.Write writeFrame(final int iteration,
+                                             final BufferedImage image) {
+        final Picture picture = AWTUtil.fromBufferedImageRGB(image);
+        return () -> {
+            encoder.encodeNativeFrame(picture);
+            if (++encodedFrames % 100 == 0) {
+                logger.info("Encoded {} frames, last iteration {}", encodedFrames, iteration);
             }
-        } catch (Exception e) {
-            throw new IllegalStateException("Failed to render frame", e);
-        }
+        };
     }
 
     @Override
     public void finish() {
+        awaitFrames();
         try {
             logger.info("Finishing encoding and saving video to {}/output.mp4", outputFolder.toAbsolutePath());
             encoder.finish();
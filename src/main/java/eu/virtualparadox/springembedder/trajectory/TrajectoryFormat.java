@@ -0,0 +1,45 @@
+package eu.virtualparadox.springembedder.trajectory;
+
+/**
+ * Layout of a trajectory file, shared by the {@link TrajectoryRecorder} and the {@link TrajectoryReader}.
+ * <p>
+ * All numbers are little-endian. The header holds the int magic, the int version, the int number of
+ * vertices, the int width and height of the layout area, an unused int, the long number of complete
+ * frames, and the vertex table: the key of every vertex as an int length followed by UTF-8 bytes. The
+ * header is padded to a multiple of 8 bytes. Every frame is the int iteration, an unused int and the
+ * x, y float pair of every vertex in the order of the vertex table, so frame {@code k} starts at
+ * {@code headerSize + k * frameSize}.
+ */
+final class TrajectoryFormat {
+
+    /**
+     * "SETR" read as a little-endian int.
+     */
+    static final int MAGIC = 0x52544553;
+    static final int VERSION = 1;
+
+    static final int VERTEX_COUNT_OFFSET = 8;
+    static final int WIDTH_OFFSET = 12;
+    static final int HEIGHT_OFFSET = 16;
+    static final int FRAME_COUNT_OFFSET = 24;
+    static final int VERTEX_TABLE_OFFSET = 32;
+    static final int FRAME_HEADER_SIZE = 8;
+
+    // frames are mapped in segments of at most this size, a single mapping is limited to 2 GB
+    static final long SEGMENT_SIZE = 1 << 28;
+
+    private TrajectoryFormat() {
+    }
+
+    static long frameSize(final int vertexCount) {
+        return FRAME_HEADER_SIZE + 8L * vertexCount;
+    }
+
+    static int framesPerSegment(final long frameSize) {
+        return (int) Math.max(1, SEGMENT_SIZE / frameSize);
+    }
+
+    static long align(final long size) {
+        return (size + 7) & ~7L;
+    }
+}
@@ -0,0 +1,257 @@
+package eu.virtualparadox.springembedder.trajectory;
+
+import eu.virtualparadox.springembedder.EdgeWeightTable;
+import eu.virtualparadox.springembedder.Vector2D;
+import eu.virtualparadox.springembedder.renderercallback.AbstractRendererCallback;
+import org.jgrapht.Graph;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static eu.virtualparadox.springembedder.trajectory.TrajectoryFormat.*;
+
+/**
+ * Random access to the frames of a trajectory file written by the {@link TrajectoryRecorder}.
+ * <p>
+ * The file is memory-mapped read-only, so reading a frame copies its floats straight from the page cache.
+ * The reader is thread-safe: several threads may replay different iteration ranges at the same time, e.g.
+ * into one {@link eu.virtualparadox.springembedder.renderercallback.PngRendererCallback} per range.
+ */
+public class TrajectoryReader implements AutoCloseable {
+
+    private final Path file;
+    private final FileChannel channel;
+    private final int width;
+    private final int height;
+    private final List<String> vertexKeys;
+    private final long headerSize;
+    private final long frameSize;
+    private final int framesPerSegment;
+    private final MappedByteBuffer[] segments;
+    private final int[] iterations;
+
+    /**
+     * Opens a trajectory file.
+     *
+     * @param file the trajectory file.
+     * @throws IOException              if the file cannot be read.
+     * @throws IllegalArgumentException if the file is not a trajectory.
+     */
+    public TrajectoryReader(final Path file) throws IOException {
+        this.file = file;
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            final long fileSize = channel.size();
+            if (fileSize < VERTEX_TABLE_OFFSET) {
+                throw new IllegalArgumentException("Not a trajectory file: " + file);
+            }
+            final ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(fileSize, Integer.MAX_VALUE))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != MAGIC) {
+                throw new IllegalArgumentException("Not a trajectory file: " + file);
+            }
+            if (header.getInt(4) != VERSION) {
+                throw new IllegalArgumentException("Unsupported trajectory version " + header.getInt(4) + " in " + file);
+            }
+            final int vertexCount = header.getInt(VERTEX_COUNT_OFFSET);
+            this.width = header.getInt(WIDTH_OFFSET);
+            this.height = header.getInt(HEIGHT_OFFSET);
+
+            final List<String> keys = new ArrayList<>(vertexCount);
+            header.position(VERTEX_TABLE_OFFSET);
+            for (int v = 0; v < vertexCount; v++) {
+                final byte[] key = new byte[header.getInt()];
+                header.get(key);
+                keys.add(new String(key, StandardCharsets.UTF_8));
+            }
+            this.vertexKeys = Collections.unmodifiableList(keys);
+            this.headerSize = align(header.position());
+            this.frameSize = frameSize(vertexCount);
+            this.framesPerSegment = framesPerSegment(frameSize);
+
+            // an interrupted recording may have counted a frame that never reached the file
+            final long completeFrames = Math.max(0, fileSize - headerSize) / frameSize;
+            final int frameCount = (int) Math.min(header.getLong(FRAME_COUNT_OFFSET), completeFrames);
+            this.segments = new MappedByteBuffer[(frameCount + framesPerSegment - 1) / framesPerSegment];
+            for (int s = 0; s < segments.length; s++) {
+                final long frames = Math.min(framesPerSegment, frameCount - (long) s * framesPerSegment);
+                segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, headerSize + (long) s * framesPerSegment * frameSize,
+                        frames * frameSize);
+                segments[s].order(ByteOrder.LITTLE_ENDIAN);
+            }
+            this.iterations = new int[frameCount];
+            for (int frame = 0; frame < frameCount; frame++) {
+                iterations[frame] = segments[frame / framesPerSegment].getInt(offset(frame));
+            }
+        } catch (final IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private int offset(final int frame) {
+        return (int) ((frame % framesPerSegment) * frameSize);
+    }
+
+    /**
+     * Returns the width of the layout area the trajectory was recorded with.
+     *
+     * @return the width.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Returns the height of the layout area the trajectory was recorded with.
+     *
+     * @return the height.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the number of vertices.
+     *
+     * @return the number of vertices.
+     */
+    public int vertexCount() {
+        return vertexKeys.size();
+    }
+
+    /**
+     * Returns the {@code toString()} of every vertex, in the order of the positions of a frame.
+     *
+     * @return the vertex keys.
+     */
+    public List<String> getVertexKeys() {
+        return vertexKeys;
+    }
+
+    /**
+     * Returns the number of recorded frames.
+     *
+     * @return the number of frames.
+     */
+    public int frameCount() {
+        return iterations.length;
+    }
+
+    /**
+     * Returns the iteration of a frame.
+     *
+     * @param frame the frame index.
+     * @return the layout iteration the frame was recorded at.
+     */
+    public int iteration(final int frame) {
+        return iterations[frame];
+    }
+
+    /**
+     * Returns the first frame recorded at or after an iteration.
+     *
+     * @param iteration the iteration.
+     * @return the frame index, or {@link #frameCount()} if every frame is earlier.
+     */
+    public int frameAtOrAfter(final int iteration) {
+        final int index = Arrays.binarySearch(iterations, iteration);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * Copies the positions of a frame, as x, y pairs in the order of {@link #getVertexKeys()}.
+     *
+     * @param frame     the frame index.
+     * @param positions receives the positions, of length at least {@code 2 * vertexCount()}.
+     */
+    public void readFrame(final int frame, final float[] positions) {
+        if (frame < 0 || frame >= iterations.length) {
+            throw new IndexOutOfBoundsException("Frame " + frame + " of " + iterations.length);
+        }
+        // slices are independent buffers, so concurrent reads do not share a position
+        segments[frame / framesPerSegment]
+                .slice(offset(frame) + FRAME_HEADER_SIZE, (int) (frameSize - FRAME_HEADER_SIZE))
+                .order(ByteOrder.LITTLE_ENDIAN)
+                .asFloatBuffer()
+                .get(positions, 0, 2 * vertexKeys.size());
+    }
+
+    /**
+     * Renders the recorded frames of an iteration range with a renderer callback, then finishes the callback.
+     * The vertices of the graph are matched to the vertex table by their {@code toString()}.
+     *
+     * @param graph         The graph that was laid out.
+     * @param fromIteration The first iteration, inclusive.
+     * @param toIteration   The last iteration, exclusive.
+     * @param callback      Renders the frames.
+     * @param <V>           Type of the vertices in the graph.
+     * @param <E>           Type of the edges in the graph.
+     */
+    public <V, E> void replay(final Graph<V, E> graph,
+                              final int fromIteration,
+                              final int toIteration,
+                              final AbstractRendererCallback<V, E> callback) {
+        final List<V> vertices = resolveVertices(graph);
+        final float[] positions = new float[2 * vertices.size()];
+        callback.start(graph, EdgeWeightTable.of(graph));
+        for (int frame = frameAtOrAfter(fromIteration); frame < iterations.length && iterations[frame] < toIteration; frame++) {
+            if (!callback.isFrameRequested(iterations[frame])) {
+                continue;
+            }
+            readFrame(frame, positions);
+            final Map<V, Vector2D> positionMap = new HashMap<>();
+            for (int v = 0; v < vertices.size(); v++) {
+                positionMap.put(vertices.get(v), new Vector2D(positions[2 * v], positions[2 * v + 1]));
+            }
+            callback.render(graph, iterations[frame], positionMap);
+        }
+        callback.finish();
+    }
+
+    /**
+     * Renders every recorded frame with a renderer callback, then finishes the callback.
+     *
+     * @param graph    The graph that was laid out.
+     * @param callback Renders the frames.
+     * @param <V>      Type of the vertices in the graph.
+     * @param <E>      Type of the edges in the graph.
+     */
+    public <V, E> void replay(final Graph<V, E> graph,
+                              final AbstractRendererCallback<V, E> callback) {
+        replay(graph, Integer.MIN_VALUE, Integer.MAX_VALUE, callback);
+    }
+
+    private <V> List<V> resolveVertices(final Graph<V, ?> graph) {
+        final Map<String, V> byKey = new HashMap<>();
+        for (final V vertex : graph.vertexSet()) {
+            byKey.put(String.valueOf(vertex), vertex);
+        }
+        final List<V> vertices = new ArrayList<>(vertexKeys.size());
+        for (final String key : vertexKeys) {
+            final V vertex = byKey.get(key);
+            if (vertex == null) {
+                throw new IllegalArgumentException("Vertex " + key + " of " + file + " is not in the graph");
+            }
+            vertices.add(vertex);
+        }
+        return vertices;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,205 @@
+package eu.virtualparadox.springembedder.trajectory;
+
+import eu.virtualparadox.springembedder.Vector2D;
+import eu.virtualparadox.springembedder.renderercallback.AbstractRendererCallback;
+import org.jgrapht.Graph;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static eu.virtualparadox.springembedder.trajectory.TrajectoryFormat.*;
+
+/**
+ * Renderer callback that records the positions of the requested iterations to a trajectory file instead
+ * of drawing them, so the layout runs at full speed and the frames can be rendered later, elsewhere and
+ * in parallel with a {@link TrajectoryReader}.
+ * <p>
+ * The vertex table is written with the first frame, from the {@code toString()} of the vertices, which
+ * must be distinct. Frames are appended as raw float pairs through memory-mapped segments of the file.
+ * The number of frames in the header is updated after every frame, so a file whose recording was
+ * interrupted can still be read up to its last complete frame.
+ *
+ * @param <V> Type of the vertices in the graph.
+ * @param <E> Type of the edges in the graph.
+ */
+public class TrajectoryRecorder<V, E> extends AbstractRendererCallback<V, E> {
+
+    private final Path file;
+    private final int frameInterval;
+
+    private FileChannel channel;
+    private MappedByteBuffer header;
+    private MappedByteBuffer segment;
+    private List<V> vertices;
+    private float[] frame;
+    private long headerSize;
+    private long frameSize;
+    private int framesPerSegment;
+    private int segmentIndex;
+    private long frameCount;
+
+    /**
+     * Constructor for the TrajectoryRecorder.
+     *
+     * @param file          The trajectory file, replaced if it exists.
+     * @param width         Width of the layout area.
+     * @param height        Height of the layout area.
+     * @param frameInterval Only every frameInterval-th iteration is recorded.
+     */
+    public TrajectoryRecorder(final Path file,
+                              final int width,
+                              final int height,
+                              final int frameInterval) {
+        super(file.toAbsolutePath().getParent(), width, height);
+        if (frameInterval < 1) {
+            throw new IllegalArgumentException("Frame interval must be positive: " + frameInterval);
+        }
+        this.file = file;
+        this.frameInterval = frameInterval;
+    }
+
+    /**
+     * Constructor for the TrajectoryRecorder, recording every iteration.
+     *
+     * @param file   The trajectory file, replaced if it exists.
+     * @param width  Width of the layout area.
+     * @param height Height of the layout area.
+     */
+    public TrajectoryRecorder(final Path file,
+                              final int width,
+                              final int height) {
+        this(file, width, height, 1);
+    }
+
+    @Override
+    public boolean isFrameRequested(final int iteration) {
+        return iteration % frameInterval == 0;
+    }
+
+    @Override
+    public void render(final Graph<V, E> graph,
+                       final int iteration,
+                       final Map<V, Vector2D> positionMap) {
+        try {
+            if (channel == null) {
+                open(graph);
+            } else if (positionMap.size() != vertices.size()) {
+                throw new IllegalStateException("The graph has " + positionMap.size() + " vertices, the trajectory " + vertices.size());
+            }
+            appendFrame(iteration, positionMap);
+        } catch (final IOException e) {
+            throw new IllegalStateException("Failed to record frame " + iteration, e);
+        }
+    }
+
+    private void open(final Graph<V, E> graph) throws IOException {
+        vertices = new ArrayList<>(graph.vertexSet());
+        final List<byte[]> keys = new ArrayList<>(vertices.size());
+        long tableSize = 0;
+        for (final V vertex : vertices) {
+            final byte[] key = String.valueOf(vertex).getBytes(StandardCharsets.UTF_8);
+            keys.add(key);
+            tableSize += Integer.BYTES + key.length;
+        }
+        headerSize = align(VERTEX_TABLE_OFFSET + tableSize);
+        frameSize = frameSize(vertices.size());
+        framesPerSegment = framesPerSegment(frameSize);
+        frame = new float[2 * vertices.size()];
+        segmentIndex = -1;
+
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        final ByteBuffer buffer = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(vertices.size()).putInt(width).putInt(height).putInt(0).putLong(0);
+        for (final byte[] key : keys) {
+            if (buffer.remaining() < Integer.BYTES + key.length) {
+                drain(buffer);
+            }
+            if (buffer.remaining() < Integer.BYTES + key.length) {
+                // keys longer than the buffer are written on their own
+                buffer.putInt(key.length);
+                drain(buffer);
+                channel.write(ByteBuffer.wrap(key));
+            } else {
+                buffer.putInt(key.length).put(key);
+            }
+        }
+        drain(buffer);
+        header = channel.map(FileChannel.MapMode.READ_WRITE, 0, VERTEX_TABLE_OFFSET);
+        header.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private void drain(final ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private void appendFrame(final int iteration, final Map<V, Vector2D> positionMap) throws IOException {
+        for (int v = 0; v < vertices.size(); v++) {
+            final Vector2D position = positionMap.get(vertices.get(v));
+            frame[2 * v] = (float) position.getX();
+            frame[2 * v + 1] = (float) position.getY();
+        }
+
+        final int index = (int) (frameCount % framesPerSegment);
+        if (index == 0) {
+            // mapping beyond the end grows the file, it is truncated to the frames in finish
+            segmentIndex++;
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, headerSize + segmentIndex * framesPerSegment * frameSize,
+                    framesPerSegment * frameSize);
+        }
+        final int offset = (int) (index * frameSize);
+        segment.order(ByteOrder.LITTLE_ENDIAN).putInt(offset, iteration);
+        final FloatBuffer floats = segment.slice(offset + FRAME_HEADER_SIZE, (int) (frameSize - FRAME_HEADER_SIZE))
+                .order(ByteOrder.LITTLE_ENDIAN)
+                .asFloatBuffer();
+        floats.put(frame);
+
+        frameCount++;
+        header.putLong(FRAME_COUNT_OFFSET, frameCount);
+    }
+
+    /**
+     * Returns the number of frames recorded so far.
+     *
+     * @return the number of frames.
+     */
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    @Override
+    public void finish() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            if (segment != null) {
+                segment.force();
+            }
+            header.force();
+            channel.truncate(headerSize + frameCount * frameSize);
+            channel.close();
+            logger.info("Recorded {} frames to {}", frameCount, file.toAbsolutePath());
+        } catch (final IOException e) {
+            throw new IllegalStateException("Failed to finish trajectory " + file, e);
+        } finally {
+            channel = null;
+            segment = null;
+            header = null;
+        }
+    }
+}
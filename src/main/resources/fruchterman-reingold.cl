@@ -1,122 +1,125 @@
-// Constants
-#define HACK_FACTOR 100000.0f // Hack to convert float to int because OpenCL 1.2 doesn't support float atomics
+// Fruchterman-Reingold force kernels.
+//
+// Every work item owns one vertex and accumulates its displacement in private registers, so no
+// atomics are needed and the forces stay in float precision. Positions and displacements are
+// interleaved (x, y) pairs read as float2.
 
 // Calculate Repulsive Forces Kernel
+//
+// Writes the repulsion of every vertex into displacements, overwriting the previous iteration.
+// The positions are streamed through local memory tile by tile: the work group loads one position
+// per work item, then every work item reads the whole tile from local memory. The global size is
+// rounded up to a multiple of the local size, work items past numVertices only help loading tiles.
 __kernel void calculateRepulsiveForces(
-    __global const float* positions,
-    __global int* repulsiveForces,
+    __global const float2* positions,
+    __global float2* displacements,
+    __local float2* tile,
     int numVertices,
     float optimalDistance,
     float C)
 {
     int i = get_global_id(0);
-    if (i >= numVertices) return;
-
-    float2 posV = (float2)(positions[2 * i], positions[2 * i + 1]);
-
-    for (int j = 0; j < numVertices; j++) {
-        if (i != j) {
-            float2 posU = (float2)(positions[2 * j], positions[2 * j + 1]);
-            float2 delta = posV - posU;
-            float distance = length(delta);
-            if (distance > 0) {
-                float force = C * (optimalDistance * optimalDistance) / distance;
-                float2 repulsiveForce = normalize(delta) * force;
-
-                int intRepulsiveForceX = (int)(repulsiveForce.x * HACK_FACTOR);
-                int intRepulsiveForceY = (int)(repulsiveForce.y * HACK_FACTOR);
-
-                atomic_add(&repulsiveForces[2 * i], intRepulsiveForceX);
-                atomic_add(&repulsiveForces[2 * i + 1], intRepulsiveForceY);
+    int localId = get_local_id(0);
+    int localSize = get_local_size(0);
+
+    float2 posV = i < numVertices ? positions[i] : (float2)(0.0f, 0.0f);
+    float strength = C * optimalDistance * optimalDistance;
+    float2 disp = (float2)(0.0f, 0.0f);
+
+    for (int tileStart = 0; tileStart < numVertices; tileStart += localSize) {
+        int j = tileStart + localId;
+        tile[localId] = j < numVertices ? positions[j] : posV;
+        barrier(CLK_LOCAL_MEM_FENCE);
+
+        int tileSize = min(localSize, numVertices - tileStart);
+        for (int t = 0; t < tileSize; t++) {
+            float2 delta = posV - tile[t];
+            float distanceSquared = dot(delta, delta);
+            // also skips the vertex itself and coinciding vertices
+            if (distanceSquared > 0.0f) {
+                // normalize(delta) * strength / distance
+                disp += delta * (strength / distanceSquared);
             }
         }
+        barrier(CLK_LOCAL_MEM_FENCE);
+    }
+
+    if (i < numVertices) {
+        displacements[i] = disp;
     }
 }
 
 // Calculate Attractive Forces Kernel
+//
+// Adds the attraction of every vertex to displacements. The edges are stored as a symmetric CSR
+// incidence list, so every vertex gathers the forces of its own edges and nothing is scattered.
 __kernel void calculateAttractiveForces(
-    __global const float* positions,
-    __global int* attractiveForces,
-    __global const int2* edges,
+    __global const float2* positions,
+    __global float2* displacements,
+    __global const int* offsets,
+    __global const int* neighbors,
     __global const float* weights,
-    int numEdges,
     int numVertices,
     float optimalDistance,
     float C)
-{
-    int i = get_global_id(0);
-    if (i >= numEdges) return;
-
-    int2 edge = edges[i];
-    int from = edge.x;
-    int to = edge.y;
-    float weight = weights[i];
-
-    float2 fromPos = (float2)(positions[2 * from], positions[2 * from + 1]);
-    float2 toPos = (float2)(positions[2 * to], positions[2 * to + 1]);
-    float2 delta = fromPos - toPos;
-    float distance = length(delta);
-
-    if (distance > 0) {
-        float forceMagnitude = C * weight * (distance * distance) / optimalDistance;
-        float2 attractiveForce = normalize(delta) * forceMagnitude;
-
-        int intAttractiveForceX = (int)(attractiveForce.x * HACK_FACTOR);
-        int intAttractiveForceY = (int)(attractiveForce.y * HACK_FACTOR);
-
-        atomic_add(&attractiveForces[2 * from], -intAttractiveForceX);
-        atomic_add(&attractiveForces[2 * from + 1], -intAttractiveForceY);
-        atomic_add(&attractiveForces[2 * to], intAttractiveForceX);
-        atomic_add(&attractiveForces[2 * to + 1], intAttractiveForceY);
-    }
-}
-
-// Summarize Forces Kernel
-__kernel void summarizeForces(
-    __global const int* repulsiveForces,
-    __global const int* attractiveForces,
-    __global float* displacements,
-    int numVertices)
 {
     int v = get_global_id(0);
     if (v >= numVertices) return;
 
-    int repulsiveX = repulsiveForces[2 * v];
-    int repulsiveY = repulsiveForces[2 * v + 1];
-    int attractiveX = attractiveForces[2 * v];
-    int attractiveY = attractiveForces[2 * v + 1];
-
-    float dx = (repulsiveX + attractiveX) / HACK_FACTOR;
-    float dy = (repulsiveY + attractiveY) / HACK_FACTOR;
+    float2 posV = positions[v];
+    float strength = C / optimalDistance;
+    float2 disp = (float2)(0.0f, 0.0f);
+
+    int end = offsets[v + 1];
+    for (int e = offsets[v]; e < end; e++) {
+        float2 delta = posV - positions[neighbors[e]];
+        float distance = length(delta);
+        if (distance > 0.0f) {
+            // normalize(delta) * C * weight * distance^2 / optimalDistance
+            disp -= delta * (strength * weights[e] * distance);
+        }
+    }
 
-    displacements[2 * v] = dx;
-    displacements[2 * v + 1] = dy;
+    displacements[v] += disp;
 }
 
 // Update Positions Kernel
+//
+// The temperature is read from a one-element buffer, so it can be advanced on the device by the
+// coolDown kernel without touching the kernel arguments.
 __kernel void updatePositions(
-    __global float* positions,
-    __global const float* displacements,
+    __global float2* positions,
+    __global const float2* displacements,
+    __global const float* temperature,
     int numVertices,
-    float temperature,
     int width,
     int height)
 {
     int i = get_global_id(0);
     if (i >= numVertices) return;
 
-    float2 pos = (float2)(positions[2 * i], positions[2 * i + 1]);
-    float2 disp = (float2)(displacements[2 * i], displacements[2 * i + 1]);
+    float2 pos = positions[i];
+    float2 disp = displacements[i];
 
     float dispLength = length(disp);
     if (dispLength > 0) {
-        disp *= fmin(dispLength, temperature) / dispLength;
+        disp *= fmin(dispLength, temperature[0]) / dispLength;
     }
 
     float2 newPos = pos + disp;
     newPos.x = fmin(width, fmax(0, newPos.x));
     newPos.y = fmin(height, fmax(0, newPos.y));
 
-    positions[2 * i] = newPos.x;
-    positions[2 * i + 1] = newPos.y;
+    positions[i] = newPos;
+}
+
+// Cool Down Kernel
+//
+// Geometric cooling of the temperature buffer, run as a single work item after updatePositions.
+__kernel void coolDown(
+    __global float* temperature,
+    float factor,
+    float minTemperature)
+{
+    temperature[0] = fmax(minTemperature, temperature[0] * factor);
 }
@@ -0,0 +1,103 @@
+package eu.virtualparadox.springembedder;
+
+import eu.virtualparadox.springembedder.layouter.FruchtermanReingoldLayouter;
+import eu.virtualparadox.springembedder.renderercallback.NoOpRendererCallback;
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultWeightedEdge;
+import org.jgrapht.graph.SimpleWeightedGraph;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EdgeWeightTableTest {
+
+    private static final double EPS = 1e-10;
+
+    @Test
+    void testLinearMatchesNormalizer() {
+        final Graph<String, DefaultWeightedEdge> graph = DemoGraphInitializer.initializeDemoGraph(3, 10);
+        final EdgeWeightTable table = EdgeWeightTable.of(graph);
+        final Map<DefaultWeightedEdge, Double> normalized = new EdgeWeightNormalizer<String, DefaultWeightedEdge>().normalizeEdgeWeights(graph);
+
+        assertEquals(graph.edgeSet().size(), table.size(), "Expected a weight for every edge");
+        int e = 0;
+        for (final DefaultWeightedEdge edge : graph.edgeSet()) {
+            assertEquals(normalized.get(edge), table.weight(e++), EPS, "Expected the same weight as the normalizer");
+        }
+    }
+
+    @Test
+    void testCurves() {
+        final double[] raw = {1, 10, 100, 1000, 1000};
+
+        final double[] linear = EdgeWeightTable.ofRawWeights(raw.clone(), WeightCurve.LINEAR).getWeights();
+        assertArrayEquals(new double[]{1, 1 + 9 * 9 / 999.0, 1 + 9 * 99 / 999.0, 10, 10}, linear, EPS, "Expected the weights scaled linearly");
+
+        final double[] log = EdgeWeightTable.ofRawWeights(raw.clone(), WeightCurve.LOG).getWeights();
+        assertEquals(1, log[0], EPS, "Expected the lightest edge at the minimum");
+        assertEquals(10, log[3], EPS, "Expected the heaviest edge at the maximum");
+        assertTrue(log[1] > linear[1] + 2, "Expected the log curve to lift the light edges");
+
+        final double[] rank = EdgeWeightTable.ofRawWeights(raw.clone(), WeightCurve.RANK).getWeights();
+        assertArrayEquals(new double[]{1, 4, 7, 10, 10}, rank, EPS, "Expected the distinct ranks spread evenly, ties sharing one");
+    }
+
+    @Test
+    void testDegenerateWeights() {
+        assertArrayEquals(new double[]{5.5, 5.5}, EdgeWeightTable.ofRawWeights(new double[]{3, 3}, WeightCurve.LINEAR).getWeights(), EPS,
+                "Expected the midpoint for equal weights");
+        assertArrayEquals(new double[]{1, 1, 1}, EdgeWeightTable.of(null, 3, WeightCurve.RANK).getWeights(), EPS,
+                "Expected unit weights for unweighted edges");
+        assertEquals(0, EdgeWeightTable.ofRawWeights(new double[0], WeightCurve.LOG).size(), "Expected an empty table");
+    }
+
+    @Test
+    void testParallelMatchesSequential() {
+        final Random random = new Random(1);
+        final double[] raw = new double[EdgeWeightTable.PARALLEL_THRESHOLD + 1];
+        for (int e = 0; e < raw.length; e++) {
+            raw[e] = Math.exp(random.nextGaussian() * 3);
+        }
+
+        for (final WeightCurve curve : new WeightCurve[]{WeightCurve.LINEAR, WeightCurve.LOG, WeightCurve.RANK}) {
+            final double[] parallel = EdgeWeightTable.ofRawWeights(raw.clone(), curve).getWeights();
+            final double[] head = EdgeWeightTable.ofRawWeights(Arrays.copyOf(raw, 1000), curve).getWeights();
+            for (final double weight : parallel) {
+                assertTrue(weight >= 1 && weight <= 10, "Expected every weight in the normalized range");
+            }
+            // the first thousand edges keep their order whichever path normalized them
+            for (int e = 1; e < head.length; e++) {
+                assertEquals(Double.compare(head[e - 1], head[e]), Double.compare(parallel[e - 1], parallel[e]),
+                        "Expected the order of the weights to be kept");
+            }
+        }
+    }
+
+    @Test
+    void testLayouterSharesTableWithCallback() {
+        final Graph<String, DefaultWeightedEdge> graph = new SimpleWeightedGraph<>(DefaultWeightedEdge.class);
+        graph.addVertex("a");
+        graph.addVertex("b");
+        graph.addVertex("c");
+        graph.setEdgeWeight(graph.addEdge("a", "b"), 1);
+        graph.setEdgeWeight(graph.addEdge("b", "c"), 100);
+
+        final AtomicReference<EdgeWeightTable> started = new AtomicReference<>();
+        final FruchtermanReingoldLayouter<String, DefaultWeightedEdge> layouter = new FruchtermanReingoldLayouter<>(100, 100, new NoOpRendererCallback<>() {
+            @Override
+            public void start(final Graph<String, DefaultWeightedEdge> g, final EdgeWeightTable edgeWeights) {
+                started.set(edgeWeights);
+            }
+        });
+        layouter.setWeightCurve(WeightCurve.RANK);
+        layouter.layout(graph, 5);
+
+        assertNotNull(started.get(), "Expected the callback to be started");
+        assertArrayEquals(new double[]{1, 10}, started.get().getWeights(), EPS, "Expected the weights of the layouter's curve");
+    }
+}
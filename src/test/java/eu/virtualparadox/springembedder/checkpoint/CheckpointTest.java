@@ -0,0 +1,145 @@
+package eu.virtualparadox.springembedder.checkpoint;
+
+import eu.virtualparadox.springembedder.DemoGraphInitializer;
+import eu.virtualparadox.springembedder.Vector2D;
+import eu.virtualparadox.springembedder.layouter.FruchtermanReingoldLayouter;
+import eu.virtualparadox.springembedder.layouter.schedule.AdaptiveCoolingSchedule;
+import eu.virtualparadox.springembedder.layouter.schedule.ConvergenceCriterion;
+import eu.virtualparadox.springembedder.renderercallback.AbstractRendererCallback;
+import eu.virtualparadox.springembedder.renderercallback.NoOpRendererCallback;
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultWeightedEdge;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CheckpointTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final Graph<String, DefaultWeightedEdge> graph = DemoGraphInitializer.initializeDemoGraph(3, 20);
+
+    private FruchtermanReingoldLayouter<String, DefaultWeightedEdge> newLayouter() {
+        return newLayouter(new NoOpRendererCallback<>());
+    }
+
+    private FruchtermanReingoldLayouter<String, DefaultWeightedEdge> newLayouter(final AbstractRendererCallback<String, DefaultWeightedEdge> callback) {
+        final FruchtermanReingoldLayouter<String, DefaultWeightedEdge> layouter = new FruchtermanReingoldLayouter<>(640, 480, callback);
+        layouter.setCoolingSchedule(new AdaptiveCoolingSchedule(50, 0.9, 1.5, 3));
+        layouter.setConvergenceCriterion(ConvergenceCriterion.stall(1000).or(ConvergenceCriterion.energyDelta(0)));
+        return layouter;
+    }
+
+    @Test
+    void testResumedLayoutIsBitIdentical() {
+        final Map<String, Vector2D> expected = newLayouter().layout(graph, 60);
+
+        final Path file = tempDir.resolve("layout.ckpt");
+        try (Checkpointer checkpointer = new Checkpointer(file, 10)) {
+            // the first run stands for a layout that was killed after 35 iterations
+            final FruchtermanReingoldLayouter<String, DefaultWeightedEdge> interrupted = newLayouter();
+            interrupted.setCheckpointer(checkpointer);
+            interrupted.layout(graph, 35);
+        }
+        assertTrue(Files.exists(file), "Expected a checkpoint file");
+        assertFalse(Files.exists(tempDir.resolve("layout.ckpt.tmp")), "Expected the temporary file to be renamed");
+
+        final List<Integer> iterations = new ArrayList<>();
+        final AbstractRendererCallback<String, DefaultWeightedEdge> callback = new NoOpRendererCallback<>() {
+            @Override
+            public boolean isFrameRequested(final int iteration) {
+                iterations.add(iteration);
+                return false;
+            }
+        };
+        try (Checkpointer checkpointer = new Checkpointer(file, 10)) {
+            final FruchtermanReingoldLayouter<String, DefaultWeightedEdge> resumed = newLayouter(callback);
+            resumed.setCheckpointer(checkpointer);
+            assertEquals(expected, resumed.layout(graph, 60), "Expected the resumed layout to match the uninterrupted one");
+            assertEquals(30, iterations.get(0), "Expected the layout to resume after the last checkpoint");
+            assertEquals(60, resumed.getLastIterationCount(), "Expected the iterations before the checkpoint to count");
+        }
+    }
+
+    @Test
+    void testRoundTripKeepsRandomState() throws IOException {
+        final Random random = new Random(42);
+        random.nextGaussian();
+        final Checkpoint checkpoint = new Checkpoint(7, 12, 3.5, random, new double[]{1, 2}, new double[0],
+                new double[]{1.25, -0.0}, new double[]{Double.MIN_VALUE, 640});
+        final Path file = tempDir.resolve("round-trip.ckpt");
+        checkpoint.write(file);
+
+        final Checkpoint read = Checkpoint.read(file);
+        assertEquals(7, read.getFingerprint(), "Expected the fingerprint");
+        assertEquals(12, read.getIteration(), "Expected the iteration");
+        assertEquals(3.5, read.getTemperature(), "Expected the temperature");
+        assertArrayEquals(new double[]{1, 2}, read.getScheduleState(), "Expected the schedule state");
+        assertArrayEquals(new double[]{1.25, -0.0}, read.getX(), "Expected the exact x coordinates");
+        assertArrayEquals(new double[]{Double.MIN_VALUE, 640}, read.getY(), "Expected the exact y coordinates");
+        final Random restored = read.restoreRandom();
+        assertEquals(random.nextGaussian(), restored.nextGaussian(), "Expected the same random sequence");
+        assertEquals(random.nextLong(), restored.nextLong(), "Expected the same random sequence");
+    }
+
+    @Test
+    void testCorruptLengthsAreRejected() throws IOException {
+        final Path file = tempDir.resolve("corrupt.ckpt");
+        new Checkpoint(7, 12, 3.5, new Random(42), new double[]{1, 2}, new double[0],
+                new double[]{1, 2}, new double[]{3, 4}).write(file);
+        final byte[] valid = Files.readAllBytes(file);
+
+        // the vertex count follows the magic, the version and the fingerprint, the random state length the header
+        for (final int[] corruption : new int[][]{{16, -1}, {16, Integer.MAX_VALUE}, {32, -1}, {32, Integer.MAX_VALUE}}) {
+            final ByteBuffer bytes = ByteBuffer.wrap(valid.clone());
+            bytes.putInt(corruption[0], corruption[1]);
+            Files.write(file, bytes.array());
+            assertThrows(IllegalArgumentException.class, () -> Checkpoint.read(file),
+                    "Expected the length " + corruption[1] + " at offset " + corruption[0] + " to be rejected");
+        }
+        Files.write(file, Arrays.copyOf(valid, valid.length - 8));
+        assertThrows(IllegalArgumentException.class, () -> Checkpoint.read(file), "Expected a truncated file to be rejected");
+    }
+
+    @Test
+    void testCheckpointOfAnotherGraphIsRejected() {
+        final Path file = tempDir.resolve("layout.ckpt");
+        try (Checkpointer checkpointer = new Checkpointer(file, 5)) {
+            final FruchtermanReingoldLayouter<String, DefaultWeightedEdge> layouter = newLayouter();
+            layouter.setCheckpointer(checkpointer);
+            layouter.layout(graph, 10);
+
+            final FruchtermanReingoldLayouter<String, DefaultWeightedEdge> other = newLayouter();
+            other.setCheckpointer(checkpointer);
+            assertThrows(IllegalStateException.class, () -> other.layout(DemoGraphInitializer.initializeDemoGraph(2, 20), 10),
+                    "Expected a checkpoint of another graph to be rejected");
+        }
+    }
+
+    @Test
+    void testRestoreRejectsOtherClasses() {
+        final Checkpoint checkpoint = new Checkpoint(7, 12, 3.5, new OtherRandom(), new double[0], new double[0],
+                new double[0], new double[0]);
+
+        assertThrows(IllegalStateException.class, checkpoint::restoreRandom, "Expected only java.util.Random to be deserialized");
+    }
+
+    /**
+     * Stands for any serializable class a crafted checkpoint might contain.
+     */
+    private static final class OtherRandom extends Random {
+        private static final long serialVersionUID = 1L;
+    }
+}
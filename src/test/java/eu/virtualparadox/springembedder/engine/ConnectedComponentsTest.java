@@ -0,0 +1,46 @@
+package eu.virtualparadox.springembedder.engine;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectedComponentsTest {
+
+    @Test
+    void testComponentsAreNumberedBySmallestVertex() {
+        // {0, 3, 5}, {1}, {2, 4}, {6}
+        final int[] sources = {5, 4, 3};
+        final int[] targets = {3, 2, 0};
+        final double[] weights = {1, 2, 3};
+
+        final ConnectedComponents components = ConnectedComponents.of(IndexedGraph.ofEdgeList(7, sources, targets, weights));
+
+        assertEquals(4, components.count(), "Expected four components");
+        assertArrayEquals(new int[]{0, 1, 2, 0, 2, 0, 3}, new int[]{
+                components.componentOf(0), components.componentOf(1), components.componentOf(2), components.componentOf(3),
+                components.componentOf(4), components.componentOf(5), components.componentOf(6)
+        }, "Expected the components to be numbered in the order of their smallest vertex");
+        assertArrayEquals(new int[]{0, 3, 5, 1, 2, 4, 6}, components.getVertices(), "Expected the vertices grouped by component");
+        assertArrayEquals(new int[]{0, 3, 4, 6, 7}, components.getOffsets(), "Expected the offsets of the components");
+        assertEquals(2, components.edgeCount(0), "Expected two edges in the first component");
+        assertEquals(0, components.edgeCount(1), "Expected no edges at the isolated vertex");
+    }
+
+    @Test
+    void testSubgraphUsesLocalIds() {
+        final int[] sources = {5, 4, 3};
+        final int[] targets = {3, 2, 0};
+        final double[] weights = {1, 2, 3};
+
+        final ConnectedComponents components = ConnectedComponents.of(IndexedGraph.ofEdgeList(7, sources, targets, weights));
+        final IndexedGraph<Integer> subgraph = components.subgraph(0);
+
+        assertEquals(3, subgraph.vertexCount(), "Expected the three vertices of the component");
+        assertEquals(5, subgraph.vertex(2), "Expected the local ids to follow the vertex order");
+        assertEquals(1, subgraph.idOf(3), "Expected the local id of a member");
+        assertEquals(-1, subgraph.idOf(4), "Expected no id for a vertex of another component");
+        assertArrayEquals(new int[]{2, 1}, subgraph.getEdgeSources(), "Expected the edges in their original order");
+        assertArrayEquals(new int[]{1, 0}, subgraph.getEdgeTargets(), "Expected the edges in their original order");
+        assertArrayEquals(new double[]{1, 3}, subgraph.getEdgeWeights(), "Expected the edges to keep their weights");
+    }
+}
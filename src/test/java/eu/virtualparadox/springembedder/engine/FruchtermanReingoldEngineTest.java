@@ -0,0 +1,71 @@
+package eu.virtualparadox.springembedder.engine;
+
+import eu.virtualparadox.springembedder.DemoGraphInitializer;
+import eu.virtualparadox.springembedder.EdgeWeightNormalizer;
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultWeightedEdge;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FruchtermanReingoldEngineTest {
+
+    private static final double EPS = 1e-9;
+
+    @Test
+    void testAttractionGatherMatchesEdgeScatter() {
+        final IndexedGraph<String> graph = demoGraph();
+        final FruchtermanReingoldEngine<String> engine = new FruchtermanReingoldEngine<>(graph, 640, 480, new ExactRepulsion());
+        engine.randomizePositions(new Random(3));
+
+        final LayoutState state = engine.getState();
+        final int n = state.size();
+        engine.accumulateAttraction(0, n);
+
+        // reference: every edge pushes its endpoints in opposite directions
+        final double k = (int) engine.getOptimalDistance();
+        final double[] expectedX = new double[n];
+        final double[] expectedY = new double[n];
+        for (int e = 0; e < graph.edgeCount(); e++) {
+            final int from = graph.getEdgeSources()[e];
+            final int to = graph.getEdgeTargets()[e];
+            final double deltaX = state.getX()[from] - state.getX()[to];
+            final double deltaY = state.getY()[from] - state.getY()[to];
+            final double distance = Math.hypot(deltaX, deltaY);
+            if (distance > 0) {
+                final double attraction = FruchtermanReingoldEngine.C * graph.getEdgeWeights()[e] * distance * distance / k;
+                expectedX[from] -= deltaX / distance * attraction;
+                expectedY[from] -= deltaY / distance * attraction;
+                expectedX[to] += deltaX / distance * attraction;
+                expectedY[to] += deltaY / distance * attraction;
+            }
+        }
+
+        for (int v = 0; v < n; v++) {
+            assertEquals(expectedX[v], state.getDx()[v], EPS, "Expected gathered x-attraction for vertex " + v);
+            assertEquals(expectedY[v], state.getDy()[v], EPS, "Expected gathered y-attraction for vertex " + v);
+        }
+    }
+
+    @Test
+    void testPositionsStayWithinLayoutArea() {
+        final FruchtermanReingoldEngine<String> engine = new FruchtermanReingoldEngine<>(demoGraph(), 640, 480, new ExactRepulsion());
+        engine.randomizePositions(new Random(1));
+        for (int i = 0; i < 50; i++) {
+            engine.step(50);
+        }
+
+        final LayoutState state = engine.getState();
+        for (int v = 0; v < state.size(); v++) {
+            assertTrue(state.getX()[v] >= 0 && state.getX()[v] <= 640, "Expected x within the layout area");
+            assertTrue(state.getY()[v] >= 0 && state.getY()[v] <= 480, "Expected y within the layout area");
+        }
+    }
+
+    private static IndexedGraph<String> demoGraph() {
+        final Graph<String, DefaultWeightedEdge> graph = DemoGraphInitializer.initializeDemoGraph(3, 20);
+        return IndexedGraph.of(graph, new EdgeWeightNormalizer<String, DefaultWeightedEdge>().normalizeEdgeWeights(graph));
+    }
+}
@@ -0,0 +1,43 @@
+package eu.virtualparadox.springembedder.engine;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GraphCoarsenerTest {
+
+    @Test
+    void testStarCollapsesIntoSingleVertex() {
+        final int leaves = 20;
+        final int[] sources = new int[leaves];
+        final int[] targets = new int[leaves];
+        final double[] weights = new double[leaves];
+        for (int i = 0; i < leaves; i++) {
+            sources[i] = 0;
+            targets[i] = i + 1;
+            weights[i] = 1;
+        }
+
+        final GraphCoarsener.CoarseLevel level = GraphCoarsener.coarsen(IndexedGraph.ofEdgeList(leaves + 1, sources, targets, weights));
+
+        assertEquals(1, level.getGraph().vertexCount(), "Expected the star to collapse into one vertex");
+        assertEquals(0, level.getGraph().edgeCount(), "Expected no edges inside the group");
+    }
+
+    @Test
+    void testPathIsMatchedPairwiseAndEdgesAreMerged() {
+        // 0 - 1 = 2 - 3, the middle edge is the heaviest
+        final int[] sources = {0, 1, 2, 1};
+        final int[] targets = {1, 2, 3, 2};
+        final double[] weights = {1, 10, 1, 5};
+
+        final GraphCoarsener.CoarseLevel level = GraphCoarsener.coarsen(IndexedGraph.ofEdgeList(4, sources, targets, weights));
+        final int[] parent = level.getParent();
+
+        assertEquals(2, level.getGraph().vertexCount(), "Expected two coarse vertices");
+        assertEquals(parent[0], parent[1], "Expected the end vertices to be matched with their neighbors");
+        assertEquals(parent[2], parent[3], "Expected the end vertices to be matched with their neighbors");
+        assertEquals(1, level.getGraph().edgeCount(), "Expected the parallel coarse edges to be merged");
+        assertEquals(10, level.getGraph().getEdgeWeights()[0], "Expected the merged edge to keep the strongest weight");
+    }
+}
@@ -0,0 +1,78 @@
+package eu.virtualparadox.springembedder.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GridRepulsionTest {
+
+    private static final double EPS = 1e-9;
+    private static final double OPTIMAL_DISTANCE = 20;
+
+    @Test
+    void testMatchesAllPairsWithinCutoff() {
+        final LayoutState state = randomState(500, new Random(5));
+        final GridRepulsion kernel = new GridRepulsion();
+        kernel.prepare(state, OPTIMAL_DISTANCE);
+        kernel.accumulate(state, OPTIMAL_DISTANCE, 0, state.size());
+
+        assertMatchesReference(state);
+    }
+
+    @Test
+    void testIncrementalUpdateMatchesFreshGrid() {
+        final LayoutState state = randomState(500, new Random(9));
+        final GridRepulsion kernel = new GridRepulsion();
+        kernel.prepare(state, OPTIMAL_DISTANCE);
+
+        // move a few vertices into other cells, keeping the covered area
+        state.getX()[3] = 320;
+        state.getY()[3] = 240;
+        state.getX()[42] = 15;
+        state.getY()[42] = 470;
+        kernel.prepare(state, OPTIMAL_DISTANCE);
+        kernel.accumulate(state, OPTIMAL_DISTANCE, 0, state.size());
+
+        assertMatchesReference(state);
+    }
+
+    private static void assertMatchesReference(final LayoutState state) {
+        final int n = state.size();
+        final double[] x = state.getX();
+        final double[] y = state.getY();
+        final double strength = FruchtermanReingoldEngine.C * OPTIMAL_DISTANCE * OPTIMAL_DISTANCE;
+        final double cutoff = 2 * OPTIMAL_DISTANCE;
+
+        for (int v = 0; v < n; v++) {
+            double expectedX = 0;
+            double expectedY = 0;
+            for (int u = 0; u < n; u++) {
+                final double deltaX = x[v] - x[u];
+                final double deltaY = y[v] - y[u];
+                final double distance = Math.hypot(deltaX, deltaY);
+                if (u != v && distance > 0 && distance < cutoff) {
+                    expectedX += deltaX / distance * strength / distance;
+                    expectedY += deltaY / distance * strength / distance;
+                }
+            }
+            assertEquals(expectedX, state.getDx()[v], EPS, "Expected cutoff x-repulsion for vertex " + v);
+            assertEquals(expectedY, state.getDy()[v], EPS, "Expected cutoff y-repulsion for vertex " + v);
+        }
+    }
+
+    private static LayoutState randomState(final int n, final Random random) {
+        final LayoutState state = new LayoutState(n);
+        for (int v = 0; v < n; v++) {
+            state.getX()[v] = random.nextDouble() * 640;
+            state.getY()[v] = random.nextDouble() * 480;
+        }
+        // pin the corners so moving single vertices does not change the covered area
+        state.getX()[0] = 0;
+        state.getY()[0] = 0;
+        state.getX()[1] = 640;
+        state.getY()[1] = 480;
+        return state;
+    }
+}
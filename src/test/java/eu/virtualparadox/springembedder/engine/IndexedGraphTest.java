@@ -0,0 +1,80 @@
+package eu.virtualparadox.springembedder.engine;
+
+import eu.virtualparadox.springembedder.EdgeWeightTable;
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultEdge;
+import org.jgrapht.graph.Pseudograph;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndexedGraphTest {
+
+    @Test
+    void testModifiedGraphMatchesFreshlyIndexedGraph() {
+        final Graph<String, DefaultEdge> graph = new Pseudograph<>(DefaultEdge.class);
+        for (final String v : List.of("a", "b", "c", "d")) {
+            graph.addVertex(v);
+        }
+        graph.addEdge("a", "b");
+        graph.addEdge("b", "c");
+        graph.addEdge("c", "d");
+        final IndexedGraph<String> indexed = IndexedGraph.of(graph, EdgeWeightTable.of(graph));
+
+        // a - b - c - d becomes e - b - c, a, with a parallel edge b - c
+        final int e = indexed.addVertex("e");
+        indexed.addEdge(e, indexed.idOf("b"), 1);
+        indexed.addEdge(indexed.idOf("b"), indexed.idOf("c"), 1);
+        indexed.removeEdge(edgeBetween(indexed, "a", "b"));
+        indexed.removeEdge(edgeBetween(indexed, "c", "d"));
+        indexed.removeVertex(indexed.idOf("d"));
+
+        assertEquals(4, indexed.vertexCount(), "Expected the removed vertex to be gone");
+        assertEquals(3, indexed.edgeCount(), "Expected the removed edges to be gone");
+        assertEquals(3, indexed.getEdgeSources().length, "Expected no removed edge in the edge arrays");
+        assertEquals(3, indexed.getEdgeWeights().length, "Expected no removed edge in the edge arrays");
+        assertEquals(List.of(), neighbors(indexed, "a"), "Expected a to be isolated");
+        assertEquals(List.of("b"), neighbors(indexed, "e"), "Expected the new edge in both rows");
+        assertEquals(List.of("b", "b"), neighbors(indexed, "c"), "Expected the parallel edge in both rows");
+        assertEquals(List.of("c", "c", "e"), sorted(neighbors(indexed, "b")), "Expected the incidences of b to survive the shifts");
+        for (int edge = 0; edge < indexed.edgeCount(); edge++) {
+            final int source = indexed.getEdgeSources()[edge];
+            final int target = indexed.getEdgeTargets()[edge];
+            assertTrue(neighbors(indexed, indexed.vertex(source)).contains(indexed.vertex(target)),
+                    "Expected the edge list to agree with the incidences");
+        }
+    }
+
+    @Test
+    void testEdgeListGraphCannotBeModified() {
+        final IndexedGraph<Integer> indexed = IndexedGraph.ofEdgeList(2, new int[]{0}, new int[]{1}, new double[]{1});
+
+        assertThrows(UnsupportedOperationException.class, () -> indexed.addVertex(2));
+    }
+
+    private static int edgeBetween(final IndexedGraph<String> graph, final String source, final String target) {
+        for (int edge = 0; edge < graph.edgeCount(); edge++) {
+            if (graph.getEdgeSources()[edge] == graph.idOf(source) && graph.getEdgeTargets()[edge] == graph.idOf(target)) {
+                return edge;
+            }
+        }
+        throw new AssertionError("No edge " + source + " - " + target);
+    }
+
+    private static List<String> neighbors(final IndexedGraph<String> graph, final String vertex) {
+        final int v = graph.idOf(vertex);
+        final List<String> result = new ArrayList<>();
+        for (int k = graph.getOffsets()[v]; k < graph.getOffsets()[v + 1]; k++) {
+            result.add(graph.vertex(graph.getNeighbors()[k]));
+        }
+        return result;
+    }
+
+    private static List<String> sorted(final List<String> list) {
+        list.sort(null);
+        return list;
+    }
+}
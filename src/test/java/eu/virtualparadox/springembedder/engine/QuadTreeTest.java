@@ -0,0 +1,103 @@
+package eu.virtualparadox.springembedder.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class QuadTreeTest {
+
+    private static final double EPS = 1e-9;
+
+    @Test
+    void testZeroThetaMatchesAllPairs() {
+        final int n = 200;
+        final double[] x = new double[n];
+        final double[] y = new double[n];
+        randomPoints(x, y, new Random(7));
+
+        final double[] expectedX = new double[n];
+        final double[] expectedY = new double[n];
+        allPairs(x, y, expectedX, expectedY);
+
+        final double[] forceX = new double[n];
+        final double[] forceY = new double[n];
+        final QuadTree quadTree = new QuadTree();
+        quadTree.build(x, y, n);
+        final int[] stack = QuadTree.newTraversalStack();
+        for (int i = 0; i < n; i++) {
+            quadTree.accumulateForce(i, x, y, 0, 1, forceX, forceY, stack);
+        }
+
+        for (int i = 0; i < n; i++) {
+            assertEquals(expectedX[i], forceX[i], EPS, "Expected exact x-force for vertex " + i);
+            assertEquals(expectedY[i], forceY[i], EPS, "Expected exact y-force for vertex " + i);
+        }
+    }
+
+    @Test
+    void testApproximationIsClose() {
+        final int n = 1000;
+        final double[] x = new double[n];
+        final double[] y = new double[n];
+        randomPoints(x, y, new Random(11));
+
+        final double[] expectedX = new double[n];
+        final double[] expectedY = new double[n];
+        allPairs(x, y, expectedX, expectedY);
+
+        final double[] forceX = new double[n];
+        final double[] forceY = new double[n];
+        final QuadTree quadTree = new QuadTree();
+        quadTree.build(x, y, n);
+        final int[] stack = QuadTree.newTraversalStack();
+        for (int i = 0; i < n; i++) {
+            quadTree.accumulateForce(i, x, y, 0.5, 1, forceX, forceY, stack);
+        }
+
+        double error = 0;
+        double magnitude = 0;
+        for (int i = 0; i < n; i++) {
+            error += Math.hypot(expectedX[i] - forceX[i], expectedY[i] - forceY[i]);
+            magnitude += Math.hypot(expectedX[i], expectedY[i]);
+        }
+        assertTrue(error / magnitude < 0.05, "Expected relative error below 5% but was " + error / magnitude);
+    }
+
+    @Test
+    void testCoincidentPointsDoNotRepelEachOther() {
+        final double[] x = {10, 10, 10, 20};
+        final double[] y = {10, 10, 10, 10};
+        final double[] forceX = new double[4];
+        final double[] forceY = new double[4];
+
+        final QuadTree quadTree = new QuadTree();
+        quadTree.build(x, y, 4);
+        quadTree.accumulateForce(0, x, y, 0, 1, forceX, forceY, QuadTree.newTraversalStack());
+
+        assertEquals(-0.1, forceX[0], EPS, "Expected only the distinct point to repel");
+        assertEquals(0.0, forceY[0], EPS, "Expected no y-force");
+    }
+
+    private static void randomPoints(final double[] x, final double[] y, final Random random) {
+        for (int i = 0; i < x.length; i++) {
+            x[i] = random.nextDouble() * 640;
+            y[i] = random.nextDouble() * 480;
+        }
+    }
+
+    private static void allPairs(final double[] x, final double[] y, final double[] forceX, final double[] forceY) {
+        for (int i = 0; i < x.length; i++) {
+            for (int j = 0; j < x.length; j++) {
+                final double dx = x[i] - x[j];
+                final double dy = y[i] - y[j];
+                final double distanceSquared = dx * dx + dy * dy;
+                if (i != j && distanceSquared > 0) {
+                    forceX[i] += dx / distanceSquared;
+                    forceY[i] += dy / distanceSquared;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package eu.virtualparadox.springembedder.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VectorizedRepulsionTest {
+
+    private static final double OPTIMAL_DISTANCE = 20;
+
+    @Test
+    void testDoublePrecisionMatchesExactRepulsion() {
+        // an odd size exercises the scalar tail after the last full vector
+        assertMatchesExact(new VectorizedRepulsion(false), 501, 1e-9);
+    }
+
+    @Test
+    void testSinglePrecisionMatchesExactRepulsion() {
+        assertMatchesExact(new VectorizedRepulsion(true), 501, 1e-3);
+    }
+
+    @Test
+    void testCoincidingVerticesAreSkipped() {
+        final LayoutState state = new LayoutState(3);
+        state.getX()[1] = 10;
+
+        final VectorizedRepulsion kernel = new VectorizedRepulsion(false);
+        kernel.prepare(state, OPTIMAL_DISTANCE);
+        kernel.accumulate(state, OPTIMAL_DISTANCE, 0, state.size());
+
+        assertFalse(Double.isNaN(state.getDx()[0]), "Expected coinciding vertices not to produce NaN");
+        assertEquals(state.getDx()[0], state.getDx()[2], "Expected coinciding vertices to be pushed alike");
+    }
+
+    private static void assertMatchesExact(final RepulsionKernel kernel, final int n, final double relativeTolerance) {
+        final LayoutState expected = randomState(n, new Random(3));
+        final LayoutState actual = randomState(n, new Random(3));
+        new ExactRepulsion().accumulate(expected, OPTIMAL_DISTANCE, 0, n);
+        kernel.prepare(actual, OPTIMAL_DISTANCE);
+        // two ranges, as the parallel layouter would split them
+        kernel.accumulate(actual, OPTIMAL_DISTANCE, 0, n / 2);
+        kernel.accumulate(actual, OPTIMAL_DISTANCE, n / 2, n);
+
+        for (int v = 0; v < n; v++) {
+            final double scale = Math.max(1, Math.hypot(expected.getDx()[v], expected.getDy()[v]));
+            assertEquals(expected.getDx()[v], actual.getDx()[v], relativeTolerance * scale, "Expected exact x-repulsion for vertex " + v);
+            assertEquals(expected.getDy()[v], actual.getDy()[v], relativeTolerance * scale, "Expected exact y-repulsion for vertex " + v);
+        }
+    }
+
+    private static LayoutState randomState(final int n, final Random random) {
+        final LayoutState state = new LayoutState(n);
+        for (int v = 0; v < n; v++) {
+            state.getX()[v] = random.nextDouble() * 640;
+            state.getY()[v] = random.nextDouble() * 480;
+        }
+        return state;
+    }
+}
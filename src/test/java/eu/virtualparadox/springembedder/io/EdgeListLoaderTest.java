@@ -0,0 +1,113 @@
+package eu.virtualparadox.springembedder.io;
+
+import eu.virtualparadox.springembedder.Vector2D;
+import eu.virtualparadox.springembedder.engine.LayoutState;
+import eu.virtualparadox.springembedder.layouter.FruchtermanReingoldLayouter;
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultWeightedEdge;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EdgeListLoaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testTsvWithHeaderCommentsAndWeights() throws IOException {
+        final Path file = tempDir.resolve("edges.tsv");
+        Files.writeString(file, "# a comment\nsource\ttarget\tweight\n7\t3\t2.5\n3  -1\t1e1\r\n\n% another comment\n7\t-1\t.5\n");
+
+        final EdgeList edges = new EdgeListLoader().loadTsv(file);
+
+        assertEquals(3, edges.vertexCount(), "Expected three vertices");
+        assertEquals(3, edges.edgeCount(), "Expected three edges");
+        assertEquals(7, edges.vertexId(0), "Expected dense ids in order of appearance");
+        assertEquals(3, edges.vertexId(1), "Expected dense ids in order of appearance");
+        assertEquals(-1, edges.vertexId(2), "Expected dense ids in order of appearance");
+        assertEquals(2, edges.idOf(-1), "Expected the dense id of a file id");
+        assertEquals(-1, edges.idOf(42), "Expected -1 for an unknown file id");
+        assertArrayEquals(new int[]{0, 1, 0}, edges.getSources(), "Expected the source of every edge");
+        assertArrayEquals(new int[]{1, 2, 2}, edges.getTargets(), "Expected the target of every edge");
+        assertArrayEquals(new double[]{2.5, 10, 0.5}, edges.getWeights(), "Expected the weight of every edge");
+    }
+
+    @Test
+    void testUnweightedCsv() throws IOException {
+        final Path file = tempDir.resolve("edges.csv");
+        Files.writeString(file, "1,2\n2, 3\n3,1");
+
+        final EdgeList edges = new EdgeListLoader().loadCsv(file);
+
+        assertFalse(edges.isWeighted(), "Expected an unweighted edge list");
+        assertEquals(3, edges.edgeCount(), "Expected the last line without line break");
+        assertArrayEquals(new double[]{1, 1, 1}, edges.toIndexedGraph().getEdgeWeights(), "Expected the weights of an unweighted graph");
+    }
+
+    @Test
+    void testMalformedLine() throws IOException {
+        final Path file = tempDir.resolve("edges.tsv");
+        Files.writeString(file, "1\t2\n1\tx\n");
+
+        assertThrows(IllegalArgumentException.class, () -> new EdgeListLoader().loadTsv(file), "Expected a malformed line to fail");
+    }
+
+    @Test
+    void testChunksMatchFileOrderAndBinaryRoundTrip() throws IOException {
+        // about 2 MB, more than one chunk
+        final StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 120_000; i++) {
+            text.append((i * 7919L) % 50_021).append('\t').append((i * 104_729L) % 50_021).append('\t').append(i % 97).append('\n');
+        }
+        final Path tsv = tempDir.resolve("large.tsv");
+        Files.writeString(tsv, text);
+
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            final EdgeList edges = new EdgeListLoader(pool).loadTsv(tsv);
+            assertEquals(120_000, edges.edgeCount(), "Expected every line of every chunk");
+            for (int i = 0; i < edges.edgeCount(); i += 997) {
+                assertEquals((i * 7919L) % 50_021, edges.vertexId(edges.getSources()[i]), "Expected the source of edge " + i);
+                assertEquals((i * 104_729L) % 50_021, edges.vertexId(edges.getTargets()[i]), "Expected the target of edge " + i);
+                assertEquals(i % 97, edges.getWeights()[i], "Expected the weight of edge " + i);
+            }
+
+            final Path binary = tempDir.resolve("large.bin");
+            EdgeListLoader.writeBinary(edges, binary);
+            final EdgeList reloaded = new EdgeListLoader(pool).loadBinary(binary);
+            assertEquals(edges.vertexCount(), reloaded.vertexCount(), "Expected the same vertices");
+            assertArrayEquals(edges.getSources(), reloaded.getSources(), "Expected the same sources");
+            assertArrayEquals(edges.getTargets(), reloaded.getTargets(), "Expected the same targets");
+            assertArrayEquals(edges.getWeights(), reloaded.getWeights(), "Expected the same weights");
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testIndexedLayoutMatchesGraphLayout() throws IOException {
+        final Path file = tempDir.resolve("edges.tsv");
+        Files.writeString(file, "10\t20\t1\n20\t30\t2\n30\t10\t3\n30\t40\t4\n40\t50\t1\n");
+        final EdgeList edges = new EdgeListLoader().loadTsv(file);
+
+        final Graph<Long, DefaultWeightedEdge> graph = edges.toGraph();
+        assertEquals(5, graph.vertexSet().size(), "Expected every vertex in the graph");
+        assertEquals(4.0, graph.getEdgeWeight(graph.getEdge(30L, 40L)), "Expected the raw weight in the graph");
+
+        final Map<Long, Vector2D> expected = new FruchtermanReingoldLayouter<Long, DefaultWeightedEdge>(640, 480).layout(graph, 30);
+        final LayoutState actual = new FruchtermanReingoldLayouter<Long, DefaultWeightedEdge>(640, 480).layout(edges.toIndexedGraph(), 30);
+        for (int v = 0; v < edges.vertexCount(); v++) {
+            final Vector2D position = expected.get(edges.vertexId(v));
+            assertEquals(position.getX(), actual.getX()[v], "Expected the same x of vertex " + edges.vertexId(v));
+            assertEquals(position.getY(), actual.getY()[v], "Expected the same y of vertex " + edges.vertexId(v));
+        }
+    }
+}
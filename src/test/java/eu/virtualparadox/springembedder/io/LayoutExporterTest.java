@@ -0,0 +1,158 @@
+package eu.virtualparadox.springembedder.io;
+
+import eu.virtualparadox.springembedder.EdgeWeightTable;
+import eu.virtualparadox.springembedder.engine.IndexedGraph;
+import eu.virtualparadox.springembedder.engine.LayoutState;
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultEdge;
+import org.jgrapht.graph.Pseudograph;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.DataInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LayoutExporterTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final IndexedGraph<String> graph = IndexedGraph.ofEdgeList(List.of("a", "b,\"c\"", "<ü>"), vertex -> -1,
+            new int[]{0, 1}, new int[]{1, 2}, new double[]{1, 10});
+    private final LayoutState state = new LayoutState(3);
+
+    LayoutExporterTest() {
+        state.getX()[0] = 10;
+        state.getY()[0] = 20.125;
+        state.getX()[1] = -3.5;
+        state.getY()[1] = 0;
+        state.getX()[2] = 600.004;
+        state.getY()[2] = 400;
+    }
+
+    @Test
+    void testCsv() throws Exception {
+        final Path file = tempDir.resolve("layout.csv");
+        new LayoutExporter(LayoutFormat.CSV).export(graph, state, file);
+
+        assertEquals(List.of("id,x,y", "a,10.00,20.13", "\"b,\"\"c\"\"\",-3.50,0.00", "<ü>,600.00,400.00"),
+                Files.readAllLines(file), "Expected a line per vertex with quoted keys");
+    }
+
+    @Test
+    void testGraphMl() throws Exception {
+        final Path file = tempDir.resolve("layout.graphml");
+        new LayoutExporter(LayoutFormat.GRAPHML).export(graph, state, file);
+
+        final Document document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(file.toFile());
+        final NodeList nodes = document.getElementsByTagName("node");
+        assertEquals(3, nodes.getLength(), "Expected every vertex");
+        final NodeList data = ((Element) nodes.item(2)).getElementsByTagName("data");
+        assertEquals("<ü>", data.item(0).getTextContent(), "Expected the escaped label");
+        assertEquals(600.0, Double.parseDouble(data.item(1).getTextContent()), 0.01, "Expected the x coordinate");
+        final Element edge = (Element) document.getElementsByTagName("edge").item(1);
+        assertEquals("n1", edge.getAttribute("source"), "Expected the source id");
+        assertEquals("n2", edge.getAttribute("target"), "Expected the target id");
+    }
+
+    @Test
+    void testSvg() throws Exception {
+        final Path file = tempDir.resolve("layout.svg.gz");
+        new LayoutExporter(LayoutFormat.SVG, Compression.GZIP).export(graph, state, file);
+
+        final Document document;
+        try (InputStream in = new GZIPInputStream(Files.newInputStream(file))) {
+            document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(in);
+        }
+        assertEquals(2, document.getElementsByTagName("line").getLength(), "Expected a line per edge");
+        assertEquals(3, document.getElementsByTagName("circle").getLength(), "Expected a disc per vertex");
+        assertEquals("-13.50 -10.00 623.50 420.00", document.getDocumentElement().getAttribute("viewBox"),
+                "Expected the canvas fitted to the positions");
+    }
+
+    @Test
+    void testGzippedBinary() throws Exception {
+        final Path file = tempDir.resolve("layout.bin.gz");
+        new LayoutExporter(LayoutFormat.BINARY, Compression.GZIP).export(graph, state, file);
+
+        final ByteBuffer buffer;
+        try (DataInputStream in = new DataInputStream(new GZIPInputStream(Files.newInputStream(file)))) {
+            buffer = ByteBuffer.wrap(in.readAllBytes()).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        assertEquals(12 + 3 * 8 + 2 * 12, buffer.remaining(), "Expected the compact size");
+        assertEquals(LayoutExporter.BINARY_MAGIC, buffer.getInt(), "Expected the magic");
+        assertEquals(3, buffer.getInt(), "Expected the vertex count");
+        assertEquals(2, buffer.getInt(), "Expected the edge count");
+        assertEquals(10f, buffer.getFloat(), "Expected the x coordinate");
+        assertEquals(20.125f, buffer.getFloat(), "Expected the y coordinate");
+        buffer.position(12 + 3 * 8 + 12);
+        assertEquals(1, buffer.getInt(), "Expected the source of the second edge");
+        assertEquals(2, buffer.getInt(), "Expected the target of the second edge");
+        assertEquals(10f, buffer.getFloat(), "Expected the weight of the second edge");
+    }
+
+    @Test
+    void testModifiedGraphExportsTheLiveEdgesOnly() throws Exception {
+        final Graph<String, DefaultEdge> original = new Pseudograph<>(DefaultEdge.class);
+        original.addVertex("a");
+        original.addVertex("b");
+        original.addVertex("c");
+        final IndexedGraph<String> modified = IndexedGraph.of(original, EdgeWeightTable.of(original));
+        modified.addEdge(0, 1, 1);
+        modified.addEdge(1, 2, 2);
+        modified.addEdge(2, 0, 3);
+        modified.removeEdge(0);
+        final Path file = tempDir.resolve("modified.bin");
+        new LayoutExporter(LayoutFormat.BINARY).export(modified, state, file);
+
+        final ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(12 + 3 * 8 + 2 * 12, buffer.remaining(), "Expected a record per live edge");
+        assertEquals(2, buffer.getInt(8), "Expected the edge count");
+        buffer.position(12 + 3 * 8);
+        assertEquals(2, buffer.getInt(), "Expected the last edge in the place of the removed one");
+        assertEquals(0, buffer.getInt(), "Expected the last edge in the place of the removed one");
+    }
+
+    @Test
+    void testNonFinitePositionIsRejected() {
+        final Path file = tempDir.resolve("diverged.csv");
+        state.getX()[1] = Double.NaN;
+        assertThrows(IllegalArgumentException.class, () -> new LayoutExporter(LayoutFormat.CSV).export(graph, state, file),
+                "Expected a NaN coordinate to be rejected");
+        state.getX()[1] = Double.NEGATIVE_INFINITY;
+        assertThrows(IllegalArgumentException.class, () -> new LayoutExporter(LayoutFormat.GRAPHML).export(graph, state, file),
+                "Expected an infinite coordinate to be rejected");
+        assertFalse(Files.exists(file), "Expected no file to be written");
+    }
+
+    @Test
+    void testExtremeNumbers() throws Exception {
+        final Path file = tempDir.resolve("numbers.txt");
+        try (ChannelWriter out = new ChannelWriter(FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE))) {
+            out.integer(Long.MIN_VALUE).ascii(' ').integer(Long.MAX_VALUE).ascii(' ').decimal(-0.004).ascii(' ').decimal(-12.346);
+            assertThrows(IllegalArgumentException.class, () -> out.decimal(1e17), "Expected a value beyond a long of hundredths to be rejected");
+        }
+        assertEquals("-9223372036854775808 9223372036854775807 0.00 -12.35", Files.readString(file), "Expected the exact digits");
+    }
+
+    @Test
+    void testMismatchedState() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new LayoutExporter(LayoutFormat.CSV).export(graph, new LayoutState(2), tempDir.resolve("x.csv")),
+                "Expected a layout of another graph to be rejected");
+    }
+}
@@ -0,0 +1,73 @@
+package eu.virtualparadox.springembedder.layouter;
+
+import eu.virtualparadox.springembedder.DemoGraphInitializer;
+import eu.virtualparadox.springembedder.Vector2D;
+import eu.virtualparadox.springembedder.WeightCurve;
+import eu.virtualparadox.springembedder.layouter.schedule.ConvergenceCriterion;
+import eu.virtualparadox.springembedder.renderercallback.NoOpRendererCallback;
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultWeightedEdge;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchLayouterTest {
+
+    @Test
+    void testEveryGraphMatchesSingleLayout() {
+        // shrinking and growing sizes, so the per-thread state is reused in both directions
+        final List<Graph<String, DefaultWeightedEdge>> graphs = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            graphs.add(DemoGraphInitializer.initializeDemoGraph(1 + i % 4, 10 + 7 * ((i * 5) % 12)));
+        }
+
+        final ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            final BatchLayouter<String, DefaultWeightedEdge> batchLayouter = new BatchLayouter<>(640, 480, pool, RepulsionMode.BARNES_HUT, FruchtermanReingoldLayouter.DEFAULT_THETA);
+            final List<Map<String, Vector2D>> results = batchLayouter.layoutAll(graphs, 20);
+
+            for (int i = 0; i < graphs.size(); i++) {
+                final Map<String, Vector2D> expected = new FruchtermanReingoldLayouter<String, DefaultWeightedEdge>(640, 480,
+                        new NoOpRendererCallback<>(), RepulsionMode.BARNES_HUT).layout(graphs.get(i), 20);
+                assertEquals(expected, results.get(i), "Expected the batch layout of graph " + i + " to match a single layout");
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testSinkReceivesEveryGraph() {
+        final List<Graph<String, DefaultWeightedEdge>> graphs = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            graphs.add(DemoGraphInitializer.initializeDemoGraph(2, 5 + i));
+        }
+        final BatchLayouter<String, DefaultWeightedEdge> batchLayouter = new BatchLayouter<>(640, 480);
+        batchLayouter.setConvergenceCriterion(() -> ConvergenceCriterion.maxDisplacement(1));
+
+        final Map<Graph<String, DefaultWeightedEdge>, Map<String, Vector2D>> received = new ConcurrentHashMap<>();
+        batchLayouter.layoutAll(graphs, 50, received::put);
+
+        assertEquals(graphs.size(), received.size(), "Expected a result for every graph");
+        for (final Graph<String, DefaultWeightedEdge> graph : graphs) {
+            assertEquals(graph.vertexSet(), received.get(graph).keySet(), "Expected a position for every vertex");
+        }
+    }
+
+    @Test
+    void testWeightCurveMatchesSingleLayout() {
+        final Graph<String, DefaultWeightedEdge> graph = DemoGraphInitializer.initializeDemoGraph(3, 20);
+        final BatchLayouter<String, DefaultWeightedEdge> batchLayouter = new BatchLayouter<>(640, 480);
+        batchLayouter.setWeightCurve(WeightCurve.RANK);
+        final FruchtermanReingoldLayouter<String, DefaultWeightedEdge> layouter = new FruchtermanReingoldLayouter<>(640, 480, new NoOpRendererCallback<>());
+        layouter.setWeightCurve(WeightCurve.RANK);
+
+        assertEquals(layouter.layout(graph, 20), batchLayouter.layoutAll(List.of(graph), 20).get(0), "Expected the weight curve to be applied");
+    }
+}
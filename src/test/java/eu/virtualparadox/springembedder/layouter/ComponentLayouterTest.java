@@ -0,0 +1,139 @@
+package eu.virtualparadox.springembedder.layouter;
+
+import eu.virtualparadox.springembedder.Vector2D;
+import eu.virtualparadox.springembedder.layouter.schedule.GeometricCoolingSchedule;
+import eu.virtualparadox.springembedder.renderercallback.NoOpRendererCallback;
+import org.jgrapht.Graph;
+import org.jgrapht.alg.connectivity.ConnectivityInspector;
+import org.jgrapht.graph.DefaultWeightedEdge;
+import org.jgrapht.graph.SimpleWeightedGraph;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ComponentLayouterTest {
+
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+
+    @Test
+    void testComponentsDoNotOverlapAndStayInBounds() {
+        final Graph<String, DefaultWeightedEdge> graph = createGraph();
+        final Map<String, Vector2D> positions = new ComponentLayouter<String, DefaultWeightedEdge>(WIDTH, HEIGHT).layout(graph, 50);
+
+        assertEquals(graph.vertexSet(), positions.keySet(), "Expected a position for every vertex");
+        for (final Vector2D position : positions.values()) {
+            assertTrue(position.getX() >= 0 && position.getX() <= WIDTH, "Expected x within the layout area: " + position);
+            assertTrue(position.getY() >= 0 && position.getY() <= HEIGHT, "Expected y within the layout area: " + position);
+        }
+
+        final List<Set<String>> components = new ConnectivityInspector<>(graph).connectedSets();
+        final double[][] boxes = new double[components.size()][];
+        for (int c = 0; c < components.size(); c++) {
+            boxes[c] = new double[]{Double.MAX_VALUE, Double.MAX_VALUE, -Double.MAX_VALUE, -Double.MAX_VALUE};
+            for (final String vertex : components.get(c)) {
+                final Vector2D position = positions.get(vertex);
+                boxes[c][0] = Math.min(boxes[c][0], position.getX());
+                boxes[c][1] = Math.min(boxes[c][1], position.getY());
+                boxes[c][2] = Math.max(boxes[c][2], position.getX());
+                boxes[c][3] = Math.max(boxes[c][3], position.getY());
+            }
+        }
+        for (int a = 0; a < boxes.length; a++) {
+            for (int b = a + 1; b < boxes.length; b++) {
+                final boolean disjoint = boxes[a][2] < boxes[b][0] || boxes[b][2] < boxes[a][0]
+                        || boxes[a][3] < boxes[b][1] || boxes[b][3] < boxes[a][1];
+                assertTrue(disjoint, "Expected components " + components.get(a) + " and " + components.get(b) + " not to overlap");
+            }
+        }
+    }
+
+    @Test
+    void testTrivialComponentsSkipSimulation() {
+        final Graph<String, DefaultWeightedEdge> graph = new SimpleWeightedGraph<>(DefaultWeightedEdge.class);
+        for (int i = 0; i < 10; i++) {
+            graph.addVertex("i" + i);
+        }
+        for (int i = 0; i < 5; i++) {
+            graph.addVertex("a" + i);
+            graph.addVertex("b" + i);
+            graph.addEdge("a" + i, "b" + i);
+        }
+
+        final ComponentLayouter<String, DefaultWeightedEdge> layouter = new ComponentLayouter<>(WIDTH, HEIGHT);
+        final Map<String, Vector2D> positions = layouter.layout(graph, 50);
+
+        assertEquals(0, layouter.getLastIterationCount(), "Expected no iterations for trivial components");
+        for (int i = 0; i < 5; i++) {
+            final Vector2D a = positions.get("a" + i);
+            final Vector2D b = positions.get("b" + i);
+            assertEquals(a.getY(), b.getY(), 1e-9, "Expected the ends of a single edge side by side");
+            assertTrue(b.getX() > a.getX(), "Expected the ends of a single edge apart");
+        }
+    }
+
+    @Test
+    void testResultDoesNotDependOnThePool() {
+        final Graph<String, DefaultWeightedEdge> graph = createGraph();
+        final ForkJoinPool single = new ForkJoinPool(1);
+        final ForkJoinPool parallel = new ForkJoinPool(3);
+        try {
+            final Map<String, Vector2D> sequential = new ComponentLayouter<String, DefaultWeightedEdge>(WIDTH, HEIGHT,
+                    new NoOpRendererCallback<>(), single, RepulsionMode.EXACT, FruchtermanReingoldLayouter.DEFAULT_THETA).layout(graph, 30);
+            final Map<String, Vector2D> concurrent = new ComponentLayouter<String, DefaultWeightedEdge>(WIDTH, HEIGHT,
+                    new NoOpRendererCallback<>(), parallel, RepulsionMode.EXACT, FruchtermanReingoldLayouter.DEFAULT_THETA).layout(graph, 30);
+
+            assertEquals(sequential, concurrent, "Expected the same layout on any number of threads");
+        } finally {
+            single.shutdown();
+            parallel.shutdown();
+        }
+    }
+
+    @Test
+    void testSingleScheduleMatchesSupplier() {
+        final Graph<String, DefaultWeightedEdge> graph = createGraph();
+        final ComponentLayouter<String, DefaultWeightedEdge> withSupplier = new ComponentLayouter<>(WIDTH, HEIGHT);
+        final ComponentLayouter<String, DefaultWeightedEdge> withInstance = new ComponentLayouter<>(WIDTH, HEIGHT);
+        withInstance.setCoolingSchedule(GeometricCoolingSchedule.DEFAULT);
+
+        assertEquals(withSupplier.layout(graph, 30), withInstance.layout(graph, 30),
+                "Expected a shared stateless schedule to give the same layout");
+    }
+
+    /**
+     * A ring, a star and a triangle with single edges and isolated vertices.
+     */
+    private static Graph<String, DefaultWeightedEdge> createGraph() {
+        final Graph<String, DefaultWeightedEdge> graph = new SimpleWeightedGraph<>(DefaultWeightedEdge.class);
+        for (int i = 0; i < 30; i++) {
+            graph.addVertex("r" + i);
+        }
+        for (int i = 0; i < 30; i++) {
+            graph.setEdgeWeight(graph.addEdge("r" + i, "r" + (i + 1) % 30), 1 + i % 3);
+        }
+        graph.addVertex("s");
+        for (int i = 0; i < 20; i++) {
+            graph.addVertex("s" + i);
+            graph.addEdge("s", "s" + i);
+        }
+        graph.addVertex("t0");
+        graph.addVertex("t1");
+        graph.addVertex("t2");
+        graph.addEdge("t0", "t1");
+        graph.addEdge("t1", "t2");
+        graph.addEdge("t2", "t0");
+        for (int i = 0; i < 5; i++) {
+            graph.addVertex("a" + i);
+            graph.addVertex("b" + i);
+            graph.addEdge("a" + i, "b" + i);
+            graph.addVertex("i" + i);
+        }
+        return graph;
+    }
+}
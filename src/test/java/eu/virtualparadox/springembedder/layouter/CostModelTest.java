@@ -0,0 +1,92 @@
+package eu.virtualparadox.springembedder.layouter;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CostModelTest {
+
+    @Test
+    void testFitRecoversCoefficients() {
+        final double[][] features = {{1, 4e4, 400}, {1, 6.4e5, 1600}, {1, 4e6, 4000}, {1, 6.4e5, 6400}};
+        final double[] values = new double[features.length];
+        for (int r = 0; r < features.length; r++) {
+            values[r] = 5000 + 3 * features[r][1] + 20 * features[r][2];
+        }
+
+        final double[] coefficients = CostModel.fitNonNegative(features, values);
+
+        assertArrayEquals(new double[]{5000, 3, 20}, coefficients, 1e-6, "Expected the exact coefficients of noiseless samples");
+    }
+
+    @Test
+    void testFitNeverReturnsNegativeCoefficients() {
+        // the edge count is anti-correlated with the time, an unconstrained fit gives it a negative coefficient
+        final double[][] features = {{1, 100, 50}, {1, 200, 40}, {1, 300, 30}, {1, 400, 10}};
+        final double[] values = {120, 190, 330, 380};
+
+        final double[] coefficients = CostModel.fitNonNegative(features, values);
+
+        for (final double coefficient : coefficients) {
+            assertTrue(coefficient >= 0, "Expected non-negative coefficients: " + coefficient);
+        }
+        assertTrue(coefficients[1] > 0, "Expected the vertex term to explain the growth");
+    }
+
+    @Test
+    void testSaveAndLoad(@TempDir final Path folder) throws IOException {
+        final CostModel model = createModel("test");
+        final Path file = folder.resolve("models").resolve("cost-model.properties");
+
+        model.save(file);
+        final CostModel loaded = CostModel.load(file);
+
+        assertEquals("test", loaded.getFingerprint(), "Expected the fingerprint to be kept");
+        assertEquals(model.getEngines(), loaded.getEngines(), "Expected the same engines");
+        assertEquals(model.predict(LayoutEngine.EXACT, 1000, 2000, 50), loaded.predict(LayoutEngine.EXACT, 1000, 2000, 50),
+                "Expected the same predictions");
+        assertNull(CostModel.load(folder.resolve("missing.properties")), "Expected no model without a file");
+
+        Files.writeString(file, "version=0\n");
+        assertNull(CostModel.load(file), "Expected no model from another version");
+    }
+
+    @Test
+    void testFailedEnginesAreSaved(@TempDir final Path folder) throws IOException {
+        final Map<LayoutEngine, double[]> setup = new EnumMap<>(LayoutEngine.class);
+        final Map<LayoutEngine, double[]> iteration = new EnumMap<>(LayoutEngine.class);
+        setup.put(LayoutEngine.EXACT, new double[]{0, 100});
+        iteration.put(LayoutEngine.EXACT, new double[]{1000, 2, 10});
+        final CostModel model = new CostModel("test", setup, iteration, EnumSet.of(LayoutEngine.OPENCL));
+        final Path file = folder.resolve("cost-model.properties");
+
+        model.save(file);
+        final CostModel loaded = CostModel.load(file);
+
+        assertEquals(EnumSet.of(LayoutEngine.OPENCL), loaded.getFailedEngines(), "Expected the failed engines to be kept");
+        assertTrue(loaded.isCalibratedFor(List.of(LayoutEngine.EXACT, LayoutEngine.OPENCL)), "Expected a failed engine to count as calibrated");
+        assertFalse(loaded.isCalibratedFor(List.of(LayoutEngine.EXACT, LayoutEngine.BARNES_HUT)), "Expected an unmeasured engine to need a calibration");
+    }
+
+    static CostModel createModel(final String fingerprint) {
+        final Map<LayoutEngine, double[]> setup = new EnumMap<>(LayoutEngine.class);
+        final Map<LayoutEngine, double[]> iteration = new EnumMap<>(LayoutEngine.class);
+        setup.put(LayoutEngine.EXACT, new double[]{0, 100});
+        iteration.put(LayoutEngine.EXACT, new double[]{1000, 2, 10});
+        setup.put(LayoutEngine.BARNES_HUT, new double[]{0, 100});
+        iteration.put(LayoutEngine.BARNES_HUT, new double[]{20000, 50, 10});
+        // a fast device with an expensive upload
+        setup.put(LayoutEngine.OPENCL, new double[]{1e6, 100});
+        iteration.put(LayoutEngine.OPENCL, new double[]{1000, 0.01, 1});
+        return new CostModel(fingerprint, setup, iteration);
+    }
+}
@@ -0,0 +1,71 @@
+package eu.virtualparadox.springembedder.layouter;
+
+import eu.virtualparadox.springembedder.DemoGraphInitializer;
+import eu.virtualparadox.springembedder.Vector2D;
+import eu.virtualparadox.springembedder.engine.FruchtermanReingoldEngine;
+import eu.virtualparadox.springembedder.layouter.schedule.ConvergenceCriterion;
+import org.jgrapht.ListenableGraph;
+import org.jgrapht.graph.DefaultListenableGraph;
+import org.jgrapht.graph.DefaultWeightedEdge;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IncrementalLayouterTest {
+
+    @Test
+    void testRelaxesOnlyTheNeighborhoodOfAChange() {
+        final ListenableGraph<String, DefaultWeightedEdge> graph =
+                new DefaultListenableGraph<>(DemoGraphInitializer.initializeDemoGraph(3, 30));
+        final IncrementalLayouter<String, DefaultWeightedEdge> layouter = new IncrementalLayouter<>(640, 480);
+        final Map<String, Vector2D> before = layouter.layout(graph, 100);
+
+        layouter.attach(graph, Set.of("center0"));
+        graph.addVertex("new");
+        graph.addEdge("node_0_1", "new");
+        final Map<String, Vector2D> after = layouter.getPositions();
+
+        final double optimalDistance = FruchtermanReingoldEngine.calcOptimalDistance(640, 480, graph.vertexSet().size());
+        assertTrue(after.get("new").subtract(after.get("node_0_1")).length() < 3 * optimalDistance,
+                "Expected the new vertex to be placed next to its neighbor");
+        assertEquals(before.get("center0"), after.get("center0"), "Expected the pinned vertex to stay in place");
+        assertEquals(before.get("node_2_7"), after.get("node_2_7"), "Expected vertices far from the change to stay in place");
+        assertNotEquals(before.get("node_0_1"), after.get("node_0_1"), "Expected the changed vertex to be relaxed");
+    }
+
+    @Test
+    void testBatchRelaxesOnceAndForgetsRemovedVertices() {
+        final ListenableGraph<String, DefaultWeightedEdge> graph =
+                new DefaultListenableGraph<>(DemoGraphInitializer.initializeDemoGraph(2, 10));
+        final IncrementalLayouter<String, DefaultWeightedEdge> layouter = new IncrementalLayouter<>(640, 480);
+        layouter.layout(graph, 50);
+        layouter.attach(graph, Set.of());
+
+        final Map<String, Vector2D> after = layouter.batch(() -> {
+            graph.removeVertex("node_1_3");
+            graph.addVertex("a");
+            graph.addVertex("b");
+            graph.addEdge("a", "b");
+        });
+
+        assertFalse(after.containsKey("node_1_3"), "Expected the removed vertex to be gone");
+        assertEquals(graph.vertexSet().size(), after.size(), "Expected a position for every vertex");
+    }
+
+    @Test
+    void testRelaxationFollowsTheConvergenceCriterion() {
+        final ListenableGraph<String, DefaultWeightedEdge> graph =
+                new DefaultListenableGraph<>(DemoGraphInitializer.initializeDemoGraph(2, 10));
+        final IncrementalLayouter<String, DefaultWeightedEdge> layouter = new IncrementalLayouter<>(640, 480);
+        layouter.layout(graph, 50);
+        layouter.attach(graph, Set.of());
+        layouter.setConvergenceCriterion(ConvergenceCriterion.maxDisplacement(Double.MAX_VALUE));
+
+        graph.addEdge("node_0_1", "node_1_1");
+
+        assertEquals(1, layouter.getLastIterationCount(), "Expected the criterion to stop the relaxation after one iteration");
+    }
+}
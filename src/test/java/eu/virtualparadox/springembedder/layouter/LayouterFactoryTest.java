@@ -0,0 +1,77 @@
+package eu.virtualparadox.springembedder.layouter;
+
+import eu.virtualparadox.springembedder.DemoGraphInitializer;
+import eu.virtualparadox.springembedder.opencl.DeviceSelector;
+import eu.virtualparadox.springembedder.renderercallback.NoOpRendererCallback;
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultWeightedEdge;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LayouterFactoryTest {
+
+    @Test
+    void testChoosesCheapestAvailableEngine() {
+        try (LayouterFactory factory = new LayouterFactory(CostModelTest.createModel("test"), null)) {
+            assertEquals(LayoutEngine.EXACT, factory.choose(100, 200, 50), "Expected exact repulsion for a small graph");
+            assertEquals(LayoutEngine.BARNES_HUT, factory.choose(100_000, 200_000, 50), "Expected Barnes-Hut for a large graph");
+            assertFalse(factory.getEngines().contains(LayoutEngine.OPENCL), "Expected no OpenCL engine without a session");
+
+            final Graph<String, DefaultWeightedEdge> graph = DemoGraphInitializer.initializeDemoGraph(2, 20);
+            final AbstractLayouter<String, DefaultWeightedEdge> layouter = factory.create(graph, 50, 640, 480, new NoOpRendererCallback<>());
+            assertInstanceOf(FruchtermanReingoldLayouter.class, layouter, "Expected a CPU layouter");
+            assertEquals(graph.vertexSet(), layouter.layout(graph, 5).keySet(), "Expected a working layouter");
+        }
+    }
+
+    @Test
+    void testCalibratesOnceAndReusesTheCache(@TempDir final Path folder) throws Exception {
+        final Path cacheFile = folder.resolve("cost-model.properties");
+        final CostModel calibrated;
+        try (LayouterFactory factory = new LayouterFactory(cacheFile, DeviceSelector.any())) {
+            calibrated = factory.getCostModel();
+            assertTrue(calibrated.getEngines().containsAll(factory.getEngines()), "Expected every available engine to be calibrated");
+        }
+        assertTrue(Files.exists(cacheFile), "Expected the model to be cached");
+
+        try (LayouterFactory factory = new LayouterFactory(cacheFile, DeviceSelector.any())) {
+            assertEquals(calibrated.getFingerprint(), factory.getCostModel().getFingerprint(), "Expected the cached model");
+            assertEquals(calibrated.predict(LayoutEngine.EXACT, 5000, 10000, 100),
+                    factory.getCostModel().predict(LayoutEngine.EXACT, 5000, 10000, 100), "Expected the cached coefficients");
+            assertEquals(factory.choose(50, 100, 100), factory.choose(50, 100, 100), "Expected a stable choice");
+        }
+    }
+
+    @Test
+    void testFailedEnginesDoNotTriggerRecalibration(@TempDir final Path folder) throws Exception {
+        final Path cacheFile = folder.resolve("cost-model.properties");
+        final String fingerprint;
+        final Set<LayoutEngine> failed = EnumSet.noneOf(LayoutEngine.class);
+        try (LayouterFactory factory = new LayouterFactory(cacheFile, DeviceSelector.any())) {
+            fingerprint = factory.getCostModel().getFingerprint();
+            failed.addAll(factory.getEngines());
+        }
+        // a cache in which only the exact engine could be calibrated
+        failed.remove(LayoutEngine.EXACT);
+        final Map<LayoutEngine, double[]> setup = new EnumMap<>(LayoutEngine.class);
+        final Map<LayoutEngine, double[]> iteration = new EnumMap<>(LayoutEngine.class);
+        setup.put(LayoutEngine.EXACT, new double[]{0, 100});
+        iteration.put(LayoutEngine.EXACT, new double[]{1000, 2, 10});
+        new CostModel(fingerprint, setup, iteration, failed).save(cacheFile);
+
+        try (LayouterFactory factory = new LayouterFactory(cacheFile, DeviceSelector.any())) {
+            assertEquals(Set.of(LayoutEngine.EXACT), factory.getCostModel().getEngines(), "Expected the cached model instead of a new calibration");
+            assertEquals(failed, factory.getCostModel().getFailedEngines(), "Expected the failed engines to be kept");
+            assertEquals(LayoutEngine.EXACT, factory.choose(100_000, 200_000, 50), "Expected only the calibrated engine to be chosen");
+        }
+    }
+}
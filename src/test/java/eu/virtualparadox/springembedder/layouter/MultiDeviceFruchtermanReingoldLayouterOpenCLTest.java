@@ -0,0 +1,53 @@
+package eu.virtualparadox.springembedder.layouter;
+
+import eu.virtualparadox.springembedder.DemoGraphInitializer;
+import eu.virtualparadox.springembedder.Vector2D;
+import eu.virtualparadox.springembedder.opencl.OpenCLDevice;
+import eu.virtualparadox.springembedder.opencl.OpenCLSession;
+import eu.virtualparadox.springembedder.renderercallback.NoOpRendererCallback;
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultWeightedEdge;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+class MultiDeviceFruchtermanReingoldLayouterOpenCLTest {
+
+    @Test
+    void testPartitionFollowsWeights() {
+        assertArrayEquals(new int[]{0, 25, 100}, MultiDeviceFruchtermanReingoldLayouterOpenCL.partition(100, new double[]{1, 3}),
+                "Expected slices in proportion to the weights");
+        assertArrayEquals(new int[]{0, 0, 1, 1}, MultiDeviceFruchtermanReingoldLayouterOpenCL.partition(1, new double[]{1, 1, 1}),
+                "Expected empty slices when there are fewer vertices than devices");
+    }
+
+    /**
+     * Runs with any OpenCL runtime, e.g. POCL on a CPU: two sessions on the same device split every
+     * iteration and must produce the layout of a single device.
+     */
+    @Test
+    void testTwoSlicesMatchSingleDevice() {
+        final List<OpenCLDevice> devices = OpenCLDevice.list();
+        assumeFalse(devices.isEmpty(), "No OpenCL device");
+
+        final Graph<String, DefaultWeightedEdge> graph = DemoGraphInitializer.initializeDemoGraph(3, 100);
+        try (OpenCLSession first = new OpenCLSession(devices.get(0));
+             OpenCLSession second = new OpenCLSession(devices.get(0))) {
+            final Map<String, Vector2D> expected = new FruchtermanReingoldLayouterOpenCL<String, DefaultWeightedEdge>(640, 480,
+                    new NoOpRendererCallback<>(), first).layout(graph, 30);
+            final MultiDeviceFruchtermanReingoldLayouterOpenCL<String, DefaultWeightedEdge> layouter =
+                    new MultiDeviceFruchtermanReingoldLayouterOpenCL<>(640, 480, new NoOpRendererCallback<>(), List.of(first, second));
+            layouter.setDeviceWeights(1, 2);
+            final Map<String, Vector2D> actual = layouter.layout(graph, 30);
+
+            for (final Map.Entry<String, Vector2D> entry : expected.entrySet()) {
+                assertEquals(entry.getValue().getX(), actual.get(entry.getKey()).getX(), 1e-3, "Expected the x of " + entry.getKey() + " to match");
+                assertEquals(entry.getValue().getY(), actual.get(entry.getKey()).getY(), 1e-3, "Expected the y of " + entry.getKey() + " to match");
+            }
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package eu.virtualparadox.springembedder.layouter;
+
+import eu.virtualparadox.springembedder.DemoGraphInitializer;
+import eu.virtualparadox.springembedder.Vector2D;
+import eu.virtualparadox.springembedder.layouter.schedule.GeometricCoolingSchedule;
+import eu.virtualparadox.springembedder.renderercallback.NoOpRendererCallback;
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultWeightedEdge;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MultilevelLayouterTest {
+
+    @Test
+    void testPositionsEveryVertexWithinBounds() {
+        final Graph<String, DefaultWeightedEdge> graph = DemoGraphInitializer.initializeRandomGraph(600, 1200, 7);
+
+        final Map<String, Vector2D> positions = new MultilevelLayouter<String, DefaultWeightedEdge>(640, 480).layout(graph, 50);
+
+        assertEquals(graph.vertexSet(), positions.keySet(), "Expected a position for every vertex");
+        for (final Vector2D position : positions.values()) {
+            assertTrue(position.getX() >= 0 && position.getX() <= 640, "Expected x within the layout area: " + position);
+            assertTrue(position.getY() >= 0 && position.getY() <= 480, "Expected y within the layout area: " + position);
+        }
+    }
+
+    @Test
+    void testLayoutIsDeterministic() {
+        final Graph<String, DefaultWeightedEdge> graph = DemoGraphInitializer.initializeDemoGraph(4, 150);
+
+        final Map<String, Vector2D> first = newLayouter().layout(graph, 50);
+        final Map<String, Vector2D> second = newLayouter().layout(graph, 50);
+
+        assertEquals(first, second, "Expected the same layout for the same seed");
+    }
+
+    private static MultilevelLayouter<String, DefaultWeightedEdge> newLayouter() {
+        final MultilevelLayouter<String, DefaultWeightedEdge> layouter = new MultilevelLayouter<>(640, 480,
+                new NoOpRendererCallback<>(), RepulsionMode.BARNES_HUT, 0.5,
+                MultilevelLayouter.DEFAULT_COARSEST_SIZE, MultilevelLayouter.DEFAULT_REFINEMENT_ITERATIONS);
+        layouter.setCoolingSchedule(new GeometricCoolingSchedule(40, 0.9, 2));
+        return layouter;
+    }
+}
@@ -0,0 +1,42 @@
+package eu.virtualparadox.springembedder.layouter;
+
+import eu.virtualparadox.springembedder.DemoGraphInitializer;
+import eu.virtualparadox.springembedder.Vector2D;
+import eu.virtualparadox.springembedder.renderercallback.NoOpRendererCallback;
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultWeightedEdge;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ParallelFruchtermanReingoldLayouterTest {
+
+    @Test
+    void testExactMatchesSequentialLayouter() {
+        assertMatchesSequentialLayouter(RepulsionMode.EXACT);
+    }
+
+    @Test
+    void testBarnesHutMatchesSequentialLayouter() {
+        assertMatchesSequentialLayouter(RepulsionMode.BARNES_HUT);
+    }
+
+    private static void assertMatchesSequentialLayouter(final RepulsionMode repulsionMode) {
+        final Graph<String, DefaultWeightedEdge> graph = DemoGraphInitializer.initializeDemoGraph(4, 150);
+
+        final Map<String, Vector2D> expected = new FruchtermanReingoldLayouter<String, DefaultWeightedEdge>(
+                640, 480, new NoOpRendererCallback<>(), repulsionMode).layout(graph, 30);
+
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            final Map<String, Vector2D> actual = new ParallelFruchtermanReingoldLayouter<String, DefaultWeightedEdge>(
+                    640, 480, new NoOpRendererCallback<>(), pool, repulsionMode, FruchtermanReingoldLayouter.DEFAULT_THETA).layout(graph, 30);
+            assertEquals(expected, actual, "Expected the parallel layout to be identical to the sequential one");
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
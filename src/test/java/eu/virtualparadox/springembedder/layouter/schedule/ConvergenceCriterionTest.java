@@ -0,0 +1,48 @@
+package eu.virtualparadox.springembedder.layouter.schedule;
+
+import eu.virtualparadox.springembedder.DemoGraphInitializer;
+import eu.virtualparadox.springembedder.layouter.FruchtermanReingoldLayouter;
+import org.jgrapht.graph.DefaultWeightedEdge;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConvergenceCriterionTest {
+
+    @Test
+    void testStallConvergesAfterIterationsWithoutNewMinimum() {
+        final ConvergenceCriterion criterion = ConvergenceCriterion.stall(2);
+        assertFalse(criterion.isConverged(0, 1, 10), "Expected a new minimum to reset the stall");
+        assertFalse(criterion.isConverged(1, 1, 12), "Expected one stalled iteration to be tolerated");
+        assertTrue(criterion.isConverged(2, 1, 11), "Expected two stalled iterations to converge");
+
+        criterion.reset();
+        assertFalse(criterion.isConverged(0, 1, 11), "Expected reset to forget the previous minimum");
+    }
+
+    @Test
+    void testEnergyDeltaComparesConsecutiveIterations() {
+        final ConvergenceCriterion criterion = ConvergenceCriterion.energyDelta(0.01);
+        assertFalse(criterion.isConverged(0, 1, 100), "Expected the first iteration never to converge");
+        assertFalse(criterion.isConverged(1, 1, 90), "Expected a 10% change not to converge");
+        assertTrue(criterion.isConverged(2, 1, 89.5), "Expected a change below 1% to converge");
+    }
+
+    @Test
+    void testAdaptiveCoolingHeatsUpAfterProgressAndCoolsDownOtherwise() {
+        final AdaptiveCoolingSchedule schedule = new AdaptiveCoolingSchedule(50, 0.5, 1, 2);
+        assertEquals(20, schedule.nextTemperature(20, 100), "Expected the first improvement to keep the temperature");
+        assertEquals(40, schedule.nextTemperature(20, 90), "Expected two improvements in a row to heat up");
+        assertEquals(20, schedule.nextTemperature(40, 95), "Expected a rising energy to cool down");
+    }
+
+    @Test
+    void testLayouterReturnsEarlyAndReportsIterations() {
+        final FruchtermanReingoldLayouter<String, DefaultWeightedEdge> layouter = new FruchtermanReingoldLayouter<>(640, 480);
+        layouter.setConvergenceCriterion(ConvergenceCriterion.maxDisplacement(2));
+        layouter.layout(DemoGraphInitializer.initializeDemoGraph(3, 20), 1000);
+
+        assertTrue(layouter.getLastIterationCount() < 1000, "Expected the layout to converge before 1000 iterations");
+        assertTrue(layouter.getLastIterationCount() > 0, "Expected at least one iteration");
+    }
+}
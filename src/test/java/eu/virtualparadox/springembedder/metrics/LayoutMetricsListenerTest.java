@@ -0,0 +1,159 @@
+package eu.virtualparadox.springembedder.metrics;
+
+import eu.virtualparadox.springembedder.DemoGraphInitializer;
+import eu.virtualparadox.springembedder.layouter.BatchLayouter;
+import eu.virtualparadox.springembedder.layouter.ComponentLayouter;
+import eu.virtualparadox.springembedder.layouter.FruchtermanReingoldLayouter;
+import eu.virtualparadox.springembedder.layouter.ParallelFruchtermanReingoldLayouter;
+import eu.virtualparadox.springembedder.layouter.RepulsionMode;
+import eu.virtualparadox.springembedder.layouter.schedule.ConvergenceCriterion;
+import eu.virtualparadox.springembedder.renderercallback.NoOpRendererCallback;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultWeightedEdge;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LayoutMetricsListenerTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final Graph<String, DefaultWeightedEdge> graph = DemoGraphInitializer.initializeDemoGraph(3, 20);
+
+    @Test
+    void testHistogramQuantiles() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (int micros = 1; micros <= 1000; micros++) {
+            histogram.record(micros * 1000L);
+        }
+
+        assertEquals(1000, histogram.getCount(), "Expected every value to be counted");
+        assertEquals(1_000_000, histogram.getMaxNanos(), "Expected the exact maximum");
+        assertEquals(500_500, histogram.getMeanNanos(), 1e-9, "Expected the exact mean");
+        assertEquals(500_000, histogram.getQuantileNanos(0.5), 500_000 * 0.07, "Expected the median within the bucket precision");
+        assertEquals(990_000, histogram.getQuantileNanos(0.99), 990_000 * 0.07, "Expected the 99th percentile within the bucket precision");
+        assertEquals(1_000_000, histogram.getQuantileNanos(1), "Expected the maximum as the 100th percentile");
+    }
+
+    @Test
+    void testSummaryIgnoresTheDefaultLocale() {
+        final HistogramMetricsListener metrics = new HistogramMetricsListener();
+        metrics.iterationCompleted(0, 1_500_000, 0, 0);
+        final Locale locale = Locale.getDefault();
+        try {
+            Locale.setDefault(Locale.GERMANY);
+            assertTrue(metrics.summary().contains("mean=1.500 ms"), "Expected a decimal point in every locale");
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+
+    @Test
+    void testLayouterReportsEveryPhaseAndIteration() {
+        final HistogramMetricsListener metrics = new HistogramMetricsListener();
+        final FruchtermanReingoldLayouter<String, DefaultWeightedEdge> layouter = new FruchtermanReingoldLayouter<>(640, 480, new NoOpRendererCallback<>() {
+            @Override
+            public boolean isFrameRequested(final int iteration) {
+                return iteration % 10 == 0;
+            }
+        });
+        layouter.setMetricsListener(metrics);
+        layouter.setConvergenceCriterion(ConvergenceCriterion.stall(1000));
+        layouter.layout(graph, 30);
+
+        assertEquals(1, metrics.getLayoutHistogram().getCount(), "Expected one layout");
+        assertEquals(30, metrics.getIterationHistogram().getCount(), "Expected every iteration");
+        assertEquals(30, metrics.getPhaseHistogram(LayoutPhase.REPULSION).getCount(), "Expected the repulsion of every iteration");
+        assertEquals(30, metrics.getPhaseHistogram(LayoutPhase.ATTRACTION).getCount(), "Expected the attraction of every iteration");
+        assertEquals(30, metrics.getPhaseHistogram(LayoutPhase.UPDATE).getCount(), "Expected the update of every iteration");
+        assertEquals(3, metrics.getPhaseHistogram(LayoutPhase.RENDER).getCount(), "Expected only the requested frames");
+        assertEquals(0, metrics.getPhaseHistogram(LayoutPhase.TRANSFER).getCount(), "Expected no transfers on the CPU");
+        assertFalse(Double.isNaN(metrics.getLastEnergy()), "Expected the energy the criterion needs");
+        assertTrue(metrics.summary().contains("repulsion"), "Expected the phases in the summary");
+    }
+
+    @Test
+    void testParallelLayouterMatchesWithMetrics() {
+        final ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            final ParallelFruchtermanReingoldLayouter<String, DefaultWeightedEdge> plain = new ParallelFruchtermanReingoldLayouter<>(640, 480, new NoOpRendererCallback<>(), pool);
+            final ParallelFruchtermanReingoldLayouter<String, DefaultWeightedEdge> measured = new ParallelFruchtermanReingoldLayouter<>(640, 480, new NoOpRendererCallback<>(), pool);
+            final HistogramMetricsListener metrics = new HistogramMetricsListener();
+            measured.setMetricsListener(metrics);
+
+            assertEquals(plain.layout(graph, 20), measured.layout(graph, 20), "Expected the timed passes to compute the same layout");
+            assertEquals(20, metrics.getPhaseHistogram(LayoutPhase.ATTRACTION).getCount(), "Expected the attraction of every iteration");
+            assertTrue(Double.isNaN(metrics.getLastEnergy()), "Expected no energy without a schedule that needs it");
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testBatchLayouterReportsEveryGraph() {
+        final ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            final BatchLayouter<String, DefaultWeightedEdge> batchLayouter = new BatchLayouter<>(640, 480, pool, RepulsionMode.EXACT, FruchtermanReingoldLayouter.DEFAULT_THETA);
+            final HistogramMetricsListener metrics = new HistogramMetricsListener();
+            batchLayouter.setMetricsListener(metrics);
+            batchLayouter.layoutAll(List.of(graph, graph, graph, graph), 20);
+
+            assertEquals(4, metrics.getLayoutHistogram().getCount(), "Expected a layout per graph");
+            assertEquals(80, metrics.getIterationHistogram().getCount(), "Expected every iteration of every graph");
+            assertEquals(80, metrics.getPhaseHistogram(LayoutPhase.REPULSION).getCount(), "Expected the repulsion of every iteration");
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testComponentLayouterReportsEveryComponent() {
+        final ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            // three components of 21 vertices, each simulated on its own
+            final ComponentLayouter<String, DefaultWeightedEdge> layouter = new ComponentLayouter<>(640, 480, new NoOpRendererCallback<>(),
+                    pool, RepulsionMode.BARNES_HUT, FruchtermanReingoldLayouter.DEFAULT_THETA);
+            final Graph<String, DefaultWeightedEdge> components = DemoGraphInitializer.initializeDemoGraph(3, 20);
+            components.removeVertex(DemoGraphInitializer.CENTER);
+            final HistogramMetricsListener metrics = new HistogramMetricsListener();
+            layouter.setMetricsListener(metrics);
+            layouter.layout(components, 20);
+
+            assertEquals(1, metrics.getLayoutHistogram().getCount(), "Expected one layout");
+            assertEquals(60, metrics.getIterationHistogram().getCount(), "Expected every iteration of every component");
+            assertEquals(60, metrics.getPhaseHistogram(LayoutPhase.REPULSION).getCount(), "Expected the repulsion of every iteration");
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testJfrEvents() throws IOException {
+        final Path file = tempDir.resolve("layout.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("eu.virtualparadox.springembedder.LayoutPhase");
+            recording.enable("eu.virtualparadox.springembedder.LayoutIteration");
+            recording.start();
+            final FruchtermanReingoldLayouter<String, DefaultWeightedEdge> layouter = new FruchtermanReingoldLayouter<>(640, 480);
+            layouter.setMetricsListener(new JfrMetricsListener());
+            layouter.layout(graph, 10);
+            recording.stop();
+            recording.dump(file);
+        }
+
+        final List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        assertEquals(10, events.stream().filter(e -> e.getEventType().getName().endsWith("LayoutIteration")).count(), "Expected an event per iteration");
+        assertEquals(30, events.stream().filter(e -> e.getEventType().getName().endsWith("LayoutPhase")).count(), "Expected an event per phase");
+    }
+}
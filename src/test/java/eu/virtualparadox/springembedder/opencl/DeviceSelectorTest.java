@@ -0,0 +1,43 @@
+package eu.virtualparadox.springembedder.opencl;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeviceSelectorTest {
+
+    private static final OpenCLDevice POCL_CPU = new OpenCLDevice(null, null, "Portable Computing Language",
+            "cpu-haswell-AMD Ryzen 9 5950X", OpenCLDevice.Type.CPU, 32);
+    private static final OpenCLDevice NVIDIA_GPU = new OpenCLDevice(null, null, "NVIDIA CUDA",
+            "NVIDIA GeForce RTX 3080", OpenCLDevice.Type.GPU, 68);
+
+    @Test
+    void testSelectorsMatchPlatformTypeAndName() {
+        assertTrue(DeviceSelector.any().matches(POCL_CPU), "Expected any device to match");
+        assertTrue(DeviceSelector.platform("portable").matches(POCL_CPU), "Expected a case-insensitive platform match");
+        assertFalse(DeviceSelector.platform("cuda").matches(POCL_CPU), "Expected no match on another platform");
+        assertTrue(DeviceSelector.type(OpenCLDevice.Type.GPU).matches(NVIDIA_GPU), "Expected a type match");
+        assertFalse(DeviceSelector.type(OpenCLDevice.Type.GPU).matches(POCL_CPU), "Expected no match on another type");
+        assertTrue(DeviceSelector.name("rtx").matches(NVIDIA_GPU), "Expected a case-insensitive name match");
+    }
+
+    @Test
+    void testAndRequiresBothSelectors() {
+        final DeviceSelector selector = DeviceSelector.platform("nvidia").and(DeviceSelector.type(OpenCLDevice.Type.CPU));
+
+        assertFalse(selector.matches(NVIDIA_GPU), "Expected the type to be checked as well");
+        assertFalse(selector.matches(POCL_CPU), "Expected the platform to be checked as well");
+    }
+
+    @Test
+    void testEnumerationMatchesSelectors() {
+        final List<OpenCLDevice> devices = OpenCLDevice.list();
+
+        for (final OpenCLDevice device : devices) {
+            assertTrue(device.getComputeUnits() > 0, "Expected compute units for " + device);
+        }
+        assertEquals(devices.size(), OpenCLDevice.list(DeviceSelector.any()).size(), "Expected every device to match any()");
+    }
+}
@@ -0,0 +1,130 @@
+package eu.virtualparadox.springembedder.renderercallback;
+
+import eu.virtualparadox.springembedder.Vector2D;
+import eu.virtualparadox.springembedder.layouter.FruchtermanReingoldLayouter;
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultEdge;
+import org.jgrapht.graph.SimpleGraph;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncRendererCallbackTest {
+
+    private final Graph<String, DefaultEdge> graph = new SimpleGraph<>(DefaultEdge.class);
+
+    @Test
+    void testBlockRendersEveryFrameInOrder() {
+        final RecordingCallback delegate = new RecordingCallback(new CountDownLatch(0));
+        final AsyncRendererCallback<String, DefaultEdge> callback = new AsyncRendererCallback<>(delegate, 2, AsyncRendererCallback.OverflowPolicy.BLOCK, 1, 0);
+
+        for (int i = 0; i < 100; i++) {
+            callback.render(graph, i, Collections.emptyMap());
+        }
+        callback.finish();
+
+        assertEquals(100, delegate.iterations.size(), "Expected every frame to be rendered");
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, delegate.iterations.get(i), "Expected the frames in iteration order");
+        }
+        assertTrue(delegate.finished, "Expected finish to be passed to the delegate");
+    }
+
+    @Test
+    void testRendersEveryLayoutOfAReusedCallback() {
+        final Graph<String, DefaultEdge> path = new SimpleGraph<>(DefaultEdge.class);
+        path.addVertex("a");
+        path.addVertex("b");
+        path.addVertex("c");
+        path.addEdge("a", "b");
+        path.addEdge("b", "c");
+        final RecordingCallback delegate = new RecordingCallback(new CountDownLatch(0));
+        final AsyncRendererCallback<String, DefaultEdge> callback = new AsyncRendererCallback<>(delegate, 2, AsyncRendererCallback.OverflowPolicy.BLOCK, 1, 0);
+        final FruchtermanReingoldLayouter<String, DefaultEdge> layouter = new FruchtermanReingoldLayouter<>(640, 480, callback);
+
+        for (int layout = 0; layout < 3; layout++) {
+            layouter.layout(path, 10);
+        }
+
+        assertEquals(30, delegate.iterations.size(), "Expected the frames of every layout to be rendered");
+    }
+
+    @Test
+    void testKeepLatestReplacesQueuedFrames() {
+        final CountDownLatch release = new CountDownLatch(1);
+        final RecordingCallback delegate = new RecordingCallback(release);
+        final AsyncRendererCallback<String, DefaultEdge> callback = new AsyncRendererCallback<>(delegate, 1, AsyncRendererCallback.OverflowPolicy.KEEP_LATEST, 1, 0);
+
+        for (int i = 0; i < 10; i++) {
+            callback.render(graph, i, Collections.emptyMap());
+        }
+        release.countDown();
+        callback.finish();
+
+        assertEquals(9, delegate.iterations.get(delegate.iterations.size() - 1), "Expected the latest frame to be rendered");
+        assertEquals(10, delegate.iterations.size() + callback.getDroppedFrames(), "Expected every frame to be rendered or dropped");
+    }
+
+    @Test
+    void testFrameIntervalSamplesIterations() {
+        final AsyncRendererCallback<String, DefaultEdge> callback = new AsyncRendererCallback<>(new RecordingCallback(new CountDownLatch(0)), 4, AsyncRendererCallback.OverflowPolicy.DROP, 10, 0);
+
+        assertTrue(callback.isFrameRequested(0), "Expected the first iteration to be requested");
+        assertFalse(callback.isFrameRequested(5), "Expected iterations between the samples to be skipped");
+        assertTrue(callback.isFrameRequested(20), "Expected every tenth iteration to be requested");
+        callback.finish();
+    }
+
+    @Test
+    void testDelegateFailureIsRethrown() {
+        final AsyncRendererCallback<String, DefaultEdge> callback = new AsyncRendererCallback<>(new NoOpRendererCallback<>() {
+            @Override
+            public void render(final Graph<String, DefaultEdge> graph, final int iteration, final Map<String, Vector2D> positionMap) {
+                throw new IllegalArgumentException("broken");
+            }
+        });
+
+        callback.render(graph, 0, Collections.emptyMap());
+        assertThrows(IllegalStateException.class, callback::finish, "Expected the failure of the worker on finish");
+    }
+
+    /**
+     * Records the rendered iterations, the first render waits for the latch.
+     */
+    private static final class RecordingCallback extends NoOpRendererCallback<String, DefaultEdge> {
+
+        private final CountDownLatch release;
+        private final List<Integer> iterations = Collections.synchronizedList(new ArrayList<>());
+        private volatile boolean finished;
+
+        private RecordingCallback(final CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public boolean isFrameRequested(final int iteration) {
+            return true;
+        }
+
+        @Override
+        public void render(final Graph<String, DefaultEdge> graph, final int iteration, final Map<String, Vector2D> positionMap) {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            iterations.add(iteration);
+        }
+
+        @Override
+        public void finish() {
+            finished = true;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package eu.virtualparadox.springembedder.renderercallback;
+
+import eu.virtualparadox.springembedder.DemoGraphInitializer;
+import eu.virtualparadox.springembedder.layouter.FruchtermanReingoldLayouter;
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultWeightedEdge;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FramePipelineTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testWritesInSubmissionOrderWithBoundedImages() {
+        final FramePipeline pipeline = new FramePipeline("test", 8, 8, 4, 6);
+        final List<Integer> written = new ArrayList<>();
+        final Set<BufferedImage> images = Collections.synchronizedSet(Collections.newSetFromMap(new IdentityHashMap<>()));
+        final AtomicInteger inFlight = new AtomicInteger();
+        final AtomicInteger maxInFlight = new AtomicInteger();
+        final Random random = new Random(1);
+
+        for (int i = 0; i < 200; i++) {
+            final int frame = i;
+            final long delay = random.nextInt(300_000);
+            pipeline.submit(image -> {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                images.add(image);
+                final long start = System.nanoTime();
+                while (System.nanoTime() - start < delay) {
+                    Thread.onSpinWait();
+                }
+                return () -> {
+                    written.add(frame);
+                    inFlight.decrementAndGet();
+                };
+            });
+        }
+        pipeline.finish();
+
+        assertEquals(200, written.size(), "Expected every frame to be written");
+        for (int i = 0; i < 200; i++) {
+            assertEquals(i, written.get(i), "Expected the frames in submission order");
+        }
+        assertTrue(maxInFlight.get() <= 6, "Expected at most capacity frames in flight, was " + maxInFlight.get());
+        assertTrue(images.size() <= 6, "Expected at most capacity pooled images, was " + images.size());
+    }
+
+    @Test
+    void testFailureIsRethrown() {
+        final FramePipeline pipeline = new FramePipeline("test", 8, 8, 2, 2);
+        pipeline.submit(image -> {
+            throw new IOException("disk full");
+        });
+        final IllegalStateException e = assertThrows(IllegalStateException.class, pipeline::finish, "Expected the failure to be rethrown");
+        assertEquals("disk full", e.getCause().getMessage(), "Expected the original cause");
+    }
+
+    @Test
+    void testPngRendererWritesEveryFrame() throws IOException {
+        final Graph<String, DefaultWeightedEdge> graph = DemoGraphInitializer.initializeDemoGraph(2, 5);
+        final PngRendererCallback<String, DefaultWeightedEdge> callback = new PngRendererCallback<>(tempDir, 64, 64, 3) {
+            @Override
+            public boolean isFrameRequested(final int iteration) {
+                return iteration % 5 == 0;
+            }
+        };
+        new FruchtermanReingoldLayouter<>(64, 64, callback).layout(graph, 20);
+
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertEquals(List.of("iteration-0000.png", "iteration-0005.png", "iteration-0010.png", "iteration-0015.png"),
+                    files.map(file -> file.getFileName().toString()).sorted().toList(), "Expected a PNG per requested frame");
+        }
+    }
+}
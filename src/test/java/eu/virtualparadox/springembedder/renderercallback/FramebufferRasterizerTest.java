@@ -0,0 +1,79 @@
+package eu.virtualparadox.springembedder.renderercallback;
+
+import eu.virtualparadox.springembedder.EdgeWeightTable;
+import eu.virtualparadox.springembedder.WeightCurve;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static eu.virtualparadox.springembedder.renderercallback.FramebufferRasterizer.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class FramebufferRasterizerTest {
+
+    private static final int WIDTH = 64;
+    private static final int HEIGHT = 48;
+
+    @Test
+    void testStrokeWidths() {
+        // weights 1 and 10 normalize to strokes of 1 and 10 pixels
+        final EdgeBatches edges = EdgeBatches.of(new int[]{0, 2}, new int[]{1, 3},
+                EdgeWeightTable.ofRawWeights(new double[]{1, 10}, WeightCurve.LINEAR));
+        final float[] x = {10, 50, 20, 20};
+        final float[] y = {10, 10, 15, 40};
+        final int[] pixels = new int[WIDTH * HEIGHT];
+        new FramebufferRasterizer(WIDTH, HEIGHT, 0).render(pixels, x, y, 4, edges, 1);
+
+        assertEquals(EDGE_COLOR, pixels[10 * WIDTH + 30], "Expected the thin line on its row");
+        assertEquals(BACKGROUND_COLOR, pixels[11 * WIDTH + 30], "Expected the thin line to be one pixel wide");
+        for (int column = 16; column < 26; column++) {
+            assertEquals(EDGE_COLOR, pixels[30 * WIDTH + column], "Expected the thick line to be ten pixels wide");
+        }
+        assertEquals(BACKGROUND_COLOR, pixels[30 * WIDTH + 26], "Expected nothing beyond the thick line");
+    }
+
+    @Test
+    void testCulling() {
+        final EdgeBatches edges = EdgeBatches.of(new int[]{0, 2}, new int[]{1, 3}, EdgeWeightTable.of(null, 2, WeightCurve.LINEAR));
+        // a sub-pixel edge and an edge far outside the viewport, with vertices off screen
+        final float[] x = {30.2f, 30.6f, -500, 5000};
+        final float[] y = {20.1f, 20.4f, -100, -100};
+        final int[] pixels = new int[WIDTH * HEIGHT];
+        new FramebufferRasterizer(WIDTH, HEIGHT, 0).render(pixels, x, y, 4, edges, 1);
+
+        for (final int pixel : pixels) {
+            assertEquals(BACKGROUND_COLOR, pixel, "Expected culled edges and vertices to draw nothing");
+        }
+    }
+
+    @Test
+    void testBandsMatchSingleBand() {
+        final Random random = new Random(1);
+        final int n = 200;
+        final int m = 600;
+        final float[] x = new float[n];
+        final float[] y = new float[n];
+        for (int v = 0; v < n; v++) {
+            x[v] = random.nextFloat() * (WIDTH + 40) - 20;
+            y[v] = random.nextFloat() * (HEIGHT + 40) - 20;
+        }
+        final int[] sources = new int[m];
+        final int[] targets = new int[m];
+        final double[] weights = new double[m];
+        for (int e = 0; e < m; e++) {
+            sources[e] = random.nextInt(n);
+            targets[e] = random.nextInt(n);
+            weights[e] = random.nextDouble();
+        }
+        final EdgeBatches edges = EdgeBatches.of(sources, targets, EdgeWeightTable.ofRawWeights(weights, WeightCurve.LINEAR));
+        final FramebufferRasterizer rasterizer = new FramebufferRasterizer(WIDTH, HEIGHT, 3);
+
+        final int[] single = new int[WIDTH * HEIGHT];
+        rasterizer.render(single, x, y, n, edges, 1);
+        final int[] banded = new int[WIDTH * HEIGHT];
+        rasterizer.render(banded, x, y, n, edges, 7);
+
+        assertArrayEquals(single, banded, "Expected the bands to draw the same pixels");
+        assertEquals(m, edges.size(), "Expected every edge in a batch");
+    }
+}
@@ -0,0 +1,111 @@
+package eu.virtualparadox.springembedder.trajectory;
+
+import eu.virtualparadox.springembedder.DemoGraphInitializer;
+import eu.virtualparadox.springembedder.Vector2D;
+import eu.virtualparadox.springembedder.layouter.FruchtermanReingoldLayouter;
+import eu.virtualparadox.springembedder.renderercallback.AbstractRendererCallback;
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultWeightedEdge;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrajectoryReaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final Graph<String, DefaultWeightedEdge> graph = DemoGraphInitializer.initializeDemoGraph(3, 15);
+
+    @Test
+    void testReplayMatchesLiveFrames() throws IOException {
+        final Path file = tempDir.resolve("layout.traj");
+        new FruchtermanReingoldLayouter<>(640, 480, new TrajectoryRecorder<String, DefaultWeightedEdge>(file, 640, 480, 5)).layout(graph, 50);
+        final RecordingCallback live = new RecordingCallback(5);
+        new FruchtermanReingoldLayouter<>(640, 480, live).layout(graph, 50);
+
+        try (TrajectoryReader reader = new TrajectoryReader(file)) {
+            assertEquals(10, reader.frameCount(), "Expected every fifth iteration to be recorded");
+            assertEquals(graph.vertexSet().size(), reader.vertexCount(), "Expected every vertex in the vertex table");
+            assertEquals(640, reader.getWidth(), "Expected the width of the layout area");
+
+            final RecordingCallback replayed = new RecordingCallback(1);
+            reader.replay(graph, replayed);
+            assertEquals(live.iterations, replayed.iterations, "Expected the recorded iterations");
+            for (int f = 0; f < live.frames.size(); f++) {
+                for (final String vertex : graph.vertexSet()) {
+                    final Vector2D expected = live.frames.get(f).get(vertex);
+                    final Vector2D actual = replayed.frames.get(f).get(vertex);
+                    assertEquals((float) expected.getX(), actual.getX(), "Expected the float x of " + vertex);
+                    assertEquals((float) expected.getY(), actual.getY(), "Expected the float y of " + vertex);
+                }
+            }
+            assertTrue(replayed.finished, "Expected the replay to finish the callback");
+        }
+    }
+
+    @Test
+    void testRandomAccessToIterationRange() throws IOException {
+        final Path file = tempDir.resolve("layout.traj");
+        new FruchtermanReingoldLayouter<>(640, 480, new TrajectoryRecorder<String, DefaultWeightedEdge>(file, 640, 480)).layout(graph, 40);
+
+        try (TrajectoryReader reader = new TrajectoryReader(file)) {
+            assertEquals(17, reader.iteration(reader.frameAtOrAfter(17)), "Expected the frame of an iteration");
+
+            final RecordingCallback replayed = new RecordingCallback(1);
+            reader.replay(graph, 25, 30, replayed);
+            assertEquals(List.of(25, 26, 27, 28, 29), replayed.iterations, "Expected only the iterations of the range");
+        }
+    }
+
+    @Test
+    void testTruncatedFileKeepsCompleteFrames() throws IOException {
+        final Path file = tempDir.resolve("layout.traj");
+        new FruchtermanReingoldLayouter<>(640, 480, new TrajectoryRecorder<String, DefaultWeightedEdge>(file, 640, 480)).layout(graph, 10);
+        final byte[] bytes = Files.readAllBytes(file);
+        final Path truncated = tempDir.resolve("truncated.traj");
+        Files.write(truncated, Arrays.copyOf(bytes, bytes.length - 3));
+
+        try (TrajectoryReader reader = new TrajectoryReader(truncated)) {
+            assertEquals(9, reader.frameCount(), "Expected the incomplete last frame to be ignored");
+        }
+    }
+
+    private static final class RecordingCallback extends AbstractRendererCallback<String, DefaultWeightedEdge> {
+
+        private final int frameInterval;
+        private final List<Integer> iterations = new ArrayList<>();
+        private final List<Map<String, Vector2D>> frames = new ArrayList<>();
+        private boolean finished;
+
+        private RecordingCallback(final int frameInterval) {
+            super(null, 0, 0);
+            this.frameInterval = frameInterval;
+        }
+
+        @Override
+        public boolean isFrameRequested(final int iteration) {
+            return iteration % frameInterval == 0;
+        }
+
+        @Override
+        public void render(final Graph<String, DefaultWeightedEdge> graph, final int iteration, final Map<String, Vector2D> positionMap) {
+            iterations.add(iteration);
+            frames.add(positionMap);
+        }
+
+        @Override
+        public void finish() {
+            finished = true;
+        }
+    }
+}